@@ -0,0 +1,101 @@
+package org.sqlite.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sqlite.SQLiteConnection;
+
+/**
+ * Measures backup and restore of an in-memory database of {@code megabytes} MiB to and from a file,
+ * through the {@code backup to} and {@code restore from} commands, and its serialization to and
+ * from memory. Dividing the size by the reported time gives the throughput.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BackupBenchmark {
+    @Param({"1", "16"})
+    public int megabytes;
+
+    private File file;
+    private Connection conn;
+    private SQLiteConnection target;
+    private byte[] image;
+    private ByteBuffer directImage;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException, SQLException {
+        file = File.createTempFile("backup-bench", ".db");
+        conn = DriverManager.getConnection("jdbc:sqlite:");
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("create table t (id integer primary key, payload blob)");
+            stat.executeUpdate(
+                    "insert into t with recursive c(x) as (select 1 union all select x + 1 from c"
+                            + " where x < "
+                            + megabytes * 256
+                            + ") select x, randomblob(4096) from c");
+            stat.executeUpdate("backup to '" + file.getAbsolutePath() + "'");
+        }
+        image = ((SQLiteConnection) conn).serialize("main");
+        directImage = ByteBuffer.allocateDirect(image.length);
+        directImage.put(image).flip();
+        target = (SQLiteConnection) DriverManager.getConnection("jdbc:sqlite:");
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        conn.close();
+        target.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public void backup() throws SQLException {
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("backup to '" + file.getAbsolutePath() + "'");
+        }
+    }
+
+    @Benchmark
+    public void restore() throws SQLException {
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("restore from '" + file.getAbsolutePath() + "'");
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() throws SQLException {
+        return ((SQLiteConnection) conn).serialize("main");
+    }
+
+    @Benchmark
+    public void deserialize() throws SQLException {
+        target.deserialize("main", image);
+    }
+
+    @Benchmark
+    public void deserializeInPlace() throws SQLException {
+        target.deserialize("main", directImage);
+    }
+}
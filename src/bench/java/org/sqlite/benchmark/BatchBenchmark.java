@@ -0,0 +1,122 @@
+package org.sqlite.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sqlite.SQLiteConfig;
+
+/**
+ * Compares {@link PreparedStatement#executeLargeBatch()}, which hands the whole batch to native
+ * code in one call, with binding and executing each row from Java inside a single transaction. The
+ * latter crosses JNI for every reset, bind, step and changes call, like the batch path used to.
+ * Also measures a {@link Statement} batch of SQL strings in auto-commit mode, which runs in one
+ * transaction and prepares each distinct string once. With {@code rewriteInserts}, the prepared
+ * batch runs as multi-row inserts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchBenchmark {
+    @Param({"1000", "100000"})
+    public int rows;
+
+    @Param({"false", "true"})
+    public boolean rewriteInserts;
+
+    private File file;
+    private Connection conn;
+    private PreparedStatement insert;
+    private Statement batch;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException, SQLException {
+        file = File.createTempFile("batch-bench", ".db");
+        SQLiteConfig config = new SQLiteConfig();
+        config.setRewriteBatchedInserts(rewriteInserts);
+        conn = config.createConnection("jdbc:sqlite:" + file.getAbsolutePath());
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("create table t (id integer, name text, score real, payload blob)");
+        }
+        conn.setAutoCommit(false);
+        insert = conn.prepareStatement("insert into t values (?, ?, ?, ?)");
+        batch = conn.createStatement();
+    }
+
+    @Setup(Level.Invocation)
+    public void truncate() throws SQLException {
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("delete from t");
+        }
+        conn.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        insert.close();
+        batch.close();
+        conn.close();
+        file.delete();
+    }
+
+    private void bind(int i) throws SQLException {
+        insert.setInt(1, i);
+        insert.setString(2, "row " + i);
+        insert.setDouble(3, i * 0.5);
+        insert.setBytes(4, new byte[] {(byte) i, (byte) (i >> 8)});
+    }
+
+    @Benchmark
+    public long[] executeBatch() throws SQLException {
+        for (int i = 0; i < rows; i++) {
+            bind(i);
+            insert.addBatch();
+        }
+        long[] changes = insert.executeLargeBatch();
+        conn.commit();
+        return changes;
+    }
+
+    @Benchmark
+    public long[] executeStatementBatch() throws SQLException {
+        conn.setAutoCommit(true);
+        try {
+            for (int i = 0; i < rows; i++) {
+                batch.addBatch("insert into t (id, name) values (" + (i % 100) + ", 'row')");
+            }
+            return batch.executeLargeBatch();
+        } finally {
+            conn.setAutoCommit(false);
+        }
+    }
+
+    @Benchmark
+    public long executeRowByRow() throws SQLException {
+        long changes = 0;
+        for (int i = 0; i < rows; i++) {
+            bind(i);
+            changes += insert.executeLargeUpdate();
+        }
+        conn.commit();
+        return changes;
+    }
+}
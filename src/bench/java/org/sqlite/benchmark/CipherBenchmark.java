@@ -0,0 +1,96 @@
+package org.sqlite.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.mc.CipherAlgorithm;
+import org.sqlite.mc.SQLiteMCConfig;
+
+/**
+ * Compares file I/O of a plain database with an encrypted one for each {@link CipherAlgorithm}. The
+ * page cache is kept small so that reads and writes go through the cipher rather than being served
+ * from memory. The key derivation done when opening the connection is not measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CipherBenchmark {
+    private static final int ROWS = 2000;
+
+    /** NONE for a plain database, otherwise the name of a {@link CipherAlgorithm}. */
+    @Param({"NONE", "SQL_CIPHER", "RC4", "CHACHA20", "WX_AES128", "WX_AES256"})
+    public String cipher;
+
+    private File file;
+    private Connection conn;
+    private PreparedStatement insert;
+    private PreparedStatement scan;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException, SQLException {
+        file = File.createTempFile("cipher-bench", ".db");
+        file.delete();
+        SQLiteConfig config =
+                "NONE".equals(cipher)
+                        ? new SQLiteConfig()
+                        : new SQLiteMCConfig.Builder()
+                                .setCipher(CipherAlgorithm.valueOf(cipher))
+                                .withKey("benchmark")
+                                .build();
+        config.setCacheSize(16);
+        conn = config.createConnection("jdbc:sqlite:file:" + file.getAbsolutePath());
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("create table t (id integer primary key, payload blob)");
+        }
+        insert = conn.prepareStatement("insert or replace into t values (?, randomblob(512))");
+        scan = conn.prepareStatement("select sum(length(payload)) from t");
+        conn.setAutoCommit(false);
+        write();
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        insert.close();
+        scan.close();
+        conn.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public void write() throws SQLException {
+        for (int i = 0; i < ROWS; i++) {
+            insert.setInt(1, i);
+            insert.executeUpdate();
+        }
+        conn.commit();
+    }
+
+    @Benchmark
+    public long read() throws SQLException {
+        try (ResultSet rs = scan.executeQuery()) {
+            return rs.getLong(1);
+        }
+    }
+}
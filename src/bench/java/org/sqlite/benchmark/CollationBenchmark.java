@@ -0,0 +1,104 @@
+package org.sqlite.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.Collator;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sqlite.Collation;
+
+/**
+ * Measures sorting by a {@link Collator} registered as a plain collation, which compares the two
+ * strings on every call, and as a keyed collation, which compares cached collation keys. The larger
+ * table holds more distinct values than the default key cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CollationBenchmark {
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private Connection conn;
+    private PreparedStatement plain;
+    private PreparedStatement keyed;
+
+    @Setup(Level.Trial)
+    public void open() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite:");
+        Collator collator = Collator.getInstance(Locale.FRENCH);
+        Collation.create(
+                conn,
+                "PLAIN",
+                new Collation() {
+                    @Override
+                    protected int xCompare(String str1, String str2) {
+                        return collator.compare(str1, str2);
+                    }
+                });
+        Collation.create(conn, "KEYED", Collation.Keyed.of(collator));
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("create table t (c text)");
+        }
+        conn.setAutoCommit(false);
+        Random random = new Random(42);
+        try (PreparedStatement insert = conn.prepareStatement("insert into t values (?)")) {
+            for (int i = 0; i < rows; i++) {
+                insert.setString(1, "\u00c9l\u00e9ment " + Long.toString(random.nextLong(), 36));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        conn.commit();
+        plain = conn.prepareStatement("select c from t order by c collate PLAIN");
+        keyed = conn.prepareStatement("select c from t order by c collate KEYED");
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        plain.close();
+        keyed.close();
+        conn.close();
+    }
+
+    private static int run(PreparedStatement prep) throws SQLException {
+        int count = 0;
+        try (ResultSet rs = prep.executeQuery()) {
+            while (rs.next()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int plainCollation() throws SQLException {
+        return run(plain);
+    }
+
+    @Benchmark
+    public int keyedCollation() throws SQLException {
+        return run(keyed);
+    }
+}
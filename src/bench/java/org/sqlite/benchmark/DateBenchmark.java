@@ -0,0 +1,108 @@
+package org.sqlite.benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteConfig.DateClass;
+import org.sqlite.date.FastDateFormat;
+
+/**
+ * Measures date conversions for each {@link DateClass}: binding timestamps, reading them back with
+ * {@code getTimestamp}, and the {@link FastDateFormat} parsing and formatting the TEXT class relies
+ * on.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DateBenchmark {
+    private static final int ROWS = 1000;
+
+    @Param({"INTEGER", "REAL", "TEXT"})
+    public DateClass dateClass;
+
+    private Connection conn;
+    private PreparedStatement insert;
+    private PreparedStatement select;
+    private FastDateFormat format;
+    private String text;
+    private long millis = 1_600_000_000_000L;
+
+    @Setup(Level.Trial)
+    public void open() throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setDateClass(dateClass.getValue());
+        conn = config.createConnection("jdbc:sqlite:");
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("create table t (ts datetime)");
+            stat.executeUpdate("create table sink (ts datetime)");
+        }
+        try (PreparedStatement prep = conn.prepareStatement("insert into t values (?)")) {
+            for (int i = 0; i < ROWS; i++) {
+                prep.setTimestamp(1, new Timestamp(millis + i * 1000L));
+                prep.addBatch();
+            }
+            prep.executeBatch();
+        }
+        insert = conn.prepareStatement("insert into sink values (?)");
+        select = conn.prepareStatement("select ts from t");
+        format = FastDateFormat.getInstance(SQLiteConfig.DEFAULT_DATE_STRING_FORMAT);
+        text = format.format(millis);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        insert.close();
+        select.close();
+        conn.close();
+    }
+
+    @Benchmark
+    public int setTimestamp() throws SQLException {
+        insert.setTimestamp(1, new Timestamp(millis++));
+        return insert.executeUpdate();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void getTimestamp(Blackhole bh) throws SQLException {
+        try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                bh.consume(rs.getTimestamp(1));
+            }
+        }
+    }
+
+    @Benchmark
+    public Date parse() throws ParseException {
+        return format.parse(text);
+    }
+
+    @Benchmark
+    public String format() {
+        return format.format(millis++);
+    }
+}
@@ -0,0 +1,165 @@
+package org.sqlite.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sqlite.Function;
+
+/**
+ * Measures the cost of calling Java user-defined functions from SQLite, compared with the built-in
+ * functions doing the same work. Each benchmark evaluates the function once per row of a generated
+ * sequence.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FunctionBenchmark {
+    private static final String SEQUENCE =
+            "with recursive c(x) as (select 1 union all select x + 1 from c where x < ?) ";
+
+    @Param({"10000"})
+    public int rows;
+
+    private Connection conn;
+    private PreparedStatement builtinScalar;
+    private PreparedStatement javaScalar;
+    private PreparedStatement javaTypedScalar;
+    private PreparedStatement builtinAggregate;
+    private PreparedStatement javaAggregate;
+    private PreparedStatement javaBatchAggregate;
+
+    @Setup(Level.Trial)
+    public void open() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite:");
+        Function.create(
+                conn,
+                "java_abs",
+                new Function() {
+                    @Override
+                    protected void xFunc() throws SQLException {
+                        result(Math.abs(value_long(0)));
+                    }
+                });
+        Function.create(
+                conn,
+                "java_typed_abs",
+                new Function.LongFunction() {
+                    @Override
+                    protected long apply(long value) {
+                        return Math.abs(value);
+                    }
+                });
+        Function.create(
+                conn,
+                "java_sum",
+                new Function.Aggregate() {
+                    private long sum;
+
+                    @Override
+                    protected void xStep() throws SQLException {
+                        sum += value_long(0);
+                    }
+
+                    @Override
+                    protected void xFinal() throws SQLException {
+                        result(sum);
+                    }
+                });
+        Function.create(
+                conn,
+                "java_batch_sum",
+                new Function.BatchAggregate() {
+                    private long sum;
+
+                    @Override
+                    protected void xStep(Rows rows) {
+                        for (int i = 0; i < rows.size(); i++) {
+                            sum += rows.getLong(i, 0);
+                        }
+                    }
+
+                    @Override
+                    protected void xFinal() throws SQLException {
+                        result(sum);
+                    }
+                });
+        builtinScalar = prepare("select sum(abs(-x)) from c");
+        javaScalar = prepare("select sum(java_abs(-x)) from c");
+        javaTypedScalar = prepare("select sum(java_typed_abs(-x)) from c");
+        builtinAggregate = prepare("select sum(x) from c");
+        javaAggregate = prepare("select java_sum(x) from c");
+        javaBatchAggregate = prepare("select java_batch_sum(x) from c");
+    }
+
+    private PreparedStatement prepare(String select) throws SQLException {
+        PreparedStatement prep = conn.prepareStatement(SEQUENCE + select);
+        prep.setInt(1, rows);
+        return prep;
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        builtinScalar.close();
+        javaScalar.close();
+        javaTypedScalar.close();
+        builtinAggregate.close();
+        javaAggregate.close();
+        javaBatchAggregate.close();
+        conn.close();
+    }
+
+    private static long run(PreparedStatement prep) throws SQLException {
+        try (ResultSet rs = prep.executeQuery()) {
+            return rs.getLong(1);
+        }
+    }
+
+    @Benchmark
+    public long builtinScalar() throws SQLException {
+        return run(builtinScalar);
+    }
+
+    @Benchmark
+    public long javaScalar() throws SQLException {
+        return run(javaScalar);
+    }
+
+    @Benchmark
+    public long javaTypedScalar() throws SQLException {
+        return run(javaTypedScalar);
+    }
+
+    @Benchmark
+    public long builtinAggregate() throws SQLException {
+        return run(builtinAggregate);
+    }
+
+    @Benchmark
+    public long javaAggregate() throws SQLException {
+        return run(javaAggregate);
+    }
+
+    @Benchmark
+    public long javaBatchAggregate() throws SQLException {
+        return run(javaBatchAggregate);
+    }
+}
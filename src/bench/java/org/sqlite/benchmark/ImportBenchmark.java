@@ -0,0 +1,109 @@
+package org.sqlite.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sqlite.SQLiteConnection;
+import org.sqlite.SQLiteCsvFormat;
+
+/**
+ * Compares {@link SQLiteConnection#importCsv}, which maps the file and parses and binds its fields
+ * natively, with reading the lines of the file and inserting them through a prepared statement
+ * batch, committing as often.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImportBenchmark {
+    private static final int COMMIT_ROWS = 100_000;
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private File db;
+    private File csv;
+    private SQLiteConnection conn;
+
+    @Setup(Level.Trial)
+    public void open() throws IOException, SQLException {
+        csv = File.createTempFile("import-bench", ".csv");
+        try (Writer out = Files.newBufferedWriter(csv.toPath(), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < rows; i++) {
+                out.write(i + ",\"row " + i + "\"," + i * 0.5 + "\n");
+            }
+        }
+        db = File.createTempFile("import-bench", ".db");
+        conn = (SQLiteConnection) DriverManager.getConnection("jdbc:sqlite:" + db.getPath());
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("create table t (id integer, name text, score real)");
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void truncate() throws SQLException {
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("delete from t");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        conn.close();
+        db.delete();
+        csv.delete();
+    }
+
+    @Benchmark
+    public long importCsv() throws IOException, SQLException {
+        return conn.importCsv(csv.toPath(), "t", SQLiteCsvFormat.csv(), COMMIT_ROWS, null);
+    }
+
+    @Benchmark
+    public long preparedBatch() throws IOException, SQLException {
+        long count = 0;
+        conn.setAutoCommit(false);
+        try (BufferedReader in = Files.newBufferedReader(csv.toPath(), StandardCharsets.UTF_8);
+                PreparedStatement insert = conn.prepareStatement("insert into t values (?,?,?)")) {
+            for (String line; (line = in.readLine()) != null; ) {
+                String[] fields = line.split(",", -1);
+                insert.setString(1, fields[0]);
+                insert.setString(2, fields[1].substring(1, fields[1].length() - 1));
+                insert.setString(3, fields[2]);
+                insert.addBatch();
+                if (++count % COMMIT_ROWS == 0) {
+                    insert.executeBatch();
+                    conn.commit();
+                }
+            }
+            insert.executeBatch();
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        return count;
+    }
+}
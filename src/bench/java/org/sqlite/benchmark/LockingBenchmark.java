@@ -0,0 +1,82 @@
+package org.sqlite.benchmark;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteConfig.LockingStrategy;
+import org.sqlite.SQLiteConnection;
+
+/**
+ * Measures how long connection-level calls wait while another thread runs a slow query on the same
+ * connection. {@code query} steps through an aggregate that spends most of its time inside
+ * sqlite3_step, while {@code libversion} calls a method that only needs the connection lock. With
+ * the connection locking strategy the latter waits for each step to finish; with the statement
+ * strategy it does not.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LockingBenchmark {
+    @Param({"CONNECTION", "STATEMENT"})
+    public LockingStrategy strategy;
+
+    private SQLiteConnection conn;
+    private PreparedStatement slow;
+
+    @Setup(Level.Trial)
+    public void open() throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setLockingStrategy(strategy);
+        conn = (SQLiteConnection) config.createConnection("jdbc:sqlite:");
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("create table t (id integer primary key, name text)");
+            stat.executeUpdate(
+                    "insert into t with recursive c(x) as (select 1 union all select x + 1 from c"
+                            + " where x < 100000) select x, 'name' || x from c");
+        }
+        slow = conn.prepareStatement("select count(distinct name), sum(length(name)) from t");
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        slow.close();
+        conn.close();
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public long query() throws SQLException {
+        try (ResultSet rs = slow.executeQuery()) {
+            return rs.getLong(1) + rs.getLong(2);
+        }
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public String libversion() throws SQLException {
+        return conn.libversion();
+    }
+}
@@ -0,0 +1,127 @@
+package org.sqlite.benchmark;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sqlite.SQLiteColumnBatch;
+
+/**
+ * Reads every column of every row of a table through the {@code JDBC3ResultSet} getters, either by
+ * column index or by column name. A {@code fetchSize} above 1 reads the rows out of the prefetch
+ * buffer instead of calling into SQLite for each value. {@code columnBatch} reads the same rows
+ * into column vectors with {@link SQLiteColumnBatch}, summing the values of two vectors the way a
+ * columnar consumer would.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultSetBenchmark {
+    @Param({"1000"})
+    public int rows;
+
+    @Param({"0", "256"})
+    public int fetchSize;
+
+    private Connection conn;
+    private PreparedStatement select;
+
+    @Setup(Level.Trial)
+    public void open() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite:");
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate(
+                    "create table t (id integer primary key, name text, score real, payload blob)");
+            stat.executeUpdate(
+                    "insert into t with recursive c(x) as (select 1 union all select x + 1 from c"
+                            + " where x < "
+                            + rows
+                            + ") select x, 'name' || x, x / 3.0, randomblob(64) from c");
+        }
+        select = conn.prepareStatement("select id, name, score, payload from t");
+        select.setFetchSize(fetchSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        select.close();
+        conn.close();
+    }
+
+    @Benchmark
+    public void byIndex(Blackhole bh) throws SQLException {
+        try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                bh.consume(rs.getLong(1));
+                bh.consume(rs.getString(2));
+                bh.consume(rs.getDouble(3));
+                bh.consume(rs.getBytes(4));
+            }
+        }
+    }
+
+    @Benchmark
+    public void byName(Blackhole bh) throws SQLException {
+        try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                bh.consume(rs.getLong("id"));
+                bh.consume(rs.getString("name"));
+                bh.consume(rs.getDouble("score"));
+                bh.consume(rs.getBytes("payload"));
+            }
+        }
+    }
+
+    @Benchmark
+    public void getObject(Blackhole bh) throws SQLException {
+        try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                for (int i = 1; i <= 4; i++) {
+                    bh.consume(rs.getObject(i));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void columnBatch(Blackhole bh) throws SQLException {
+        try (ResultSet rs = select.executeQuery()) {
+            SQLiteColumnBatch batch = new SQLiteColumnBatch(rs, 1024);
+            while (batch.next()) {
+                ByteBuffer ids = batch.getValues(0);
+                ByteBuffer scores = batch.getValues(2);
+                long idSum = 0;
+                double scoreSum = 0;
+                for (int row = 0; row < batch.getRowCount(); row++) {
+                    idSum += ids.getLong(row * 8);
+                    scoreSum += scores.getDouble(row * 8);
+                }
+                bh.consume(idSum);
+                bh.consume(scoreSum);
+                bh.consume(batch.getData(1));
+                bh.consume(batch.getData(3));
+            }
+        }
+    }
+}
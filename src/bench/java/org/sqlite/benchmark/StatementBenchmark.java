@@ -0,0 +1,109 @@
+package org.sqlite.benchmark;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteConnection;
+
+/**
+ * Measures the per-statement overhead of the driver: compiling a statement, binding parameters,
+ * stepping through rows without reading them, and a single-row update. {@code cacheSize} enables
+ * the prepared statement cache, which {@code prepare} should benefit from.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatementBenchmark {
+    private static final int ROWS = 1000;
+
+    @Param({"0", "16"})
+    public int cacheSize;
+
+    private SQLiteConnection conn;
+    private PreparedStatement bind;
+    private PreparedStatement scan;
+    private PreparedStatement update;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void open() throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setStatementCacheSize(cacheSize);
+        conn = (SQLiteConnection) config.createConnection("jdbc:sqlite:");
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate(
+                    "create table t (id integer primary key, name text, score real, payload blob)");
+            stat.executeUpdate(
+                    "insert into t with recursive c(x) as (select 1 union all select x + 1 from c"
+                            + " where x < "
+                            + ROWS
+                            + ") select x, 'name' || x, x / 3.0, randomblob(16) from c");
+        }
+        bind = conn.prepareStatement("select ?, ?, ?, ?");
+        scan = conn.prepareStatement("select * from t");
+        update = conn.prepareStatement("update t set score = ? where id = ?");
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        bind.close();
+        scan.close();
+        update.close();
+        conn.close();
+    }
+
+    @Benchmark
+    public void prepare() throws SQLException {
+        conn.prepareStatement("select id, name, score from t where id = ?").close();
+    }
+
+    @Benchmark
+    public PreparedStatement bind() throws SQLException {
+        int i = next++;
+        bind.setInt(1, i);
+        bind.setString(2, "value");
+        bind.setDouble(3, i * 0.5);
+        bind.setBytes(4, new byte[] {(byte) i});
+        bind.clearParameters();
+        return bind;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int step() throws SQLException {
+        int rows = 0;
+        try (ResultSet rs = scan.executeQuery()) {
+            while (rs.next()) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public int executeUpdate() throws SQLException {
+        int i = next++;
+        update.setDouble(1, i * 0.5);
+        update.setInt(2, i % ROWS + 1);
+        return update.executeUpdate();
+    }
+}
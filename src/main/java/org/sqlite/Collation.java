@@ -17,6 +17,7 @@ package org.sqlite;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.text.Collator;
 import org.sqlite.core.Codes;
 import org.sqlite.core.DB;
 
@@ -90,4 +91,72 @@ public abstract class Collation {
      *     equal to, or greater than the second, respectively
      */
     protected abstract int xCompare(String str1, String str2);
+
+    /**
+     * A collation comparing binary sort keys, such as those of a {@link java.text.CollationKey}.
+     * {@link #key(String)} is called once per distinct value and the keys are cached and compared
+     * natively, byte by byte, so that sorting does not call Java for each comparison nor create
+     * strings for values already seen.
+     *
+     * <p>Keys must be consistent with the order wanted: two values are ordered as their keys
+     * compared as unsigned bytes, a key that is a prefix of another one coming first.
+     */
+    public abstract static class Keyed extends Collation {
+        /** The number of distinct values whose keys are cached by default. */
+        public static final int DEFAULT_CACHE_SIZE = 10000;
+
+        // read by native code when the collation is created
+        private final int cacheSize;
+
+        protected Keyed() {
+            this(DEFAULT_CACHE_SIZE);
+        }
+
+        /**
+         * @param cacheSize the number of distinct values whose keys are cached; the least recently
+         *     used key is evicted when it is full.
+         */
+        protected Keyed(int cacheSize) {
+            if (cacheSize < 2) throw new IllegalArgumentException("cacheSize < 2");
+            this.cacheSize = cacheSize;
+        }
+
+        /**
+         * Creates a collation ordering strings as a {@link Collator} does.
+         *
+         * @param collator the collator, which is copied.
+         * @return the collation to register with {@link Collation#create(Connection, String,
+         *     Collation)}.
+         */
+        public static Keyed of(Collator collator) {
+            Collator copy = (Collator) collator.clone();
+            return new Keyed() {
+                @Override
+                protected byte[] key(String str) {
+                    return copy.getCollationKey(str).toByteArray();
+                }
+            };
+        }
+
+        /**
+         * Called by SQLite the first time a value is compared.
+         *
+         * @param str the value.
+         * @return the sort key of the value, compared as unsigned bytes.
+         */
+        protected abstract byte[] key(String str);
+
+        /** Not called by SQLite, which compares the keys natively. */
+        @Override
+        protected final int xCompare(String str1, String str2) {
+            byte[] key1 = key(str1);
+            byte[] key2 = key(str2);
+            int length = Math.min(key1.length, key2.length);
+            for (int i = 0; i < length; i++) {
+                int cmp = (key1[i] & 0xff) - (key2[i] & 0xff);
+                if (cmp != 0) return cmp;
+            }
+            return key1.length - key2.length;
+        }
+    }
 }
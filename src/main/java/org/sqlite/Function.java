@@ -15,8 +15,10 @@
  */
 package org.sqlite;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Arrays;
 import org.sqlite.core.Codes;
 import org.sqlite.core.DB;
 
@@ -107,12 +109,26 @@ public abstract class Function {
         if (nArgs < -1 || nArgs > 127) {
             throw new SQLException("invalid args provided: " + nArgs);
         }
+        if (isTyped(f)) {
+            if (nArgs != -1 && nArgs != 1) {
+                throw new SQLException("typed functions take one argument: " + nArgs);
+            }
+            nArgs = 1;
+        }
 
         if (f.db.create_function(name, f, nArgs, flags) != Codes.SQLITE_OK) {
             throw new SQLException("error creating function");
         }
     }
 
+    /** @return whether the arguments and result of a function are converted natively. */
+    private static boolean isTyped(Function f) {
+        return f instanceof LongFunction
+                || f instanceof DoubleFunction
+                || f instanceof TextFunction
+                || f instanceof BlobFunction;
+    }
+
     /**
      * Removes a named function from the given connection.
      *
@@ -357,4 +373,266 @@ public abstract class Function {
          */
         protected abstract void xValue() throws SQLException;
     }
+
+    /**
+     * A function of one integer argument returning an integer. The argument is converted natively
+     * and {@link #apply(long)} is called directly, without the <tt>value_*</tt> and <tt>result</tt>
+     * calls of {@link #xFunc()}. A NULL argument gives NULL without calling it.
+     */
+    public abstract static class LongFunction extends Function {
+        /**
+         * Called by SQLite as a custom function.
+         *
+         * @param value the argument, converted to an integer.
+         * @return the result of the function.
+         */
+        protected abstract long apply(long value) throws SQLException;
+
+        /** Not called by SQLite, which calls {@link #apply(long)} directly. */
+        @Override
+        protected final void xFunc() throws SQLException {
+            if (value_type(0) == Codes.SQLITE_NULL) result();
+            else result(apply(value_long(0)));
+        }
+    }
+
+    /**
+     * A function of one floating point argument returning a floating point number. The argument is
+     * converted natively and {@link #apply(double)} is called directly. A NULL argument gives NULL
+     * without calling it.
+     */
+    public abstract static class DoubleFunction extends Function {
+        /**
+         * Called by SQLite as a custom function.
+         *
+         * @param value the argument, converted to a floating point number.
+         * @return the result of the function.
+         */
+        protected abstract double apply(double value) throws SQLException;
+
+        /** Not called by SQLite, which calls {@link #apply(double)} directly. */
+        @Override
+        protected final void xFunc() throws SQLException {
+            if (value_type(0) == Codes.SQLITE_NULL) result();
+            else result(apply(value_double(0)));
+        }
+    }
+
+    /**
+     * A function of one text argument returning text. The argument is converted natively and {@link
+     * #apply(String)} is called directly. A NULL argument gives NULL without calling it, and
+     * returning null gives NULL.
+     */
+    public abstract static class TextFunction extends Function {
+        /**
+         * Called by SQLite as a custom function.
+         *
+         * @param value the argument, converted to text.
+         * @return the result of the function, or null.
+         */
+        protected abstract String apply(String value) throws SQLException;
+
+        /** Not called by SQLite, which calls {@link #apply(String)} directly. */
+        @Override
+        protected final void xFunc() throws SQLException {
+            if (value_type(0) == Codes.SQLITE_NULL) result();
+            else result(apply(value_text(0)));
+        }
+    }
+
+    /**
+     * A function of one blob argument returning a blob. The argument is converted natively and
+     * {@link #apply(byte[])} is called directly. A NULL argument gives NULL without calling it, and
+     * returning null gives NULL.
+     */
+    public abstract static class BlobFunction extends Function {
+        /**
+         * Called by SQLite as a custom function.
+         *
+         * @param value the argument, converted to a blob.
+         * @return the result of the function, or null.
+         */
+        protected abstract byte[] apply(byte[] value) throws SQLException;
+
+        /** Not called by SQLite, which calls {@link #apply(byte[])} directly. */
+        @Override
+        protected final void xFunc() throws SQLException {
+            if (value_type(0) == Codes.SQLITE_NULL) result();
+            else result(apply(value_blob(0)));
+        }
+    }
+
+    /**
+     * Provides an interface for creating aggregate functions which receive their arguments many
+     * rows at a time. The argument values of up to {@link #getBatchSize()} rows are collected
+     * natively and passed to {@link #xStep(Rows)} in one call, instead of calling {@link
+     * Aggregate#xStep()} and reading each argument separately for every row. The rows of a group
+     * are always delivered before its {@link #xFinal()} is called.
+     *
+     * <p>Arguments are only available through {@link Rows}: the <tt>value_*</tt> methods cannot be
+     * used from {@link #xStep(Rows)}.
+     *
+     * @see Aggregate
+     */
+    public abstract static class BatchAggregate extends Aggregate {
+        /** The number of rows collected before calling {@link #xStep(Rows)} by default. */
+        public static final int DEFAULT_BATCH_SIZE = 1024;
+
+        // read by native code when the function is created
+        private final int batchSize;
+
+        protected BatchAggregate() {
+            this(DEFAULT_BATCH_SIZE);
+        }
+
+        /** @param batchSize the maximum number of rows passed to {@link #xStep(Rows)} at once. */
+        protected BatchAggregate(int batchSize) {
+            if (batchSize < 1) throw new IllegalArgumentException("batchSize < 1");
+            this.batchSize = batchSize;
+        }
+
+        /** @return the maximum number of rows passed to {@link #xStep(Rows)} at once. */
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        /** Not called: rows are passed to {@link #xStep(Rows)}. */
+        protected final void xStep() {}
+
+        /**
+         * Called with the argument values of the rows collected since the previous call.
+         *
+         * @param rows the argument values.
+         * @throws SQLException
+         */
+        protected abstract void xStep(Rows rows) throws SQLException;
+
+        /** Called from native code with the collected rows. */
+        private void xStepRows(
+                int count,
+                int args,
+                int[] types,
+                long[] longs,
+                double[] doubles,
+                long[] spans,
+                byte[] data)
+                throws SQLException {
+            xStep(new Rows(count, args, types, longs, doubles, spans, data));
+        }
+    }
+
+    /**
+     * The argument values of several calls of a {@link BatchAggregate}. Numbers are held in
+     * primitive arrays; text and blobs are held as bytes and only decoded when read. Values are
+     * converted by SQLite when they are collected, so that they read as with {@link
+     * Function#value_long(int)}, {@link Function#value_double(int)} and {@link
+     * Function#value_text(int)}.
+     */
+    public static final class Rows {
+        private final int count;
+        private final int args;
+        private final int[] types;
+        private final long[] longs;
+        private final double[] doubles;
+        // the bytes of the values that are not integers or NULL, at the offset in the high and
+        // the length in the low half
+        private final long[] spans;
+        private final byte[] data;
+
+        Rows(
+                int count,
+                int args,
+                int[] types,
+                long[] longs,
+                double[] doubles,
+                long[] spans,
+                byte[] data) {
+            this.count = count;
+            this.args = args;
+            this.types = types;
+            this.longs = longs;
+            this.doubles = doubles;
+            this.spans = spans;
+            this.data = data;
+        }
+
+        /** @return the number of rows. */
+        public int size() {
+            return count;
+        }
+
+        /** @return the number of arguments of each row. */
+        public int args() {
+            return args;
+        }
+
+        /**
+         * @return the type of an argument, one of {@link Codes#SQLITE_INTEGER}, {@link
+         *     Codes#SQLITE_FLOAT}, {@link Codes#SQLITE_TEXT}, {@link Codes#SQLITE_BLOB} or {@link
+         *     Codes#SQLITE_NULL}.
+         */
+        public int getType(int row, int arg) {
+            return types[index(row, arg)];
+        }
+
+        /** @return whether an argument is NULL. */
+        public boolean isNull(int row, int arg) {
+            return getType(row, arg) == Codes.SQLITE_NULL;
+        }
+
+        /** @return an argument as a long, as converted by SQLite; 0 if it is NULL. */
+        public long getLong(int row, int arg) {
+            return longs[index(row, arg)];
+        }
+
+        /** @return an argument as an int; 0 if it is NULL. */
+        public int getInt(int row, int arg) {
+            return (int) getLong(row, arg);
+        }
+
+        /** @return an argument as a double, as converted by SQLite; 0 if it is NULL. */
+        public double getDouble(int row, int arg) {
+            return doubles[index(row, arg)];
+        }
+
+        /** @return an argument as text, as converted by SQLite, or null if it is NULL. */
+        public String getText(int row, int arg) {
+            int i = index(row, arg);
+            switch (types[i]) {
+                case Codes.SQLITE_INTEGER:
+                    return Long.toString(longs[i]);
+                case Codes.SQLITE_NULL:
+                    return null;
+                default:
+                    return new String(
+                            data, (int) (spans[i] >>> 32), (int) spans[i], StandardCharsets.UTF_8);
+            }
+        }
+
+        /** @return an argument as bytes, or null if it is NULL. */
+        public byte[] getBlob(int row, int arg) {
+            int i = index(row, arg);
+            switch (types[i]) {
+                case Codes.SQLITE_INTEGER:
+                    return Long.toString(longs[i]).getBytes(StandardCharsets.UTF_8);
+                case Codes.SQLITE_NULL:
+                    return null;
+                default:
+                    int offset = (int) (spans[i] >>> 32);
+                    return Arrays.copyOfRange(data, offset, offset + (int) spans[i]);
+            }
+        }
+
+        private int index(int row, int arg) {
+            if (row < 0 || row >= count) {
+                throw new IndexOutOfBoundsException(
+                        "row " + row + " out of bounds [0," + count + ")");
+            }
+            if (arg < 0 || arg >= args) {
+                throw new IndexOutOfBoundsException(
+                        "arg " + arg + " out of bounds [0," + args + ")");
+            }
+            return row * args + arg;
+        }
+    }
 }
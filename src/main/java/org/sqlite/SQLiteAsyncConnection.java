@@ -0,0 +1,269 @@
+package org.sqlite;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the statements of a connection without blocking the caller. Each call returns a {@link
+ * CompletableFuture} and the work is done on an executor, one task at a time, in the order the
+ * calls were made.
+ *
+ * <p>By default a dedicated daemon thread is started for the connection. An executor can be given
+ * instead, for example one running virtual threads; tasks are still serialized. Note that a virtual
+ * thread stays pinned to its carrier thread while SQLite runs, as SQLite is called through JNI.
+ *
+ * <p>Cancelling a future of a task that is still queued drops the task; cancelling the one that is
+ * running interrupts its statement with <a
+ * href="https://www.sqlite.org/c3ref/interrupt.html">sqlite3_interrupt</a>. The cancellation is
+ * also recorded for the progress handler of the connection, so that the statements the task runs
+ * afterwards are interrupted as well, even if it was cancelled before running any.
+ *
+ * <p>The connection must not be used directly while tasks are pending.
+ */
+public class SQLiteAsyncConnection implements AutoCloseable {
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    /** Work done on the connection, which may fail with an SQLException. */
+    @FunctionalInterface
+    public interface SQLFunction<T, R> {
+        R apply(T t) throws SQLException;
+    }
+
+    private final SQLiteConnection conn;
+    private final ExecutorService ownExecutor;
+    private final Executor executor;
+    private final ArrayDeque<Task<?>> queue = new ArrayDeque<>();
+    private Task<?> active;
+    private boolean closed;
+    private CompletableFuture<Void> closing;
+
+    /**
+     * Runs the statements of a connection on a dedicated thread.
+     *
+     * @param conn the connection, which is closed by {@link #closeAsync()}.
+     */
+    public SQLiteAsyncConnection(SQLiteConnection conn) {
+        this.conn = conn;
+        this.ownExecutor =
+                Executors.newSingleThreadExecutor(
+                        r -> {
+                            Thread thread =
+                                    new Thread(r, "sqlite-async-" + threadCount.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        this.executor = ownExecutor;
+    }
+
+    /**
+     * Runs the statements of a connection on the given executor.
+     *
+     * @param conn the connection, which is closed by {@link #closeAsync()}.
+     * @param executor runs the tasks, which are submitted one at a time.
+     */
+    public SQLiteAsyncConnection(SQLiteConnection conn, Executor executor) {
+        this.conn = conn;
+        this.ownExecutor = null;
+        this.executor = executor;
+    }
+
+    /** @return the underlying connection. */
+    public SQLiteConnection getConnection() {
+        return conn;
+    }
+
+    /**
+     * Runs any work on the connection.
+     *
+     * @param work the work, called on the executor.
+     * @return the result of the work.
+     */
+    public <T> CompletableFuture<T> submit(SQLFunction<SQLiteConnection, T> work) {
+        Task<T> task = new Task<>(work);
+        synchronized (queue) {
+            if (closed) {
+                task.completeExceptionally(new SQLException("connection is closed"));
+                return task;
+            }
+            queue.add(task);
+            if (active == null) scheduleNext();
+        }
+        return task;
+    }
+
+    /**
+     * Executes an update statement.
+     *
+     * @param sql the statement.
+     * @param params the values of its parameters.
+     * @return the number of rows changed.
+     */
+    public CompletableFuture<Long> executeUpdate(String sql, Object... params) {
+        return submit(
+                c -> {
+                    try (PreparedStatement stmt = prepare(c, sql, params)) {
+                        return stmt.executeLargeUpdate();
+                    }
+                });
+    }
+
+    /**
+     * Executes a query and processes its results, on the executor.
+     *
+     * @param sql the query.
+     * @param handler reads the result set, which is closed afterwards.
+     * @param params the values of its parameters.
+     * @return the result of the handler.
+     */
+    public <T> CompletableFuture<T> executeQuery(
+            String sql, SQLFunction<ResultSet, T> handler, Object... params) {
+        return submit(
+                c -> {
+                    try (PreparedStatement stmt = prepare(c, sql, params);
+                            ResultSet rs = stmt.executeQuery()) {
+                        return handler.apply(rs);
+                    }
+                });
+    }
+
+    /**
+     * Closes the connection once the pending tasks are done, and stops the dedicated thread if
+     * there is one. Tasks submitted afterwards fail. Calling this again returns the same future.
+     *
+     * @return completed when the connection is closed.
+     */
+    public CompletableFuture<Void> closeAsync() {
+        synchronized (queue) {
+            if (closing == null) {
+                CompletableFuture<Void> done =
+                        submit(
+                                c -> {
+                                    c.close();
+                                    return null;
+                                });
+                closed = true;
+                closing =
+                        ownExecutor == null
+                                ? done
+                                : done.whenComplete((r, e) -> ownExecutor.shutdown());
+            }
+            return closing;
+        }
+    }
+
+    /** Closes the connection once the pending tasks are done, and waits for it. */
+    @Override
+    public void close() throws SQLException {
+        try {
+            closeAsync().join();
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof SQLException) throw (SQLException) e.getCause();
+            throw e;
+        }
+    }
+
+    private static PreparedStatement prepare(SQLiteConnection conn, String sql, Object[] params)
+            throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(sql);
+        try {
+            for (int i = 0; i < params.length; i++) {
+                stmt.setObject(i + 1, params[i]);
+            }
+        } catch (SQLException e) {
+            stmt.close();
+            throw e;
+        }
+        return stmt;
+    }
+
+    /** Hands the next queued task to the executor; called with the queue locked. */
+    private void scheduleNext() {
+        active = queue.poll();
+        if (active != null) {
+            try {
+                executor.execute(active);
+            } catch (RuntimeException e) {
+                // rejected: fail this task and go on with the next one
+                Task<?> rejected = active;
+                active = null;
+                rejected.completeExceptionally(e);
+                scheduleNext();
+            }
+        }
+    }
+
+    private final class Task<T> extends CompletableFuture<T> implements Runnable {
+        private final SQLFunction<SQLiteConnection, T> work;
+        private boolean running;
+        /** Interrupts the statements of the task once expired, 0 if the connection is closed. */
+        private long deadline;
+
+        Task(SQLFunction<SQLiteConnection, T> work) {
+            this.work = work;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (start()) {
+                    try {
+                        complete(work.apply(conn));
+                    } catch (Throwable e) {
+                        completeExceptionally(e);
+                    } finally {
+                        finish();
+                    }
+                }
+            } finally {
+                synchronized (queue) {
+                    scheduleNext();
+                }
+            }
+        }
+
+        private synchronized boolean start() {
+            running = !isDone();
+            if (running) {
+                try {
+                    deadline = conn.getDatabase().set_deadline(0);
+                } catch (SQLException e) {
+                    // the connection is closed, the work fails on its own
+                }
+            }
+            return running;
+        }
+
+        private synchronized void finish() {
+            running = false;
+            if (deadline != 0) {
+                conn.getDatabase().clear_deadline(deadline);
+                deadline = 0;
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            synchronized (this) {
+                // the interrupt only reaches the statements of this task while it is running, and
+                // is lost if none is, unlike the expired deadline
+                if (cancelled && running) {
+                    if (deadline != 0) conn.getDatabase().expire_deadline(deadline);
+                    try {
+                        conn.getDatabase().interrupt();
+                    } catch (SQLException e) {
+                        // the task stops anyway once its statement is done
+                    }
+                }
+            }
+            return cancelled;
+        }
+    }
+}
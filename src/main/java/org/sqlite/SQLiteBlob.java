@@ -0,0 +1,268 @@
+package org.sqlite;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Blob;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import org.sqlite.core.DB;
+
+/**
+ * A BLOB value read and written in place through <a
+ * href="https://www.sqlite.org/c3ref/blob_open.html">incremental BLOB I/O</a>, without loading it
+ * into memory. Streams returned by this class copy at most {@link #CHUNK_SIZE} bytes per call into
+ * SQLite, so memory use does not depend on the size of the value.
+ *
+ * <p>Incremental I/O cannot change the size of a BLOB. To stream a new value, insert a
+ * <tt>zeroblob(n)</tt> of the final size first, then open it for writing. A handle stops working
+ * with an SQLITE_ABORT error once its row is modified or deleted by other means.
+ *
+ * <p>Instances are obtained from {@link SQLiteConnection#openBlob(String, String, String, long,
+ * boolean)} and must be closed with {@link #free()} or {@link #close()}; closing the connection
+ * closes all of its blobs.
+ */
+public class SQLiteBlob implements Blob, AutoCloseable {
+    /** Largest number of bytes copied into or out of SQLite by a single stream call */
+    public static final int CHUNK_SIZE = 64 * 1024;
+
+    private final DB db;
+    private final boolean writable;
+    private long pointer;
+    private int length;
+
+    SQLiteBlob(DB db, String dbName, String table, String column, long rowid, boolean writable)
+            throws SQLException {
+        this.db = db;
+        this.writable = writable;
+        this.pointer = db.openBlob(dbName, table, column, rowid, writable);
+        this.length = db.blobLength(pointer);
+    }
+
+    /**
+     * Moves this handle to the same column of another row, which is cheaper than opening a new one.
+     *
+     * @param rowid the rowid of the row.
+     * @throws SQLException if the row does not exist or its value is not a BLOB or TEXT.
+     */
+    public void reopen(long rowid) throws SQLException {
+        db.reopenBlob(checkOpen(), rowid);
+        length = db.blobLength(pointer);
+    }
+
+    /** @see java.sql.Blob#length() */
+    @Override
+    public long length() throws SQLException {
+        checkOpen();
+        return length;
+    }
+
+    /** @see java.sql.Blob#getBytes(long, int) */
+    @Override
+    public byte[] getBytes(long pos, int length) throws SQLException {
+        int offset = checkRange(pos, length);
+        byte[] bytes = new byte[Math.min(length, (int) length() - offset)];
+        db.readBlob(pointer, offset, bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    /** @see java.sql.Blob#getBinaryStream() */
+    @Override
+    public InputStream getBinaryStream() throws SQLException {
+        return new BlobInputStream(0, (int) length());
+    }
+
+    /** @see java.sql.Blob#getBinaryStream(long, long) */
+    @Override
+    public InputStream getBinaryStream(long pos, long length) throws SQLException {
+        int offset = checkRange(pos, length);
+        if (offset + length > length()) {
+            throw new SQLException(
+                    "blob range " + pos + ".." + (pos + length - 1) + " exceeds " + length());
+        }
+        return new BlobInputStream(offset, offset + (int) length);
+    }
+
+    /** @see java.sql.Blob#setBytes(long, byte[]) */
+    @Override
+    public int setBytes(long pos, byte[] bytes) throws SQLException {
+        return setBytes(pos, bytes, 0, bytes.length);
+    }
+
+    /** @see java.sql.Blob#setBytes(long, byte[], int, int) */
+    @Override
+    public int setBytes(long pos, byte[] bytes, int offset, int len) throws SQLException {
+        int start = checkWritableRange(pos, len);
+        if (offset < 0 || len < 0 || offset + len > bytes.length) {
+            throw new SQLException("invalid array range " + offset + "+" + len);
+        }
+        db.writeBlob(pointer, start, bytes, offset, len);
+        return len;
+    }
+
+    /** @see java.sql.Blob#setBinaryStream(long) */
+    @Override
+    public OutputStream setBinaryStream(long pos) throws SQLException {
+        return new BlobOutputStream(checkWritableRange(pos, 0));
+    }
+
+    /** Not supported, incremental I/O cannot change the size of a BLOB. */
+    @Override
+    public void truncate(long len) throws SQLException {
+        throw new SQLFeatureNotSupportedException("incremental blob I/O cannot resize a blob");
+    }
+
+    /** Not supported. */
+    @Override
+    public long position(byte[] pattern, long start) throws SQLException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    /** Not supported. */
+    @Override
+    public long position(Blob pattern, long start) throws SQLException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    /** @see java.sql.Blob#free() */
+    @Override
+    public void free() throws SQLException {
+        if (pointer != 0) {
+            db.closeBlob(pointer);
+            pointer = 0;
+        }
+    }
+
+    /** Same as {@link #free()}. */
+    @Override
+    public void close() throws SQLException {
+        free();
+    }
+
+    private long checkOpen() throws SQLException {
+        if (pointer == 0) {
+            throw new SQLException("The blob has been closed");
+        }
+        return pointer;
+    }
+
+    private int checkRange(long pos, long length) throws SQLException {
+        checkOpen();
+        if (pos < 1 || pos - 1 > length() || length < 0) {
+            throw new SQLException("invalid blob position " + pos + " or length " + length);
+        }
+        return (int) (pos - 1);
+    }
+
+    private int checkWritableRange(long pos, int length) throws SQLException {
+        if (!writable) {
+            throw new SQLException("blob was opened read-only");
+        }
+        int offset = checkRange(pos, length);
+        if (offset + length > length()) {
+            throw new SQLException("cannot write past the end of a blob of " + length() + " bytes");
+        }
+        return offset;
+    }
+
+    private class BlobInputStream extends InputStream {
+        private int position;
+        private int mark;
+        private final int end;
+
+        BlobInputStream(int position, int end) {
+            this.position = position;
+            this.mark = position;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (off < 0 || len < 0 || len > b.length - off) {
+                throw new IndexOutOfBoundsException();
+            }
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= end) {
+                return -1;
+            }
+            int n = Math.min(Math.min(len, end - position), CHUNK_SIZE);
+            try {
+                db.readBlob(checkOpen(), position, b, off, n);
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+            position += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, end - position));
+            position += (int) skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return end - position;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {
+            mark = position;
+        }
+
+        @Override
+        public synchronized void reset() {
+            position = mark;
+        }
+    }
+
+    private class BlobOutputStream extends OutputStream {
+        private int position;
+
+        BlobOutputStream(int position) {
+            this.position = position;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (off < 0 || len < 0 || len > b.length - off) {
+                throw new IndexOutOfBoundsException();
+            }
+            try {
+                while (len > 0) {
+                    int n = Math.min(len, CHUNK_SIZE);
+                    if (position + n > length()) {
+                        throw new IOException(
+                                "cannot write past the end of a blob of " + length() + " bytes");
+                    }
+                    db.writeBlob(checkOpen(), position, b, off, n);
+                    position += n;
+                    off += n;
+                    len -= n;
+                }
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.sqlite;
+
+/**
+ * Receives the row changes of a connection in bulk rather than one at a time, see
+ * https://www.sqlite.org/c3ref/update_hook.html
+ *
+ * <p>While such a listener is registered, changes are collected natively and delivered when the
+ * transaction commits or rolls back, or when the buffer is full. The {@link SQLiteUpdateListener}s
+ * of the connection are then notified at the same time.
+ */
+public interface SQLiteBulkUpdateListener {
+
+    /**
+     * Called with the changes collected since the last delivery, in the order they were made. The
+     * arrays have one element per change.
+     *
+     * @param types the kind of each change.
+     * @param databases the database of each change, such as "main".
+     * @param tables the table of each change.
+     * @param rowIds the rowid of each changed row.
+     */
+    void onUpdates(
+            SQLiteUpdateListener.Type[] types, String[] databases, String[] tables, long[] rowIds);
+}
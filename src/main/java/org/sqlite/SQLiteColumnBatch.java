@@ -0,0 +1,255 @@
+package org.sqlite;
+
+import java.nio.ByteBuffer;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+import org.sqlite.core.Codes;
+import org.sqlite.core.ColumnBuffer;
+import org.sqlite.core.CoreResultSet;
+import org.sqlite.core.CoreStatement;
+
+/**
+ * Reads the rows of a result set in batches of column vectors, filled natively without creating an
+ * object per value. The vectors are laid out like the buffers of Apache Arrow vectors, without
+ * depending on Arrow, so that they can be handed to columnar consumers without copying:
+ *
+ * <ul>
+ *   <li>a validity bitmap per column, with bit {@code row % 8} of byte {@code row / 8} set when the
+ *       value is not NULL;
+ *   <li>for {@link Type#INT64} and {@link Type#FLOAT64} columns, one 8 byte value per row;
+ *   <li>for {@link Type#UTF8} and {@link Type#BINARY} columns, {@code rows + 1} int offsets into
+ *       the data buffer, the value of a row being the bytes between its offset and the next one.
+ * </ul>
+ *
+ * <p>Values are in native byte order, and are converted to the type of their column the way
+ * SQLite's <tt>sqlite3_column_*</tt> functions do. The buffers are reused by the next call to
+ * {@link #next()}, and must be consumed or copied before it.
+ *
+ * <pre>{@code
+ * try (ResultSet rs = stat.executeQuery("select id, name from t")) {
+ *     SQLiteColumnBatch batch = new SQLiteColumnBatch(rs, 4096);
+ *     while (batch.next()) {
+ *         consume(batch.getRowCount(), batch.getValues(0), batch.getValidity(1), ...);
+ *     }
+ * }
+ * }</pre>
+ *
+ * <p>Column and row indexes start at 0. The rows are read from the current position of the result
+ * set, which then moves past them; rows fetched ahead because of a fetch size must be read with
+ * {@link ResultSet#next()} first.
+ */
+public class SQLiteColumnBatch {
+    /** The type of the vector of a column. */
+    public enum Type {
+        /** 64-bit signed integers. */
+        INT64(Codes.SQLITE_INTEGER),
+        /** 64-bit floating point numbers. */
+        FLOAT64(Codes.SQLITE_FLOAT),
+        /** UTF-8 text, as offsets and data. */
+        UTF8(Codes.SQLITE_TEXT),
+        /** Bytes, as offsets and data. */
+        BINARY(Codes.SQLITE_BLOB);
+
+        final int code;
+
+        Type(int code) {
+            this.code = code;
+        }
+
+        static Type of(int code) {
+            for (Type type : values()) {
+                if (type.code == code) return type;
+            }
+            return null;
+        }
+    }
+
+    private final CoreResultSet rs;
+    private final ColumnBuffer columns;
+    private final String[] names;
+
+    /**
+     * Reads a result set with column types taken from their declared types, following the type
+     * affinity rules of SQLite, or else from their values in the first row: INTEGER affinity gives
+     * {@link Type#INT64}, REAL gives {@link Type#FLOAT64}, TEXT gives {@link Type#UTF8} and a
+     * declared BLOB gives {@link Type#BINARY}. A column whose first value is NULL is read as {@link
+     * Type#UTF8}.
+     *
+     * @param rs the result set, of this driver.
+     * @param capacity the maximum number of rows of a batch.
+     * @throws SQLException if the result set is closed.
+     */
+    public SQLiteColumnBatch(ResultSet rs, int capacity) throws SQLException {
+        this(rs, capacity, (Type[]) null);
+    }
+
+    /**
+     * Reads a result set with the given column types.
+     *
+     * @param rs the result set, of this driver.
+     * @param capacity the maximum number of rows of a batch.
+     * @param types the type of each column, null for the types {@link #SQLiteColumnBatch(ResultSet,
+     *     int)} would use.
+     * @throws SQLException if the result set is closed, or the number of types is not the number of
+     *     columns.
+     */
+    public SQLiteColumnBatch(ResultSet rs, int capacity, Type... types) throws SQLException {
+        if (!(rs instanceof CoreResultSet)) {
+            throw new SQLException("result set must be of an SQLite statement");
+        }
+        this.rs = (CoreResultSet) rs;
+        if (!this.rs.isOpen() || this.rs.cols == null) {
+            throw new SQLException("ResultSet closed");
+        }
+        this.names = this.rs.cols.clone();
+        if (types != null && types.length != names.length) {
+            throw new SQLException(
+                    "expected " + names.length + " column types, got " + types.length);
+        }
+
+        CoreStatement stmt = (CoreStatement) rs.getStatement();
+        int[] codes = new int[names.length];
+        for (int col = 0; col < codes.length; col++) {
+            codes[col] =
+                    types != null && types[col] != null ? types[col].code : declaredType(stmt, col);
+        }
+        this.columns = new ColumnBuffer(codes, capacity);
+    }
+
+    private static int declaredType(CoreStatement stmt, int col) throws SQLException {
+        String declared = stmt.pointer.safeRun((db, ptr) -> db.column_decltype(ptr, col));
+        if (declared == null) return 0;
+        declared = declared.toUpperCase(Locale.ENGLISH);
+        if (declared.contains("INT")) return Codes.SQLITE_INTEGER;
+        if (declared.contains("CHAR") || declared.contains("CLOB") || declared.contains("TEXT")) {
+            return Codes.SQLITE_TEXT;
+        }
+        if (declared.contains("BLOB")) return Codes.SQLITE_BLOB;
+        if (declared.contains("REAL") || declared.contains("FLOA") || declared.contains("DOUB")) {
+            return Codes.SQLITE_FLOAT;
+        }
+        return 0;
+    }
+
+    /**
+     * Reads the next batch of rows into the vectors.
+     *
+     * @return false if there are no more rows.
+     * @throws SQLException if the result set is closed or reading a row fails.
+     */
+    public boolean next() throws SQLException {
+        return rs.fetchColumns(columns) > 0;
+    }
+
+    /** @return the maximum number of rows of a batch. */
+    public int getCapacity() {
+        return columns.capacity();
+    }
+
+    /** @return the number of rows of the current batch. */
+    public int getRowCount() {
+        return columns.rows();
+    }
+
+    /** @return the number of columns. */
+    public int getColumnCount() {
+        return names.length;
+    }
+
+    /**
+     * @param col the column.
+     * @return the label of the column.
+     */
+    public String getColumnName(int col) {
+        return names[col];
+    }
+
+    /**
+     * @param col the column.
+     * @return the type of the column, or null if it is taken from the first row, which has not been
+     *     read yet.
+     */
+    public Type getType(int col) {
+        return Type.of(columns.type(col));
+    }
+
+    /**
+     * @param col the column.
+     * @return the number of NULL values of the column in the current batch.
+     */
+    public int getNullCount(int col) {
+        return columns.nullCount(col);
+    }
+
+    /**
+     * @param col the column.
+     * @return the validity bitmap of the column, {@code (rows + 7) / 8} bytes long.
+     */
+    public ByteBuffer getValidity(int col) {
+        return columns.validity(col);
+    }
+
+    /**
+     * @param col the column.
+     * @return the values of an {@link Type#INT64} or {@link Type#FLOAT64} column, or the offsets of
+     *     a {@link Type#UTF8} or {@link Type#BINARY} one.
+     */
+    public ByteBuffer getValues(int col) {
+        return columns.values(col);
+    }
+
+    /**
+     * @param col the column.
+     * @return the bytes of the values of a {@link Type#UTF8} or {@link Type#BINARY} column, or null
+     *     for other columns.
+     */
+    public ByteBuffer getData(int col) {
+        return columns.data(col);
+    }
+
+    /**
+     * @param col the column.
+     * @param row the row of the current batch.
+     * @return whether the value is NULL.
+     */
+    public boolean isNull(int col, int row) {
+        return columns.isNull(col, row);
+    }
+
+    /**
+     * @param col an {@link Type#INT64} column.
+     * @param row the row of the current batch.
+     * @return the value, 0 if it is NULL.
+     */
+    public long getLong(int col, int row) {
+        return columns.getLong(col, row);
+    }
+
+    /**
+     * @param col a {@link Type#FLOAT64} column.
+     * @param row the row of the current batch.
+     * @return the value, 0 if it is NULL.
+     */
+    public double getDouble(int col, int row) {
+        return columns.getDouble(col, row);
+    }
+
+    /**
+     * @param col a {@link Type#UTF8} column.
+     * @param row the row of the current batch.
+     * @return the value, or null if it is NULL.
+     */
+    public String getString(int col, int row) {
+        return columns.getText(col, row);
+    }
+
+    /**
+     * @param col a {@link Type#UTF8} or {@link Type#BINARY} column.
+     * @param row the row of the current batch.
+     * @return the bytes of the value, or null if it is NULL.
+     */
+    public byte[] getBytes(int col, int row) {
+        return columns.getBytes(col, row);
+    }
+}
@@ -190,6 +190,10 @@ public class SQLiteConfig {
 
         // exclude this "fake" pragma from execution
         pragmaParams.remove(Pragma.JDBC_EXPLICIT_READONLY.pragmaName);
+        pragmaParams.remove(Pragma.JDBC_STATEMENT_CACHE_SIZE.pragmaName);
+        pragmaParams.remove(Pragma.JDBC_LOCKING_STRATEGY.pragmaName);
+        pragmaParams.remove(Pragma.JDBC_REWRITE_BATCHED_INSERTS.pragmaName);
+        pragmaParams.remove(Pragma.JDBC_DEFAULT_FETCH_SIZE.pragmaName);
 
         setupConnection(conn, pragmaParams, pragmaTable);
         try (Statement stat = conn.createStatement()) {
@@ -579,6 +583,22 @@ public class SQLiteConfig {
         // extensions: "fake" pragmas to allow conformance with JDBC
         JDBC_EXPLICIT_READONLY(
                 "jdbc.explicit_readonly", "Set explicit read only transactions", null),
+        JDBC_STATEMENT_CACHE_SIZE(
+                "jdbc.statement_cache_size",
+                "Number of closed prepared statements kept for reuse per connection, 0 (default) disables the cache",
+                null),
+        JDBC_LOCKING_STRATEGY(
+                "jdbc.locking_strategy",
+                "\"connection\": (Default) serialize all statements of a connection on one lock\n\"statement\": lock statements individually and let SQLite serialize stepping",
+                toStringArray(LockingStrategy.values())),
+        JDBC_REWRITE_BATCHED_INSERTS(
+                "jdbc.rewrite_batched_inserts",
+                "Execute batches of simple INSERT ... VALUES (?, ...) prepared statements as multi-row inserts, false (default) runs them row by row",
+                OnOff),
+        JDBC_DEFAULT_FETCH_SIZE(
+                "jdbc.default_fetch_size",
+                "Number of rows result sets copy out of their statement at once, 0 (default) or 1 reads rows one at a time",
+                null),
 
         // New pragmas for SQLiteMC improved support
         KEY("key", "Specify at least the encryption key", null),
@@ -628,6 +648,10 @@ public class SQLiteConfig {
         MC_USE_SQL_INTERFACE(
                 "mc_use_sql_interface",
                 "Set if the SQL interface for SQLiteMC commands must be used",
+                OnOff),
+        MC_KEY_CACHE(
+                "mc_key_cache",
+                "Set if keys derived from the passphrase are cached and reused by later connections",
                 OnOff);
 
         public final String pragmaName;
@@ -1277,6 +1301,47 @@ public class SQLiteConfig {
         return this.defaultConnectionConfig.getTransactionMode();
     }
 
+    public enum LockingStrategy implements PragmaValue {
+        CONNECTION,
+        STATEMENT;
+
+        public String getValue() {
+            return name();
+        }
+
+        public static LockingStrategy getStrategy(String strategy) {
+            return LockingStrategy.valueOf(strategy.toUpperCase());
+        }
+    }
+
+    /**
+     * Sets how the driver guards access to a connection from several threads.
+     *
+     * <p>With {@link LockingStrategy#CONNECTION} every call on the connection and its statements
+     * holds one lock, including the whole of <a
+     * href="https://www.sqlite.org/c3ref/step.html">sqlite3_step</a>. With {@link
+     * LockingStrategy#STATEMENT} stepping, binding and reading columns only lock the statement
+     * involved and rely on SQLite's serialized threading mode to guard the connection, so
+     * connection-level calls are not held up by a slow query. Updates still hold the connection
+     * lock to report exact change counts. Connections opened with {@link SQLiteOpenMode#NOMUTEX}
+     * always use {@link LockingStrategy#CONNECTION}.
+     *
+     * @param strategy One of {@link LockingStrategy}.
+     * @see <a
+     *     href="https://www.sqlite.org/threadsafe.html">https://www.sqlite.org/threadsafe.html</a>
+     */
+    public void setLockingStrategy(LockingStrategy strategy) {
+        setPragma(Pragma.JDBC_LOCKING_STRATEGY, strategy.getValue());
+    }
+
+    /** @return The locking strategy. */
+    public LockingStrategy getLockingStrategy() {
+        return LockingStrategy.getStrategy(
+                pragmaTable.getProperty(
+                        Pragma.JDBC_LOCKING_STRATEGY.pragmaName,
+                        LockingStrategy.CONNECTION.getValue()));
+    }
+
     public enum DatePrecision implements PragmaValue {
         SECONDS,
         MILLISECONDS;
@@ -1327,4 +1392,53 @@ public class SQLiteConfig {
     public int getBusyTimeout() {
         return parseLimitPragma(Pragma.BUSY_TIMEOUT, 3000);
     }
+
+    /**
+     * Sets how many closed prepared statements each connection keeps for reuse. Preparing the same
+     * SQL text again takes the parked statement instead of compiling it.
+     *
+     * @param size The maximum number of parked statements; 0 disables the cache.
+     * @see org.sqlite.core.StatementCache
+     */
+    public void setStatementCacheSize(int size) {
+        setPragma(Pragma.JDBC_STATEMENT_CACHE_SIZE, Integer.toString(size));
+    }
+
+    public int getStatementCacheSize() {
+        return parseLimitPragma(Pragma.JDBC_STATEMENT_CACHE_SIZE, 0);
+    }
+
+    /**
+     * Sets whether batches of prepared statements of the form {@code INSERT INTO t (...) VALUES (?,
+     * ...)} are executed as multi-row {@code VALUES (...), (...)} inserts, each inserting as many
+     * rows as SQLITE_LIMIT_VARIABLE_NUMBER allows, rather than one row at a time. The change count
+     * of each row is then 1, or {@link java.sql.Statement#SUCCESS_NO_INFO} when an {@code OR
+     * IGNORE} insert skipped some rows of its group.
+     *
+     * @param enable True to rewrite batched inserts; false (default) otherwise.
+     * @see org.sqlite.core.MultiRowInsert
+     */
+    public void setRewriteBatchedInserts(boolean enable) {
+        set(Pragma.JDBC_REWRITE_BATCHED_INSERTS, enable);
+    }
+
+    /** @return Whether batched inserts are rewritten as multi-row inserts. */
+    public boolean isRewriteBatchedInserts() {
+        return getBoolean(Pragma.JDBC_REWRITE_BATCHED_INSERTS, "false");
+    }
+
+    /**
+     * Sets the fetch size of the result sets of the statements of a connection, until changed by
+     * {@link java.sql.Statement#setFetchSize(int)}. With a fetch size above 1, rows are copied out
+     * of the statement that many at a time.
+     *
+     * @param rows The number of rows; 0 (default) or 1 reads rows one at a time.
+     */
+    public void setDefaultFetchSize(int rows) {
+        setPragma(Pragma.JDBC_DEFAULT_FETCH_SIZE, Integer.toString(rows));
+    }
+
+    public int getDefaultFetchSize() {
+        return parseLimitPragma(Pragma.JDBC_DEFAULT_FETCH_SIZE, 0);
+    }
 }
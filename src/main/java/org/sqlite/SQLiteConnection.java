@@ -9,7 +9,9 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLDecoder;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
@@ -22,18 +24,24 @@ import java.util.concurrent.Executor;
 import org.sqlite.SQLiteConfig.TransactionMode;
 import org.sqlite.core.CoreDatabaseMetaData;
 import org.sqlite.core.DB;
+import org.sqlite.core.DB.ProgressObserver;
 import org.sqlite.core.NativeDB;
 import org.sqlite.jdbc4.JDBC4DatabaseMetaData;
 
 /** */
 public abstract class SQLiteConnection implements Connection {
     private static final String RESOURCE_NAME_PREFIX = ":resource:";
+
+    /** The number of rows inserted by each transaction of a bulk import, by default. */
+    public static final int DEFAULT_IMPORT_COMMIT_ROWS = 100_000;
+
     private final DB db;
     private CoreDatabaseMetaData meta = null;
     private final SQLiteConnectionConfig connectionConfig;
 
     private TransactionMode currentTransactionMode;
     private boolean firstStatementExecuted = false;
+    private SQLiteStatisticsBean statisticsBean;
 
     /**
      * Connection constructor for reusing an existing DB handle
@@ -397,6 +405,221 @@ public abstract class SQLiteConnection implements Connection {
         db.busy_timeout(timeoutMillis);
     }
 
+    /**
+     * @return The number of prepares served from the prepared statement cache of this connection.
+     * @see SQLiteConfig#setStatementCacheSize(int)
+     */
+    public long getStatementCacheHits() {
+        return db.getStatementCache().getHitCount();
+    }
+
+    /**
+     * @return The number of prepares that had to compile their SQL while the prepared statement
+     *     cache of this connection is enabled.
+     * @see SQLiteConfig#setStatementCacheSize(int)
+     */
+    public long getStatementCacheMisses() {
+        return db.getStatementCache().getMissCount();
+    }
+
+    /**
+     * @return The number of statements finalized to make room for newer ones in the prepared
+     *     statement cache of this connection.
+     * @see SQLiteConfig#setStatementCacheSize(int)
+     */
+    public long getStatementCacheEvictions() {
+        return db.getStatementCache().getEvictionCount();
+    }
+
+    /**
+     * @return The number of closed statements currently kept for reuse by this connection.
+     * @see SQLiteConfig#setStatementCacheSize(int)
+     */
+    public int getCachedStatementCount() {
+        return db.getStatementCache().size();
+    }
+
+    /**
+     * Finalizes the closed statements kept for reuse by this connection. The statements closed
+     * afterwards are kept again.
+     *
+     * @throws SQLException
+     * @see SQLiteConfig#setStatementCacheSize(int)
+     */
+    public void clearStatementCache() throws SQLException {
+        checkOpen();
+        db.clearStatementCache();
+    }
+
+    /**
+     * Opens a BLOB for incremental I/O, so that it can be streamed without loading it into memory.
+     *
+     * @param dbName the name of the database containing the table, e.g. "main".
+     * @param table the name of the table.
+     * @param column the name of the column.
+     * @param rowid the rowid of the row.
+     * @param writable whether the BLOB can be written to.
+     * @return an open BLOB handle, to be closed by the caller.
+     * @throws SQLException if the row does not exist or its value is not a BLOB or TEXT.
+     * @see SQLiteBlob
+     */
+    public SQLiteBlob openBlob(
+            String dbName, String table, String column, long rowid, boolean writable)
+            throws SQLException {
+        checkOpen();
+        return new SQLiteBlob(db, dbName, table, column, rowid, writable);
+    }
+
+    /**
+     * Opens a BLOB of the main database for incremental I/O.
+     *
+     * @see #openBlob(String, String, String, long, boolean)
+     */
+    public SQLiteBlob openBlob(String table, String column, long rowid, boolean writable)
+            throws SQLException {
+        return openBlob("main", table, column, rowid, writable);
+    }
+
+    /**
+     * Copies the content of a database, for example an in-memory one, into a byte array.
+     *
+     * @param schema the name of the database, e.g. "main".
+     * @return the database image, as it would be stored in a file.
+     * @throws SQLException if the database does not exist.
+     * @see #deserialize(String, byte[])
+     */
+    public byte[] serialize(String schema) throws SQLException {
+        checkOpen();
+        return db.serialize(schema);
+    }
+
+    /**
+     * Replaces the content of a database with a copy of an image, for example one returned by
+     * {@link #serialize(String)}. The database is then held in memory and can be modified.
+     *
+     * @param schema the name of the database, e.g. "main".
+     * @param image the database image.
+     * @throws SQLException if the database does not exist or is in use by a transaction.
+     */
+    public void deserialize(String schema, byte[] image) throws SQLException {
+        checkOpen();
+        db.deserialize(schema, image);
+    }
+
+    /**
+     * Replaces the content of a database with a read-only image. A direct buffer is used in place,
+     * so that a fixture database can be opened by many connections without copying it.
+     *
+     * @param schema the name of the database, e.g. "main".
+     * @param image the database image, from its position to its limit; it must not be modified
+     *     while the connection is open.
+     * @throws SQLException if the database does not exist or is in use by a transaction.
+     * @see DB#deserialize(String, ByteBuffer)
+     */
+    public void deserialize(String schema, ByteBuffer image) throws SQLException {
+        checkOpen();
+        db.deserialize(schema, image);
+    }
+
+    /**
+     * @return a snapshot of the status counters of this connection.
+     * @see #getStatistics(boolean)
+     */
+    public SQLiteStatistics getStatistics() throws SQLException {
+        return getStatistics(false);
+    }
+
+    /**
+     * Takes a snapshot of the status counters of this connection and of the memory counters of
+     * SQLite.
+     *
+     * @param reset whether to reset the connection counters after reading them, so that the next
+     *     snapshot only covers the work done in between.
+     * @return the snapshot.
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/db_status.html">https://www.sqlite.org/c3ref/db_status.html</a>
+     */
+    public SQLiteStatistics getStatistics(boolean reset) throws SQLException {
+        checkOpen();
+        return new SQLiteStatistics(db, reset);
+    }
+
+    /**
+     * Creates a queue committing small writes in groups through this connection, see {@link
+     * SQLiteWriteBehindQueue}. The connection must not be used otherwise while the queue is open.
+     *
+     * @param maxDelayMillis how long a statement may wait for others before its group is committed.
+     * @param maxBatchSize the maximum number of statements committed together.
+     * @return the queue, which must be closed when no longer needed.
+     * @throws SQLException if the connection is closed or not in auto-commit mode.
+     */
+    public SQLiteWriteBehindQueue createWriteBehindQueue(long maxDelayMillis, int maxBatchSize)
+            throws SQLException {
+        checkOpen();
+        if (!getAutoCommit()) throw new SQLException("database not in auto-commit mode");
+        return new SQLiteWriteBehindQueue(this, maxDelayMillis, maxBatchSize);
+    }
+
+    /**
+     * Inserts the rows of a delimited text file into a table, committing every {@link
+     * #DEFAULT_IMPORT_COMMIT_ROWS} rows.
+     *
+     * @see #importCsv(Path, String, SQLiteCsvFormat, int, ProgressObserver)
+     */
+    public long importCsv(Path file, String table, SQLiteCsvFormat format)
+            throws SQLException, IOException {
+        return importCsv(file, table, format, DEFAULT_IMPORT_COMMIT_ROWS, null);
+    }
+
+    /**
+     * Inserts the rows of a delimited text file into a table, much faster than a prepared statement
+     * would: the file is mapped into memory and parsed natively, and each field is bound as text
+     * straight from the mapping, so that no Java object is created per row or field. The type
+     * affinity of the columns then converts numbers.
+     *
+     * <p>In auto-commit mode, the rows are inserted by transactions of {@code commitRows} rows, and
+     * when a row cannot be inserted, the rows of the transaction in progress are rolled back while
+     * those committed before remain. Otherwise the rows are inserted within the transaction in
+     * progress. The connection cannot be used by other threads meanwhile.
+     *
+     * @param file the file, in the given format.
+     * @param table the name of the table, which must exist.
+     * @param format the format of the file.
+     * @param commitRows the number of rows inserted by each transaction.
+     * @param observer notified of the rows inserted so far, through {@link
+     *     ProgressObserver#imported}, or null.
+     * @return the number of rows inserted.
+     * @throws SQLException if the connection is closed, or a row is malformed or cannot be
+     *     inserted.
+     * @throws IOException if the file cannot be read.
+     */
+    public long importCsv(
+            Path file,
+            String table,
+            SQLiteCsvFormat format,
+            int commitRows,
+            ProgressObserver observer)
+            throws SQLException, IOException {
+        checkOpen();
+        return db.importCsv(file, table, format, commitRows, observer);
+    }
+
+    /**
+     * Publishes the statistics of this connection as a {@link SQLiteStatisticsMXBean} on the
+     * platform MBean server. The bean is unregistered when the connection is closed.
+     *
+     * @param objectName the JMX object name of the bean, e.g.
+     *     "org.sqlite:type=Statistics,name=app".
+     * @throws SQLException if the name is invalid or already registered.
+     */
+    public synchronized void registerStatisticsMBean(String objectName) throws SQLException {
+        checkOpen();
+        if (statisticsBean != null) {
+            throw new SQLException("statistics MBean already registered");
+        }
+        statisticsBean = SQLiteStatisticsBean.register(db, objectName);
+    }
+
     public void setLimit(SQLiteLimits limit, int value) throws SQLException {
         // Calling sqlite3_limit with a negative number is a no-op:
         // https://www.sqlite.org/c3ref/limit.html
@@ -419,6 +642,10 @@ public abstract class SQLiteConnection implements Connection {
     public void close() throws SQLException {
         if (isClosed()) return;
         if (meta != null) meta.close();
+        if (statisticsBean != null) {
+            statisticsBean.unregister();
+            statisticsBean = null;
+        }
 
         db.close();
     }
@@ -484,6 +711,28 @@ public abstract class SQLiteConnection implements Connection {
         db.removeUpdateListener(listener);
     }
 
+    /**
+     * Add a listener receiving DB update events in bulk. Changes are collected natively and
+     * delivered at the end of each transaction or when the buffer is full, which is much cheaper
+     * than calling into Java for every changed row. While such a listener is registered, the update
+     * listeners of this connection are notified at the same time.
+     *
+     * @param listener The listener to receive update events
+     */
+    public void addBulkUpdateListener(SQLiteBulkUpdateListener listener) {
+        db.addBulkUpdateListener(listener);
+    }
+
+    /**
+     * Remove a listener registered for bulk DB update events. Changes still buffered are delivered
+     * first.
+     *
+     * @param listener The listener to no longer receive update events
+     */
+    public void removeBulkUpdateListener(SQLiteBulkUpdateListener listener) {
+        db.removeBulkUpdateListener(listener);
+    }
+
     /**
      * Add a listener for DB commit/rollback events, see
      * https://www.sqlite.org/c3ref/commit_hook.html
@@ -0,0 +1,90 @@
+package org.sqlite;
+
+/**
+ * The format of a delimited text file read by {@link SQLiteConnection#importCsv}: fields separated
+ * by a delimiter, rows by line feeds or carriage return and line feed pairs, and fields optionally
+ * enclosed in quotes, as described by <a href="https://www.rfc-editor.org/rfc/rfc4180">RFC
+ * 4180</a>. A quote inside a quoted field is written twice. The file must be encoded in UTF-8, a
+ * leading byte order mark being skipped.
+ */
+public class SQLiteCsvFormat {
+    private char delimiter;
+    private char quote;
+    private boolean header;
+    private boolean emptyAsNull;
+
+    /**
+     * @param delimiter the character separating fields.
+     * @param quote the character enclosing fields, or 0 for none.
+     */
+    public SQLiteCsvFormat(char delimiter, char quote) {
+        setDelimiter(delimiter);
+        setQuote(quote);
+    }
+
+    /** @return comma separated values, enclosed in double quotes when needed. */
+    public static SQLiteCsvFormat csv() {
+        return new SQLiteCsvFormat(',', '"');
+    }
+
+    /** @return tab separated values, without quoting. */
+    public static SQLiteCsvFormat tsv() {
+        return new SQLiteCsvFormat('\t', (char) 0);
+    }
+
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    /** @param delimiter the character separating fields, an ASCII character. */
+    public void setDelimiter(char delimiter) {
+        check(delimiter, "delimiter");
+        if (delimiter == 0 || delimiter == quote) {
+            throw new IllegalArgumentException("invalid delimiter " + (int) delimiter);
+        }
+        this.delimiter = delimiter;
+    }
+
+    public char getQuote() {
+        return quote;
+    }
+
+    /** @param quote the character enclosing fields, an ASCII character, or 0 for none. */
+    public void setQuote(char quote) {
+        check(quote, "quote");
+        if (quote != 0 && quote == delimiter) {
+            throw new IllegalArgumentException("quote is the delimiter");
+        }
+        this.quote = quote;
+    }
+
+    public boolean isHeader() {
+        return header;
+    }
+
+    /**
+     * @param header whether the first row holds the names of the columns the fields are inserted
+     *     into. Otherwise the fields fill the columns of the table in order.
+     */
+    public void setHeader(boolean header) {
+        this.header = header;
+    }
+
+    public boolean isEmptyAsNull() {
+        return emptyAsNull;
+    }
+
+    /**
+     * @param emptyAsNull whether an empty field that is not quoted is inserted as NULL rather than
+     *     as an empty string.
+     */
+    public void setEmptyAsNull(boolean emptyAsNull) {
+        this.emptyAsNull = emptyAsNull;
+    }
+
+    private static void check(char c, String name) {
+        if (c >= 0x80 || c == '\n' || c == '\r') {
+            throw new IllegalArgumentException("invalid " + name + " " + (int) c);
+        }
+    }
+}
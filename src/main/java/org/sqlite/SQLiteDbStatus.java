@@ -0,0 +1,37 @@
+package org.sqlite;
+
+/**
+ * Connection status counters reported by <a
+ * href="https://www.sqlite.org/c3ref/db_status.html">sqlite3_db_status</a>. The names and ids
+ * follow the SQLITE_DBSTATUS_* constants of the <a
+ * href="https://www.sqlite.org/c3ref/c_dbstatus_options.html">SQLite documentation</a>.
+ *
+ * <p>The LOOKASIDE_HIT and LOOKASIDE_MISS counters are only reported as a highwater mark; the
+ * CACHE_HIT, CACHE_MISS, CACHE_WRITE, CACHE_SPILL and DEFERRED_FKS counters only as a current
+ * value.
+ */
+public enum SQLiteDbStatus {
+    SQLITE_DBSTATUS_LOOKASIDE_USED(0),
+    SQLITE_DBSTATUS_CACHE_USED(1),
+    SQLITE_DBSTATUS_SCHEMA_USED(2),
+    SQLITE_DBSTATUS_STMT_USED(3),
+    SQLITE_DBSTATUS_LOOKASIDE_HIT(4),
+    SQLITE_DBSTATUS_LOOKASIDE_MISS_SIZE(5),
+    SQLITE_DBSTATUS_LOOKASIDE_MISS_FULL(6),
+    SQLITE_DBSTATUS_CACHE_HIT(7),
+    SQLITE_DBSTATUS_CACHE_MISS(8),
+    SQLITE_DBSTATUS_CACHE_WRITE(9),
+    SQLITE_DBSTATUS_DEFERRED_FKS(10),
+    SQLITE_DBSTATUS_CACHE_USED_SHARED(11),
+    SQLITE_DBSTATUS_CACHE_SPILL(12);
+
+    private final int id;
+
+    private SQLiteDbStatus(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+}
@@ -0,0 +1,96 @@
+package org.sqlite;
+
+import java.sql.SQLException;
+import org.sqlite.core.DB;
+
+/**
+ * A snapshot of the status counters of a connection, together with the process-wide memory counters
+ * of SQLite, taken by {@link SQLiteConnection#getStatistics()}.
+ *
+ * <p>Each counter has a current value and a highwater mark. Which of them is meaningful depends on
+ * the counter, see {@link SQLiteDbStatus} and {@link SQLiteStatus}.
+ */
+public class SQLiteStatistics {
+    private static final SQLiteDbStatus[] DB_STATUS = SQLiteDbStatus.values();
+    private static final SQLiteStatus[] STATUS = SQLiteStatus.values();
+
+    private final long[] dbCurrent = new long[DB_STATUS.length];
+    private final long[] dbHighwater = new long[DB_STATUS.length];
+    private final long[] current = new long[STATUS.length];
+    private final long[] highwater = new long[STATUS.length];
+
+    SQLiteStatistics(DB db, boolean reset) throws SQLException {
+        for (SQLiteDbStatus status : DB_STATUS) {
+            long[] values = db.db_status(status.getId(), reset);
+            dbCurrent[status.ordinal()] = values[0];
+            dbHighwater[status.ordinal()] = values[1];
+        }
+        for (SQLiteStatus status : STATUS) {
+            long[] values = db.status64(status.getId(), false);
+            current[status.ordinal()] = values[0];
+            highwater[status.ordinal()] = values[1];
+        }
+    }
+
+    /**
+     * @param status the connection counter.
+     * @return the current value of the counter.
+     */
+    public long getCurrent(SQLiteDbStatus status) {
+        return dbCurrent[status.ordinal()];
+    }
+
+    /**
+     * @param status the connection counter.
+     * @return the highwater mark of the counter.
+     */
+    public long getHighwater(SQLiteDbStatus status) {
+        return dbHighwater[status.ordinal()];
+    }
+
+    /**
+     * @param status the process-wide counter.
+     * @return the current value of the counter.
+     */
+    public long getCurrent(SQLiteStatus status) {
+        return current[status.ordinal()];
+    }
+
+    /**
+     * @param status the process-wide counter.
+     * @return the highwater mark of the counter.
+     */
+    public long getHighwater(SQLiteStatus status) {
+        return highwater[status.ordinal()];
+    }
+
+    /** @return the share of page lookups served by the page cache, or 0 if there were none. */
+    public double getCacheHitRatio() {
+        long hits = getCurrent(SQLiteDbStatus.SQLITE_DBSTATUS_CACHE_HIT);
+        long lookups = hits + getCurrent(SQLiteDbStatus.SQLITE_DBSTATUS_CACHE_MISS);
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("SQLiteStatistics[");
+        for (SQLiteDbStatus status : DB_STATUS) {
+            sb.append(status.name().substring("SQLITE_DBSTATUS_".length()))
+                    .append('=')
+                    .append(getCurrent(status))
+                    .append('/')
+                    .append(getHighwater(status))
+                    .append(", ");
+        }
+        for (SQLiteStatus status : STATUS) {
+            sb.append(status.name().substring("SQLITE_STATUS_".length()))
+                    .append('=')
+                    .append(getCurrent(status))
+                    .append('/')
+                    .append(getHighwater(status))
+                    .append(", ");
+        }
+        sb.setLength(sb.length() - 2);
+        return sb.append(']').toString();
+    }
+}
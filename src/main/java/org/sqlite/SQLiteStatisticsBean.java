@@ -0,0 +1,130 @@
+package org.sqlite;
+
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.sqlite.core.DB;
+
+/**
+ * Implementation of {@link SQLiteStatisticsMXBean}. It lives in its own class so that the driver
+ * only needs {@code java.management} when statistics are actually published.
+ */
+class SQLiteStatisticsBean implements SQLiteStatisticsMXBean {
+    private final DB db;
+    private final ObjectName name;
+
+    private SQLiteStatisticsBean(DB db, ObjectName name) {
+        this.db = db;
+        this.name = name;
+    }
+
+    /**
+     * Registers the statistics of a connection with the platform MBean server.
+     *
+     * @return the registered bean.
+     */
+    static SQLiteStatisticsBean register(DB db, String objectName) throws SQLException {
+        try {
+            SQLiteStatisticsBean bean = new SQLiteStatisticsBean(db, new ObjectName(objectName));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(bean, bean.name);
+            return bean;
+        } catch (JMException e) {
+            throw new SQLException("Cannot register statistics MBean " + objectName, e);
+        }
+    }
+
+    /** Removes the bean from the platform MBean server, if it is still registered. */
+    void unregister() throws SQLException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+        } catch (JMException e) {
+            throw new SQLException("Cannot unregister statistics MBean " + name, e);
+        }
+    }
+
+    private long current(SQLiteDbStatus status) {
+        try {
+            return db.db_status(status.getId(), false)[0];
+        } catch (SQLException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private long[] memory() {
+        try {
+            return db.status64(SQLiteStatus.SQLITE_STATUS_MEMORY_USED.getId(), false);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public long getCacheHits() {
+        return current(SQLiteDbStatus.SQLITE_DBSTATUS_CACHE_HIT);
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return current(SQLiteDbStatus.SQLITE_DBSTATUS_CACHE_MISS);
+    }
+
+    @Override
+    public long getCacheWrites() {
+        return current(SQLiteDbStatus.SQLITE_DBSTATUS_CACHE_WRITE);
+    }
+
+    @Override
+    public long getCacheSpills() {
+        return current(SQLiteDbStatus.SQLITE_DBSTATUS_CACHE_SPILL);
+    }
+
+    @Override
+    public double getCacheHitRatio() {
+        long hits = getCacheHits();
+        long lookups = hits + getCacheMisses();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public long getCacheUsed() {
+        return current(SQLiteDbStatus.SQLITE_DBSTATUS_CACHE_USED);
+    }
+
+    @Override
+    public long getLookasideUsed() {
+        return current(SQLiteDbStatus.SQLITE_DBSTATUS_LOOKASIDE_USED);
+    }
+
+    @Override
+    public long getSchemaUsed() {
+        return current(SQLiteDbStatus.SQLITE_DBSTATUS_SCHEMA_USED);
+    }
+
+    @Override
+    public long getStatementUsed() {
+        return current(SQLiteDbStatus.SQLITE_DBSTATUS_STMT_USED);
+    }
+
+    @Override
+    public long getMemoryUsed() {
+        return memory()[0];
+    }
+
+    @Override
+    public long getMemoryHighwater() {
+        return memory()[1];
+    }
+
+    @Override
+    public long getStatementCacheHits() {
+        return db.getStatementCache().getHitCount();
+    }
+
+    @Override
+    public long getStatementCacheMisses() {
+        return db.getStatementCache().getMissCount();
+    }
+}
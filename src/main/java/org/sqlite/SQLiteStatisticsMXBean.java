@@ -0,0 +1,47 @@
+package org.sqlite;
+
+/**
+ * Management interface exposing the statistics of a connection over JMX, registered with {@link
+ * SQLiteConnection#registerStatisticsMBean(String)}. Every attribute is read from SQLite when it is
+ * requested.
+ */
+public interface SQLiteStatisticsMXBean {
+    /** @return the number of page cache hits. */
+    long getCacheHits();
+
+    /** @return the number of page cache misses. */
+    long getCacheMisses();
+
+    /** @return the number of dirty pages written to disk. */
+    long getCacheWrites();
+
+    /** @return the number of dirty pages written to disk in the middle of a transaction. */
+    long getCacheSpills();
+
+    /** @return the share of page lookups served by the page cache. */
+    double getCacheHitRatio();
+
+    /** @return the heap memory used by the page cache, in bytes. */
+    long getCacheUsed();
+
+    /** @return the number of lookaside memory slots in use. */
+    long getLookasideUsed();
+
+    /** @return the heap memory used to store the schema, in bytes. */
+    long getSchemaUsed();
+
+    /** @return the heap memory used by prepared statements, in bytes. */
+    long getStatementUsed();
+
+    /** @return the heap memory currently allocated by SQLite in this process, in bytes. */
+    long getMemoryUsed();
+
+    /** @return the highest heap memory allocated by SQLite in this process, in bytes. */
+    long getMemoryHighwater();
+
+    /** @return the number of prepared statements served by the statement cache. */
+    long getStatementCacheHits();
+
+    /** @return the number of statements compiled because they were not cached. */
+    long getStatementCacheMisses();
+}
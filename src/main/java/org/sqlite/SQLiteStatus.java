@@ -0,0 +1,27 @@
+package org.sqlite;
+
+/**
+ * Process-wide counters reported by <a
+ * href="https://www.sqlite.org/c3ref/status.html">sqlite3_status64</a>, shared by all connections
+ * of the loaded SQLite library. The names and ids follow the SQLITE_STATUS_* constants of the <a
+ * href="https://www.sqlite.org/c3ref/c_status_malloc_count.html">SQLite documentation</a>.
+ */
+public enum SQLiteStatus {
+    SQLITE_STATUS_MEMORY_USED(0),
+    SQLITE_STATUS_PAGECACHE_USED(1),
+    SQLITE_STATUS_PAGECACHE_OVERFLOW(2),
+    SQLITE_STATUS_MALLOC_SIZE(5),
+    SQLITE_STATUS_PARSER_STACK(6),
+    SQLITE_STATUS_PAGECACHE_SIZE(7),
+    SQLITE_STATUS_MALLOC_COUNT(9);
+
+    private final int id;
+
+    private SQLiteStatus(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+}
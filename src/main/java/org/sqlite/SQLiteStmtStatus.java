@@ -0,0 +1,29 @@
+package org.sqlite;
+
+/**
+ * Prepared statement counters reported by <a
+ * href="https://www.sqlite.org/c3ref/stmt_status.html">sqlite3_stmt_status</a>. The names and ids
+ * follow the SQLITE_STMTSTATUS_* constants of the <a
+ * href="https://www.sqlite.org/c3ref/c_stmtstatus_counter.html">SQLite documentation</a>.
+ */
+public enum SQLiteStmtStatus {
+    SQLITE_STMTSTATUS_FULLSCAN_STEP(1),
+    SQLITE_STMTSTATUS_SORT(2),
+    SQLITE_STMTSTATUS_AUTOINDEX(3),
+    SQLITE_STMTSTATUS_VM_STEP(4),
+    SQLITE_STMTSTATUS_REPREPARE(5),
+    SQLITE_STMTSTATUS_RUN(6),
+    SQLITE_STMTSTATUS_FILTER_MISS(7),
+    SQLITE_STMTSTATUS_FILTER_HIT(8),
+    SQLITE_STMTSTATUS_MEMUSED(99);
+
+    private final int id;
+
+    private SQLiteStmtStatus(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+}
@@ -0,0 +1,258 @@
+package org.sqlite;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.sqlite.core.DB;
+
+/**
+ * Queues small writes from any number of threads and commits them together (group commit), so that
+ * they share one transaction and one sync instead of paying for one each.
+ *
+ * <p>Statements are executed in the order they were submitted by a single background thread. A
+ * group is committed when it holds the configured number of statements, when the oldest of them has
+ * waited for the configured delay, or when {@link #flush()} is called. The future of each statement
+ * completes once its group is committed, with the number of rows it changed, or with the error that
+ * made it fail. A failed statement does not affect the others of its group, unless the error rolled
+ * back the whole transaction, in which case the statements executed before it in the group fail
+ * too.
+ *
+ * <p>The statements are kept prepared for the next groups, up to {@value #MAX_STATEMENTS} distinct
+ * SQL texts; the least recently used ones are closed past that.
+ *
+ * <p>The connection must be in auto-commit mode and must not be used by anything else while the
+ * queue is open. Closing the queue does not close the connection.
+ *
+ * @see SQLiteConnection#createWriteBehindQueue(long, int)
+ */
+public class SQLiteWriteBehindQueue implements AutoCloseable {
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    /** The number of distinct statements kept prepared between groups. */
+    static final int MAX_STATEMENTS = 64;
+
+    private static final class Write extends CompletableFuture<Long> {
+        final String sql;
+        final Object[] params;
+        long changes;
+
+        Write(String sql, Object[] params) {
+            this.sql = sql;
+            this.params = params;
+        }
+
+        /** @return whether this entry only marks the end of a group. */
+        boolean isFlush() {
+            return sql == null;
+        }
+    }
+
+    /** Ends the group being collected and stops the writer thread. */
+    private static final Write STOP = new Write(null, null);
+
+    private final SQLiteConnection conn;
+    private final long maxDelayNanos;
+    private final int maxBatchSize;
+    private final BlockingQueue<Write> queue = new LinkedBlockingQueue<>();
+    /**
+     * The statements kept prepared, closing the least recently used past {@link #MAX_STATEMENTS}.
+     */
+    private final Map<String, PreparedStatement> statements =
+            new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() <= MAX_STATEMENTS) return false;
+                    close(eldest.getValue());
+                    return true;
+                }
+            };
+
+    private final Thread writer;
+    private volatile boolean closed;
+
+    /**
+     * @param conn the connection to write through.
+     * @param maxDelayMillis how long a statement may wait for others before its group is committed.
+     * @param maxBatchSize the maximum number of statements committed together.
+     */
+    SQLiteWriteBehindQueue(SQLiteConnection conn, long maxDelayMillis, int maxBatchSize) {
+        if (maxDelayMillis < 0) throw new IllegalArgumentException("maxDelayMillis < 0");
+        if (maxBatchSize < 1) throw new IllegalArgumentException("maxBatchSize < 1");
+        this.conn = conn;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.maxBatchSize = maxBatchSize;
+        this.writer = new Thread(this::run, "sqlite-write-behind-" + threadCount.incrementAndGet());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a statement that does not return rows.
+     *
+     * @param sql the statement.
+     * @param params the values of its parameters.
+     * @return completed with the number of rows changed once the statement is committed.
+     */
+    public CompletableFuture<Long> submit(String sql, Object... params) {
+        if (sql == null) throw new NullPointerException("sql");
+        return enqueue(new Write(sql, params));
+    }
+
+    /**
+     * Commits the statements queued so far without waiting for the group to fill up.
+     *
+     * @return completed once the statements queued before this call are committed.
+     */
+    public CompletableFuture<Void> flush() {
+        return enqueue(new Write(null, null)).thenApply(changes -> null);
+    }
+
+    /** Commits the queued statements and stops the writer thread. */
+    @Override
+    public void close() throws SQLException {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            queue.add(STOP);
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("interrupted while closing the write-behind queue", e);
+        }
+    }
+
+    private synchronized Write enqueue(Write write) {
+        if (closed) {
+            write.completeExceptionally(new SQLException("write-behind queue is closed"));
+        } else {
+            queue.add(write);
+        }
+        return write;
+    }
+
+    private void run() {
+        List<Write> group = new ArrayList<>(maxBatchSize);
+        boolean stop = false;
+        try {
+            while (!stop) {
+                Write first = queue.take();
+                stop = first == STOP;
+                if (!stop) group.add(first);
+
+                // collect the group until it is full, is flushed or has waited long enough
+                long deadline = System.nanoTime() + maxDelayNanos;
+                boolean flush = stop || first.isFlush();
+                while (!flush && group.size() < maxBatchSize) {
+                    Write next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    stop = next == STOP;
+                    flush = stop || next.isFlush();
+                    if (!stop) group.add(next);
+                }
+
+                commit(group);
+                group.clear();
+            }
+        } catch (InterruptedException e) {
+            SQLException error = new SQLException("write-behind queue was interrupted", e);
+            fail(group, error);
+            for (Write write; (write = queue.poll()) != null; ) {
+                write.completeExceptionally(error);
+            }
+        } finally {
+            for (PreparedStatement stmt : statements.values()) {
+                close(stmt);
+            }
+            statements.clear();
+        }
+    }
+
+    /** Executes a group of statements in one transaction and completes their futures. */
+    private void commit(List<Write> group) {
+        if (group.isEmpty()) return;
+        DB db = conn.getDatabase();
+        List<Write> done = new ArrayList<>(group.size());
+        try {
+            db.exec("begin immediate;", false);
+        } catch (SQLException e) {
+            fail(group, e);
+            return;
+        }
+
+        for (Write write : group) {
+            if (write.isFlush()) continue;
+            try {
+                write.changes = execute(write);
+                done.add(write);
+            } catch (SQLException e) {
+                write.completeExceptionally(e);
+                try {
+                    if (db.get_autocommit()) {
+                        // the error rolled back the transaction, with the statements before it
+                        fail(done, e);
+                        done.clear();
+                        db.exec("begin immediate;", false);
+                    }
+                } catch (SQLException e2) {
+                    fail(group, e2);
+                    return;
+                }
+            }
+        }
+
+        try {
+            db.exec("commit;", false);
+        } catch (SQLException e) {
+            try {
+                if (!db.get_autocommit()) db.exec("rollback;", false);
+            } catch (SQLException e2) {
+                e.addSuppressed(e2);
+            }
+            fail(group, e);
+            return;
+        }
+
+        for (Write write : group) {
+            write.complete(write.changes);
+        }
+    }
+
+    private long execute(Write write) throws SQLException {
+        PreparedStatement stmt = statements.get(write.sql);
+        if (stmt == null) {
+            stmt = conn.prepareStatement(write.sql);
+            statements.put(write.sql, stmt);
+        } else {
+            stmt.clearParameters();
+        }
+        for (int i = 0; i < write.params.length; i++) {
+            stmt.setObject(i + 1, write.params[i]);
+        }
+        return stmt.executeLargeUpdate();
+    }
+
+    private static void close(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            // the connection closes it otherwise
+        }
+    }
+
+    /** Fails the futures of the given entries which are not completed yet. */
+    private static void fail(List<Write> writes, SQLException e) {
+        for (Write write : writes) {
+            write.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package org.sqlite.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Rows copied out of a statement by {@link DB#fetch_columns}, one vector per column, laid out like
+ * the buffers of Apache Arrow vectors so that they can be handed to columnar consumers as they are.
+ *
+ * <p>Each column has a validity bitmap, with bit {@code i % 8} of byte {@code i / 8} set when the
+ * value of row {@code i} is not NULL. INTEGER and FLOAT columns then hold one 8 byte long or double
+ * per row, 0 for NULL. TEXT and BLOB columns hold {@code rows + 1} int offsets into a data buffer,
+ * the value of row {@code i} being the bytes from offset {@code i} to offset {@code i + 1}, UTF-8
+ * encoded for TEXT. Values are in native byte order and are converted to the type of their column
+ * the way SQLite's <tt>sqlite3_column_*</tt> functions do.
+ *
+ * <p>The vectors are reused by the next fill.
+ */
+public final class ColumnBuffer implements Codes {
+    private static final int MIN_DATA_CAPACITY = 1024;
+    private static final int DATA_BYTES_PER_ROW = 16;
+    /** The largest capacity whose vectors of 8 byte values fit in a buffer. */
+    public static final int MAX_CAPACITY = Integer.MAX_VALUE / 8 - 1;
+
+    private final int capacity;
+    private final int[] types;
+    private final ByteBuffer[] validity;
+    private final ByteBuffer[] values;
+    private final ByteBuffer[] data;
+    private final int[] nullCounts;
+    private final int[] result = new int[3];
+    private int rows;
+
+    /**
+     * @param types the SQLite type code of each column: INTEGER, FLOAT, TEXT or BLOB, or 0 to take
+     *     the type of the value of the column in the first row, TEXT if it is NULL.
+     * @param capacity the maximum number of rows filled at once.
+     */
+    public ColumnBuffer(int[] types, int capacity) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity out of bounds [1," + MAX_CAPACITY + "]");
+        }
+        for (int type : types) {
+            if (type < 0 || type > SQLITE_BLOB) {
+                throw new IllegalArgumentException("invalid column type " + type);
+            }
+        }
+        this.capacity = capacity;
+        this.types = types.clone();
+        this.validity = new ByteBuffer[types.length];
+        this.values = new ByteBuffer[types.length];
+        this.data = new ByteBuffer[types.length];
+        this.nullCounts = new int[types.length];
+        for (int col = 0; col < types.length; col++) {
+            validity[col] = allocate((capacity + 63) / 64 * 8);
+            values[col] = allocate((capacity + 1) * 8);
+            if (!isFixedWidth(col)) {
+                data[col] = allocate(initialDataCapacity(capacity));
+            }
+        }
+    }
+
+    /**
+     * Steps the statement and copies up to maxRows rows into the vectors, growing the data buffer
+     * of a column when a value does not fit.
+     *
+     * @param db the database owning the statement.
+     * @param stmt the statement pointer.
+     * @param maxRows the maximum number of rows to copy, at most the capacity.
+     * @param stepFirst whether the current row of the statement was already delivered.
+     * @return the result code of the last step; SQLITE_ROW if the statement is positioned on a row
+     *     that was not copied.
+     * @throws SQLException
+     */
+    int fill(DB db, long stmt, int maxRows, boolean stepFirst) throws SQLException {
+        maxRows = Math.min(maxRows, capacity);
+        Arrays.fill(nullCounts, 0);
+        for (int col = 0; col < types.length; col++) {
+            if (!isFixedWidth(col)) values[col].putInt(0, 0);
+        }
+        rows = 0;
+        while (true) {
+            int rc =
+                    db.fetch_columns(
+                            stmt,
+                            types,
+                            validity,
+                            values,
+                            data,
+                            nullCounts,
+                            result,
+                            rows,
+                            maxRows,
+                            stepFirst);
+            rows = result[0];
+            for (int col = 0; col < types.length; col++) {
+                if (isFixedWidth(col)) data[col] = null;
+            }
+            if (rc == SQLITE_ROW && result[1] >= 0) {
+                grow(result[1], result[2]);
+                stepFirst = false;
+                continue;
+            }
+            return rc;
+        }
+    }
+
+    /** Empties the vectors. */
+    void clear() {
+        rows = 0;
+        Arrays.fill(nullCounts, 0);
+    }
+
+    private void grow(int col, int needed) {
+        ByteBuffer old = data[col];
+        int size = (int) Math.min(Integer.MAX_VALUE, Math.max(2L * old.capacity(), needed));
+        ByteBuffer grown = allocate(size);
+        old = old.duplicate();
+        old.clear();
+        grown.put(old).clear();
+        data[col] = grown;
+    }
+
+    private static int initialDataCapacity(int capacity) {
+        return (int)
+                Math.min(
+                        Integer.MAX_VALUE,
+                        Math.max(MIN_DATA_CAPACITY, (long) capacity * DATA_BYTES_PER_ROW));
+    }
+
+    private static ByteBuffer allocate(int size) {
+        return ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+    }
+
+    private boolean isFixedWidth(int col) {
+        return types[col] == SQLITE_INTEGER || types[col] == SQLITE_FLOAT;
+    }
+
+    /** @return the maximum number of rows filled at once. */
+    public int capacity() {
+        return capacity;
+    }
+
+    /** @return the number of rows in the vectors. */
+    public int rows() {
+        return rows;
+    }
+
+    /** @return the number of columns. */
+    public int columns() {
+        return types.length;
+    }
+
+    /**
+     * @param col the column, starting at 0.
+     * @return the SQLite type code of the column, or 0 if no row has been filled yet to take it
+     *     from.
+     */
+    public int type(int col) {
+        return types[col];
+    }
+
+    /**
+     * @param col the column, starting at 0.
+     * @return the number of NULL values of the column.
+     */
+    public int nullCount(int col) {
+        return nullCounts[col];
+    }
+
+    /**
+     * @param col the column, starting at 0.
+     * @return the validity bitmap of the column, one bit per row.
+     */
+    public ByteBuffer validity(int col) {
+        return slice(validity[col], (rows + 7) / 8);
+    }
+
+    /**
+     * @param col the column, starting at 0.
+     * @return the values of an INTEGER or FLOAT column, or the offsets of a TEXT or BLOB one.
+     */
+    public ByteBuffer values(int col) {
+        return slice(values[col], isFixedWidth(col) ? rows * 8 : (rows + 1) * 4);
+    }
+
+    /**
+     * @param col the column, starting at 0.
+     * @return the bytes of the values of a TEXT or BLOB column, or null for other columns.
+     */
+    public ByteBuffer data(int col) {
+        if (isFixedWidth(col)) return null;
+        return slice(data[col], values[col].getInt(rows * 4));
+    }
+
+    /**
+     * @param col the column, starting at 0.
+     * @param row the row, starting at 0.
+     * @return whether the value is NULL.
+     */
+    public boolean isNull(int col, int row) {
+        return (validity[col].get(row >> 3) & (1 << (row & 7))) == 0;
+    }
+
+    /**
+     * @param col an INTEGER column, starting at 0.
+     * @param row the row, starting at 0.
+     * @return the value, 0 if it is NULL.
+     */
+    public long getLong(int col, int row) {
+        return values[col].getLong(row * 8);
+    }
+
+    /**
+     * @param col a FLOAT column, starting at 0.
+     * @param row the row, starting at 0.
+     * @return the value, 0 if it is NULL.
+     */
+    public double getDouble(int col, int row) {
+        return values[col].getDouble(row * 8);
+    }
+
+    /**
+     * @param col a TEXT or BLOB column, starting at 0.
+     * @param row the row, starting at 0.
+     * @return the bytes of the value, or null if it is NULL.
+     */
+    public byte[] getBytes(int col, int row) {
+        if (isNull(col, row)) return null;
+        int start = values[col].getInt(row * 4);
+        byte[] bytes = new byte[values[col].getInt((row + 1) * 4) - start];
+        ByteBuffer view = data[col].duplicate();
+        view.position(start);
+        view.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * @param col a TEXT column, starting at 0.
+     * @param row the row, starting at 0.
+     * @return the value, or null if it is NULL.
+     */
+    public String getText(int col, int row) {
+        byte[] bytes = getBytes(col, row);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.clear().limit(length);
+        return view.slice().order(ByteOrder.nativeOrder());
+    }
+}
@@ -0,0 +1,107 @@
+package org.sqlite.core;
+
+import java.util.Arrays;
+
+/**
+ * Case-insensitive lookup of the column labels of a statement, built once and shared by all the
+ * result sets of the statement as long as its columns do not change.
+ *
+ * <p>Labels are placed in an open addressing table of at least twice their number, with a hash seed
+ * chosen so that no two labels share a slot when possible, so that a lookup usually hashes the
+ * label and compares it once. Neither hashing nor comparing allocates: characters are folded one at
+ * a time, the way {@link String#equalsIgnoreCase(String)} compares them.
+ */
+public final class ColumnIndex {
+    private static final int MAX_SEEDS = 16;
+
+    private final String[] names;
+    private final String[] labels;
+    private final int[] indexes;
+    private final int mask;
+    private final int seed;
+
+    private ColumnIndex(String[] names) {
+        this.names = names;
+        int size = Integer.highestOneBit(Math.max(names.length, 1) * 2 - 1) << 1;
+        mask = size - 1;
+        labels = new String[size];
+        indexes = new int[size];
+
+        int[] hashes = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            hashes[i] = names[i] == null ? 0 : hash(names[i]);
+        }
+        seed = pickSeed(hashes, size);
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] != null && indexOf(names[i]) < 0) {
+                int slot = mix(hashes[i], seed) & mask;
+                while (labels[slot] != null) slot = (slot + 1) & mask;
+                labels[slot] = names[i];
+                indexes[slot] = i;
+            }
+        }
+    }
+
+    /**
+     * @param names the column labels, as returned by the statement.
+     * @return the lookup for these labels, {@code index} itself if it was built for the same ones.
+     */
+    static ColumnIndex of(ColumnIndex index, String[] names) {
+        if (index != null && (index.names == names || Arrays.equals(index.names, names))) {
+            return index;
+        }
+        return new ColumnIndex(names);
+    }
+
+    /**
+     * Finds a column by label, ignoring case. If several columns have the label, the first one is
+     * returned.
+     *
+     * @param label the column label.
+     * @return the index of the column, starting at 0, or -1 if there is none.
+     */
+    public int indexOf(String label) {
+        int slot = mix(hash(label), seed) & mask;
+        for (String candidate; (candidate = labels[slot]) != null; slot = (slot + 1) & mask) {
+            if (candidate.equalsIgnoreCase(label)) return indexes[slot];
+        }
+        return -1;
+    }
+
+    /** Finds a seed giving each distinct label a slot of its own, or 0 if none is found quickly. */
+    private static int pickSeed(int[] hashes, int size) {
+        boolean[] used = new boolean[size];
+        for (int seed = 0; seed < MAX_SEEDS; seed++) {
+            Arrays.fill(used, false);
+            boolean collision = false;
+            for (int i = 0; i < hashes.length && !collision; i++) {
+                int slot = mix(hashes[i], seed) & (size - 1);
+                // labels equal but for case share a hash, they only take one slot
+                collision = used[slot] && !sameHashBefore(hashes, i, seed, slot, size);
+                used[slot] = true;
+            }
+            if (!collision) return seed;
+        }
+        return 0;
+    }
+
+    private static boolean sameHashBefore(int[] hashes, int i, int seed, int slot, int size) {
+        for (int j = 0; j < i; j++) {
+            if ((mix(hashes[j], seed) & (size - 1)) == slot) return hashes[j] == hashes[i];
+        }
+        return false;
+    }
+
+    private static int mix(int hash, int seed) {
+        int h = (hash ^ (seed * 0x9E3779B9)) * 0x85EBCA6B;
+        return h ^ (h >>> 16);
+    }
+
+    private static int hash(String label) {
+        int h = 0;
+        for (int i = 0; i < label.length(); i++) {
+            h = 31 * h + Character.toLowerCase(Character.toUpperCase(label.charAt(i)));
+        }
+        return h;
+    }
+}
@@ -30,6 +30,12 @@ public abstract class CorePreparedStatement extends JDBC4Statement {
     protected int columnCount;
     protected int paramCount;
     protected int batchQueryCount;
+    /** The parameter values of the current row and of the batch, null until one is set. */
+    protected ParameterBuffer parameters;
+    /** The multi-row rewriting of the batches of this statement, if enabled and possible. */
+    private MultiRowInsert multiRowInsert;
+
+    private boolean multiRowInsertChecked;
 
     /**
      * Constructs a prepared statement on a provided connection.
@@ -43,12 +49,22 @@ public abstract class CorePreparedStatement extends JDBC4Statement {
 
         this.sql = sql;
         DB db = conn.getDatabase();
-        db.prepare(this);
-        rs.colsMeta = pointer.safeRun(DB::column_names);
-        columnCount = pointer.safeRunInt(DB::column_count);
-        paramCount = pointer.safeRunInt(DB::bind_parameter_count);
+        db.prepareCached(this);
+        // a handle taken from the statement cache comes with its metadata
+        StatementCache.Metadata metadata = pointer.getMetadata();
+        if (metadata == null) {
+            metadata =
+                    new StatementCache.Metadata(
+                            pointer.safeRun(DB::column_names),
+                            pointer.safeRunInt(DB::column_count),
+                            pointer.safeRunInt(DB::bind_parameter_count));
+            pointer.setMetadata(metadata);
+        }
+        rs.colsMeta = metadata.columnNames;
+        columnCount = metadata.columnCount;
+        paramCount = metadata.paramCount;
         batchQueryCount = 0;
-        batch = null;
+        parameters = null;
         batchPos = 0;
     }
 
@@ -72,37 +88,101 @@ public abstract class CorePreparedStatement extends JDBC4Statement {
         return this.withConnectionTimeout(
                 () -> {
                     try {
-                        return conn.getDatabase()
-                                .executeBatch(
-                                        pointer, batchQueryCount, batch, conn.getAutoCommit());
+                        DB db = conn.getDatabase();
+                        MultiRowInsert insert = multiRowInsert(db);
+                        if (insert != null) {
+                            return db.executeBatch(
+                                    pointer,
+                                    insert,
+                                    batchQueryCount,
+                                    parameters,
+                                    conn.getAutoCommit());
+                        }
+                        return db.executeBatch(
+                                pointer, batchQueryCount, parameters, conn.getAutoCommit());
                     } finally {
                         clearBatch();
                     }
                 });
     }
 
+    /** @return the multi-row rewriting of this statement, or null if it is not rewritten. */
+    private MultiRowInsert multiRowInsert(DB db) {
+        if (!multiRowInsertChecked) {
+            multiRowInsertChecked = true;
+            if (db.getConfig().isRewriteBatchedInserts()) {
+                multiRowInsert = MultiRowInsert.of(sql, paramCount);
+            }
+        }
+        return multiRowInsert;
+    }
+
     /** @see org.sqlite.jdbc3.JDBC3Statement#clearBatch() () */
     @Override
     public void clearBatch() throws SQLException {
         super.clearBatch();
+        if (parameters != null) parameters.clear();
         batchQueryCount = 0;
     }
 
+    @Override
+    protected void internalClose() throws SQLException {
+        if (multiRowInsert != null) {
+            multiRowInsert.close();
+            multiRowInsert = null;
+        }
+        super.internalClose();
+        parameters = null;
+    }
+
     // PARAMETER FUNCTIONS //////////////////////////////////////////
 
     /**
-     * Assigns the object value to the element at the specific position of array batch.
+     * Assigns the object value to the element at the specific position of the current row.
      *
      * @param pos
-     * @param value
+     * @param value null, an Integer, Short, Long, Float, Double, String or byte array.
      * @throws SQLException
      */
     protected void batch(int pos, Object value) throws SQLException {
+        parameters().setObject(batchPos + pos - 1, value);
+    }
+
+    /** Assigns an int to the current row, without boxing it. */
+    protected void batchInt(int pos, int value) throws SQLException {
+        parameters().setInt(batchPos + pos - 1, value);
+    }
+
+    /** Assigns a long to the current row, without boxing it. */
+    protected void batchLong(int pos, long value) throws SQLException {
+        parameters().setLong(batchPos + pos - 1, value);
+    }
+
+    /** Assigns a float to the current row, without boxing it. */
+    protected void batchFloat(int pos, float value) throws SQLException {
+        parameters().setFloat(batchPos + pos - 1, value);
+    }
+
+    /** Assigns a double to the current row, without boxing it. */
+    protected void batchDouble(int pos, double value) throws SQLException {
+        parameters().setDouble(batchPos + pos - 1, value);
+    }
+
+    private ParameterBuffer parameters() throws SQLException {
         checkOpen();
-        if (batch == null) {
-            batch = new Object[paramCount];
+        if (parameters == null) {
+            parameters = new ParameterBuffer(paramCount);
+        }
+        return parameters;
+    }
+
+    protected void checkIndex(int index) throws SQLException {
+        if (parameters == null) {
+            throw new SQLException("No parameter has been set yet");
+        }
+        if (index < 1 || index > paramCount) {
+            throw new SQLException("Parameter index is invalid");
         }
-        batch[batchPos + pos - 1] = value;
     }
 
     /** Store the date in the user's preferred format (text, int, or real) */
@@ -120,11 +200,11 @@ public abstract class CorePreparedStatement extends JDBC4Statement {
 
             case REAL:
                 // long to Julian date
-                batch(pos, new Double((value / 86400000.0) + 2440587.5));
+                batchDouble(pos, (value / 86400000.0) + 2440587.5);
                 break;
 
             default: // INTEGER:
-                batch(pos, new Long(value / config.getDateMultiplier()));
+                batchLong(pos, value / config.getDateMultiplier());
         }
     }
 }
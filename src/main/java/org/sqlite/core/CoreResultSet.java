@@ -17,8 +17,6 @@ package org.sqlite.core;
 
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.HashMap;
-import java.util.Map;
 import org.sqlite.SQLiteConnectionConfig;
 
 /** Implements a JDBC ResultSet. */
@@ -48,7 +46,19 @@ public abstract class CoreResultSet implements Codes {
     protected int lastCol;
 
     public boolean closeStmt;
-    protected Map<String, Integer> columnNameToIndex = null;
+    /** Lookup of the column labels, shared with the other result sets of the statement. */
+    protected ColumnIndex columnIndex = null;
+
+    /** Rows copied out of the statement ahead of time, when the fetch size is more than 1. */
+    protected RowBuffer rowBuffer;
+    /** If the current row is read from rowBuffer rather than from the statement. */
+    protected boolean buffered = false;
+    /** If the statement is positioned on a row that the last fetch did not copy. */
+    private boolean fetchPending = false;
+    /** If the last fetch stepped through the last row. */
+    private boolean fetchDone = false;
+    /** Error of the last fetch, thrown once the rows copied before it have been read. */
+    protected SQLException fetchError;
 
     /**
      * Default constructor for a given statement.
@@ -57,6 +67,7 @@ public abstract class CoreResultSet implements Codes {
      */
     protected CoreResultSet(CoreStatement stmt) {
         this.stmt = stmt;
+        this.limitRows = stmt.fetchSize;
     }
 
     // INTERNAL FUNCTIONS ///////////////////////////////////////////
@@ -127,19 +138,26 @@ public abstract class CoreResultSet implements Codes {
         cols = null;
         colsMeta = null;
         meta = null;
-        limitRows = 0;
+        limitRows = stmt.fetchSize;
         row = 0;
         pastLastRow = false;
         lastCol = -1;
-        columnNameToIndex = null;
+        columnIndex = null;
         emptyResultSet = false;
+        buffered = false;
+        fetchPending = false;
+        fetchDone = false;
+        fetchError = null;
+        if (rowBuffer != null) {
+            rowBuffer.clear();
+        }
 
         if (stmt.pointer.isClosed() || (!open && !closeStmt)) {
             return;
         }
 
         DB db = stmt.getDatabase();
-        synchronized (db) {
+        synchronized (db.statementLock(stmt.pointer)) {
             if (!stmt.pointer.isClosed()) {
                 stmt.pointer.safeRunInt(DB::reset);
 
@@ -153,18 +171,122 @@ public abstract class CoreResultSet implements Codes {
         open = false;
     }
 
-    protected Integer findColumnIndexInCache(String col) {
-        if (columnNameToIndex == null) {
-            return null;
+    /**
+     * Whether the statement is positioned on a row that has not been returned by next() yet: the
+     * first row, loaded by execute(), or a row a fetch could not copy.
+     */
+    protected boolean isRowPending() {
+        return row == 0 || fetchPending;
+    }
+
+    /** Marks the pending row as returned by next(). */
+    protected void clearRowPending() {
+        fetchPending = false;
+    }
+
+    /**
+     * Moves to the next row copied by the last fetch, if any.
+     *
+     * @return True if positioned on a copied row; false if the caller must step the statement or
+     *     fetch again.
+     * @throws SQLException if the last fetch failed after the copied rows.
+     */
+    protected boolean nextBufferedRow() throws SQLException {
+        if (!buffered) {
+            return false;
+        }
+        if (rowBuffer.next()) {
+            return true;
+        }
+        buffered = false;
+        if (fetchError != null) {
+            SQLException e = fetchError;
+            fetchError = null;
+            throw e;
+        }
+        if (fetchDone) {
+            pastLastRow = true;
+        }
+        return false;
+    }
+
+    /**
+     * Copies the rows not read yet into the column vectors of a buffer, as many as it holds, in a
+     * single call, and moves past them. The result set is then positioned before the row that
+     * follows them, which {@link java.sql.ResultSet#next()} or another fetch reads.
+     *
+     * @param columns the buffer to fill.
+     * @return the number of rows copied; 0 if there are no more rows.
+     * @throws SQLException if the result set is closed, is reading rows fetched ahead with a fetch
+     *     size, or stepping the statement fails.
+     */
+    public int fetchColumns(ColumnBuffer columns) throws SQLException {
+        checkOpen();
+        if (buffered) {
+            throw new SQLException("rows fetched ahead must be read with next() first");
+        }
+        if (emptyResultSet || pastLastRow || (maxRows != 0 && row >= maxRows)) {
+            columns.clear();
+            return 0;
+        }
+
+        final int count =
+                maxRows != 0
+                        ? (int) Math.min(columns.capacity(), maxRows - row)
+                        : columns.capacity();
+        final boolean stepFirst = !isRowPending();
+        int rc = stmt.pointer.safeRunInt((db, ptr) -> columns.fill(db, ptr, count, stepFirst));
+        row += columns.rows();
+        lastCol = -1;
+        fetchPending = rc == SQLITE_ROW;
+        if (rc == SQLITE_DONE) {
+            pastLastRow = true;
+        } else if (rc != SQLITE_ROW) {
+            throw getDatabase().newSQLException(rc);
+        }
+        return columns.rows();
+    }
+
+    /**
+     * Copies up to limitRows rows out of the statement in a single call and moves to the first of
+     * them.
+     *
+     * @return True if positioned on a copied row; false if there are no more rows.
+     * @throws SQLException
+     */
+    protected boolean fetchRows() throws SQLException {
+        if (rowBuffer == null) {
+            rowBuffer = new RowBuffer();
         }
-        return columnNameToIndex.get(col);
+        final int count = maxRows != 0 ? (int) Math.min(limitRows, maxRows - row) : limitRows;
+        final boolean stepFirst = !isRowPending();
+        int rc = stmt.pointer.safeRunInt((db, ptr) -> rowBuffer.fill(db, ptr, count, stepFirst));
+        fetchPending = rc == SQLITE_ROW;
+        fetchDone = rc == SQLITE_DONE;
+        if (!fetchPending && !fetchDone) {
+            SQLException e = getDatabase().newSQLException(rc);
+            if (!rowBuffer.next()) {
+                throw e;
+            }
+            fetchError = e;
+        } else if (!rowBuffer.next()) {
+            pastLastRow = true;
+            return false;
+        }
+        buffered = true;
+        return true;
     }
 
-    protected int addColumnIndexInCache(String col, int index) {
-        if (columnNameToIndex == null) {
-            columnNameToIndex = new HashMap<String, Integer>(cols.length);
+    /**
+     * Finds a column by label, ignoring case.
+     *
+     * @param col the column label.
+     * @return the column index in [0,x-1] form, or -1 if there is no such column.
+     */
+    protected int findColumnIndex(String col) {
+        if (columnIndex == null) {
+            columnIndex = stmt.columnIndex = ColumnIndex.of(stmt.columnIndex, cols);
         }
-        columnNameToIndex.put(col, index);
-        return index;
+        return columnIndex.indexOf(col);
     }
 }
@@ -19,6 +19,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import org.sqlite.SQLiteConnection;
 import org.sqlite.SQLiteConnectionConfig;
+import org.sqlite.SQLiteStmtStatus;
 import org.sqlite.jdbc3.JDBC3Connection;
 import org.sqlite.jdbc4.JDBC4ResultSet;
 
@@ -31,10 +32,16 @@ public abstract class CoreStatement implements Codes {
 
     protected int batchPos;
     protected Object[] batch = null;
+    /** Lookup of the column labels of the last result set, reused while they stay the same. */
+    ColumnIndex columnIndex;
+
     protected boolean resultsWaiting = false;
+    /** Fetch size of the result sets, restored when a result set is closed. */
+    protected int fetchSize;
 
     protected CoreStatement(SQLiteConnection c) {
         conn = c;
+        fetchSize = c.getDatabase().getConfig().getDefaultFetchSize();
         rs = new JDBC4ResultSet(this);
     }
 
@@ -121,6 +128,22 @@ public abstract class CoreStatement implements Codes {
         return pointer.safeRunInt(DB::column_count) != 0;
     }
 
+    /**
+     * Reads one of the performance counters SQLite keeps for the compiled statement, e.g. the
+     * number of full table scan steps or sorts it performed.
+     *
+     * @param counter the counter to read.
+     * @param reset whether to reset the counter after reading it.
+     * @return the value of the counter.
+     * @throws SQLException if the statement has not been prepared or is closed.
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/stmt_status.html">https://www.sqlite.org/c3ref/stmt_status.html</a>
+     */
+    public int getStatus(SQLiteStmtStatus counter, boolean reset) throws SQLException {
+        if (pointer == null) throw new SQLException("statement is not prepared");
+        return pointer.safeRunInt((db, ptr) -> db.stmt_status(ptr, counter.getId(), reset));
+    }
+
     protected void internalClose() throws SQLException {
         if (this.pointer != null && !this.pointer.isClosed()) {
             if (conn.isClosed()) throw DB.newSQLException(SQLITE_ERROR, "Connection is closed");
@@ -140,13 +163,4 @@ public abstract class CoreStatement implements Codes {
     }
 
     public abstract ResultSet executeQuery(String sql, boolean closeStmt) throws SQLException;
-
-    protected void checkIndex(int index) throws SQLException {
-        if (batch == null) {
-            throw new SQLException("No parameter has been set yet");
-        }
-        if (index < 1 || index > batch.length) {
-            throw new SQLException("Parameter index is invalid");
-        }
-    }
 }
@@ -15,20 +15,42 @@
  */
 package org.sqlite.core;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.sql.BatchUpdateException;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import org.sqlite.BusyHandler;
 import org.sqlite.Collation;
 import org.sqlite.Function;
 import org.sqlite.ProgressHandler;
+import org.sqlite.SQLiteBulkUpdateListener;
 import org.sqlite.SQLiteCommitListener;
 import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteCsvFormat;
 import org.sqlite.SQLiteErrorCode;
 import org.sqlite.SQLiteException;
+import org.sqlite.SQLiteOpenMode;
 import org.sqlite.SQLiteUpdateListener;
 
 /*
@@ -57,13 +79,58 @@ public abstract class DB implements Codes {
     /** Tracer for statements to avoid unfinalized statements on db close. */
     private final Set<SafeStmtPtr> stmts = ConcurrentHashMap.newKeySet();
 
+    /** Incremental blob handles opened by this connection, guarded by the lock of this DB */
+    private final Set<Long> blobs = new HashSet<>();
+
+    /** Buffers deserialized in place by schema name, kept reachable while SQLite reads them. */
+    private final Map<String, ByteBuffer> images = new HashMap<>();
+
+    /** Closed prepared statements kept for reuse, keyed by SQL text. */
+    private final StatementCache statementCache;
+
+    /** Whether statements are locked individually rather than through this connection. */
+    private final boolean statementLocking;
+
+    /** The error of the last call on a statement that failed on each thread, until thrown. */
+    private final ThreadLocal<StatementError> statementError = new ThreadLocal<>();
+
+    /** Matches the leading whitespace and comments of a statement, and its first keyword. */
+    private static final Pattern LEADING_KEYWORD =
+            Pattern.compile("(?:\\s+|--[^\\n]*(?:\\n|$)|/\\*.*?(?:\\*/|$))*(\\w*)", Pattern.DOTALL);
+
+    /**
+     * The first keywords of the statements a batch may be grouped in a transaction with: plain DML
+     * and DDL. Others, such as PRAGMA, VACUUM, ATTACH, DETACH or transaction control, cannot run or
+     * do not take effect within a transaction.
+     */
+    private static final Set<String> GROUPABLE =
+            new HashSet<>(
+                    Arrays.asList(
+                            "insert", "replace", "update", "delete", "select", "values", "with",
+                            "create", "drop", "alter"));
+
+    /** The size of the windows of a file mapped at once by a bulk import. */
+    static final int IMPORT_WINDOW_SIZE = 64 << 20;
+
+    /** The number of changes collected natively before they are handed to bulk listeners. */
+    static final int UPDATE_BUFFER_SIZE = 4096;
+
     private final Set<SQLiteUpdateListener> updateListeners = new HashSet<>();
+    private final Set<SQLiteBulkUpdateListener> bulkUpdateListeners = new HashSet<>();
     private final Set<SQLiteCommitListener> commitListeners = new HashSet<>();
 
+    /** Database and table names of buffered changes, in the order native code numbered them. */
+    private final List<String> updateNames = new ArrayList<>();
+
     public DB(String url, String fileName, SQLiteConfig config) throws SQLException {
         this.url = url;
         this.fileName = fileName;
         this.config = config;
+        this.statementCache = new StatementCache(config.getStatementCacheSize());
+        // SQLite only serializes calls on the connection itself in its serialized threading mode
+        this.statementLocking =
+                config.getLockingStrategy() == SQLiteConfig.LockingStrategy.STATEMENT
+                        && (config.getOpenModeFlags() & SQLiteOpenMode.NOMUTEX.flag) == 0;
     }
 
     public String getUrl() {
@@ -78,6 +145,30 @@ public abstract class DB implements Codes {
         return config;
     }
 
+    public StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    /**
+     * Finalizes the statement handles parked in the statement cache.
+     *
+     * @throws SQLException
+     */
+    public final synchronized void clearStatementCache() throws SQLException {
+        statementCache.clear(this);
+    }
+
+    /**
+     * Returns the lock guarding calls on a statement.
+     *
+     * @param ptr the statement pointer.
+     * @return the pointer itself with the statement locking strategy, otherwise this database.
+     * @see SQLiteConfig#setLockingStrategy(SQLiteConfig.LockingStrategy)
+     */
+    final Object statementLock(SafeStmtPtr ptr) {
+        return statementLocking ? ptr : this;
+    }
+
     // WRAPPER FUNCTIONS ////////////////////////////////////////////
 
     /**
@@ -151,6 +242,14 @@ public abstract class DB implements Codes {
      */
     public abstract long total_changes() throws SQLException;
 
+    /**
+     * @return True if the database is not in the middle of a transaction; false otherwise.
+     * @throws SQLException if the connection is closed.
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/get_autocommit.html">https://www.sqlite.org/c3ref/get_autocommit.html</a>
+     */
+    public abstract boolean get_autocommit() throws SQLException;
+
     /**
      * Enables or disables the sharing of the database cache and schema data structures between
      * connections to the same database.
@@ -232,39 +331,112 @@ public abstract class DB implements Codes {
      * @see <a
      *     href="https://www.sqlite.org/c3ref/close.html">https://www.sqlite.org/c3ref/close.html</a>
      */
-    public final synchronized void close() throws SQLException {
-        // finalize any remaining statements before closing db
-        for (SafeStmtPtr element : stmts) {
-            element.close();
-        }
+    public final void close() throws SQLException {
+        while (true) {
+            // finalize any remaining statements before closing db, outside of the lock of the db:
+            // statement locks are always taken before it
+            for (SafeStmtPtr element : stmts) {
+                element.close();
+            }
+
+            synchronized (this) {
+                // close the statements prepared in the meantime the same way
+                if (!stmts.isEmpty()) continue;
+
+                // clean up commit object, only ever locked while holding the lock of the db
+                if (begin != null) begin.close();
+                if (commit != null) commit.close();
+
+                // close blob handles, which would otherwise keep the connection busy
+                for (long blob : blobs) {
+                    blob_close(blob);
+                }
+                blobs.clear();
 
-        // clean up commit object
-        if (begin != null) begin.close();
-        if (commit != null) commit.close();
+                // finalize statements parked for reuse, including the ones closed above
+                statementCache.clear(this);
 
-        closed.set(true);
-        _close();
+                closed.set(true);
+                _close();
+                images.clear();
+                return;
+            }
+        }
     }
 
     /**
-     * Complies the an SQL statement.
+     * Compiles an SQL statement.
      *
      * @param stmt The SQL statement to compile.
      * @throws SQLException
      * @see <a
      *     href="https://www.sqlite.org/c3ref/prepare.html">https://www.sqlite.org/c3ref/prepare.html</a>
      */
-    public final synchronized void prepare(CoreStatement stmt) throws SQLException {
+    public final void prepare(CoreStatement stmt) throws SQLException {
         if (stmt.sql == null) {
             throw new NullPointerException();
         }
+        // statement locks are taken before the lock of the db
         if (stmt.pointer != null) {
             stmt.pointer.close();
         }
-        stmt.pointer = prepare(stmt.sql);
-        final boolean added = stmts.add(stmt.pointer);
-        if (!added) {
-            throw new IllegalStateException("Already added pointer to statements set");
+        synchronized (this) {
+            stmt.pointer = prepare(stmt.sql);
+            final boolean added = stmts.add(stmt.pointer);
+            if (!added) {
+                throw new IllegalStateException("Already added pointer to statements set");
+            }
+        }
+    }
+
+    /**
+     * Compiles an SQL statement that, unless closed before, is finalized when the connection is
+     * closed, like the statements of the connection.
+     *
+     * @param sql An SQL statement.
+     * @return the statement.
+     * @throws SQLException
+     */
+    final synchronized SafeStmtPtr prepareTracked(String sql) throws SQLException {
+        SafeStmtPtr pointer = prepare(sql);
+        stmts.add(pointer);
+        return pointer;
+    }
+
+    /**
+     * Compiles an SQL statement, reusing a statement handle parked in the statement cache when one
+     * is available. The statement is parked again instead of being finalized when it is closed.
+     * Falls back to {@link #prepare(CoreStatement)} when the cache is disabled.
+     *
+     * @param stmt The SQL statement to compile.
+     * @throws SQLException
+     * @see StatementCache
+     */
+    public final void prepareCached(CoreStatement stmt) throws SQLException {
+        if (!statementCache.isEnabled()) {
+            prepare(stmt);
+            return;
+        }
+        if (stmt.sql == null) {
+            throw new NullPointerException();
+        }
+        // statement locks are taken before the lock of the db
+        if (stmt.pointer != null) {
+            stmt.pointer.close();
+        }
+        synchronized (this) {
+            StatementCache.Parked parked = statementCache.take(stmt.sql);
+            if (parked != null) {
+                stmt.pointer = new SafeStmtPtr(this, parked.ptr);
+                stmt.pointer.setMetadata(parked.metadata);
+            } else {
+                stmt.pointer = prepare(stmt.sql);
+            }
+            stmt.pointer.setCacheKey(stmt.sql);
+            final boolean added = stmts.add(stmt.pointer);
+            if (!added) {
+                throw new IllegalStateException("Already added pointer to statements set");
+            }
         }
     }
 
@@ -280,6 +452,12 @@ public abstract class DB implements Codes {
      */
     public synchronized int finalize(SafeStmtPtr safePtr, long ptr) throws SQLException {
         try {
+            String cacheKey = safePtr.getCacheKey();
+            if (cacheKey != null
+                    && !isClosed()
+                    && statementCache.park(this, cacheKey, ptr, safePtr.getMetadata())) {
+                return SQLITE_OK;
+            }
             return finalize(ptr);
         } finally {
             stmts.remove(safePtr);
@@ -308,7 +486,7 @@ public abstract class DB implements Codes {
     protected abstract void _close() throws SQLException;
 
     /**
-     * Complies, evaluates, executes and commits an SQL statement.
+     * Compiles, evaluates, executes and commits an SQL statement.
      *
      * @param sql An SQL statement.
      * @return <a href="https://www.sqlite.org/c3ref/c_abort.html">Result Codes</a>
@@ -319,7 +497,17 @@ public abstract class DB implements Codes {
     public abstract int _exec(String sql) throws SQLException;
 
     /**
-     * Complies an SQL statement.
+     * Executes an SQL statement given as UTF-8 bytes, without logging it. Unlike a String, the
+     * bytes can be wiped by the caller afterwards, which is how statements holding a key are run.
+     *
+     * @param sqlUtf8 An SQL statement, in UTF-8.
+     * @return <a href="https://www.sqlite.org/c3ref/c_abort.html">Result Codes</a>
+     * @throws SQLException
+     */
+    public abstract int _exec(byte[] sqlUtf8) throws SQLException;
+
+    /**
+     * Compiles an SQL statement.
      *
      * @param sql An SQL statement.
      * @return <a href="https://www.sqlite.org/c3ref/c_abort.html">Result Codes</a>
@@ -329,6 +517,15 @@ public abstract class DB implements Codes {
      */
     protected abstract SafeStmtPtr prepare(String sql) throws SQLException;
 
+    /**
+     * Compiles an SQL statement, unless the text holds several statements or none.
+     *
+     * @param sql An SQL statement.
+     * @return the statement, or null if the text does not hold exactly one statement.
+     * @throws SQLException
+     */
+    protected abstract SafeStmtPtr prepareSingle(String sql) throws SQLException;
+
     /**
      * Destroys a prepared statement.
      *
@@ -451,6 +648,34 @@ public abstract class DB implements Codes {
      */
     public abstract byte[] column_blob(long stmt, int col) throws SQLException;
 
+    /**
+     * Returns the UTF-8 text of a column as a buffer over SQLite's own memory. The buffer is only
+     * valid until the statement is stepped, reset or finalized, or the value is converted by
+     * another column_* call.
+     *
+     * @param stmt Pointer to the statement.
+     * @param col Number of column.
+     * @return Direct buffer over the text of the column, or null if the value is NULL.
+     * @throws SQLException
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/column_blob.html">https://www.sqlite.org/c3ref/column_blob.html</a>
+     */
+    public abstract ByteBuffer column_text_utf8(long stmt, int col) throws SQLException;
+
+    /**
+     * Returns the BLOB value of a column as a buffer over SQLite's own memory. The buffer is only
+     * valid until the statement is stepped, reset or finalized, or the value is converted by
+     * another column_* call.
+     *
+     * @param stmt Pointer to the statement.
+     * @param col Number of column.
+     * @return Direct buffer over the bytes of the column, or null if the value is NULL.
+     * @throws SQLException
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/column_blob.html">https://www.sqlite.org/c3ref/column_blob.html</a>
+     */
+    public abstract ByteBuffer column_blob_buffer(long stmt, int col) throws SQLException;
+
     /**
      * @param stmt Pointer to the statement.
      * @param col Number of column.
@@ -481,6 +706,92 @@ public abstract class DB implements Codes {
      */
     public abstract int column_int(long stmt, int col) throws SQLException;
 
+    /**
+     * Steps a statement and copies the values of up to maxRows result rows into a direct buffer,
+     * laid out as described by {@link RowBuffer}. Stops early, leaving the statement positioned on
+     * the row that was not copied, when the next row does not fit into the buffer.
+     *
+     * @param stmt Pointer to the statement.
+     * @param buffer Direct buffer to copy the rows into.
+     * @param maxRows Maximum number of rows to copy.
+     * @param stepFirst Whether to step before copying the first row, rather than copying the row
+     *     the statement is positioned on.
+     * @return <a href="https://www.sqlite.org/c3ref/c_abort.html">Result Codes</a> of the last
+     *     step; SQLITE_ROW if the statement is positioned on a row that was not copied.
+     * @throws SQLException
+     */
+    abstract int fetch_rows(long stmt, ByteBuffer buffer, int maxRows, boolean stepFirst)
+            throws SQLException;
+
+    /**
+     * Steps a statement and copies the values of up to maxRows result rows into column vectors,
+     * laid out as described by {@link ColumnBuffer}. Stops early, leaving the statement positioned
+     * on the row that was not copied, when a text or blob value of the next row does not fit into
+     * the data buffer of its column.
+     *
+     * @param stmt Pointer to the statement.
+     * @param types The SQLite type code of each column, or 0 to take the type of the first value.
+     * @param validity The direct buffer of the validity bitmap of each column.
+     * @param values The direct buffer of the values, or offsets, of each column.
+     * @param data The direct buffer of the text or blob bytes of each column, or null.
+     * @param nullCounts The number of NULL values of each column, added to.
+     * @param result Receives the number of rows in the vectors, then the column whose value did not
+     *     fit and the data size it needs, or -1 and 0.
+     * @param start The index of the first row to write.
+     * @param maxRows Number of rows the vectors can hold.
+     * @param stepFirst Whether to step before copying the first row, rather than copying the row
+     *     the statement is positioned on.
+     * @return <a href="https://www.sqlite.org/c3ref/c_abort.html">Result Codes</a> of the last
+     *     step; SQLITE_ROW if the statement is positioned on a row that was not copied.
+     * @throws SQLException
+     */
+    abstract int fetch_columns(
+            long stmt,
+            int[] types,
+            ByteBuffer[] validity,
+            ByteBuffer[] values,
+            ByteBuffer[] data,
+            int[] nullCounts,
+            int[] result,
+            int start,
+            int maxRows,
+            boolean stepFirst)
+            throws SQLException;
+
+    /**
+     * Inserts rows of delimited text with a statement taking one parameter per field, binding each
+     * field straight from the buffer. Missing fields are bound to NULL.
+     *
+     * @param stmt Pointer to the statement.
+     * @param buffer The direct buffer holding the text.
+     * @param offset The position of the first row in the buffer.
+     * @param limit The position after the text.
+     * @param last Whether the text ends at limit; otherwise parsing stops at a row running past it.
+     * @param params The number of parameters of the statement.
+     * @param delimiter The byte separating fields.
+     * @param quote The byte enclosing fields, or 0.
+     * @param emptyAsNull Whether to bind empty unquoted fields to NULL.
+     * @param maxRows The maximum number of rows to insert.
+     * @param result Receives the number of rows inserted, the position of the first row that was
+     *     not, and 1 if that row is malformed or has too many fields, 0 otherwise.
+     * @return <a href="https://www.sqlite.org/c3ref/c_abort.html">Result Codes</a> of the step that
+     *     failed, or SQLITE_DONE.
+     * @throws SQLException
+     */
+    abstract int import_csv(
+            long stmt,
+            ByteBuffer buffer,
+            int offset,
+            int limit,
+            boolean last,
+            int params,
+            byte delimiter,
+            byte quote,
+            boolean emptyAsNull,
+            int maxRows,
+            int[] result)
+            throws SQLException;
+
     /**
      * Binds NULL value to prepared statements with the pointer to the statement object and the
      * index of the SQL parameter to be set to NULL.
@@ -752,6 +1063,184 @@ public abstract class DB implements Codes {
      */
     public abstract int destroy_collation(String name) throws SQLException;
 
+    /**
+     * Opens a handle for incremental I/O on a BLOB value.
+     *
+     * @param dbName Name of the database containing the table, e.g. "main".
+     * @param table Name of the table.
+     * @param column Name of the column.
+     * @param rowid Rowid of the row.
+     * @param writable Whether the handle can be written to.
+     * @return Pointer to the blob handle.
+     * @throws SQLException
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/blob_open.html">https://www.sqlite.org/c3ref/blob_open.html</a>
+     */
+    public final synchronized long openBlob(
+            String dbName, String table, String column, long rowid, boolean writable)
+            throws SQLException {
+        long blob = blob_open(dbName, table, column, rowid, writable);
+        blobs.add(blob);
+        return blob;
+    }
+
+    /**
+     * Moves a blob handle to the same column of another row.
+     *
+     * @param blob Pointer to the blob handle.
+     * @param rowid Rowid of the new row.
+     * @throws SQLException
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/blob_reopen.html">https://www.sqlite.org/c3ref/blob_reopen.html</a>
+     */
+    public final synchronized void reopenBlob(long blob, long rowid) throws SQLException {
+        checkBlob(blob);
+        blob_reopen(blob, rowid);
+    }
+
+    /**
+     * @param blob Pointer to the blob handle.
+     * @return Size in bytes of the BLOB the handle is open on.
+     * @throws SQLException
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/blob_bytes.html">https://www.sqlite.org/c3ref/blob_bytes.html</a>
+     */
+    public final synchronized int blobLength(long blob) throws SQLException {
+        checkBlob(blob);
+        return blob_bytes(blob);
+    }
+
+    /**
+     * Reads bytes of a BLOB into an array.
+     *
+     * @param blob Pointer to the blob handle.
+     * @param offset Offset within the BLOB to read from.
+     * @param bytes Array to read into.
+     * @param off Offset within the array.
+     * @param len Number of bytes to read.
+     * @throws SQLException
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/blob_read.html">https://www.sqlite.org/c3ref/blob_read.html</a>
+     */
+    public final synchronized void readBlob(long blob, int offset, byte[] bytes, int off, int len)
+            throws SQLException {
+        checkBlob(blob);
+        blob_read(blob, offset, bytes, off, len);
+    }
+
+    /**
+     * Writes bytes of an array into a BLOB. The size of the BLOB cannot be changed.
+     *
+     * @param blob Pointer to the blob handle.
+     * @param offset Offset within the BLOB to write to.
+     * @param bytes Array to write from.
+     * @param off Offset within the array.
+     * @param len Number of bytes to write.
+     * @throws SQLException
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/blob_write.html">https://www.sqlite.org/c3ref/blob_write.html</a>
+     */
+    public final synchronized void writeBlob(long blob, int offset, byte[] bytes, int off, int len)
+            throws SQLException {
+        checkBlob(blob);
+        blob_write(blob, offset, bytes, off, len);
+    }
+
+    /**
+     * Closes a blob handle. Closing a handle twice has no effect.
+     *
+     * @param blob Pointer to the blob handle.
+     * @throws SQLException
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/blob_close.html">https://www.sqlite.org/c3ref/blob_close.html</a>
+     */
+    public final synchronized void closeBlob(long blob) throws SQLException {
+        if (blobs.remove(blob)) {
+            blob_close(blob);
+        }
+    }
+
+    private void checkBlob(long blob) throws SQLException {
+        if (!blobs.contains(blob)) {
+            throw new SQLException("The blob has been closed");
+        }
+    }
+
+    /**
+     * Copies the content of a database.
+     *
+     * @param schema Name of the database, e.g. "main".
+     * @return The database image, as it would be stored in a file.
+     * @throws SQLException
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/serialize.html">https://www.sqlite.org/c3ref/serialize.html</a>
+     */
+    public final synchronized byte[] serialize(String schema) throws SQLException {
+        return serialize_image(schema);
+    }
+
+    /**
+     * Replaces the content of a database with a copy of an image, which can be modified and grow.
+     *
+     * @param schema Name of the database, e.g. "main".
+     * @param image The database image, as it would be stored in a file.
+     * @throws SQLException
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/deserialize.html">https://www.sqlite.org/c3ref/deserialize.html</a>
+     */
+    public final synchronized void deserialize(String schema, byte[] image) throws SQLException {
+        int rc = deserialize_image(schema, image);
+        if (rc != SQLITE_OK) throwex(rc);
+        images.remove(schema.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Replaces the content of a database with a read-only image. The remaining bytes of a direct
+     * buffer are used in place, without copying them, so that one image can be shared by many
+     * connections; a heap buffer is copied to a direct one first. The buffer must not be modified
+     * while the database is in use.
+     *
+     * @param schema Name of the database, e.g. "main".
+     * @param image The database image, as it would be stored in a file.
+     * @throws SQLException
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/deserialize.html">https://www.sqlite.org/c3ref/deserialize.html</a>
+     */
+    public final synchronized void deserialize(String schema, ByteBuffer image)
+            throws SQLException {
+        if (!image.isDirect()) {
+            ByteBuffer copy = ByteBuffer.allocateDirect(image.remaining());
+            copy.put(image.duplicate()).flip();
+            image = copy;
+        }
+        int rc = deserialize_image(schema, image, image.position(), image.remaining());
+        if (rc != SQLITE_OK) throwex(rc);
+        images.put(schema.toLowerCase(Locale.ROOT), image);
+    }
+
+    abstract byte[] serialize_image(String schema) throws SQLException;
+
+    abstract int deserialize_image(String schema, byte[] image) throws SQLException;
+
+    abstract int deserialize_image(String schema, ByteBuffer image, int offset, int length)
+            throws SQLException;
+
+    abstract long blob_open(
+            String dbName, String table, String column, long rowid, boolean writable)
+            throws SQLException;
+
+    abstract int blob_reopen(long blob, long rowid) throws SQLException;
+
+    abstract int blob_bytes(long blob) throws SQLException;
+
+    abstract int blob_read(long blob, int offset, byte[] bytes, int off, int len)
+            throws SQLException;
+
+    abstract int blob_write(long blob, int offset, byte[] bytes, int off, int len)
+            throws SQLException;
+
+    abstract int blob_close(long blob) throws SQLException;
+
     /**
      * @param dbName Database name to be backed up.
      * @param destFileName Target backup file name.
@@ -784,6 +1273,52 @@ public abstract class DB implements Codes {
             int pagesPerStep)
             throws SQLException;
 
+    /**
+     * Writes a snapshot of a database to a channel, for example to upload it elsewhere.
+     *
+     * <p>The database is copied online, {@code pagesPerStep} pages at a time, to a scratch file in
+     * the temporary directory, which is then written to the channel {@code pagesPerStep} pages at a
+     * time and deleted. The connection is only held for the duration of each step, so other threads
+     * can use it between steps, and the copy restarts if another connection writes to the database
+     * meanwhile.
+     *
+     * <p>The copy is not encrypted, so a database whose file is not a plain SQLite database file,
+     * such as one encrypted with SQLCipher or SQLite3 Multiple Ciphers, is refused; back it up to a
+     * file with {@link #backup(String, String, ProgressObserver)} instead.
+     *
+     * @param dbName Database name to be backed up.
+     * @param out Target of the database image.
+     * @param observer ProgressObserver object, or null.
+     * @param pagesPerStep the number of pages to copy in each sqlite3_backup_step, at least 1.
+     * @param maxBytesPerSecond the maximum rate at which pages are copied and the image written, or
+     *     0 for no limit.
+     * @throws SQLException if the database is encrypted or cannot be copied.
+     * @throws IOException if the scratch file cannot be used or writing to the channel failed.
+     */
+    public abstract void backup(
+            String dbName,
+            WritableByteChannel out,
+            ProgressObserver observer,
+            int pagesPerStep,
+            long maxBytesPerSecond)
+            throws SQLException, IOException;
+
+    /**
+     * Writes a snapshot of a database to a stream.
+     *
+     * @see #backup(String, WritableByteChannel, ProgressObserver, int, long)
+     */
+    public void backup(
+            String dbName,
+            OutputStream out,
+            ProgressObserver observer,
+            int pagesPerStep,
+            long maxBytesPerSecond)
+            throws SQLException, IOException {
+        backup(dbName, Channels.newChannel(out), observer, pagesPerStep, maxBytesPerSecond);
+        out.flush();
+    }
+
     /**
      * @param dbName Database name for restoring data.
      * @param sourceFileName Source file name.
@@ -826,8 +1361,68 @@ public abstract class DB implements Codes {
      */
     public abstract int limit(int id, int value) throws SQLException;
 
+    /**
+     * @param op The id of the connection status counter.
+     * @param reset Whether to reset the highwater mark of the counter.
+     * @return The current value and the highwater mark of the counter.
+     * @throws SQLException
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/db_status.html">https://www.sqlite.org/c3ref/db_status.html</a>
+     */
+    public abstract long[] db_status(int op, boolean reset) throws SQLException;
+
+    /**
+     * @param stmt Pointer to the statement.
+     * @param op The id of the statement status counter.
+     * @param reset Whether to reset the counter to zero.
+     * @return The value of the counter.
+     * @throws SQLException
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/stmt_status.html">https://www.sqlite.org/c3ref/stmt_status.html</a>
+     */
+    public abstract int stmt_status(long stmt, int op, boolean reset) throws SQLException;
+
+    /**
+     * @param op The id of the process-wide status counter.
+     * @param reset Whether to reset the highwater mark of the counter.
+     * @return The current value and the highwater mark of the counter, shared by all connections.
+     * @throws SQLException
+     * @see <a
+     *     href="https://www.sqlite.org/c3ref/status.html">https://www.sqlite.org/c3ref/status.html</a>
+     */
+    public abstract long[] status64(int op, boolean reset) throws SQLException;
+
     public interface ProgressObserver {
         void progress(int remaining, int pageCount);
+
+        /**
+         * Called after each step of a backup written to a channel, and after each chunk of its
+         * image is written.
+         *
+         * @param remaining the number of pages left to copy.
+         * @param pageCount the number of pages of the database.
+         * @param bytes the number of bytes copied, then written, so far.
+         * @param elapsedNanos the time since the backup started.
+         */
+        default void progress(int remaining, int pageCount, long bytes, long elapsedNanos) {
+            progress(remaining, pageCount);
+        }
+
+        /**
+         * Called during a bulk import, after each transaction and each window of the file. By
+         * default, reports the remaining and total size of the file in KiB to {@link #progress(int,
+         * int)}.
+         *
+         * @param rows the number of rows inserted so far, divided by elapsedNanos for the rate.
+         * @param bytes the number of bytes of the file read so far.
+         * @param totalBytes the size of the file.
+         * @param elapsedNanos the time since the import started.
+         */
+        default void imported(long rows, long bytes, long totalBytes, long elapsedNanos) {
+            progress(
+                    (int) Math.min(Integer.MAX_VALUE, (totalBytes - bytes) >> 10),
+                    (int) Math.min(Integer.MAX_VALUE, totalBytes >> 10));
+        }
     }
 
     /** Progress handler */
@@ -836,6 +1431,49 @@ public abstract class DB implements Codes {
 
     public abstract void clear_progress_handler() throws SQLException;
 
+    /**
+     * Interrupts the statements the current thread runs on the connection once the given time has
+     * elapsed, until {@link #clear_deadline(long)} is called. The deadline is checked natively by
+     * the progress handler of the connection, along with any {@link ProgressHandler} registered
+     * with it. It does not apply to the statements run by other threads, and deadlines set while
+     * another one is set are nested within it. The current thread may be a virtual thread, the
+     * deadline follows it from one carrier thread to another.
+     *
+     * @param timeoutNanos the time the statements may run, in nanoseconds, or 0 for a deadline that
+     *     is only expired by {@link #expire_deadline(long)}.
+     * @return the deadline, to clear once the statements are done.
+     * @throws SQLException
+     */
+    public abstract long set_deadline(long timeoutNanos) throws SQLException;
+
+    /**
+     * Restricts a deadline set by {@link #set_deadline(long)} to a statement: from then on it only
+     * interrupts that statement, whichever thread steps it or fetches its rows, and no longer the
+     * other statements of the thread that set it.
+     *
+     * @param deadline the deadline.
+     * @param stmt the pointer of the statement.
+     */
+    public abstract void restrict_deadline(long deadline, long stmt);
+
+    /**
+     * Expires a deadline set by {@link #set_deadline(long)} at once: the statement it bounds is
+     * interrupted at the next check of the deadline, or the next statement if none is running.
+     * Unlike {@link #interrupt()}, the expiry is not lost when no statement is running. May be
+     * called from any thread, but not after the deadline is cleared.
+     *
+     * @param deadline the deadline.
+     */
+    public abstract void expire_deadline(long deadline);
+
+    /**
+     * Removes a deadline set by {@link #set_deadline(long)}.
+     *
+     * @param deadline the deadline.
+     * @return whether the deadline interrupted a statement.
+     */
+    public abstract boolean clear_deadline(long deadline);
+
     /**
      * Returns an array describing the attributes (not null, primary key and auto increment) of
      * columns.
@@ -866,146 +1504,498 @@ public abstract class DB implements Codes {
         return names;
     }
 
-    /**
-     * Bind values to prepared statements
-     *
-     * @param stmt Pointer to the statement.
-     * @param pos Index of the SQL parameter to be set to NULL.
-     * @param v Value to bind to the parameter.
-     * @return <a href="https://www.sqlite.org/c3ref/c_abort.html">Result Codes</a>
-     * @throws SQLException
-     * @see <a
-     *     href="https://www.sqlite.org/c3ref/bind_blob.html">https://www.sqlite.org/c3ref/bind_blob.html</a>
-     */
-    final synchronized int sqlbind(long stmt, int pos, Object v) throws SQLException {
-        pos++;
-        if (v == null) {
-            return bind_null(stmt, pos);
-        } else if (v instanceof Integer) {
-            return bind_int(stmt, pos, (Integer) v);
-        } else if (v instanceof Short) {
-            return bind_int(stmt, pos, ((Short) v).intValue());
-        } else if (v instanceof Long) {
-            return bind_long(stmt, pos, (Long) v);
-        } else if (v instanceof Float) {
-            return bind_double(stmt, pos, ((Float) v).doubleValue());
-        } else if (v instanceof Double) {
-            return bind_double(stmt, pos, (Double) v);
-        } else if (v instanceof String) {
-            return bind_text(stmt, pos, (String) v);
-        } else if (v instanceof byte[]) {
-            return bind_blob(stmt, pos, (byte[]) v);
-        } else {
-            throw new SQLException("unexpected param type: " + v.getClass());
-        }
-    }
-
     /**
      * Submits a batch of commands to the database for execution.
      *
      * @see java.sql.Statement#executeBatch()
      * @param stmt Pointer of Stmt object.
      * @param count Number of SQL statements.
-     * @param vals Array of parameter values.
+     * @param vals Parameter values of the batch entries.
      * @return Array of the number of rows changed or inserted or deleted for each command if all
      *     commands execute successfully;
      * @throws SQLException if statement is not open or is being used elsewhere
      */
-    final synchronized long[] executeBatch(
-            SafeStmtPtr stmt, int count, Object[] vals, boolean autoCommit) throws SQLException {
+    final long[] executeBatch(SafeStmtPtr stmt, int count, ParameterBuffer vals, boolean autoCommit)
+            throws SQLException {
         return stmt.safeRun((db, ptr) -> this.executeBatch(ptr, count, vals, autoCommit));
     }
 
+    /**
+     * Submits a batch of a prepared insert to the database, executing it as multi-row inserts.
+     *
+     * @see MultiRowInsert
+     * @param stmt Pointer of Stmt object.
+     * @param insert The rewriting of the statement.
+     * @param count Number of rows.
+     * @param vals Parameter values of the batch entries.
+     * @return Array of the number of rows changed for each row.
+     * @throws SQLException if statement is not open or is being used elsewhere, or a row cannot be
+     *     inserted
+     */
+    final long[] executeBatch(
+            SafeStmtPtr stmt,
+            MultiRowInsert insert,
+            int count,
+            ParameterBuffer vals,
+            boolean autoCommit)
+            throws SQLException {
+        if (count < 1) {
+            throw new SQLException("count (" + count + ") < 1");
+        }
+        return stmt.safeRun(
+                (db, ptr) -> {
+                    try {
+                        return insert.execute(this, ptr, count, vals);
+                    } finally {
+                        ensureAutoCommit(autoCommit);
+                    }
+                });
+    }
+
     private synchronized long[] executeBatch(
-            long stmt, int count, Object[] vals, boolean autoCommit) throws SQLException {
+            long stmt, int count, ParameterBuffer vals, boolean autoCommit) throws SQLException {
         if (count < 1) {
             throw new SQLException("count (" + count + ") < 1");
         }
 
         final int params = bind_parameter_count(stmt);
 
+        try {
+            return executeBatchRows(stmt, 0, count, params, vals);
+        } finally {
+            ensureAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Runs the reset/bind/step cycle for each entry of a batch and collects the change counts. The
+     * statement is reset once the whole batch has been executed.
+     *
+     * @param stmt Pointer to the statement.
+     * @param offset Index of the first value of the first entry.
+     * @param count Number of batch entries.
+     * @param params Number of parameters of the statement.
+     * @param vals Parameter values, {@code params} values per entry.
+     * @return Array of the number of rows changed for each entry.
+     * @throws SQLException if binding or stepping one of the entries fails
+     */
+    synchronized long[] executeBatchRows(
+            long stmt, int offset, int count, int params, ParameterBuffer vals)
+            throws SQLException {
         int rc;
         long[] changes = new long[count];
 
-        try {
-            for (int i = 0; i < count; i++) {
+        for (int i = 0; i < count; i++) {
+            reset(stmt);
+            rc = vals.bind(this, stmt, offset + i * params, params);
+            if (rc != SQLITE_OK) {
+                throwex(rc);
+            }
+
+            rc = step(stmt);
+            if (rc != SQLITE_DONE) {
                 reset(stmt);
-                for (int j = 0; j < params; j++) {
-                    rc = sqlbind(stmt, j, vals[(i * params) + j]);
-                    if (rc != SQLITE_OK) {
-                        throwex(rc);
-                    }
+                if (rc == SQLITE_ROW) {
+                    throw newBatchReturnsResultsException(i, changes);
                 }
+                throwex(rc);
+            }
 
-                rc = step(stmt);
-                if (rc != SQLITE_DONE) {
-                    reset(stmt);
-                    if (rc == SQLITE_ROW) {
-                        throw new BatchUpdateException(
-                                "batch entry " + i + ": query returns results",
-                                null,
-                                0,
-                                changes,
-                                null);
+            changes[i] = changes();
+        }
+
+        reset(stmt);
+        return changes;
+    }
+
+    /**
+     * Executes the SQL strings of a {@link java.sql.Statement} batch. Outside of a transaction the
+     * batch runs in one, so that it is committed once instead of once per entry, if all of its
+     * statements are plain DML or DDL. A string is prepared once however many times it occurs, and
+     * strings holding several statements are run with {@link #_exec(String)}.
+     *
+     * <p>If an entry fails, the entries before it are committed and their counts are reported by
+     * the {@link BatchUpdateException}, as they would without the transaction. When the error
+     * rolled back the whole transaction, no count is reported.
+     *
+     * @param sqls The SQL strings of the batch.
+     * @return Array of the number of rows changed for each entry.
+     * @throws BatchUpdateException if an entry fails or returns results
+     */
+    public final synchronized long[] executeBatch(String[] sqls) throws SQLException {
+        long[] changes = new long[sqls.length];
+        Map<String, Integer> occurrences = new HashMap<>();
+        boolean grouped = get_autocommit();
+        for (String sql : sqls) {
+            occurrences.merge(sql, 1, Integer::sum);
+            grouped &= isGroupable(sql);
+        }
+
+        Map<String, SafeStmtPtr> prepared = new HashMap<>();
+        int done = 0;
+        try {
+            if (grouped) exec("savepoint sqlite_jdbc_batch;", false);
+            for (; done < sqls.length; done++) {
+                changes[done] = executeBatchEntry(sqls[done], occurrences, prepared);
+                // an entry holding several statements may have ended the transaction
+                grouped &= !get_autocommit();
+            }
+            if (grouped) exec("release sqlite_jdbc_batch;", false);
+            return changes;
+        } catch (SQLException e) {
+            long[] counts = Arrays.copyOf(changes, done);
+            if (grouped) {
+                if (get_autocommit()) {
+                    counts = new long[0];
+                } else {
+                    try {
+                        exec("release sqlite_jdbc_batch;", false);
+                    } catch (SQLException e2) {
+                        counts = new long[0];
+                        e.addSuppressed(e2);
+                        if (!get_autocommit()) _exec("rollback;");
                     }
-                    throwex(rc);
                 }
+            }
+            throw new BatchUpdateException(
+                    "batch entry " + done + ": " + e.getMessage(), null, 0, counts, e);
+        } finally {
+            for (SafeStmtPtr stmt : prepared.values()) {
+                if (stmt != null) stmt.close();
+            }
+        }
+    }
+
+    /**
+     * Whether the statements of an SQL string may run in the transaction of a grouped batch. The
+     * text is split on every semicolon, even those within literals or comments, which only makes
+     * for more parts to check.
+     */
+    private static boolean isGroupable(String sql) {
+        for (String part : sql.split(";", -1)) {
+            Matcher matcher = LEADING_KEYWORD.matcher(part);
+            if (!matcher.lookingAt()) return false;
+            String keyword = matcher.group(1).toLowerCase(Locale.ROOT);
+            if (keyword.isEmpty() ? matcher.end() < part.length() : !GROUPABLE.contains(keyword)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long executeBatchEntry(
+            String sql, Map<String, Integer> occurrences, Map<String, SafeStmtPtr> prepared)
+            throws SQLException {
+        SafeStmtPtr stmt = prepared.get(sql);
+        if (stmt == null && !prepared.containsKey(sql)) {
+            stmt = prepareSingle(sql);
+            if (occurrences.get(sql) > 1) prepared.put(sql, stmt);
+        }
+        if (stmt == null) {
+            long before = total_changes();
+            _exec(sql);
+            return total_changes() - before;
+        }
 
-                changes[i] = changes();
+        try {
+            int rc = stmt.safeRunInt(DB::step);
+            stmt.safeRunInt(DB::reset);
+            if (rc == SQLITE_ROW) {
+                throw new SQLException("query returns results");
+            }
+            if (rc != SQLITE_DONE) {
+                throwex(rc);
             }
+            return changes();
         } finally {
-            ensureAutoCommit(autoCommit);
+            if (!prepared.containsKey(sql)) stmt.close();
         }
+    }
 
-        reset(stmt);
-        return changes;
+    static BatchUpdateException newBatchReturnsResultsException(int entry, long[] changes) {
+        return new BatchUpdateException(
+                "batch entry " + entry + ": query returns results", null, 0, changes, null);
+    }
+
+    /**
+     * Inserts the rows of a delimited text file into a table, see {@link
+     * org.sqlite.SQLiteConnection#importCsv(Path, String, SQLiteCsvFormat, int, ProgressObserver)}.
+     *
+     * <p>The file is mapped into memory a window at a time and parsed natively, each field being
+     * bound straight from the mapping. A row running past the end of a window is parsed again from
+     * the next one, which starts with it.
+     *
+     * @param file the file to read.
+     * @param table the name of the table.
+     * @param format the format of the file.
+     * @param commitRows the number of rows inserted by each transaction, when the connection is in
+     *     auto-commit mode.
+     * @param observer ProgressObserver object, or null.
+     * @return the number of rows inserted.
+     * @throws SQLException if a row is malformed or cannot be inserted.
+     * @throws IOException if the file cannot be read.
+     */
+    public final synchronized long importCsv(
+            Path file,
+            String table,
+            SQLiteCsvFormat format,
+            int commitRows,
+            ProgressObserver observer)
+            throws SQLException, IOException {
+        return importCsv(file, table, format, commitRows, observer, IMPORT_WINDOW_SIZE);
+    }
+
+    final synchronized long importCsv(
+            Path file,
+            String table,
+            SQLiteCsvFormat format,
+            int commitRows,
+            ProgressObserver observer,
+            int windowSize)
+            throws SQLException, IOException {
+        if (commitRows < 1) throw new IllegalArgumentException("commitRows < 1");
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer head =
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, windowSize));
+            long position = 0;
+            if (size >= 3
+                    && (head.get(0) & 0xff) == 0xef
+                    && (head.get(1) & 0xff) == 0xbb
+                    && (head.get(2) & 0xff) == 0xbf) {
+                position = 3;
+            }
+
+            StringBuilder sql = new StringBuilder("insert into ").append(quoteIdentifier(table));
+            int params;
+            if (format.isHeader()) {
+                if (position == size) return 0;
+                List<String> names = new ArrayList<>();
+                position = readCsvHeader(head, (int) position, format, names);
+                if (position == head.limit() && position < size) {
+                    throw new SQLException("CSV header longer than " + windowSize + " bytes");
+                }
+                params = names.size();
+                sql.append(" (");
+                for (int i = 0; i < params; i++) {
+                    if (i > 0) sql.append(',');
+                    sql.append(quoteIdentifier(names.get(i)));
+                }
+                sql.append(')');
+            } else {
+                SafeStmtPtr select = prepare("select * from " + quoteIdentifier(table));
+                try {
+                    params = select.safeRunInt(DB::column_count);
+                } finally {
+                    select.close();
+                }
+            }
+            sql.append(" values (?");
+            for (int i = 1; i < params; i++) sql.append(",?");
+            sql.append(')');
+
+            SafeStmtPtr stmt = prepare(sql.toString());
+            boolean owned = get_autocommit();
+            try {
+                if (owned) exec("begin;", false);
+                long rows =
+                        importCsvRows(
+                                stmt,
+                                channel,
+                                position,
+                                size,
+                                windowSize,
+                                params,
+                                format,
+                                commitRows,
+                                owned,
+                                observer,
+                                start);
+                if (owned) exec("commit;", false);
+                return rows;
+            } catch (SQLException | IOException | RuntimeException e) {
+                if (owned && !get_autocommit()) {
+                    try {
+                        exec("rollback;", false);
+                    } catch (SQLException e2) {
+                        e.addSuppressed(e2);
+                    }
+                }
+                throw e;
+            } finally {
+                stmt.close();
+            }
+        }
+    }
+
+    private long importCsvRows(
+            SafeStmtPtr stmt,
+            FileChannel channel,
+            long position,
+            long size,
+            int window,
+            int params,
+            SQLiteCsvFormat format,
+            int commitRows,
+            boolean owned,
+            ProgressObserver observer,
+            long start)
+            throws SQLException, IOException {
+        byte delimiter = (byte) format.getDelimiter();
+        byte quote = (byte) format.getQuote();
+        int[] result = new int[3];
+        long rows = 0;
+        long pending = 0;
+        while (position < size) {
+            int length = (int) Math.min(window, size - position);
+            boolean last = position + length == size;
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            int offset = 0;
+            boolean full;
+            do {
+                int from = offset;
+                int maxRows = owned ? (int) (commitRows - pending) : Integer.MAX_VALUE;
+                int rc =
+                        stmt.safeRunInt(
+                                (db, ptr) ->
+                                        db.import_csv(
+                                                ptr,
+                                                buffer,
+                                                from,
+                                                length,
+                                                last,
+                                                params,
+                                                delimiter,
+                                                quote,
+                                                format.isEmptyAsNull(),
+                                                maxRows,
+                                                result));
+                rows += result[0];
+                pending += result[0];
+                offset = result[1];
+                if (rc != SQLITE_DONE) {
+                    throw newSQLException(rc, "row " + (rows + 1) + ": " + errmsg());
+                }
+                if (result[2] != 0) {
+                    throw new SQLException(
+                            "malformed CSV row "
+                                    + (rows + 1)
+                                    + " at byte "
+                                    + (position + offset)
+                                    + ", or more fields than the "
+                                    + params
+                                    + " columns");
+                }
+                full = owned && pending == commitRows;
+                if (full) {
+                    exec("commit;", false);
+                    exec("begin;", false);
+                    pending = 0;
+                }
+                if (observer != null) {
+                    observer.imported(rows, position + offset, size, System.nanoTime() - start);
+                }
+            } while (full);
+
+            if (offset == 0 && !last) {
+                // a single row does not fit into the window
+                if (window == Integer.MAX_VALUE) {
+                    throw new SQLException("CSV row " + (rows + 1) + " is too long");
+                }
+                window = (int) Math.min(Integer.MAX_VALUE, 2L * window);
+            }
+            position += offset;
+        }
+        return rows;
+    }
+
+    /** Reads the field names of the first row, and returns the position of the next one. */
+    private static long readCsvHeader(
+            ByteBuffer buffer, int pos, SQLiteCsvFormat format, List<String> names)
+            throws SQLException {
+        byte delimiter = (byte) format.getDelimiter();
+        byte quote = (byte) format.getQuote();
+        ByteArrayOutputStream field = new ByteArrayOutputStream();
+        boolean quoted = false;
+        int limit = buffer.limit();
+        for (; pos < limit; pos++) {
+            byte b = buffer.get(pos);
+            if (quoted) {
+                if (b != quote) {
+                    field.write(b);
+                } else if (pos + 1 < limit && buffer.get(pos + 1) == quote) {
+                    field.write(b);
+                    pos++;
+                } else {
+                    quoted = false;
+                }
+            } else if (quote != 0 && b == quote) {
+                quoted = true;
+            } else if (b == delimiter) {
+                names.add(new String(field.toByteArray(), StandardCharsets.UTF_8));
+                field.reset();
+            } else if (b == '\n' || b == '\r') {
+                break;
+            } else {
+                field.write(b);
+            }
+        }
+        if (quoted) throw new SQLException("malformed CSV header");
+        names.add(new String(field.toByteArray(), StandardCharsets.UTF_8));
+        if (pos < limit && buffer.get(pos) == '\r') pos++;
+        if (pos < limit && buffer.get(pos) == '\n') pos++;
+        return pos;
+    }
+
+    private static String quoteIdentifier(String name) {
+        return '"' + name.replace("\"", "\"\"") + '"';
     }
 
     /**
      * @see <a
      *     href="https://www.sqlite.org/c_interface.html#sqlite_exec">https://www.sqlite.org/c_interface.html#sqlite_exec</a>
      * @param stmt Stmt object.
-     * @param vals Array of parameter values.
+     * @param vals Parameter values, or null if the statement has none.
      * @return True if a row of ResultSet is ready; false otherwise.
      * @throws SQLException
      */
-    public final synchronized boolean execute(CoreStatement stmt, Object[] vals)
-            throws SQLException {
-        int statusCode = stmt.pointer.safeRunInt((db, ptr) -> execute(ptr, vals));
-        switch (statusCode & 0xFF) {
-            case SQLITE_DONE:
-                ensureAutoCommit(stmt.conn.getAutoCommit());
-                return false;
-            case SQLITE_ROW:
-                return true;
-            case SQLITE_BUSY:
-            case SQLITE_LOCKED:
-            case SQLITE_MISUSE:
-            case SQLITE_CONSTRAINT:
-                throw newSQLException(statusCode);
-            default:
-                stmt.pointer.close();
-                throw newSQLException(statusCode);
+    public final boolean execute(CoreStatement stmt, ParameterBuffer vals) throws SQLException {
+        synchronized (statementLock(stmt.pointer)) {
+            int statusCode = stmt.pointer.safeRunInt((db, ptr) -> execute(ptr, vals));
+            switch (statusCode & 0xFF) {
+                case SQLITE_DONE:
+                    ensureAutoCommit(stmt.conn.getAutoCommit());
+                    return false;
+                case SQLITE_ROW:
+                    return true;
+                case SQLITE_BUSY:
+                case SQLITE_LOCKED:
+                case SQLITE_MISUSE:
+                case SQLITE_CONSTRAINT:
+                    throw newSQLException(statusCode);
+                default:
+                    stmt.pointer.close();
+                    throw newSQLException(statusCode);
+            }
         }
     }
 
-    private synchronized int execute(long ptr, Object[] vals) throws SQLException {
+    private int execute(long ptr, ParameterBuffer vals) throws SQLException {
         if (vals != null) {
             final int params = bind_parameter_count(ptr);
-            if (params > vals.length) {
+            if (params > vals.getParameterCount()) {
                 throw new SQLException(
                         "assertion failure: param count ("
                                 + params
                                 + ") > value count ("
-                                + vals.length
+                                + vals.getParameterCount()
                                 + ")");
             }
 
-            for (int i = 0; i < params; i++) {
-                int rc = sqlbind(ptr, i, vals[i]);
-                if (rc != SQLITE_OK) {
-                    throwex(rc);
-                }
+            int rc = vals.bind(this, ptr, 0);
+            if (rc != SQLITE_OK) {
+                throwex(rc);
             }
         }
 
@@ -1043,53 +2033,112 @@ public abstract class DB implements Codes {
      * parameter values of the SQL statement..
      *
      * @param stmt Stmt object.
-     * @param vals Array of parameter values.
+     * @param vals Parameter values, or null if the statement has none.
      * @return Number of database rows that were changed or inserted or deleted by the most recently
      *     completed SQL.
      * @throws SQLException
      */
-    public final synchronized long executeUpdate(CoreStatement stmt, Object[] vals)
-            throws SQLException {
-        try {
-            if (execute(stmt, vals)) {
-                throw new SQLException("query returns results");
-            }
-        } finally {
-            if (!stmt.pointer.isClosed()) {
-                stmt.pointer.safeRunInt(DB::reset);
+    public final long executeUpdate(CoreStatement stmt, ParameterBuffer vals) throws SQLException {
+        // statement locks are taken before the lock of the db, which keeps the change count exact
+        synchronized (statementLock(stmt.pointer)) {
+            synchronized (this) {
+                try {
+                    if (execute(stmt, vals)) {
+                        throw new SQLException("query returns results");
+                    }
+                } finally {
+                    if (!stmt.pointer.isClosed()) {
+                        stmt.pointer.safeRunInt(DB::reset);
+                    }
+                }
+                return changes();
             }
         }
-        return changes();
     }
 
     abstract void set_commit_listener(boolean enabled);
 
-    abstract void set_update_listener(boolean enabled);
+    /**
+     * Installs or removes the update hook.
+     *
+     * @param enabled whether to install the hook.
+     * @param bufferSize the number of changes to collect before calling {@link #onUpdates}, or 0 to
+     *     call {@link #onUpdate} for each change.
+     */
+    abstract void set_update_listener(boolean enabled, int bufferSize);
 
     public synchronized void addUpdateListener(SQLiteUpdateListener listener) {
-        if (updateListeners.add(listener) && updateListeners.size() == 1) {
-            set_update_listener(true);
+        boolean hooked = hasUpdateHook();
+        if (updateListeners.add(listener) && !hooked) {
+            set_update_listener(true, 0);
+        }
+    }
+
+    /**
+     * Adds a listener receiving changes in bulk. While there is one, update listeners are notified
+     * through the same buffer.
+     */
+    public synchronized void addBulkUpdateListener(SQLiteBulkUpdateListener listener) {
+        if (bulkUpdateListeners.add(listener) && bulkUpdateListeners.size() == 1) {
+            set_update_listener(true, UPDATE_BUFFER_SIZE);
+            updateNames.clear();
+            // buffered changes are delivered at the end of each transaction
+            if (commitListeners.isEmpty()) set_commit_listener(true);
         }
     }
 
     public synchronized void addCommitListener(SQLiteCommitListener listener) {
-        if (commitListeners.add(listener) && commitListeners.size() == 1) {
+        boolean hooked = hasCommitHook();
+        if (commitListeners.add(listener) && !hooked) {
             set_commit_listener(true);
         }
     }
 
     public synchronized void removeUpdateListener(SQLiteUpdateListener listener) {
-        if (updateListeners.remove(listener) && updateListeners.isEmpty()) {
-            set_update_listener(false);
+        if (updateListeners.remove(listener) && !hasUpdateHook()) {
+            set_update_listener(false, 0);
+        }
+    }
+
+    public synchronized void removeBulkUpdateListener(SQLiteBulkUpdateListener listener) {
+        if (bulkUpdateListeners.size() == 1 && bulkUpdateListeners.contains(listener)) {
+            // delivers the changes still buffered, to this listener too
+            set_update_listener(!updateListeners.isEmpty(), 0);
+            updateNames.clear();
+            bulkUpdateListeners.remove(listener);
+            if (commitListeners.isEmpty()) set_commit_listener(false);
+        } else {
+            bulkUpdateListeners.remove(listener);
         }
     }
 
     public synchronized void removeCommitListener(SQLiteCommitListener listener) {
-        if (commitListeners.remove(listener) && commitListeners.isEmpty()) {
+        if (commitListeners.remove(listener) && !hasCommitHook()) {
             set_commit_listener(false);
         }
     }
 
+    private boolean hasUpdateHook() {
+        return !updateListeners.isEmpty() || !bulkUpdateListeners.isEmpty();
+    }
+
+    private boolean hasCommitHook() {
+        return !commitListeners.isEmpty() || !bulkUpdateListeners.isEmpty();
+    }
+
+    private static SQLiteUpdateListener.Type toUpdateType(int type) {
+        switch (type) {
+            case 18:
+                return SQLiteUpdateListener.Type.INSERT;
+            case 9:
+                return SQLiteUpdateListener.Type.DELETE;
+            case 23:
+                return SQLiteUpdateListener.Type.UPDATE;
+            default:
+                throw new AssertionError("Unknown type: " + type);
+        }
+    }
+
     void onUpdate(int type, String database, String table, long rowId) {
         Set<SQLiteUpdateListener> listeners;
 
@@ -1098,23 +2147,43 @@ public abstract class DB implements Codes {
         }
 
         for (SQLiteUpdateListener listener : listeners) {
-            SQLiteUpdateListener.Type operationType;
-
-            switch (type) {
-                case 18:
-                    operationType = SQLiteUpdateListener.Type.INSERT;
-                    break;
-                case 9:
-                    operationType = SQLiteUpdateListener.Type.DELETE;
-                    break;
-                case 23:
-                    operationType = SQLiteUpdateListener.Type.UPDATE;
-                    break;
-                default:
-                    throw new AssertionError("Unknown type: " + type);
+            listener.onUpdate(toUpdateType(type), database, table, rowId);
+        }
+    }
+
+    /**
+     * Called from native code with buffered changes.
+     *
+     * @param count the number of changes.
+     * @param entries the type, database name id and table name id of each change.
+     * @param rowIds the rowid of each change.
+     * @param newNames the names numbered since the previous call, or null if there are none.
+     */
+    void onUpdates(int count, int[] entries, long[] rowIds, String[] newNames) {
+        Set<SQLiteUpdateListener> listeners;
+        Set<SQLiteBulkUpdateListener> bulkListeners;
+        SQLiteUpdateListener.Type[] types = new SQLiteUpdateListener.Type[count];
+        String[] databases = new String[count];
+        String[] tables = new String[count];
+
+        synchronized (this) {
+            if (newNames != null) Collections.addAll(updateNames, newNames);
+            for (int i = 0; i < count; i++) {
+                types[i] = toUpdateType(entries[i * 3]);
+                databases[i] = updateNames.get(entries[i * 3 + 1]);
+                tables[i] = updateNames.get(entries[i * 3 + 2]);
             }
+            listeners = new HashSet<>(updateListeners);
+            bulkListeners = new HashSet<>(bulkUpdateListeners);
+        }
 
-            listener.onUpdate(operationType, database, table, rowId);
+        for (SQLiteBulkUpdateListener listener : bulkListeners) {
+            listener.onUpdates(types, databases, tables, rowIds);
+        }
+        for (SQLiteUpdateListener listener : listeners) {
+            for (int i = 0; i < count; i++) {
+                listener.onUpdate(types[i], databases[i], tables[i], rowIds[i]);
+            }
         }
     }
 
@@ -1186,8 +2255,45 @@ public abstract class DB implements Codes {
      * @return SQLException with error code and message.
      * @throws SQLException Formatted SQLException with error code
      */
-    private SQLiteException newSQLException(int errorCode) throws SQLException {
-        return newSQLException(errorCode, errmsg());
+    SQLiteException newSQLException(int errorCode) throws SQLException {
+        return newSQLException(errorCode, errmsg(errorCode));
+    }
+
+    /**
+     * Keeps the message of an error of a call on a statement for this thread, until it is thrown.
+     *
+     * @param errorCode the result code of the call.
+     * @param message the message of the connection, read by the call that failed.
+     */
+    final void statementError(int errorCode, String message) {
+        statementError.set(new StatementError(errorCode, message));
+    }
+
+    /**
+     * The message of an error. Under {@link SQLiteConfig.LockingStrategy#STATEMENT} another thread
+     * may have used the connection since the call that failed, so the message that call read is
+     * preferred to the current message of the connection.
+     *
+     * @param errorCode the result code of the call that failed.
+     */
+    private String errmsg(int errorCode) throws SQLException {
+        StatementError error = statementError.get();
+        if (error != null) {
+            statementError.remove();
+            if (error.code == errorCode) return error.message;
+        }
+        return errmsg();
+    }
+
+    /** The error of the last call on a statement that failed on a thread. */
+    private static final class StatementError {
+        final int code;
+        final String message;
+
+        StatementError(int code, String message) {
+            this.code = code;
+            this.message = message;
+        }
     }
 
     /**
@@ -1213,7 +2319,7 @@ public abstract class DB implements Codes {
      *
      * @throws SQLException
      */
-    final void ensureAutoCommit(boolean autoCommit) throws SQLException {
+    final synchronized void ensureAutoCommit(boolean autoCommit) throws SQLException {
         if (!autoCommit) {
             return;
         }
@@ -0,0 +1,153 @@
+package org.sqlite.core;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.sqlite.SQLiteException;
+import org.sqlite.SQLiteLimits;
+
+/**
+ * Executes the batches of a prepared {@code INSERT ... VALUES (?, ...)} statement as multi-row
+ * inserts, {@code VALUES (?, ...), (?, ...), ...}, so that a statement is reset, bound and run once
+ * per group of rows rather than once per row.
+ *
+ * <p>Groups hold a power of two number of rows, at most {@link #MAX_ROWS} and as many as
+ * SQLITE_LIMIT_VARIABLE_NUMBER allows. A batch is split into groups of decreasing size, so that a
+ * statement of each size is prepared once and kept for the next batches until {@link #close()}. The
+ * last rows, fewer than {@link #MIN_ROWS}, are inserted by the original statement.
+ *
+ * <p>Each row of a group counts one change, unless the group changed fewer rows, as an {@code OR
+ * IGNORE} insert may, in which case its rows count {@link Statement#SUCCESS_NO_INFO}. A group that
+ * fails on one of its rows is undone as a whole by SQLite, and is then inserted again row by row,
+ * so that the rows before the failing one are inserted and the error is reported as it would be
+ * without rewriting. For that reason only the {@code ABORT}, {@code IGNORE} and {@code REPLACE}
+ * conflict resolutions are rewritten, which undo the failed statement entirely.
+ */
+public final class MultiRowInsert {
+    /** The largest number of rows inserted by a statement. */
+    static final int MAX_ROWS = 1024;
+    /** The smallest number of rows inserted by a statement. */
+    static final int MIN_ROWS = 4;
+
+    private static final Pattern INSERT =
+            Pattern.compile(
+                    "\\s*((?:insert(?:\\s+or\\s+(?:abort|ignore|replace))?|replace)\\s+into\\s.+?\\bvalues)"
+                            + "\\s*(\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\))\\s*;?\\s*",
+                    Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private final String prefix;
+    private final int params;
+    /** The statements inserting 2^i rows, at index i. */
+    private final SafeStmtPtr[] statements = new SafeStmtPtr[Integer.SIZE];
+
+    private MultiRowInsert(String prefix, int params) {
+        this.prefix = prefix;
+        this.params = params;
+    }
+
+    /**
+     * @param sql the SQL text of a prepared statement.
+     * @param params the number of parameters of the statement.
+     * @return the rewriting of the statement, or null if it is not a single-row insert of anonymous
+     *     parameters only.
+     */
+    public static MultiRowInsert of(String sql, int params) {
+        Matcher matcher = INSERT.matcher(sql);
+        if (params < 1 || !matcher.matches()) return null;
+        String row = matcher.group(2);
+        if (row.length() - row.replace("?", "").length() != params) return null;
+        return new MultiRowInsert(matcher.group(1), params);
+    }
+
+    /**
+     * Inserts the rows of a batch.
+     *
+     * @param db the database.
+     * @param stmt the pointer of the original statement, inserting one row.
+     * @param count the number of rows.
+     * @param vals the parameter values, {@code params} values per row.
+     * @return the number of rows changed for each row.
+     * @throws SQLException if a row cannot be inserted; the rows before it are.
+     */
+    long[] execute(DB db, long stmt, int count, ParameterBuffer vals) throws SQLException {
+        long[] changes = new long[count];
+        int limit = db.limit(SQLiteLimits.SQLITE_LIMIT_VARIABLE_NUMBER.getId(), -1);
+        int row = 0;
+        for (int rows = Integer.highestOneBit(Math.min(MAX_ROWS, limit / params));
+                rows >= MIN_ROWS;
+                rows >>= 1) {
+            for (; count - row >= rows; row += rows) {
+                executeGroup(db, stmt, row, rows, vals, changes);
+            }
+        }
+        if (row < count) {
+            long[] rest = db.executeBatchRows(stmt, row * params, count - row, params, vals);
+            System.arraycopy(rest, 0, changes, row, rest.length);
+        }
+        return changes;
+    }
+
+    private void executeGroup(
+            DB db, long stmt, int row, int rows, ParameterBuffer vals, long[] changes)
+            throws SQLException {
+        long changed;
+        try {
+            changed =
+                    statement(db, rows)
+                            .safeRunLong(
+                                    (d, ptr) ->
+                                            d.executeBatchRows(
+                                                            ptr,
+                                                            row * params,
+                                                            1,
+                                                            rows * params,
+                                                            vals)[0]);
+        } catch (SQLiteException e) {
+            if (!isRowError(e)) throw e;
+            long[] rowChanges = db.executeBatchRows(stmt, row * params, rows, params, vals);
+            System.arraycopy(rowChanges, 0, changes, row, rows);
+            return;
+        }
+        Arrays.fill(changes, row, row + rows, changed == rows ? 1 : Statement.SUCCESS_NO_INFO);
+    }
+
+    /** Whether an error is caused by the values of a row, rather than by the database. */
+    private static boolean isRowError(SQLiteException e) {
+        switch (e.getResultCode().code & 0xff) {
+            case Codes.SQLITE_ERROR:
+            case Codes.SQLITE_CONSTRAINT:
+            case Codes.SQLITE_MISMATCH:
+            case Codes.SQLITE_TOOBIG:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private SafeStmtPtr statement(DB db, int rows) throws SQLException {
+        int index = Integer.numberOfTrailingZeros(rows);
+        if (statements[index] == null) {
+            String row = "(?" + repeat(",?", params - 1) + ")";
+            statements[index] = db.prepareTracked(prefix + " " + row + repeat("," + row, rows - 1));
+        }
+        return statements[index];
+    }
+
+    private static String repeat(String s, int times) {
+        StringBuilder sb = new StringBuilder(s.length() * times);
+        for (int i = 0; i < times; i++) sb.append(s);
+        return sb.toString();
+    }
+
+    /** Finalizes the statements prepared for groups of rows. */
+    public void close() throws SQLException {
+        for (int i = 0; i < statements.length; i++) {
+            if (statements[i] != null) {
+                statements[i].close();
+                statements[i] = null;
+            }
+        }
+    }
+}
@@ -14,9 +14,15 @@
  * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
  */
 
+#include <limits.h>
 #include <stdlib.h>
 #include <string.h>
 #include <assert.h>
+#ifdef _WIN32
+#include <windows.h>
+#else
+#include <time.h>
+#endif
 #include "NativeDB.h"
 //#include "sqlite3mc.h"
 #include "sqlite3mc_amalgamation.h"
@@ -35,6 +41,8 @@ static jfieldID db_commitListener = 0;
 static jfieldID db_updateListener = 0;
 static jfieldID db_progressHandler = 0;
 static jmethodID db_mth_onUpdate = 0;
+static jmethodID db_mth_onStatementError = 0;
+static jmethodID db_mth_onUpdates = 0;
 static jmethodID db_mth_onCommit = 0;
 static jmethodID mth_stringToUtf8ByteArray = 0;
 static jmethodID mth_throwex = 0;
@@ -50,6 +58,10 @@ static jmethodID fmethod = 0;
 static jclass  cclass = 0;
 static jmethodID mth_compare = 0;
 
+static jclass  kcclass = 0;
+static jfieldID kc_cacheSize = 0;
+static jmethodID kc_mth_key = 0;
+
 static jclass  aclass = 0;
 static jmethodID mth_aggr_xstep = 0;
 static jmethodID mth_aggr_xfinal = 0;
@@ -59,12 +71,31 @@ static jclass  wclass = 0;
 static jmethodID w_mth_inverse = 0;
 static jmethodID w_mth_xvalue = 0;
 
+static jclass  lfclass = 0;
+static jmethodID lf_mth_apply = 0;
+
+static jclass  dfclass = 0;
+static jmethodID df_mth_apply = 0;
+
+static jclass  tfclass = 0;
+static jmethodID tf_mth_apply = 0;
+
+static jclass  bfclass = 0;
+static jmethodID bf_mth_apply = 0;
+
+static jclass  baclass = 0;
+static jfieldID ba_batchSize = 0;
+static jmethodID ba_mth_xsteprows = 0;
+
 static jclass pobserverclass = 0;
 static jmethodID pobserver_mth_progress = 0;
 
 static jclass phandleclass = 0;
 static jmethodID phandle_mth_progress = 0;
 
+static jclass threadclass = 0;
+static jmethodID thread_mth_currentThread = 0;
+
 static jclass bhandleclass = 0;
 static jmethodID bhandle_mth_callback = 0;
 
@@ -149,6 +180,14 @@ static jobject utf8BytesToDirectByteBuffer(JNIEnv *env, const char* bytes, int n
     return result;
 }
 
+// memset through a volatile pointer, so that wiping a buffer about to be freed is not optimized away
+static void *(*const volatile wipe_memset)(void *, int, size_t) = memset;
+
+static void wipe(void *buf, size_t len)
+{
+    wipe_memset(buf, 0, len);
+}
+
 static void utf8JavaByteArrayToUtf8Bytes(JNIEnv *env, jbyteArray utf8bytes, char** bytes, int* nbytes)
 {
     jsize utf8bytes_length;
@@ -265,9 +304,26 @@ static void set_new_handler(JNIEnv *env, jobject nativeDB, jfieldID handlerField
     (*env)->SetLongField(env, nativeDB, handlerField, fromref(newHandler));
 }
 
+/* Sort key of a value of a Collation.Keyed, followed by the value bytes and then
+ * the key bytes. */
+struct CollationKey {
+    struct CollationKey *next;   // next key of the same bucket
+    struct CollationKey *newer;  // neighbours in the order of use, to evict the least recent
+    struct CollationKey *older;
+    unsigned int hash;
+    int len;
+    jsize key_len;
+};
+
 struct CollationData {
     JavaVM *vm;
     jobject func;
+    struct CollationKey **keys;  // hash table of the cached keys, 0 if not keyed
+    struct CollationKey *newest; // the most recently used key
+    struct CollationKey *oldest; // the least recently used key, evicted first
+    int key_buckets;
+    int key_count;
+    int key_capacity;
 };
 
 // User Defined Function SUPPORT ////////////////////////////////////
@@ -359,6 +415,106 @@ void xFunc(sqlite3_context *context, int args, sqlite3_value** value)
     xCall(context, args, value, 0, fmethod);
 }
 
+/* Typed scalar functions: the argument is converted here and apply() is called
+ * once, its return value is the result. A NULL argument gives NULL. */
+
+void xFuncLong(sqlite3_context *context, int args, sqlite3_value** value)
+{
+    JNIEnv *env = 0;
+    struct UDFData *udf = (struct UDFData*)sqlite3_user_data(context);
+    jlong result;
+
+    if (sqlite3_value_type(value[0]) == SQLITE_NULL) { sqlite3_result_null(context); return; }
+    (*udf->vm)->AttachCurrentThread(udf->vm, (void **)&env, 0);
+
+    result = (*env)->CallLongMethod(env, udf->func, lf_mth_apply, sqlite3_value_int64(value[0]));
+    if ((*env)->ExceptionCheck(env)) { xFunc_error(context, env); return; }
+    sqlite3_result_int64(context, result);
+}
+
+void xFuncDouble(sqlite3_context *context, int args, sqlite3_value** value)
+{
+    JNIEnv *env = 0;
+    struct UDFData *udf = (struct UDFData*)sqlite3_user_data(context);
+    jdouble result;
+
+    if (sqlite3_value_type(value[0]) == SQLITE_NULL) { sqlite3_result_null(context); return; }
+    (*udf->vm)->AttachCurrentThread(udf->vm, (void **)&env, 0);
+
+    result = (*env)->CallDoubleMethod(env, udf->func, df_mth_apply, sqlite3_value_double(value[0]));
+    if ((*env)->ExceptionCheck(env)) { xFunc_error(context, env); return; }
+    sqlite3_result_double(context, result);
+}
+
+void xFuncText(sqlite3_context *context, int args, sqlite3_value** value)
+{
+    JNIEnv *env = 0;
+    struct UDFData *udf = (struct UDFData*)sqlite3_user_data(context);
+    const jchar *chars;
+    jstring arg, result;
+    jsize length;
+
+    if (sqlite3_value_type(value[0]) == SQLITE_NULL) { sqlite3_result_null(context); return; }
+    (*udf->vm)->AttachCurrentThread(udf->vm, (void **)&env, 0);
+
+    // functions are registered as SQLITE_UTF16, text is usually converted already
+    chars = sqlite3_value_text16(value[0]);
+    if (!chars) { sqlite3_result_error_nomem(context); return; }
+    arg = (*env)->NewString(env, chars, sqlite3_value_bytes16(value[0]) / 2);
+    if (!arg) { (*env)->ExceptionClear(env); sqlite3_result_error_nomem(context); return; }
+
+    result = (jstring)(*env)->CallObjectMethod(env, udf->func, tf_mth_apply, arg);
+    (*env)->DeleteLocalRef(env, arg);
+    if ((*env)->ExceptionCheck(env)) { xFunc_error(context, env); return; }
+    if (!result) { sqlite3_result_null(context); return; }
+
+    length = (*env)->GetStringLength(env, result);
+    chars = (*env)->GetStringCritical(env, result, 0);
+    if (!chars) {
+        (*env)->ExceptionClear(env);
+        sqlite3_result_error_nomem(context);
+    } else {
+        sqlite3_result_text16(context, chars, length * 2, SQLITE_TRANSIENT);
+        (*env)->ReleaseStringCritical(env, result, chars);
+    }
+    (*env)->DeleteLocalRef(env, result);
+}
+
+void xFuncBlob(sqlite3_context *context, int args, sqlite3_value** value)
+{
+    JNIEnv *env = 0;
+    struct UDFData *udf = (struct UDFData*)sqlite3_user_data(context);
+    const void *blob;
+    jbyte *bytes;
+    jbyteArray arg, result;
+    jsize length;
+
+    if (sqlite3_value_type(value[0]) == SQLITE_NULL) { sqlite3_result_null(context); return; }
+    (*udf->vm)->AttachCurrentThread(udf->vm, (void **)&env, 0);
+
+    blob = sqlite3_value_blob(value[0]);
+    length = sqlite3_value_bytes(value[0]);
+    arg = (*env)->NewByteArray(env, length);
+    if (!arg) { (*env)->ExceptionClear(env); sqlite3_result_error_nomem(context); return; }
+    if (length > 0) (*env)->SetByteArrayRegion(env, arg, 0, length, (const jbyte*)blob);
+
+    result = (jbyteArray)(*env)->CallObjectMethod(env, udf->func, bf_mth_apply, arg);
+    (*env)->DeleteLocalRef(env, arg);
+    if ((*env)->ExceptionCheck(env)) { xFunc_error(context, env); return; }
+    if (!result) { sqlite3_result_null(context); return; }
+
+    length = (*env)->GetArrayLength(env, result);
+    bytes = (*env)->GetPrimitiveArrayCritical(env, result, 0);
+    if (!bytes) {
+        (*env)->ExceptionClear(env);
+        sqlite3_result_error_nomem(context);
+    } else {
+        sqlite3_result_blob(context, bytes, length, SQLITE_TRANSIENT);
+        (*env)->ReleasePrimitiveArrayCritical(env, result, bytes, JNI_ABORT);
+    }
+    (*env)->DeleteLocalRef(env, result);
+}
+
 static jobject* get_initialized_udf_context(sqlite3_context *context) {
     // clone the Function.Aggregate instance and store a pointer
     // in SQLite's aggregate_context (clean up in xFinal)
@@ -428,6 +584,221 @@ void xFinal(sqlite3_context *context)
     (*env)->DeleteGlobalRef(env, *func);
 }
 
+/* Aggregate context of a Function.BatchAggregate: the argument values of the rows
+ * not yet passed to xStep(Rows), nargs values per row. Each value is kept as SQLite
+ * converts it to an integer, a double and, unless it is an integer, text or a blob,
+ * which is copied to data, its offset and length kept in spans. */
+struct BatchContext {
+    jobject func;     // must be first, see get_initialized_udf_context
+    int failed;
+    int nargs;
+    int count;
+    int capacity;
+    jint *types;
+    jlong *longs;
+    jdouble *doubles;
+    jlong *spans;
+    char *data;
+    size_t data_len;
+    size_t data_capacity;
+};
+
+static void free_batch_buffers(struct BatchContext *batch)
+{
+    free(batch->types);
+    free(batch->longs);
+    free(batch->doubles);
+    free(batch->spans);
+    free(batch->data);
+    batch->types = 0;
+    batch->longs = 0;
+    batch->doubles = 0;
+    batch->spans = 0;
+    batch->data = 0;
+    batch->count = 0;
+    batch->data_len = 0;
+    batch->data_capacity = 0;
+}
+
+/* calls xStep(Rows) with the collected rows, returns 0 if it failed */
+static int flush_batch(sqlite3_context *context, JNIEnv *env, struct BatchContext *batch)
+{
+    jintArray types = 0;
+    jlongArray longs = 0;
+    jdoubleArray doubles = 0;
+    jlongArray spans = 0;
+    jbyteArray data = 0;
+    jsize size = batch->count * batch->nargs;
+
+    if (batch->count == 0 || batch->failed) return !batch->failed;
+
+    types = (*env)->NewIntArray(env, size);
+    longs = (*env)->NewLongArray(env, size);
+    doubles = (*env)->NewDoubleArray(env, size);
+    spans = (*env)->NewLongArray(env, size);
+    data = (*env)->NewByteArray(env, (jsize)batch->data_len);
+    if (!types || !longs || !doubles || !spans || !data) {
+        (*env)->ExceptionClear(env);
+        sqlite3_result_error_nomem(context);
+        batch->failed = 1;
+    } else {
+        (*env)->SetIntArrayRegion(env, types, 0, size, batch->types);
+        (*env)->SetLongArrayRegion(env, longs, 0, size, batch->longs);
+        (*env)->SetDoubleArrayRegion(env, doubles, 0, size, batch->doubles);
+        (*env)->SetLongArrayRegion(env, spans, 0, size, batch->spans);
+        (*env)->SetByteArrayRegion(env, data, 0, (jsize)batch->data_len, (jbyte*)batch->data);
+
+        (*env)->SetLongField(env, batch->func, func_context, fromref(context));
+        (*env)->CallVoidMethod(env, batch->func, ba_mth_xsteprows,
+                batch->count, batch->nargs, types, longs, doubles, spans, data);
+        if ((*env)->ExceptionCheck(env)) {
+            xFunc_error(context, env);
+            batch->failed = 1;
+        }
+        (*env)->SetLongField(env, batch->func, func_context, 0);
+    }
+
+    // rows of a long query are collected within one native call, free the arrays now
+    if (types) (*env)->DeleteLocalRef(env, types);
+    if (longs) (*env)->DeleteLocalRef(env, longs);
+    if (doubles) (*env)->DeleteLocalRef(env, doubles);
+    if (spans) (*env)->DeleteLocalRef(env, spans);
+    if (data) (*env)->DeleteLocalRef(env, data);
+
+    batch->count = 0;
+    batch->data_len = 0;
+    return !batch->failed;
+}
+
+/* copies a text or blob value to the data buffer, returns its offset or -1 */
+static jlong append_batch_data(struct BatchContext *batch, const void *bytes, int len)
+{
+    jlong offset = (jlong)batch->data_len;
+
+    if (batch->data_len + len > batch->data_capacity) {
+        size_t capacity = batch->data_capacity ? batch->data_capacity * 2 : 4096;
+        char *data = 0;
+        while (capacity < batch->data_len + len) capacity *= 2;
+        data = realloc(batch->data, capacity);
+        if (!data) return -1;
+        batch->data = data;
+        batch->data_capacity = capacity;
+    }
+    if (len > 0) memcpy(batch->data + batch->data_len, bytes, len);
+    batch->data_len += len;
+    return offset;
+}
+
+void xStepBatch(sqlite3_context *context, int args, sqlite3_value** value)
+{
+    JNIEnv *env = 0;
+    struct UDFData *udf = (struct UDFData*)sqlite3_user_data(context);
+    struct BatchContext *batch = 0;
+    int i, index, len;
+    size_t row_len;
+    jlong offset;
+
+    batch = sqlite3_aggregate_context(context, sizeof(struct BatchContext));
+    if (!batch) { sqlite3_result_error_nomem(context); return; }
+    get_initialized_udf_context(context);
+    if (batch->failed) return;
+
+    (*udf->vm)->AttachCurrentThread(udf->vm, (void **)&env, 0);
+
+    if (batch->types && (args != batch->nargs || batch->count == batch->capacity)) {
+        if (!flush_batch(context, env, batch)) return;
+    }
+    if (batch->types && args != batch->nargs) free_batch_buffers(batch);
+    if (!batch->types) {
+        size_t size;
+        batch->capacity = (*env)->GetIntField(env, batch->func, ba_batchSize);
+        size = (size_t)(args > 0 ? args : 1) * batch->capacity;
+        batch->nargs = args;
+        batch->types = malloc(size * sizeof(jint));
+        batch->longs = malloc(size * sizeof(jlong));
+        batch->doubles = malloc(size * sizeof(jdouble));
+        batch->spans = malloc(size * sizeof(jlong));
+        if (!batch->types || !batch->longs || !batch->doubles || !batch->spans) {
+            free_batch_buffers(batch);
+            batch->failed = 1;
+            sqlite3_result_error_nomem(context);
+            return;
+        }
+    }
+
+    // the types are read before the conversions, which may change them
+    index = batch->count * args;
+    row_len = 0;
+    for (i = 0; i < args; i++) {
+        int type = sqlite3_value_type(value[i]);
+        batch->types[index + i] = type;
+        if (type != SQLITE_NULL && type != SQLITE_INTEGER) {
+            row_len += (size_t)sqlite3_value_bytes(value[i]);
+        }
+    }
+    // the data is passed as a byte[] and its offsets in 32 bits, keep it within INT_MAX
+    if (row_len > (size_t)INT_MAX) {
+        batch->failed = 1;
+        sqlite3_result_error_toobig(context);
+        return;
+    }
+    if (batch->data_len + row_len > (size_t)INT_MAX) {
+        if (!flush_batch(context, env, batch)) return;
+        memmove(batch->types, batch->types + index, args * sizeof(jint));
+        index = 0;
+    }
+
+    for (i = 0; i < args; i++, index++) {
+        int type = batch->types[index];
+        const void *bytes;
+        batch->spans[index] = 0;
+        if (type == SQLITE_NULL) {
+            batch->longs[index] = 0;
+            batch->doubles[index] = 0;
+            continue;
+        }
+
+        batch->longs[index] = sqlite3_value_int64(value[i]);
+        batch->doubles[index] = sqlite3_value_double(value[i]);
+        // the text of an integer is its decimal representation, made in Java
+        if (type == SQLITE_INTEGER) continue;
+
+        bytes = type == SQLITE_BLOB
+            ? sqlite3_value_blob(value[i])
+            : (const void *) sqlite3_value_text(value[i]);
+        len = sqlite3_value_bytes(value[i]);
+        offset = append_batch_data(batch, bytes, len);
+        if (offset < 0) {
+            batch->failed = 1;
+            sqlite3_result_error_nomem(context);
+            return;
+        }
+        batch->spans[index] = (offset << 32) | (jlong)(unsigned int)len;
+    }
+    batch->count++;
+}
+
+void xFinalBatch(sqlite3_context *context)
+{
+    JNIEnv *env = 0;
+    struct UDFData *udf = (struct UDFData*)sqlite3_user_data(context);
+    struct BatchContext *batch = 0;
+
+    (*udf->vm)->AttachCurrentThread(udf->vm, (void **)&env, 0);
+
+    batch = sqlite3_aggregate_context(context, sizeof(struct BatchContext));
+    if (!batch) { sqlite3_result_error_nomem(context); return; }
+    // func may not have been allocated if xStepBatch never ran
+    get_initialized_udf_context(context);
+
+    if (flush_batch(context, env, batch)) {
+        xCall(context, 0, 0, batch->func, mth_aggr_xfinal);
+    }
+
+    free_batch_buffers(batch);
+    (*env)->DeleteGlobalRef(env, batch->func);
+}
+
 int xCompare(void* context, int len1, const void* str1, int len2, const void* str2)
 {
     JNIEnv *env;
@@ -440,7 +811,134 @@ int xCompare(void* context, int len1, const void* str1, int len2, const void* st
     jstring jstr1 = (*env)->NewString(env, str1, len1 / 2);
     jstring jstr2 = (*env)->NewString(env, str2, len2 / 2);
 
-    return (*env)->CallIntMethod(env, coll->func, mth_compare, jstr1, jstr2);
+    jint ret = (*env)->CallIntMethod(env, coll->func, mth_compare, jstr1, jstr2);
+
+    // a sort compares many times within one native call, free the strings now
+    (*env)->DeleteLocalRef(env, jstr1);
+    (*env)->DeleteLocalRef(env, jstr2);
+    return ret;
+}
+
+static void clear_collation_keys(struct CollationData *coll)
+{
+    struct CollationKey *key, *next;
+    int i;
+
+    for (i = 0; i < coll->key_buckets; i++) {
+        for (key = coll->keys[i]; key; key = next) {
+            next = key->next;
+            free(key);
+        }
+        coll->keys[i] = 0;
+    }
+    coll->newest = 0;
+    coll->oldest = 0;
+    coll->key_count = 0;
+}
+
+static void unlink_collation_key(struct CollationData *coll, struct CollationKey *key)
+{
+    if (key->newer) key->newer->older = key->older; else coll->newest = key->older;
+    if (key->older) key->older->newer = key->newer; else coll->oldest = key->newer;
+}
+
+/* Makes a key the most recently used one. */
+static void use_collation_key(struct CollationData *coll, struct CollationKey *key)
+{
+    key->newer = 0;
+    key->older = coll->newest;
+    if (coll->newest) coll->newest->newer = key; else coll->oldest = key;
+    coll->newest = key;
+}
+
+/* Frees the least recently used key. */
+static void evict_collation_key(struct CollationData *coll)
+{
+    struct CollationKey *key = coll->oldest;
+    struct CollationKey **link = &coll->keys[key->hash & (coll->key_buckets - 1)];
+
+    while (*link != key) link = &(*link)->next;
+    *link = key->next;
+    unlink_collation_key(coll, key);
+    free(key);
+    coll->key_count--;
+}
+
+/* Returns the cached key of a value, calling Collation.Keyed.key() if there is none.
+ * Returns 0 if it failed, with the exception pending if one was thrown. */
+static struct CollationKey *collation_key(
+        JNIEnv *env, struct CollationData *coll, int len, const void *str)
+{
+    const unsigned char *bytes = str;
+    unsigned int hash = 2166136261u;
+    struct CollationKey *key;
+    jstring jstr;
+    jbyteArray jkey;
+    jsize key_len;
+    int i;
+
+    for (i = 0; i < len; i++) hash = (hash ^ bytes[i]) * 16777619u;
+
+    for (key = coll->keys[hash & (coll->key_buckets - 1)]; key; key = key->next) {
+        if (key->hash == hash && key->len == len && memcmp(key + 1, str, len) == 0) {
+            if (key != coll->newest) {
+                unlink_collation_key(coll, key);
+                use_collation_key(coll, key);
+            }
+            return key;
+        }
+    }
+
+    jstr = (*env)->NewString(env, str, len / 2);
+    if (!jstr) return 0;
+    jkey = (jbyteArray)(*env)->CallObjectMethod(env, coll->func, kc_mth_key, jstr);
+    (*env)->DeleteLocalRef(env, jstr);
+    if ((*env)->ExceptionCheck(env)) return 0;
+
+    key_len = jkey ? (*env)->GetArrayLength(env, jkey) : 0;
+    key = malloc(sizeof(struct CollationKey) + len + key_len);
+    if (key) {
+        key->hash = hash;
+        key->len = len;
+        key->key_len = key_len;
+        memcpy(key + 1, str, len);
+        if (key_len > 0) {
+            (*env)->GetByteArrayRegion(env, jkey, 0, key_len, (jbyte*)(key + 1) + len);
+        }
+        if (coll->key_count >= coll->key_capacity) evict_collation_key(coll);
+        key->next = coll->keys[hash & (coll->key_buckets - 1)];
+        coll->keys[hash & (coll->key_buckets - 1)] = key;
+        use_collation_key(coll, key);
+        coll->key_count++;
+    }
+    if (jkey) (*env)->DeleteLocalRef(env, jkey);
+    return key;
+}
+
+int xCompareKeyed(void* context, int len1, const void* str1, int len2, const void* str2)
+{
+    JNIEnv *env;
+    struct CollationData *coll = (struct CollationData*)context;
+    struct CollationKey *key1, *key2;
+    int cmp;
+
+    if (len1 == len2 && memcmp(str1, str2, len1) == 0) return 0;
+
+    (*coll->vm)->AttachCurrentThread(coll->vm, (void **)&env, 0);
+    // a previous key() failed, the statement reports it when the sort is done
+    if ((*env)->ExceptionCheck(env)) return 0;
+
+    // the first key is the most recently used one when the second is looked up, and the
+    // capacity is at least 2, so it is not evicted by the second
+    key1 = collation_key(env, coll, len1, str1);
+    if (!key1) return 0;
+    key2 = collation_key(env, coll, len2, str2);
+    if (!key2) return 0;
+
+    cmp = memcmp((char*)(key1 + 1) + key1->len, (char*)(key2 + 1) + key2->len,
+            key1->key_len < key2->key_len ? key1->key_len : key2->key_len);
+    if (cmp != 0) return cmp;
+    return key1->key_len - key2->key_len;
 }
 
 
@@ -462,7 +960,10 @@ JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM *vm, void *reserved)
     db_updateListener = (*env)->GetFieldID(env, dbclass, "updateListener", "J");
     db_progressHandler = (*env)->GetFieldID(env, dbclass, "progressHandler", "J");
     db_mth_onUpdate = (*env)->GetMethodID(env, dbclass, "onUpdate", "(ILjava/lang/String;Ljava/lang/String;J)V");
+    db_mth_onUpdates = (*env)->GetMethodID(env, dbclass, "onUpdates", "(I[I[J[Ljava/lang/String;)V");
     db_mth_onCommit = (*env)->GetMethodID(env, dbclass, "onCommit", "(Z)V");
+    db_mth_onStatementError = (*env)->GetMethodID(
+            env, dbclass, "onStatementError", "(ILjava/nio/ByteBuffer;)V");
     mth_stringToUtf8ByteArray = (*env)->GetStaticMethodID(
             env, dbclass, "stringToUtf8ByteArray", "(Ljava/lang/String;)[B");
     mth_throwex = (*env)->GetMethodID(env, dbclass, "throwex", "()V");
@@ -482,6 +983,12 @@ JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM *vm, void *reserved)
     cclass = (*env)->NewWeakGlobalRef(env, cclass);
     mth_compare = (*env)->GetMethodID(env, cclass, "xCompare", "(Ljava/lang/String;Ljava/lang/String;)I");
 
+    kcclass = (*env)->FindClass(env, "org/sqlite/Collation$Keyed");
+    if (!kcclass) return JNI_ERR;
+    kcclass = (*env)->NewWeakGlobalRef(env, kcclass);
+    kc_cacheSize = (*env)->GetFieldID(env, kcclass, "cacheSize", "I");
+    kc_mth_key = (*env)->GetMethodID(env, kcclass, "key", "(Ljava/lang/String;)[B");
+
     aclass = (*env)->FindClass(env, "org/sqlite/Function$Aggregate");
     if (!aclass) return JNI_ERR;
     aclass = (*env)->NewWeakGlobalRef(env, aclass);
@@ -495,6 +1002,32 @@ JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM *vm, void *reserved)
     w_mth_inverse = (*env)->GetMethodID(env, wclass, "xInverse", "()V");
     w_mth_xvalue = (*env)->GetMethodID(env, wclass, "xValue", "()V");
 
+    lfclass = (*env)->FindClass(env, "org/sqlite/Function$LongFunction");
+    if (!lfclass) return JNI_ERR;
+    lfclass = (*env)->NewWeakGlobalRef(env, lfclass);
+    lf_mth_apply = (*env)->GetMethodID(env, lfclass, "apply", "(J)J");
+
+    dfclass = (*env)->FindClass(env, "org/sqlite/Function$DoubleFunction");
+    if (!dfclass) return JNI_ERR;
+    dfclass = (*env)->NewWeakGlobalRef(env, dfclass);
+    df_mth_apply = (*env)->GetMethodID(env, dfclass, "apply", "(D)D");
+
+    tfclass = (*env)->FindClass(env, "org/sqlite/Function$TextFunction");
+    if (!tfclass) return JNI_ERR;
+    tfclass = (*env)->NewWeakGlobalRef(env, tfclass);
+    tf_mth_apply = (*env)->GetMethodID(env, tfclass, "apply", "(Ljava/lang/String;)Ljava/lang/String;");
+
+    bfclass = (*env)->FindClass(env, "org/sqlite/Function$BlobFunction");
+    if (!bfclass) return JNI_ERR;
+    bfclass = (*env)->NewWeakGlobalRef(env, bfclass);
+    bf_mth_apply = (*env)->GetMethodID(env, bfclass, "apply", "([B)[B");
+
+    baclass = (*env)->FindClass(env, "org/sqlite/Function$BatchAggregate");
+    if (!baclass) return JNI_ERR;
+    baclass = (*env)->NewWeakGlobalRef(env, baclass);
+    ba_batchSize = (*env)->GetFieldID(env, baclass, "batchSize", "I");
+    ba_mth_xsteprows = (*env)->GetMethodID(env, baclass, "xStepRows", "(II[I[J[D[J[B)V");
+
     pobserverclass = (*env)->FindClass(env, "org/sqlite/core/DB$ProgressObserver");
     if(!pobserverclass) return JNI_ERR;
     pobserverclass = (*env)->NewWeakGlobalRef(env, pobserverclass);
@@ -505,6 +1038,11 @@ JNIEXPORT jint JNICALL JNI_OnLoad(JavaVM *vm, void *reserved)
     phandleclass = (*env)->NewWeakGlobalRef(env, phandleclass);
     phandle_mth_progress = (*env)->GetMethodID(env, phandleclass, "progress", "()I");
 
+    threadclass = (*env)->FindClass(env, "java/lang/Thread");
+    if(!threadclass) return JNI_ERR;
+    threadclass = (*env)->NewWeakGlobalRef(env, threadclass);
+    thread_mth_currentThread = (*env)->GetStaticMethodID(env, threadclass, "currentThread", "()Ljava/lang/Thread;");
+
     bhandleclass = (*env)->FindClass(env, "org/sqlite/BusyHandler");
     if(!bhandleclass) return JNI_ERR;
     bhandleclass = (*env)->NewWeakGlobalRef(env, bhandleclass);
@@ -537,13 +1075,26 @@ JNIEXPORT void JNICALL JNI_OnUnload(JavaVM *vm, void *reserved) {
 
     if (cclass) (*env)->DeleteWeakGlobalRef(env, cclass);
 
+    if (kcclass) (*env)->DeleteWeakGlobalRef(env, kcclass);
+
     if (aclass) (*env)->DeleteWeakGlobalRef(env, aclass);
 
     if (wclass) (*env)->DeleteWeakGlobalRef(env, wclass);
 
+    if (lfclass) (*env)->DeleteWeakGlobalRef(env, lfclass);
+
+    if (dfclass) (*env)->DeleteWeakGlobalRef(env, dfclass);
+
+    if (tfclass) (*env)->DeleteWeakGlobalRef(env, tfclass);
+
+    if (bfclass) (*env)->DeleteWeakGlobalRef(env, bfclass);
+
+    if (baclass) (*env)->DeleteWeakGlobalRef(env, baclass);
+
     if (pobserverclass) (*env)->DeleteWeakGlobalRef(env, pobserverclass);
 
     if (phandleclass) (*env)->DeleteWeakGlobalRef(env, phandleclass);
+    if (threadclass) (*env)->DeleteWeakGlobalRef(env, threadclass);
 
     if (bhandleclass) (*env)->DeleteWeakGlobalRef(env, bhandleclass);
 
@@ -715,11 +1266,52 @@ JNIEXPORT jlong JNICALL Java_org_sqlite_core_NativeDB_prepare_1utf8(
 }
 
 
+JNIEXPORT jlong JNICALL Java_org_sqlite_core_NativeDB_prepare_1single_1utf8(
+        JNIEnv *env, jobject this, jbyteArray sql)
+{
+    sqlite3* db;
+    sqlite3_stmt* stmt;
+    char* sql_bytes;
+    const char* tail;
+    int sql_nbytes;
+    int status;
+
+    db = gethandle(env, this);
+    if (!db)
+    {
+        throwex_db_closed(env);
+        return 0;
+    }
+
+    utf8JavaByteArrayToUtf8Bytes(env, sql, &sql_bytes, &sql_nbytes);
+    if (!sql_bytes) return fromref(0);
+
+    status = sqlite3_prepare_v2(db, sql_bytes, sql_nbytes, &stmt, &tail);
+    if (status != SQLITE_OK) {
+        freeUtf8Bytes(sql_bytes);
+        throwex_errorcode(env, this, status);
+        return fromref(0);
+    }
+
+    // anything but blanks after the first statement is left to sqlite3_exec
+    while (tail < sql_bytes + sql_nbytes && (*tail == ' ' || *tail == '\t' || *tail == '\r' || *tail == '\n')) {
+        tail++;
+    }
+    if (tail < sql_bytes + sql_nbytes) {
+        sqlite3_finalize(stmt);
+        stmt = 0;
+    }
+    freeUtf8Bytes(sql_bytes);
+    return fromref(stmt);
+}
+
+
 JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB__1exec_1utf8(
         JNIEnv *env, jobject this, jbyteArray sql)
 {
     sqlite3* db;
     char* sql_bytes;
+    int sql_nbytes;
     int status;
 
     db = gethandle(env, this);
@@ -729,13 +1321,15 @@ JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB__1exec_1utf8(
         return SQLITE_MISUSE;
     }
 
-    utf8JavaByteArrayToUtf8Bytes(env, sql, &sql_bytes, NULL);
+    utf8JavaByteArrayToUtf8Bytes(env, sql, &sql_bytes, &sql_nbytes);
     if (!sql_bytes)
     {
         return SQLITE_ERROR;
     }
 
     status = sqlite3_exec(db, sql_bytes, 0, 0, NULL);
+    // the statement may hold a key, do not leave it behind in the heap
+    wipe(sql_bytes, sql_nbytes);
     freeUtf8Bytes(sql_bytes);
 
     if (status != SQLITE_OK) {
@@ -796,6 +1390,19 @@ JNIEXPORT jlong JNICALL Java_org_sqlite_core_NativeDB_total_1changes(
     return sqlite3_total_changes64(db);
 }
 
+JNIEXPORT jboolean JNICALL Java_org_sqlite_core_NativeDB_get_1autocommit(
+        JNIEnv *env, jobject this)
+{
+    sqlite3 *db = gethandle(env, this);
+    if (!db)
+    {
+        throwex_db_closed(env);
+        return JNI_FALSE;
+    }
+
+    return sqlite3_get_autocommit(db) ? JNI_TRUE : JNI_FALSE;
+}
+
 JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_finalize(
         JNIEnv *env, jobject this, jlong stmt)
 {
@@ -808,16 +1415,67 @@ JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_finalize(
     return sqlite3_finalize(toref(stmt));
 }
 
+/*
+** Under LockingStrategy.STATEMENT the calls on a statement do not hold the lock
+** of the connection in Java, so another thread may use the connection before
+** the message of an error is read with errmsg(). The calls that step or bind
+** hold the mutex of the connection until they have read the message of their
+** error, and hand it to NativeDB#onStatementError. Errors repeated by reset are
+** not handed over, as they are usually not thrown.
+*/
+static sqlite3_mutex *enter_stmt(sqlite3_stmt *stmt)
+{
+    sqlite3_mutex *mutex = sqlite3_db_mutex(sqlite3_db_handle(stmt));
+    sqlite3_mutex_enter(mutex);
+    return mutex;
+}
+
+/* Defined with the progress handler, they record the statement a deadline restricted to it
+** may interrupt, while it is stepped under the mutex of the connection. */
+static sqlite3_stmt *begin_stepping(JNIEnv *env, jobject nativeDB, sqlite3_stmt *stmt);
+static void end_stepping(JNIEnv *env, jobject nativeDB, sqlite3_stmt *previous);
+
+static jint leave_stmt(JNIEnv *env, jobject this, sqlite3_stmt *stmt, sqlite3_mutex *mutex, jint rc)
+{
+    char *msg = 0;
+    jobject buffer;
+    int primary = rc & 0xff;
+
+    if (primary != SQLITE_OK && primary != SQLITE_ROW && primary != SQLITE_DONE) {
+        msg = sqlite3_mprintf("%s", sqlite3_errmsg(sqlite3_db_handle(stmt)));
+    }
+    sqlite3_mutex_leave(mutex);
+    if (!msg) return rc;
+
+    if (!(*env)->ExceptionCheck(env)) {
+        buffer = utf8BytesToDirectByteBuffer(env, msg, (int) strlen(msg));
+        if (buffer) {
+            (*env)->CallVoidMethod(env, this, db_mth_onStatementError, rc, buffer);
+            (*env)->DeleteLocalRef(env, buffer);
+        }
+    }
+    sqlite3_free(msg);
+    return rc;
+}
+
 JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_step(
         JNIEnv *env, jobject this, jlong stmt)
 {
+    sqlite3_mutex *mutex;
+    sqlite3_stmt *previous;
+    jint rc;
+
     if (!stmt)
     {
         throwex_stmt_finalized(env);
         return SQLITE_MISUSE;
     }
 
-    return sqlite3_step(toref(stmt));
+    mutex = enter_stmt(toref(stmt));
+    previous = begin_stepping(env, this, toref(stmt));
+    rc = sqlite3_step(toref(stmt));
+    end_stepping(env, this, previous);
+    return leave_stmt(env, this, toref(stmt), mutex, rc);
 }
 
 JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_reset(
@@ -1012,6 +1670,53 @@ JNIEXPORT jbyteArray JNICALL Java_org_sqlite_core_NativeDB_column_1blob(
     return jBlob;
 }
 
+JNIEXPORT jobject JNICALL Java_org_sqlite_core_NativeDB_column_1blob_1buffer(
+        JNIEnv *env, jobject this, jlong stmt, jint col)
+{
+    static char empty[1];
+    sqlite3 *db;
+    int type;
+    const void *blob;
+    jobject buffer;
+
+    db = gethandle(env, this);
+    if (!db)
+    {
+        throwex_db_closed(env);
+        return NULL;
+    }
+
+    if (!stmt)
+    {
+        throwex_stmt_finalized(env);
+        return NULL;
+    }
+
+    // The value returned by sqlite3_column_type() is only meaningful if no type conversions have occurred
+    type = sqlite3_column_type(toref(stmt), col);
+    blob = sqlite3_column_blob(toref(stmt), col);
+    if (!blob && sqlite3_errcode(db) == SQLITE_NOMEM)
+    {
+        throwex_outofmemory(env);
+        return NULL;
+    }
+    if (!blob && type == SQLITE_NULL)
+    {
+        return NULL;
+    }
+
+    // The return value from sqlite3_column_blob() for a zero-length BLOB is a NULL pointer.
+    buffer = (*env)->NewDirectByteBuffer(env, blob ? (void*) blob : (void*) empty,
+            blob ? sqlite3_column_bytes(toref(stmt), col) : 0);
+    if (!buffer)
+    {
+        throwex_outofmemory(env);
+        return NULL;
+    }
+
+    return buffer;
+}
+
 JNIEXPORT jdouble JNICALL Java_org_sqlite_core_NativeDB_column_1double(
         JNIEnv *env, jobject this, jlong stmt, jint col)
 {
@@ -1048,57 +1753,437 @@ JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_column_1int(
     return sqlite3_column_int(toref(stmt), col);
 }
 
-JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_bind_1null(
-        JNIEnv *env, jobject this, jlong stmt, jint pos)
-{
-    if (!stmt)
-    {
-        throwex_stmt_finalized(env);
-        return SQLITE_MISUSE;
-    }
+// Must match RowBuffer.HEADER_SIZE
+#define FETCH_HEADER_SIZE 12
 
-    return sqlite3_bind_null(toref(stmt), pos);
+/*
+** Copies the values of the current row of a statement to buf at *pos, laid out
+** as described by RowBuffer, along with the conversions of REAL, TEXT and BLOB
+** values made by SQLite itself. types receives the type of each value, read
+** before any conversion. Returns 0 and stores the size the row needs in *need
+** if it does not fit into the capacity left, or -1 if SQLite runs out of memory
+** converting a value.
+*/
+static int fetch_row(JNIEnv *env, sqlite3_stmt *dbstmt, int cols, int *types,
+        unsigned char *buf, jlong capacity, jlong *pos, jlong *need)
+{
+    int i, nbytes;
+    const void *data;
+    jlong size = 0;
+    jlong lval;
+    jdouble dval;
+    unsigned char *out;
+
+    for (i = 0; i < cols; i++) {
+        types[i] = sqlite3_column_type(dbstmt, i);
+        switch (types[i]) {
+            case SQLITE_INTEGER:
+                size += 1 + 8;
+                break;
+            case SQLITE_FLOAT:
+            case SQLITE_TEXT:
+                sqlite3_column_text(dbstmt, i);
+                size += 1 + 8 + 8 + 4 + sqlite3_column_bytes(dbstmt, i);
+                break;
+            case SQLITE_BLOB:
+                sqlite3_column_blob(dbstmt, i);
+                size += 1 + 8 + 8 + 4 + sqlite3_column_bytes(dbstmt, i);
+                break;
+            default:
+                size += 1;
+        }
+    }
+
+    *need = size;
+    if (*pos + size > capacity) return 0;
+
+    out = buf + *pos;
+    for (i = 0; i < cols; i++) {
+        *out++ = (unsigned char) types[i];
+        switch (types[i]) {
+            case SQLITE_INTEGER:
+                lval = sqlite3_column_int64(dbstmt, i);
+                memcpy(out, &lval, 8);
+                out += 8;
+                break;
+            case SQLITE_FLOAT:
+            case SQLITE_TEXT:
+            case SQLITE_BLOB:
+                // converting to a number leaves the text or blob of the value as it is
+                data = types[i] == SQLITE_BLOB
+                        ? sqlite3_column_blob(dbstmt, i)
+                        : (const void*) sqlite3_column_text(dbstmt, i);
+                nbytes = sqlite3_column_bytes(dbstmt, i);
+                if (!data && nbytes > 0)
+                {
+                    throwex_outofmemory(env);
+                    return -1;
+                }
+                lval = sqlite3_column_int64(dbstmt, i);
+                dval = sqlite3_column_double(dbstmt, i);
+                memcpy(out, &lval, 8);
+                memcpy(out + 8, &dval, 8);
+                memcpy(out + 16, &nbytes, 4);
+                out += 20;
+                if (nbytes > 0) memcpy(out, data, nbytes);
+                out += nbytes;
+                break;
+        }
+    }
+
+    *pos += size;
+    return 1;
+}
+
+/*
+** Steps a statement and copies up to maxRows rows into a direct buffer, so that
+** a result set can read them without calling back into SQLite. The header holds
+** the number of rows copied, the number of columns and, if not even the first
+** row fit, the size it needs. Returns the result code of the last step, which
+** is SQLITE_ROW if the statement is positioned on a row that was not copied.
+*/
+static jint fetch_rows(
+        JNIEnv *env, jobject this, jlong stmt, jobject buffer, jint maxRows, jboolean stepFirst)
+{
+    sqlite3_stmt *dbstmt;
+    unsigned char *buf;
+    jlong capacity;
+    jlong pos = FETCH_HEADER_SIZE;
+    jlong need = 0;
+    jint header[3];
+    int *types;
+    int rc, cols, copied;
+    int rows = 0;
+
+    if (!stmt)
+    {
+        throwex_stmt_finalized(env);
+        return SQLITE_MISUSE;
+    }
+
+    buf = (unsigned char*) (*env)->GetDirectBufferAddress(env, buffer);
+    capacity = (*env)->GetDirectBufferCapacity(env, buffer);
+    if (!buf || capacity < FETCH_HEADER_SIZE)
+    {
+        throwex_msg(env, "fetch buffer must be a direct buffer");
+        return SQLITE_MISUSE;
+    }
+
+    dbstmt = toref(stmt);
+    cols = sqlite3_column_count(dbstmt);
+    types = (int*) malloc(cols * sizeof(int) + 1);
+    if (!types)
+    {
+        throwex_outofmemory(env);
+        return SQLITE_NOMEM;
+    }
+
+    rc = stepFirst ? sqlite3_step(dbstmt) : SQLITE_ROW;
+    while (rc == SQLITE_ROW && rows < maxRows) {
+        copied = fetch_row(env, dbstmt, cols, types, buf, capacity, &pos, &need);
+        if (copied < 0)
+        {
+            free(types);
+            return SQLITE_NOMEM;
+        }
+        if (!copied) break;
+        rows++;
+        rc = sqlite3_step(dbstmt);
+    }
+    free(types);
+
+    header[0] = rows;
+    header[1] = cols;
+    header[2] = (rows == 0 && rc == SQLITE_ROW) ? (jint) (need < INT_MAX ? need : INT_MAX) : 0;
+    memcpy(buf, header, sizeof(header));
+
+    return rc;
+}
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_fetch_1rows(
+        JNIEnv *env, jobject this, jlong stmt, jobject buffer, jint maxRows, jboolean stepFirst)
+{
+    sqlite3_mutex *mutex;
+    sqlite3_stmt *previous;
+    jint rc;
+
+    if (!stmt)
+    {
+        throwex_stmt_finalized(env);
+        return SQLITE_MISUSE;
+    }
+
+    mutex = enter_stmt(toref(stmt));
+    previous = begin_stepping(env, this, toref(stmt));
+    rc = fetch_rows(env, this, stmt, buffer, maxRows, stepFirst);
+    end_stepping(env, this, previous);
+    return leave_stmt(env, this, toref(stmt), mutex, rc);
+}
+
+/*
+** Steps a statement and copies up to maxRows rows into column vectors laid out
+** like Apache Arrow ones, as described by ColumnBuffer: a validity bitmap per
+** column, then int64 or float64 values, or int32 offsets into a data buffer for
+** UTF-8 text and binary values. Rows are written from index start on, so that a
+** fetch stopped by a full data buffer can go on once the buffer is larger.
+**
+** types holds the SQLite type code of each column; a column of type 0 takes the
+** type of its value in the first row, or TEXT if that value is NULL. result
+** receives the number of rows in the vectors and, if a value did not fit, the
+** column of that value and the data size it needs, or -1 and 0. Returns the
+** result code of the last step, which is SQLITE_ROW if the statement is
+** positioned on a row that was not copied.
+*/
+static jint fetch_columns(
+        JNIEnv *env, jobject this, jlong stmt, jintArray types, jobjectArray validity,
+        jobjectArray values, jobjectArray data, jintArray nullCounts, jintArray result,
+        jint start, jint maxRows, jboolean stepFirst)
+{
+    sqlite3_stmt *dbstmt;
+    jint *colTypes = 0;
+    jint *nulls = 0;
+    int *valueTypes = 0;
+    unsigned char **bitmaps = 0;
+    unsigned char **vectors = 0;
+    unsigned char **buffers = 0;
+    jlong *capacities = 0;
+    jint out[3] = {start, -1, 0};
+    jobject ref;
+    int rc, cols, i, nbytes, type, row = start;
+    jint offset;
+    jlong lval;
+    jdouble dval;
+    const void *value;
+
+    if (!stmt)
+    {
+        throwex_stmt_finalized(env);
+        return SQLITE_MISUSE;
+    }
+
+    dbstmt = toref(stmt);
+    cols = sqlite3_column_count(dbstmt);
+    if ((*env)->GetArrayLength(env, types) < cols)
+    {
+        throwex_msg(env, "one type per column is needed");
+        return SQLITE_MISUSE;
+    }
+
+    colTypes = (jint*) malloc(cols * sizeof(jint) + 1);
+    nulls = (jint*) malloc(cols * sizeof(jint) + 1);
+    valueTypes = (int*) malloc(cols * sizeof(int) + 1);
+    bitmaps = (unsigned char**) calloc(cols + 1, sizeof(unsigned char*));
+    vectors = (unsigned char**) calloc(cols + 1, sizeof(unsigned char*));
+    buffers = (unsigned char**) calloc(cols + 1, sizeof(unsigned char*));
+    capacities = (jlong*) calloc(cols + 1, sizeof(jlong));
+    if (!colTypes || !nulls || !valueTypes || !bitmaps || !vectors || !buffers || !capacities)
+    {
+        throwex_outofmemory(env);
+        rc = SQLITE_NOMEM;
+        goto done;
+    }
+    (*env)->GetIntArrayRegion(env, types, 0, cols, colTypes);
+    (*env)->GetIntArrayRegion(env, nullCounts, 0, cols, nulls);
+
+    for (i = 0; i < cols; i++) {
+        ref = (*env)->GetObjectArrayElement(env, validity, i);
+        if (ref) {
+            if ((*env)->GetDirectBufferCapacity(env, ref) >= ((jlong) maxRows + 7) / 8) {
+                bitmaps[i] = (unsigned char*) (*env)->GetDirectBufferAddress(env, ref);
+            }
+            (*env)->DeleteLocalRef(env, ref);
+        }
+        ref = (*env)->GetObjectArrayElement(env, values, i);
+        if (ref) {
+            if ((*env)->GetDirectBufferCapacity(env, ref) >= (jlong) (maxRows + 1) * 8) {
+                vectors[i] = (unsigned char*) (*env)->GetDirectBufferAddress(env, ref);
+            }
+            (*env)->DeleteLocalRef(env, ref);
+        }
+        ref = (*env)->GetObjectArrayElement(env, data, i);
+        if (ref) {
+            buffers[i] = (unsigned char*) (*env)->GetDirectBufferAddress(env, ref);
+            capacities[i] = (*env)->GetDirectBufferCapacity(env, ref);
+            (*env)->DeleteLocalRef(env, ref);
+        }
+        if (!bitmaps[i] || !vectors[i])
+        {
+            throwex_msg(env, "column vectors must be direct buffers large enough for maxRows");
+            rc = SQLITE_MISUSE;
+            goto done;
+        }
+    }
+
+    rc = stepFirst ? sqlite3_step(dbstmt) : SQLITE_ROW;
+    while (rc == SQLITE_ROW && row < maxRows) {
+        // types are read before any conversion, which makes them undefined
+        for (i = 0; i < cols; i++) {
+            valueTypes[i] = sqlite3_column_type(dbstmt, i);
+            if (!colTypes[i]) colTypes[i] = valueTypes[i] == SQLITE_NULL ? SQLITE_TEXT : valueTypes[i];
+        }
+
+        // text and blob values are sized first, so that a row is copied whole or not at all
+        for (i = 0; i < cols; i++) {
+            if (valueTypes[i] == SQLITE_NULL || (colTypes[i] != SQLITE_TEXT && colTypes[i] != SQLITE_BLOB)) continue;
+
+            value = colTypes[i] == SQLITE_TEXT
+                    ? (const void*) sqlite3_column_text(dbstmt, i)
+                    : sqlite3_column_blob(dbstmt, i);
+            nbytes = sqlite3_column_bytes(dbstmt, i);
+            if (!value && nbytes > 0)
+            {
+                throwex_outofmemory(env);
+                rc = SQLITE_NOMEM;
+                goto done;
+            }
+            memcpy(&offset, vectors[i] + (jlong) row * 4, 4);
+            if (!buffers[i] || (jlong) offset + nbytes > capacities[i]) {
+                out[1] = i;
+                out[2] = (jlong) offset + nbytes < INT_MAX ? offset + nbytes : INT_MAX;
+                break;
+            }
+        }
+        if (out[1] >= 0) break;
+
+        for (i = 0; i < cols; i++) {
+            type = valueTypes[i];
+            if (type == SQLITE_NULL) {
+                bitmaps[i][row >> 3] &= (unsigned char) ~(1 << (row & 7));
+                nulls[i]++;
+            } else {
+                bitmaps[i][row >> 3] |= (unsigned char) (1 << (row & 7));
+            }
+
+            switch (colTypes[i]) {
+                case SQLITE_INTEGER:
+                    lval = type == SQLITE_NULL ? 0 : sqlite3_column_int64(dbstmt, i);
+                    memcpy(vectors[i] + (jlong) row * 8, &lval, 8);
+                    break;
+                case SQLITE_FLOAT:
+                    dval = type == SQLITE_NULL ? 0 : sqlite3_column_double(dbstmt, i);
+                    memcpy(vectors[i] + (jlong) row * 8, &dval, 8);
+                    break;
+                default:
+                    memcpy(&offset, vectors[i] + (jlong) row * 4, 4);
+                    if (type != SQLITE_NULL) {
+                        // the value was converted while sizing the row
+                        value = colTypes[i] == SQLITE_TEXT
+                                ? (const void*) sqlite3_column_text(dbstmt, i)
+                                : sqlite3_column_blob(dbstmt, i);
+                        nbytes = sqlite3_column_bytes(dbstmt, i);
+                        if (nbytes > 0) memcpy(buffers[i] + offset, value, nbytes);
+                        offset += nbytes;
+                    }
+                    memcpy(vectors[i] + (jlong) (row + 1) * 4, &offset, 4);
+            }
+        }
+        row++;
+        rc = sqlite3_step(dbstmt);
+    }
+
+    out[0] = row;
+    (*env)->SetIntArrayRegion(env, types, 0, cols, colTypes);
+    (*env)->SetIntArrayRegion(env, nullCounts, 0, cols, nulls);
+    (*env)->SetIntArrayRegion(env, result, 0, 3, out);
+
+done:
+    free(colTypes);
+    free(nulls);
+    free(valueTypes);
+    free(bitmaps);
+    free(vectors);
+    free(buffers);
+    free(capacities);
+    return rc;
+}
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_fetch_1columns(
+        JNIEnv *env, jobject this, jlong stmt, jintArray types, jobjectArray validity,
+        jobjectArray values, jobjectArray data, jintArray nullCounts, jintArray result,
+        jint start, jint maxRows, jboolean stepFirst)
+{
+    sqlite3_mutex *mutex;
+    sqlite3_stmt *previous;
+    jint rc;
+
+    if (!stmt)
+    {
+        throwex_stmt_finalized(env);
+        return SQLITE_MISUSE;
+    }
+
+    mutex = enter_stmt(toref(stmt));
+    previous = begin_stepping(env, this, toref(stmt));
+    rc = fetch_columns(env, this, stmt, types, validity, values, data, nullCounts, result,
+            start, maxRows, stepFirst);
+    end_stepping(env, this, previous);
+    return leave_stmt(env, this, toref(stmt), mutex, rc);
+}
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_bind_1null(
+        JNIEnv *env, jobject this, jlong stmt, jint pos)
+{
+    sqlite3_mutex *mutex;
+
+    if (!stmt)
+    {
+        throwex_stmt_finalized(env);
+        return SQLITE_MISUSE;
+    }
+
+    mutex = enter_stmt(toref(stmt));
+    return leave_stmt(env, this, toref(stmt), mutex, sqlite3_bind_null(toref(stmt), pos));
 }
 
 JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_bind_1int(
         JNIEnv *env, jobject this, jlong stmt, jint pos, jint v)
 {
+    sqlite3_mutex *mutex;
+
     if (!stmt)
     {
         throwex_stmt_finalized(env);
         return SQLITE_MISUSE;
     }
 
-    return sqlite3_bind_int(toref(stmt), pos, v);
+    mutex = enter_stmt(toref(stmt));
+    return leave_stmt(env, this, toref(stmt), mutex, sqlite3_bind_int(toref(stmt), pos, v));
 }
 
 JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_bind_1long(
         JNIEnv *env, jobject this, jlong stmt, jint pos, jlong v)
 {
+    sqlite3_mutex *mutex;
+
     if (!stmt)
     {
         throwex_stmt_finalized(env);
         return SQLITE_MISUSE;
     }
 
-    return sqlite3_bind_int64(toref(stmt), pos, v);
+    mutex = enter_stmt(toref(stmt));
+    return leave_stmt(env, this, toref(stmt), mutex, sqlite3_bind_int64(toref(stmt), pos, v));
 }
 
 JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_bind_1double(
         JNIEnv *env, jobject this, jlong stmt, jint pos, jdouble v)
 {
+    sqlite3_mutex *mutex;
+
     if (!stmt)
     {
         throwex_stmt_finalized(env);
         return SQLITE_MISUSE;
     }
 
-    return sqlite3_bind_double(toref(stmt), pos, v);
+    mutex = enter_stmt(toref(stmt));
+    return leave_stmt(env, this, toref(stmt), mutex, sqlite3_bind_double(toref(stmt), pos, v));
 }
 
 JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_bind_1text_1utf8(
         JNIEnv *env, jobject this, jlong stmt, jint pos, jbyteArray v)
 {
+    sqlite3_mutex *mutex;
     int rc;
     char* v_bytes;
     int v_nbytes;
@@ -1112,7 +2197,9 @@ JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_bind_1text_1utf8(
     utf8JavaByteArrayToUtf8Bytes(env, v, &v_bytes, &v_nbytes);
     if (!v_bytes) return SQLITE_ERROR;
 
-    rc = sqlite3_bind_text(toref(stmt), pos, v_bytes, v_nbytes, SQLITE_TRANSIENT);
+    mutex = enter_stmt(toref(stmt));
+    rc = leave_stmt(env, this, toref(stmt), mutex,
+            sqlite3_bind_text(toref(stmt), pos, v_bytes, v_nbytes, SQLITE_TRANSIENT));
     freeUtf8Bytes(v_bytes);
 
     return rc;
@@ -1121,6 +2208,7 @@ JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_bind_1text_1utf8(
 JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_bind_1blob(
         JNIEnv *env, jobject this, jlong stmt, jint pos, jbyteArray v)
 {
+    sqlite3_mutex *mutex;
     jint rc;
     void *a;
     jsize size;
@@ -1134,9 +2222,10 @@ JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_bind_1blob(
     size = (*env)->GetArrayLength(env, v);
     a = (*env)->GetPrimitiveArrayCritical(env, v, 0);
     if (!a) { throwex_outofmemory(env); return 0; }
+    mutex = enter_stmt(toref(stmt));
     rc = sqlite3_bind_blob(toref(stmt), pos, a, size, SQLITE_TRANSIENT);
     (*env)->ReleasePrimitiveArrayCritical(env, v, a, JNI_ABORT);
-    return rc;
+    return leave_stmt(env, this, toref(stmt), mutex, rc);
 }
 
 JNIEXPORT void JNICALL Java_org_sqlite_core_NativeDB_result_1null(
@@ -1291,6 +2380,10 @@ void free_collation_func(void *context) {
     (*coll->vm)->AttachCurrentThread(coll->vm, (void **)&env, 0);
 
     (*env)->DeleteGlobalRef(env, coll->func);
+    if (coll->keys) {
+        clear_collation_keys(coll);
+        free(coll->keys);
+    }
     free(coll);
 }
 
@@ -1308,7 +2401,7 @@ JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_create_1function_1utf8(
 {
     jint ret = 0;
     char *name_bytes;
-    int isAgg = 0, isWindow = 0;
+    int isAgg = 0, isWindow = 0, isBatch = 0;
 
     struct UDFData *udf = (struct UDFData*) malloc(sizeof(struct UDFData));
 
@@ -1316,6 +2409,7 @@ JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_create_1function_1utf8(
 
     isAgg = (*env)->IsInstanceOf(env, func, aclass);
     isWindow = (*env)->IsInstanceOf(env, func, wclass);
+    isBatch = (*env)->IsInstanceOf(env, func, baclass);
     udf->func = (*env)->NewGlobalRef(env, func);
     (*env)->GetJavaVM(env, &udf->vm);
 
@@ -1329,20 +2423,26 @@ JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_create_1function_1utf8(
                 nArgs,                 // number of args
                 SQLITE_UTF16 | flags,  // preferred chars
                 udf,
-                &xStep,
-                &xFinal,
+                isBatch ? &xStepBatch : &xStep,
+                isBatch ? &xFinalBatch : &xFinal,
                 isWindow ? &xValue : NULL,
                 isWindow ? &xInverse : NULL,
                 &free_udf_func         // Cleanup function
         );
     } else {
+        void (*xFuncImpl)(sqlite3_context*, int, sqlite3_value**) = &xFunc;
+        if ((*env)->IsInstanceOf(env, func, lfclass)) xFuncImpl = &xFuncLong;
+        else if ((*env)->IsInstanceOf(env, func, dfclass)) xFuncImpl = &xFuncDouble;
+        else if ((*env)->IsInstanceOf(env, func, tfclass)) xFuncImpl = &xFuncText;
+        else if ((*env)->IsInstanceOf(env, func, bfclass)) xFuncImpl = &xFuncBlob;
+
         ret = sqlite3_create_function_v2(
                 gethandle(env, nativeDB),
                 name_bytes,            // function name
                 nArgs,                 // number of args
                 SQLITE_UTF16 | flags,  // preferred chars
                 udf,
-                &xFunc,
+                xFuncImpl,
                 NULL,
                 NULL,
                 &free_udf_func         // Cleanup function
@@ -1381,6 +2481,20 @@ JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_create_1collation_1utf8(
 
     if (!coll) { throwex_outofmemory(env); return 0; }
 
+    coll->keys = 0;
+    coll->newest = 0;
+    coll->oldest = 0;
+    coll->key_buckets = 0;
+    coll->key_count = 0;
+    coll->key_capacity = 0;
+    if ((*env)->IsInstanceOf(env, func, kcclass)) {
+        coll->key_capacity = (*env)->GetIntField(env, func, kc_cacheSize);
+        coll->key_buckets = 16;
+        while (coll->key_buckets < coll->key_capacity) coll->key_buckets *= 2;
+        coll->keys = calloc(coll->key_buckets, sizeof(struct CollationKey*));
+        if (!coll->keys) { free(coll); throwex_outofmemory(env); return 0; }
+    }
+
     coll->func = (*env)->NewGlobalRef(env, func);
     (*env)->GetJavaVM(env, &coll->vm);
 
@@ -1392,7 +2506,7 @@ JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_create_1collation_1utf8(
             name_bytes,            // collation name
             SQLITE_UTF16,          // preferred chars
             coll,
-            &xCompare,
+            coll->keys ? &xCompareKeyed : &xCompare,
             &free_collation_func
     );
 
@@ -1433,6 +2547,79 @@ JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_limit(JNIEnv *env, jobject
     return sqlite3_limit(db, id, value);
 }
 
+JNIEXPORT jlongArray JNICALL Java_org_sqlite_core_NativeDB_db_1status(
+        JNIEnv *env, jobject this, jint op, jboolean reset)
+{
+    sqlite3 *db;
+    int current = 0, highwater = 0;
+    jlong values[2];
+    jlongArray result;
+    int rc;
+
+    db = gethandle(env, this);
+    if (!db)
+    {
+        throwex_db_closed(env);
+        return NULL;
+    }
+
+    rc = sqlite3_db_status(db, op, &current, &highwater, reset ? 1 : 0);
+    if (rc != SQLITE_OK)
+    {
+        throwex_errorcode(env, this, rc);
+        return NULL;
+    }
+
+    result = (*env)->NewLongArray(env, 2);
+    if (!result)
+    {
+        throwex_outofmemory(env);
+        return NULL;
+    }
+    values[0] = current;
+    values[1] = highwater;
+    (*env)->SetLongArrayRegion(env, result, 0, 2, values);
+    return result;
+}
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_stmt_1status(
+        JNIEnv *env, jobject this, jlong stmt, jint op, jboolean reset)
+{
+    if (!stmt)
+    {
+        throwex_stmt_finalized(env);
+        return 0;
+    }
+    return sqlite3_stmt_status(toref(stmt), op, reset ? 1 : 0);
+}
+
+JNIEXPORT jlongArray JNICALL Java_org_sqlite_core_NativeDB_status64(
+        JNIEnv *env, jobject this, jint op, jboolean reset)
+{
+    sqlite3_int64 current = 0, highwater = 0;
+    jlong values[2];
+    jlongArray result;
+    int rc;
+
+    rc = sqlite3_status64(op, &current, &highwater, reset ? 1 : 0);
+    if (rc != SQLITE_OK)
+    {
+        throwex_errorcode_msg(env, rc, "unknown status parameter");
+        return NULL;
+    }
+
+    result = (*env)->NewLongArray(env, 2);
+    if (!result)
+    {
+        throwex_outofmemory(env);
+        return NULL;
+    }
+    values[0] = current;
+    values[1] = highwater;
+    (*env)->SetLongArrayRegion(env, result, 0, 2, values);
+    return result;
+}
+
 // COMPOUND FUNCTIONS ///////////////////////////////////////////////
 
 JNIEXPORT jobjectArray JNICALL Java_org_sqlite_core_NativeDB_column_1metadata(
@@ -1502,80 +2689,623 @@ JNIEXPORT jobjectArray JNICALL Java_org_sqlite_core_NativeDB_column_1metadata(
     return array;
 }
 
-// backup function
+// Must match the type tags of ParameterBuffer.java
+#define BATCH_TYPE_NULL   0
+#define BATCH_TYPE_LONG   1
+#define BATCH_TYPE_DOUBLE 2
+#define BATCH_TYPE_TEXT   3
+#define BATCH_TYPE_BLOB   4
+#define BATCH_TYPE_INT    5
+#define BATCH_TYPE_FLOAT  6
 
-void reportProgress(JNIEnv* env, jobject func, int remaining, int pageCount) {
-    if(!func)
-        return;
+static int bind_batch_ref(JNIEnv *env, sqlite3_stmt *dbstmt, int pos, jint type, jobject ref)
+{
+    int rc;
+    jsize size;
+    void *a;
 
-    (*env)->CallVoidMethod(env, func, pobserver_mth_progress, remaining, pageCount);
-}
+    size = (*env)->GetArrayLength(env, (jarray) ref);
+    a = (*env)->GetPrimitiveArrayCritical(env, (jarray) ref, 0);
+    if (!a) return SQLITE_NOMEM;
 
-void updateProgress(JNIEnv *env, sqlite3_backup *pBackup, jobject progress) {
-    if (!progress)
-        return;
-    int remaining = sqlite3_backup_remaining(pBackup);
-    int pagecount = sqlite3_backup_pagecount(pBackup);
-    (*env)->CallVoidMethod(env, progress, pobserver_mth_progress, remaining, pagecount);
+    if (type == BATCH_TYPE_TEXT)
+        rc = sqlite3_bind_text(dbstmt, pos, (const char*) a, size, SQLITE_TRANSIENT);
+    else
+        rc = sqlite3_bind_blob(dbstmt, pos, a, size, SQLITE_TRANSIENT);
+
+    (*env)->ReleasePrimitiveArrayCritical(env, (jarray) ref, a, JNI_ABORT);
+    return rc;
 }
 
-void copyLoop(JNIEnv *env, sqlite3_backup *pBackup, jobject progress,
-              int pagesPerStep, int nTimeoutLimit, int sleepTimeMillis) {
-    int rc;
-    int nTimeout = 0;
+/*
+** Executes count entries of a batch on a single prepared statement. The
+** parameters of entry i are found at index offset + i * params + j of the
+** type-tagged arrays, and at index i * params + j of refValues, which only
+** holds the entries executed. Stops at the first entry whose step does not return SQLITE_DONE and
+** leaves the statement un-reset, so the caller can retrieve the result code.
+** Returns the number of entries executed successfully; changes[] is filled for
+** each of them.
+*/
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_execute_1batch(
+        JNIEnv *env, jobject this, jlong stmt, jint offset, jint count, jint params,
+        jintArray types, jlongArray longValues, jdoubleArray doubleValues,
+        jobjectArray refValues, jlongArray changes)
+{
+    sqlite3 *db;
+    sqlite3_stmt *dbstmt;
+    jint *typeTags = 0;
+    jlong *longs = 0;
+    jdouble *doubles = 0;
+    jlong *rowChanges = 0;
+    jobject ref;
+    int i, j, k, rc;
+    int executed = 0;
+    jsize size = count * params;
 
-    do {
-          rc = sqlite3_backup_step(pBackup, pagesPerStep);
+    db = gethandle(env, this);
+    if (!db)
+    {
+        throwex_db_closed(env);
+        return 0;
+    }
 
-          // if the step completed successfully, update progress
-          if (rc == SQLITE_OK || rc == SQLITE_DONE) {
-              updateProgress(env, pBackup, progress);
-          }
+    if (!stmt)
+    {
+        throwex_stmt_finalized(env);
+        return 0;
+    }
 
-          if (rc == SQLITE_BUSY || rc == SQLITE_LOCKED) {
-              if (nTimeout++ >= nTimeoutLimit)
-                 break;
-              sqlite3_sleep(sleepTimeMillis);
-          }
-    } while (rc == SQLITE_OK || rc == SQLITE_BUSY || rc == SQLITE_LOCKED);
+    dbstmt = toref(stmt);
+
+    // only the values of the entries executed are copied
+    typeTags = (jint*) malloc(size * sizeof(jint) + 1);
+    longs = (jlong*) malloc(size * sizeof(jlong) + 1);
+    doubles = (jdouble*) malloc(size * sizeof(jdouble) + 1);
+    rowChanges = (jlong*) malloc((count > 0 ? count : 1) * sizeof(jlong));
+    if (!typeTags || !longs || !doubles || !rowChanges)
+    {
+        throwex_outofmemory(env);
+        goto batch_out;
+    }
+    (*env)->GetIntArrayRegion(env, types, offset, size, typeTags);
+    (*env)->GetLongArrayRegion(env, longValues, offset, size, longs);
+    (*env)->GetDoubleArrayRegion(env, doubleValues, offset, size, doubles);
+    if ((*env)->ExceptionCheck(env)) goto batch_out;
+
+    for (i = 0; i < count; i++) {
+        sqlite3_reset(dbstmt);
+
+        for (j = 0; j < params; j++) {
+            k = i * params + j;
+            switch (typeTags[k]) {
+                case BATCH_TYPE_INT:
+                case BATCH_TYPE_LONG:
+                    rc = sqlite3_bind_int64(dbstmt, j + 1, longs[k]);
+                    break;
+                case BATCH_TYPE_FLOAT:
+                case BATCH_TYPE_DOUBLE:
+                    rc = sqlite3_bind_double(dbstmt, j + 1, doubles[k]);
+                    break;
+                case BATCH_TYPE_TEXT:
+                case BATCH_TYPE_BLOB:
+                    ref = (*env)->GetObjectArrayElement(env, refValues, k);
+                    rc = bind_batch_ref(env, dbstmt, j + 1, typeTags[k], ref);
+                    (*env)->DeleteLocalRef(env, ref);
+                    break;
+                default:
+                    rc = sqlite3_bind_null(dbstmt, j + 1);
+            }
+
+            if (rc != SQLITE_OK)
+            {
+                throwex_errorcode(env, this, rc);
+                goto batch_out;
+            }
+        }
+
+        if (sqlite3_step(dbstmt) != SQLITE_DONE) break;
+
+        rowChanges[i] = sqlite3_changes64(db);
+        executed++;
+    }
+
+    (*env)->SetLongArrayRegion(env, changes, 0, executed, rowChanges);
+
+batch_out:
+    free(typeTags);
+    free(longs);
+    free(doubles);
+    free(rowChanges);
+
+    return executed;
 }
 
 /*
-** Perform an online backup of database pDb to the database file named
-** by zFilename. This function copies pagesPerStep database pages from pDb to
-** zFilename per step. If the backup step returns SQLITE_BUSY or SQLITE_LOCKED,
-** the function waits nTimeoutLimit milliseconds before trying again. Should
-** this occur more than nTimeoutLimit times, the backup/restore will fail and
-** the corresponding error code is returned. If any other return code is
-** returned during the copy, the backup/restore is aborted, and error is
-** returned.
-**
-** The third argument passed to this function must be a pointer to a progress
-** function or null. After each set of pages is backed up, the progress function
-** is invoked with two integer parameters: the number of pages left to
-** copy, and the total number of pages in the source file. This information
-** may be used, for example, to update a GUI progress bar.
-**
-** While this function is running, another thread may use the database pDb, or
-** another process may access the underlying database file via a separate
-** connection.
-**
-** If the backup process is successfully completed, SQLITE_OK is returned.
-** Otherwise, if an error occurs, an SQLite error code is returned.
+** Parses one field of a delimited text row starting at pos, and binds it to
+** parameter param, or only skips it if param is past the parameters. Sets *end
+** to the position after the field, *status to 1 if the field runs past limit,
+** or to 2 if it is malformed. Quoted fields are bound from the buffer itself
+** unless they hold escaped quotes, which are copied into *scratch without them.
 */
-JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_backup(
-  JNIEnv *env, jobject this, 
-  jbyteArray zDBName,
-  jbyteArray zFilename,       /* Name of file to back up to */
-  jobject observer,           /* Progress function to invoke */
-  jint sleepTimeMillis,        /* number of milliseconds to sleep if DB is busy */
-  jint nTimeoutLimit,          /* max number of SQLite Busy return codes before failing */
-  jint pagesPerStep            /* number of DB pages to copy per step */
-)
+static int bind_csv_field(
+        sqlite3_stmt *dbstmt, int param, int params, const unsigned char *buf, jint pos,
+        jint limit, int last, unsigned char delimiter, unsigned char quote, int emptyAsNull,
+        unsigned char **scratch, jint *scratchSize, jint *end, int *status)
 {
-#if SQLITE_VERSION_NUMBER >= 3006011
-  int rc;                     /* Function return code */
-  sqlite3* pDb;               /* Database to back up */
+    jint p, start, n, i;
+    int escaped = 0;
+    unsigned char *copy;
+
+    if (quote && pos < limit && buf[pos] == quote)
+    {
+        start = pos + 1;
+        for (p = start;; p++)
+        {
+            if (p >= limit)
+            {
+                *status = last ? 2 : 1;
+                return SQLITE_OK;
+            }
+            if (buf[p] != quote) continue;
+            if (p + 1 >= limit && !last)
+            {
+                // the next window tells whether this quote is escaped
+                *status = 1;
+                return SQLITE_OK;
+            }
+            if (p + 1 < limit && buf[p + 1] == quote)
+            {
+                escaped = 1;
+                p++;
+                continue;
+            }
+            break;
+        }
+        *end = p + 1;
+        if (*end < limit && buf[*end] != delimiter && buf[*end] != '\n' && buf[*end] != '\r')
+        {
+            *status = 2;
+            return SQLITE_OK;
+        }
+        if (param > params) return SQLITE_OK;
+        if (!escaped)
+            return sqlite3_bind_text(dbstmt, param, (const char*) buf + start, p - start, SQLITE_STATIC);
+
+        if (*scratchSize < p - start)
+        {
+            copy = (unsigned char*) realloc(*scratch, p - start);
+            if (!copy) return SQLITE_NOMEM;
+            *scratch = copy;
+            *scratchSize = p - start;
+        }
+        for (i = start, n = 0; i < p; i++)
+        {
+            (*scratch)[n++] = buf[i];
+            if (buf[i] == quote) i++;
+        }
+        return sqlite3_bind_text(dbstmt, param, (const char*) *scratch, n, SQLITE_TRANSIENT);
+    }
+
+    for (p = pos; p < limit && buf[p] != delimiter && buf[p] != '\n' && buf[p] != '\r'; p++);
+    *end = p;
+    if (param > params) return SQLITE_OK;
+    if (p == pos && emptyAsNull) return sqlite3_bind_null(dbstmt, param);
+    return sqlite3_bind_text(dbstmt, param, (const char*) buf + pos, p - pos, SQLITE_STATIC);
+}
+
+/*
+** Inserts the rows of delimited text held by a direct buffer, from offset up to
+** limit, with a statement taking one parameter per field. Missing fields are
+** bound to NULL. Fields are bound straight from the buffer, so that no copy is
+** made before SQLite stores them.
+**
+** Stops after maxRows rows, at the first row a step fails on, or, unless last
+** is set, at a row that does not end before limit, so that it can be parsed
+** again from the next window of the file. result receives the number of rows
+** inserted, the offset of the first row that was not, and 1 if that row is
+** malformed or has more fields than parameters, 0 otherwise. Returns the result
+** code of the failed step, or SQLITE_DONE.
+*/
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_import_1csv(
+        JNIEnv *env, jobject this, jlong stmt, jobject buffer, jint offset, jint limit,
+        jboolean last, jint params, jbyte delimiter, jbyte quote, jboolean emptyAsNull,
+        jint maxRows, jintArray result)
+{
+    sqlite3_stmt *dbstmt;
+    const unsigned char *buf;
+    unsigned char *scratch = 0;
+    jint scratchSize = 0;
+    jint out[3] = {0, offset, 0};
+    jint pos = offset, end;
+    int rc = SQLITE_DONE, field, status;
+
+    if (!stmt)
+    {
+        throwex_stmt_finalized(env);
+        return SQLITE_MISUSE;
+    }
+
+    dbstmt = toref(stmt);
+    buf = (const unsigned char*) (*env)->GetDirectBufferAddress(env, buffer);
+    if (!buf)
+    {
+        throwex_msg(env, "a direct buffer is needed");
+        return SQLITE_MISUSE;
+    }
+
+    while (out[0] < maxRows)
+    {
+        // blank lines hold no row
+        while (pos < limit && (buf[pos] == '\n' || buf[pos] == '\r')) pos++;
+        out[1] = pos;
+        if (pos >= limit) break;
+
+        status = 0;
+        for (field = 1;; field++)
+        {
+            rc = bind_csv_field(dbstmt, field, params, buf, pos, limit, last,
+                    (unsigned char) delimiter, (unsigned char) quote, emptyAsNull,
+                    &scratch, &scratchSize, &end, &status);
+            if (rc != SQLITE_OK || status) break;
+            if (field > params) status = 2;
+            pos = end;
+            if (status || pos >= limit || buf[pos] != delimiter) break;
+            pos++;
+        }
+        if (rc != SQLITE_OK) goto import_out;
+        if (!status && pos >= limit && !last) status = 1;
+        if (status)
+        {
+            out[2] = status == 2;
+            rc = SQLITE_DONE;
+            break;
+        }
+        if (pos < limit && buf[pos] == '\r') pos++;
+        if (pos < limit && buf[pos] == '\n') pos++;
+
+        for (field++; field <= params; field++) sqlite3_bind_null(dbstmt, field);
+        rc = sqlite3_step(dbstmt);
+        sqlite3_reset(dbstmt);
+        if (rc != SQLITE_DONE && rc != SQLITE_ROW) break;
+        rc = SQLITE_DONE;
+        out[0]++;
+        out[1] = pos;
+    }
+
+import_out:
+    // the bindings point into the buffer, which may be unmapped later
+    sqlite3_clear_bindings(dbstmt);
+    free(scratch);
+    (*env)->SetIntArrayRegion(env, result, 0, 3, out);
+    return rc;
+}
+
+// incremental blob I/O
+
+static void throwex_blob_closed(JNIEnv *env)
+{
+    throwex_msg(env, "The blob has been closed");
+}
+
+JNIEXPORT jlong JNICALL Java_org_sqlite_core_NativeDB_blob_1open_1utf8(
+        JNIEnv *env, jobject this, jbyteArray zDbName, jbyteArray zTable, jbyteArray zColumn,
+        jlong rowid, jboolean writable)
+{
+    sqlite3 *db;
+    sqlite3_blob *blob = 0;
+    char *db_bytes, *table_bytes, *column_bytes;
+    int rc;
+
+    db = gethandle(env, this);
+    if (!db)
+    {
+        throwex_db_closed(env);
+        return fromref(0);
+    }
+
+    utf8JavaByteArrayToUtf8Bytes(env, zDbName, &db_bytes, NULL);
+    if (!db_bytes) return fromref(0);
+
+    utf8JavaByteArrayToUtf8Bytes(env, zTable, &table_bytes, NULL);
+    if (!table_bytes)
+    {
+        freeUtf8Bytes(db_bytes);
+        return fromref(0);
+    }
+
+    utf8JavaByteArrayToUtf8Bytes(env, zColumn, &column_bytes, NULL);
+    if (!column_bytes)
+    {
+        freeUtf8Bytes(db_bytes);
+        freeUtf8Bytes(table_bytes);
+        return fromref(0);
+    }
+
+    rc = sqlite3_blob_open(db, db_bytes, table_bytes, column_bytes, rowid, writable ? 1 : 0, &blob);
+
+    freeUtf8Bytes(db_bytes);
+    freeUtf8Bytes(table_bytes);
+    freeUtf8Bytes(column_bytes);
+
+    if (rc != SQLITE_OK)
+    {
+        throwex_errorcode(env, this, rc);
+        return fromref(0);
+    }
+    return fromref(blob);
+}
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_blob_1reopen(
+        JNIEnv *env, jobject this, jlong blob, jlong rowid)
+{
+    int rc;
+
+    if (!blob)
+    {
+        throwex_blob_closed(env);
+        return SQLITE_MISUSE;
+    }
+
+    rc = sqlite3_blob_reopen(toref(blob), rowid);
+    if (rc != SQLITE_OK)
+    {
+        throwex_errorcode(env, this, rc);
+    }
+    return rc;
+}
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_blob_1bytes(
+        JNIEnv *env, jobject this, jlong blob)
+{
+    if (!blob)
+    {
+        throwex_blob_closed(env);
+        return 0;
+    }
+    return sqlite3_blob_bytes(toref(blob));
+}
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_blob_1read(
+        JNIEnv *env, jobject this, jlong blob, jint offset, jbyteArray bytes, jint off, jint len)
+{
+    void *buf;
+    int rc;
+
+    if (!blob)
+    {
+        throwex_blob_closed(env);
+        return SQLITE_MISUSE;
+    }
+
+    // callers read in bounded chunks, so a temporary copy keeps the array out of critical sections
+    buf = sqlite3_malloc(len > 0 ? len : 1);
+    if (!buf)
+    {
+        throwex_outofmemory(env);
+        return SQLITE_NOMEM;
+    }
+
+    rc = sqlite3_blob_read(toref(blob), buf, len, offset);
+    if (rc == SQLITE_OK)
+    {
+        (*env)->SetByteArrayRegion(env, bytes, off, len, (const jbyte*) buf);
+    }
+    sqlite3_free(buf);
+
+    if (rc != SQLITE_OK)
+    {
+        throwex_errorcode(env, this, rc);
+    }
+    return rc;
+}
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_blob_1write(
+        JNIEnv *env, jobject this, jlong blob, jint offset, jbyteArray bytes, jint off, jint len)
+{
+    void *buf;
+    int rc;
+
+    if (!blob)
+    {
+        throwex_blob_closed(env);
+        return SQLITE_MISUSE;
+    }
+
+    buf = sqlite3_malloc(len > 0 ? len : 1);
+    if (!buf)
+    {
+        throwex_outofmemory(env);
+        return SQLITE_NOMEM;
+    }
+
+    (*env)->GetByteArrayRegion(env, bytes, off, len, (jbyte*) buf);
+    if ((*env)->ExceptionCheck(env))
+    {
+        sqlite3_free(buf);
+        return SQLITE_MISUSE;
+    }
+
+    rc = sqlite3_blob_write(toref(blob), buf, len, offset);
+    sqlite3_free(buf);
+
+    if (rc != SQLITE_OK)
+    {
+        throwex_errorcode(env, this, rc);
+    }
+    return rc;
+}
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_blob_1close(
+        JNIEnv *env, jobject this, jlong blob)
+{
+    return sqlite3_blob_close(toref(blob));
+}
+
+// serialize / deserialize
+
+JNIEXPORT jbyteArray JNICALL Java_org_sqlite_core_NativeDB_serialize_1utf8(
+        JNIEnv *env, jobject this, jbyteArray zSchema)
+{
+    sqlite3 *db;
+    char *schema;
+    unsigned char *data;
+    sqlite3_int64 size = 0;
+    int owned = 0;
+    jbyteArray image = 0;
+
+    db = gethandle(env, this);
+    if (!db) { throwex_db_closed(env); return 0; }
+
+    utf8JavaByteArrayToUtf8Bytes(env, zSchema, &schema, NULL);
+    if (!schema) { throwex_outofmemory(env); return 0; }
+
+    // in-memory databases can be read in place, others are copied by SQLite
+    data = sqlite3_serialize(db, schema, &size, SQLITE_SERIALIZE_NOCOPY);
+    if (!data) {
+        data = sqlite3_serialize(db, schema, &size, 0);
+        owned = 1;
+    }
+
+    if (!data) {
+        throwex_msg(env, sqlite3_db_filename(db, schema) ? "Out of memory" : "Unknown database");
+    } else if (size > INT_MAX) {
+        throwex_msg(env, "Database too large to serialize");
+    } else {
+        image = (*env)->NewByteArray(env, (jsize)size);
+        if (image) (*env)->SetByteArrayRegion(env, image, 0, (jsize)size, (jbyte*)data);
+    }
+
+    if (owned) sqlite3_free(data);
+    freeUtf8Bytes(schema);
+    return image;
+}
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_deserialize_1utf8(
+        JNIEnv *env, jobject this, jbyteArray zSchema, jbyteArray jImage)
+{
+    sqlite3 *db;
+    char *schema;
+    unsigned char *data;
+    jsize size;
+    int rc;
+
+    db = gethandle(env, this);
+    if (!db) { throwex_db_closed(env); return SQLITE_MISUSE; }
+
+    size = (*env)->GetArrayLength(env, jImage);
+    data = sqlite3_malloc64(size > 0 ? size : 1);
+    if (!data) { throwex_outofmemory(env); return SQLITE_NOMEM; }
+    (*env)->GetByteArrayRegion(env, jImage, 0, size, (jbyte*)data);
+
+    utf8JavaByteArrayToUtf8Bytes(env, zSchema, &schema, NULL);
+    if (!schema) { sqlite3_free(data); throwex_outofmemory(env); return SQLITE_NOMEM; }
+
+    // SQLite owns the copy, and frees it even if this fails
+    rc = sqlite3_deserialize(db, schema, data, size, size,
+            SQLITE_DESERIALIZE_FREEONCLOSE | SQLITE_DESERIALIZE_RESIZEABLE);
+
+    freeUtf8Bytes(schema);
+    return rc;
+}
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_deserialize_1direct_1utf8(
+        JNIEnv *env, jobject this, jbyteArray zSchema, jobject buffer, jint offset, jint size)
+{
+    sqlite3 *db;
+    char *schema;
+    unsigned char *data;
+    int rc;
+
+    db = gethandle(env, this);
+    if (!db) { throwex_db_closed(env); return SQLITE_MISUSE; }
+
+    data = (*env)->GetDirectBufferAddress(env, buffer);
+    if (!data) { throwex_msg(env, "Not a direct buffer"); return SQLITE_MISUSE; }
+
+    utf8JavaByteArrayToUtf8Bytes(env, zSchema, &schema, NULL);
+    if (!schema) { throwex_outofmemory(env); return SQLITE_NOMEM; }
+
+    // the buffer is used in place and never written to
+    rc = sqlite3_deserialize(db, schema, data + offset, size, size, SQLITE_DESERIALIZE_READONLY);
+
+    freeUtf8Bytes(schema);
+    return rc;
+}
+
+// backup function
+
+void reportProgress(JNIEnv* env, jobject func, int remaining, int pageCount) {
+    if(!func)
+        return;
+
+    (*env)->CallVoidMethod(env, func, pobserver_mth_progress, remaining, pageCount);
+}
+
+void updateProgress(JNIEnv *env, sqlite3_backup *pBackup, jobject progress) {
+    if (!progress)
+        return;
+    int remaining = sqlite3_backup_remaining(pBackup);
+    int pagecount = sqlite3_backup_pagecount(pBackup);
+    (*env)->CallVoidMethod(env, progress, pobserver_mth_progress, remaining, pagecount);
+}
+
+void copyLoop(JNIEnv *env, sqlite3_backup *pBackup, jobject progress,
+              int pagesPerStep, int nTimeoutLimit, int sleepTimeMillis) {
+    int rc;
+    int nTimeout = 0;
+
+    do {
+          rc = sqlite3_backup_step(pBackup, pagesPerStep);
+
+          // if the step completed successfully, update progress
+          if (rc == SQLITE_OK || rc == SQLITE_DONE) {
+              updateProgress(env, pBackup, progress);
+          }
+
+          if (rc == SQLITE_BUSY || rc == SQLITE_LOCKED) {
+              if (nTimeout++ >= nTimeoutLimit)
+                 break;
+              sqlite3_sleep(sleepTimeMillis);
+          }
+    } while (rc == SQLITE_OK || rc == SQLITE_BUSY || rc == SQLITE_LOCKED);
+}
+
+/*
+** Perform an online backup of database pDb to the database file named
+** by zFilename. This function copies pagesPerStep database pages from pDb to
+** zFilename per step. If the backup step returns SQLITE_BUSY or SQLITE_LOCKED,
+** the function waits nTimeoutLimit milliseconds before trying again. Should
+** this occur more than nTimeoutLimit times, the backup/restore will fail and
+** the corresponding error code is returned. If any other return code is
+** returned during the copy, the backup/restore is aborted, and error is
+** returned.
+**
+** The third argument passed to this function must be a pointer to a progress
+** function or null. After each set of pages is backed up, the progress function
+** is invoked with two integer parameters: the number of pages left to
+** copy, and the total number of pages in the source file. This information
+** may be used, for example, to update a GUI progress bar.
+**
+** While this function is running, another thread may use the database pDb, or
+** another process may access the underlying database file via a separate
+** connection.
+**
+** If the backup process is successfully completed, SQLITE_OK is returned.
+** Otherwise, if an error occurs, an SQLite error code is returned.
+*/
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_backup(
+  JNIEnv *env, jobject this, 
+  jbyteArray zDBName,
+  jbyteArray zFilename,       /* Name of file to back up to */
+  jobject observer,           /* Progress function to invoke */
+  jint sleepTimeMillis,        /* number of milliseconds to sleep if DB is busy */
+  jint nTimeoutLimit,          /* max number of SQLite Busy return codes before failing */
+  jint pagesPerStep            /* number of DB pages to copy per step */
+)
+{
+#if SQLITE_VERSION_NUMBER >= 3006011
+  int rc;                     /* Function return code */
+  sqlite3* pDb;               /* Database to back up */
   sqlite3* pFile;             /* Database connection opened on zFilename */
   sqlite3_backup *pBackup;    /* Backup handle used to copy data */
   char *dFileName;
@@ -1634,6 +3364,119 @@ JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_backup(
 #endif
 } 
 
+/*
+** Stepwise backup of a database to a scratch file, driven from Java one step
+** at a time so that the connection is not held for the whole copy. Java reads
+** the file out once the copy is complete.
+*/
+struct BackupContext {
+  sqlite3 *dest;              /* Scratch database copied to */
+  sqlite3_backup *backup;     /* Backup handle, 0 once finished */
+  int page_size;              /* Page size of the source database */
+};
+
+JNIEXPORT jlong JNICALL Java_org_sqlite_core_NativeDB_backup_1init(
+  JNIEnv *env, jobject this, jbyteArray zDBName, jbyteArray zFilename)
+{
+  struct BackupContext *ctx;
+  sqlite3_stmt *stmt = 0;
+  sqlite3 *pDb;
+  char *dDBName;
+  char *dFileName;
+  char *sql;
+  int rc;
+
+  pDb = gethandle(env, this);
+  if (!pDb) { throwex_db_closed(env); return 0; }
+
+  utf8JavaByteArrayToUtf8Bytes(env, zDBName, &dDBName, NULL);
+  if (!dDBName) { throwex_outofmemory(env); return 0; }
+
+  utf8JavaByteArrayToUtf8Bytes(env, zFilename, &dFileName, NULL);
+  if (!dFileName) { freeUtf8Bytes(dDBName); throwex_outofmemory(env); return 0; }
+
+  ctx = (struct BackupContext*) calloc(1, sizeof(struct BackupContext));
+  if (!ctx) {
+    freeUtf8Bytes(dDBName);
+    freeUtf8Bytes(dFileName);
+    throwex_outofmemory(env);
+    return 0;
+  }
+
+  /* the scratch copy is thrown away on failure, it needs no journal */
+  rc = sqlite3_open_v2(dFileName, &ctx->dest,
+          SQLITE_OPEN_READWRITE | SQLITE_OPEN_CREATE, NULL);
+  freeUtf8Bytes(dFileName);
+  if (rc == SQLITE_OK) {
+    sqlite3_exec(ctx->dest, "pragma journal_mode=off; pragma synchronous=off", 0, 0, 0);
+    ctx->backup = sqlite3_backup_init(ctx->dest, "main", pDb, dDBName);
+  }
+  if (!ctx->backup) {
+    throwex_msg(env, ctx->dest ? sqlite3_errmsg(ctx->dest) : "Out of memory");
+    sqlite3_close(ctx->dest);
+    free(ctx);
+    freeUtf8Bytes(dDBName);
+    return 0;
+  }
+
+  sql = sqlite3_mprintf("pragma \"%w\".page_size", dDBName);
+  if (sql && sqlite3_prepare_v2(pDb, sql, -1, &stmt, 0) == SQLITE_OK
+          && sqlite3_step(stmt) == SQLITE_ROW) {
+    ctx->page_size = sqlite3_column_int(stmt, 0);
+  }
+  sqlite3_finalize(stmt);
+  sqlite3_free(sql);
+  freeUtf8Bytes(dDBName);
+
+  return fromref(ctx);
+}
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_backup_1step(
+  JNIEnv *env, jobject this, jlong pBackup, jint nPage)
+{
+  struct BackupContext *ctx = toref(pBackup);
+  return sqlite3_backup_step(ctx->backup, nPage);
+}
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_backup_1remaining(
+  JNIEnv *env, jobject this, jlong pBackup)
+{
+  struct BackupContext *ctx = toref(pBackup);
+  return sqlite3_backup_remaining(ctx->backup);
+}
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_backup_1pagecount(
+  JNIEnv *env, jobject this, jlong pBackup)
+{
+  struct BackupContext *ctx = toref(pBackup);
+  return sqlite3_backup_pagecount(ctx->backup);
+}
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_backup_1pagesize(
+  JNIEnv *env, jobject this, jlong pBackup)
+{
+  struct BackupContext *ctx = toref(pBackup);
+  return ctx->page_size;
+}
+
+JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_backup_1finish(
+  JNIEnv *env, jobject this, jlong pBackup)
+{
+  struct BackupContext *ctx = toref(pBackup);
+  int rc = sqlite3_backup_finish(ctx->backup);
+  ctx->backup = 0;
+  return rc;
+}
+
+JNIEXPORT void JNICALL Java_org_sqlite_core_NativeDB_backup_1close(
+  JNIEnv *env, jobject this, jlong pBackup)
+{
+  struct BackupContext *ctx = toref(pBackup);
+  if (ctx->backup) sqlite3_backup_finish(ctx->backup);
+  sqlite3_close(ctx->dest);
+  free(ctx);
+}
+
 JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_restore(
   JNIEnv *env, jobject this, 
   jbyteArray zDBName,
@@ -1708,28 +3551,194 @@ JNIEXPORT jint JNICALL Java_org_sqlite_core_NativeDB_restore(
 
 // Progress handler
 
+/* Number of VM instructions between two checks of a query deadline. Reading the
+ * monotonic clock is cheap compared to that many instructions. */
+#define DEADLINE_VM_CALLS 1000
+
+/* Bounds the statements run during a call, such as the execution of a statement
+ * with a query timeout. A deadline applies to the statements of the Java thread
+ * that set it, so that it does not interrupt those other threads run on the
+ * connection meanwhile. The thread is compared with the one running a statement
+ * rather than kept in native thread-local storage, as a virtual thread may move
+ * to another carrier thread. Once restricted to a statement, a deadline applies
+ * to that statement alone, whichever thread steps it.
+ *
+ * Deadlines nest: a statement is interrupted once any deadline that applies to
+ * it passed. They are kept on the connection, and only linked or unlinked while
+ * holding its mutex, which the progress handler runs under. */
+struct Deadline {
+    sqlite3_int64 at;       // in monotonic nanoseconds, 0 if there is none
+    volatile int cancelled; // set by expire_deadline, from any thread
+    int expired;            // whether a statement was interrupted by the deadline
+    jobject thread;         // the Java thread it applies to, 0 once restricted
+    sqlite3_stmt *stmt;     // the statement it is restricted to, if any
+    struct Deadline *next;
+};
+
+/* Shared by the user progress handler and the deadlines, as a connection has a single
+ * progress handler. Either may be unset, the context is freed once both are. */
 struct ProgressHandlerContext {
     JavaVM *vm;
     jobject phandler;
+    int vmCalls;            // period asked for the user handler
+    int period;             // period the handler is installed with
+    int pending;            // instructions run since the user handler was last called
+    struct Deadline *deadlines; // set on the connection and not cleared yet
+    sqlite3_stmt *stepping; // statement being stepped or fetched, if deadlines are set
 };
 
+static sqlite3_int64 monotonic_nanos()
+{
+#ifdef _WIN32
+    static LARGE_INTEGER frequency;
+    LARGE_INTEGER now;
+    if (!frequency.QuadPart) QueryPerformanceFrequency(&frequency);
+    QueryPerformanceCounter(&now);
+    return (now.QuadPart / frequency.QuadPart) * 1000000000LL
+        + (now.QuadPart % frequency.QuadPart) * 1000000000LL / frequency.QuadPart;
+#else
+    struct timespec now;
+    clock_gettime(CLOCK_MONOTONIC, &now);
+    return (sqlite3_int64)now.tv_sec * 1000000000LL + now.tv_nsec;
+#endif
+}
+
 static void free_progress_handler(JNIEnv *env, void *toFree) {
     struct ProgressHandlerContext* progressHandlerContext = (struct ProgressHandlerContext*) toFree;
-    (*env)->DeleteGlobalRef(env, progressHandlerContext->phandler);
+    if (progressHandlerContext->phandler) {
+        (*env)->DeleteGlobalRef(env, progressHandlerContext->phandler);
+    }
     free(toFree);
 }
 
+/* Whether the deadline applies to the statement running. The current thread is
+ * only looked up for a deadline that passed, and at most once per check. */
+static int deadline_applies(JNIEnv *env, struct ProgressHandlerContext *progressHandlerContext,
+                            struct Deadline *deadline, jobject *current)
+{
+    if (deadline->stmt) return deadline->stmt == progressHandlerContext->stepping;
+    if (!*current) {
+        *current = (*env)->CallStaticObjectMethod(env, threadclass, thread_mth_currentThread);
+        if (!*current) return 0;
+    }
+    return (*env)->IsSameObject(env, deadline->thread, *current);
+}
+
+/* Whether a deadline of the running statement has passed or was expired, in which case
+ * it is marked expired. */
+static int deadline_passed(struct ProgressHandlerContext *progressHandlerContext)
+{
+    JNIEnv *env = 0;
+    struct Deadline *deadline;
+    jobject current = 0;
+    sqlite3_int64 now = 0;
+    int passed = 0;
+
+    for (deadline = progressHandlerContext->deadlines; deadline; deadline = deadline->next) {
+        if (!deadline->cancelled) {
+            if (!deadline->at) continue;
+            if (!now) now = monotonic_nanos();
+            if (now - deadline->at < 0) continue;
+        }
+        if (!env) {
+            (*progressHandlerContext->vm)->AttachCurrentThread(progressHandlerContext->vm, (void **)&env, 0);
+        }
+        if (deadline_applies(env, progressHandlerContext, deadline, &current)) {
+            deadline->expired = 1;
+            passed = 1;
+            break;
+        }
+    }
+    if (current) (*env)->DeleteLocalRef(env, current);
+    return passed;
+}
+
 static int progress_handler_function(void *ctx) {
     JNIEnv *env = 0;
     struct ProgressHandlerContext* progressHandlerContext = (struct ProgressHandlerContext*) ctx;
+
+    if (progressHandlerContext->deadlines) {
+        if (deadline_passed(progressHandlerContext)) return 1;
+        if (!progressHandlerContext->phandler || progressHandlerContext->vmCalls < 1) return 0;
+
+        // the handler may run at the pace of the deadline, call the user one at its own
+        progressHandlerContext->pending += progressHandlerContext->period;
+        if (progressHandlerContext->pending < progressHandlerContext->vmCalls) return 0;
+        progressHandlerContext->pending = 0;
+    }
+
     (*progressHandlerContext->vm)->AttachCurrentThread(progressHandlerContext->vm, (void **)&env, 0);
     jint rv = (*env)->CallIntMethod(env, progressHandlerContext->phandler, phandle_mth_progress);
     return rv;
 }
 
+static struct ProgressHandlerContext * get_progress_handler(JNIEnv *env, jobject nativeDB)
+{
+    return (struct ProgressHandlerContext*) toref((*env)->GetLongField(env, nativeDB, db_progressHandler));
+}
+
+static sqlite3_stmt *begin_stepping(JNIEnv *env, jobject nativeDB, sqlite3_stmt *stmt)
+{
+    struct ProgressHandlerContext* progressHandlerContext = get_progress_handler(env, nativeDB);
+    sqlite3_stmt *previous;
+
+    if (!progressHandlerContext) return 0;
+    previous = progressHandlerContext->stepping;
+    progressHandlerContext->stepping = stmt;
+    return previous;
+}
+
+static void end_stepping(JNIEnv *env, jobject nativeDB, sqlite3_stmt *previous)
+{
+    // the context may have been freed or replaced by a function the statement called
+    struct ProgressHandlerContext* progressHandlerContext = get_progress_handler(env, nativeDB);
+
+    if (progressHandlerContext) progressHandlerContext->stepping = previous;
+}
+
+/* Installs the progress handler needed by the context, or none if it has neither a
+ * user handler nor deadlines, in which case the context is freed. */
+static void install_progress_handler(JNIEnv *env, jobject nativeDB, sqlite3 *db,
+                                     struct ProgressHandlerContext* progressHandlerContext)
+{
+    int vmCalls;
+
+    if (!progressHandlerContext->phandler && !progressHandlerContext->deadlines) {
+        sqlite3_progress_handler(db, 0, NULL, NULL);
+        set_new_handler(env, nativeDB, db_progressHandler, NULL, &free_progress_handler);
+        return;
+    }
+
+    vmCalls = progressHandlerContext->phandler ? progressHandlerContext->vmCalls : 0;
+    if (progressHandlerContext->deadlines && (vmCalls < 1 || vmCalls > DEADLINE_VM_CALLS)) {
+        vmCalls = DEADLINE_VM_CALLS;
+    }
+    progressHandlerContext->period = vmCalls;
+    progressHandlerContext->pending = 0;
+    sqlite3_progress_handler(db, vmCalls, &progress_handler_function, progressHandlerContext);
+}
+
+/* Returns the context of the connection, creating it if needed. */
+static struct ProgressHandlerContext * ensure_progress_handler(JNIEnv *env, jobject nativeDB)
+{
+    struct ProgressHandlerContext* progressHandlerContext = get_progress_handler(env, nativeDB);
+
+    if (!progressHandlerContext) {
+        progressHandlerContext = (struct ProgressHandlerContext*) calloc(1, sizeof(struct ProgressHandlerContext));
+        if (!progressHandlerContext) {
+            throwex_outofmemory(env);
+            return NULL;
+        }
+        (*env)->GetJavaVM(env, &progressHandlerContext->vm);
+        set_new_handler(env, nativeDB, db_progressHandler, progressHandlerContext, &free_progress_handler);
+    }
+    return progressHandlerContext;
+}
+
 static void change_progress_handler(JNIEnv *env, jobject nativeDB, jobject progressHandler, jint vmCalls)
 {
     sqlite3 *db;
+    struct ProgressHandlerContext* progressHandlerContext;
 
     db = gethandle(env, nativeDB);
     if (!db){
@@ -1737,22 +3746,34 @@ static void change_progress_handler(JNIEnv *env, jobject nativeDB, jobject progr
         return;
     }
 
-    struct ProgressHandlerContext* progressHandlerContext = NULL;
+    progressHandlerContext = progressHandler
+        ? ensure_progress_handler(env, nativeDB)
+        : get_progress_handler(env, nativeDB);
+    if (!progressHandlerContext) {
+        sqlite3_progress_handler(db, 0, NULL, NULL);
+        return;
+    }
 
+    // statements stepped by other threads read the context under the mutex
+    sqlite3_mutex_enter(sqlite3_db_mutex(db));
+    if (progressHandlerContext->phandler) {
+        (*env)->DeleteGlobalRef(env, progressHandlerContext->phandler);
+        progressHandlerContext->phandler = 0;
+    }
     if (progressHandler) {
-        progressHandlerContext = (struct ProgressHandlerContext*) malloc(sizeof(struct ProgressHandlerContext));
-        (*env)->GetJavaVM(env, &progressHandlerContext->vm);
-
         progressHandlerContext->phandler = (*env)->NewGlobalRef(env, progressHandler);
+        progressHandlerContext->vmCalls = vmCalls;
     }
+    install_progress_handler(env, nativeDB, db, progressHandlerContext);
+    sqlite3_mutex_leave(sqlite3_db_mutex(db));
+}
 
-    if (progressHandlerContext) {
-        sqlite3_progress_handler(gethandle(env, nativeDB), vmCalls, &progress_handler_function, progressHandlerContext);
-    } else {
-        sqlite3_progress_handler(gethandle(env, nativeDB), 0, NULL, NULL);
-    }
-
-    set_new_handler(env, nativeDB, db_progressHandler, progressHandlerContext, &free_progress_handler);
+/* Drops the user handler and unlinks the deadlines, when the connection closes. Each
+ * deadline is still freed by clear_deadline. */
+static void clear_progress_handler(JNIEnv *env, jobject nativeDB, sqlite3 *db)
+{
+    sqlite3_progress_handler(db, 0, NULL, NULL);
+    set_new_handler(env, nativeDB, db_progressHandler, NULL, &free_progress_handler);
 }
 
 JNIEXPORT void JNICALL Java_org_sqlite_core_NativeDB_register_1progress_1handler(
@@ -1773,18 +3794,235 @@ JNIEXPORT void JNICALL Java_org_sqlite_core_NativeDB_clear_1progress_1handler(
     change_progress_handler(env, nativeDB, NULL, 0);
 }
 
+JNIEXPORT jlong JNICALL Java_org_sqlite_core_NativeDB_set_1deadline(
+  JNIEnv *env,
+  jobject nativeDB,
+  jlong timeoutNanos
+)
+{
+    sqlite3 *db;
+    struct ProgressHandlerContext* progressHandlerContext;
+    struct Deadline *deadline;
+    jobject thread;
+
+    db = gethandle(env, nativeDB);
+    if (!db){
+        throwex_db_closed(env);
+        return 0;
+    }
+
+    deadline = (struct Deadline*) calloc(1, sizeof(struct Deadline));
+    if (!deadline) {
+        throwex_outofmemory(env);
+        return 0;
+    }
+    thread = (*env)->CallStaticObjectMethod(env, threadclass, thread_mth_currentThread);
+    if (thread) {
+        deadline->thread = (*env)->NewGlobalRef(env, thread);
+        (*env)->DeleteLocalRef(env, thread);
+    }
+    if (!deadline->thread) {
+        free(deadline);
+        if (!(*env)->ExceptionCheck(env)) throwex_outofmemory(env);
+        return 0;
+    }
+    progressHandlerContext = ensure_progress_handler(env, nativeDB);
+    if (!progressHandlerContext) {
+        (*env)->DeleteGlobalRef(env, deadline->thread);
+        free(deadline);
+        return 0;
+    }
+
+    if (timeoutNanos > 0) deadline->at = monotonic_nanos() + timeoutNanos;
+    sqlite3_mutex_enter(sqlite3_db_mutex(db));
+    deadline->next = progressHandlerContext->deadlines;
+    progressHandlerContext->deadlines = deadline;
+    install_progress_handler(env, nativeDB, db, progressHandlerContext);
+    sqlite3_mutex_leave(sqlite3_db_mutex(db));
+    return fromref(deadline);
+}
+
+JNIEXPORT void JNICALL Java_org_sqlite_core_NativeDB_restrict_1deadline(
+  JNIEnv *env,
+  jobject nativeDB,
+  jlong deadlinePtr,
+  jlong stmt
+)
+{
+    sqlite3 *db;
+    struct Deadline *deadline = (struct Deadline*) toref(deadlinePtr);
+    jobject thread;
+
+    if (!deadline || !stmt) return;
+
+    // the deadline is only read under the mutex, while it is linked
+    db = gethandle(env, nativeDB);
+    thread = deadline->thread;
+    if (db) sqlite3_mutex_enter(sqlite3_db_mutex(db));
+    deadline->stmt = toref(stmt);
+    deadline->thread = 0;
+    if (db) sqlite3_mutex_leave(sqlite3_db_mutex(db));
+    if (thread) (*env)->DeleteGlobalRef(env, thread);
+}
+
+JNIEXPORT void JNICALL Java_org_sqlite_core_NativeDB_expire_1deadline(
+  JNIEnv *env,
+  jobject nativeDB,
+  jlong deadlinePtr
+)
+{
+    struct Deadline *deadline = (struct Deadline*) toref(deadlinePtr);
+
+    // the statement running, or the next one, stops at the next check of the deadline
+    if (deadline) deadline->cancelled = 1;
+}
+
+JNIEXPORT jboolean JNICALL Java_org_sqlite_core_NativeDB_clear_1deadline(
+  JNIEnv *env,
+  jobject nativeDB,
+  jlong deadlinePtr
+)
+{
+    sqlite3 *db;
+    struct ProgressHandlerContext* progressHandlerContext;
+    struct Deadline *deadline = (struct Deadline*) toref(deadlinePtr);
+    struct Deadline **link;
+    jboolean expired;
+
+    if (!deadline) return JNI_FALSE;
+
+    // the deadline is not linked anymore if the connection was closed in the meantime
+    db = gethandle(env, nativeDB);
+    progressHandlerContext = get_progress_handler(env, nativeDB);
+    if (db && progressHandlerContext) {
+        sqlite3_mutex_enter(sqlite3_db_mutex(db));
+        // usually the last deadline set
+        for (link = &progressHandlerContext->deadlines; *link && *link != deadline; link = &(*link)->next);
+        if (*link) {
+            *link = deadline->next;
+            install_progress_handler(env, nativeDB, db, progressHandlerContext);
+        }
+        sqlite3_mutex_leave(sqlite3_db_mutex(db));
+    }
+
+    expired = deadline->expired ? JNI_TRUE : JNI_FALSE;
+    if (deadline->thread) (*env)->DeleteGlobalRef(env, deadline->thread);
+    free(deadline);
+    return expired;
+}
+
 // Update hook
 
 struct UpdateHandlerContext {
     JavaVM *vm;
     jobject handler;
+
+    // Buffered mode, when capacity > 0: each change is kept as its type and the ids of its
+    // database and table names, followed by its rowid, and handed to Java in bulk.
+    int capacity;
+    int count;
+    jint *entries;
+    jlong *rows;
+
+    // Database and table names seen so far; only the ones not sent yet are passed to Java.
+    char **names;
+    int name_count;
+    int name_capacity;
+    int names_sent;
+    int last_name;
 };
 
+static int update_name_id(struct UpdateHandlerContext *ctx, char const *name) {
+    int i;
+    if (ctx->last_name >= 0 && strcmp(ctx->names[ctx->last_name], name) == 0) {
+        return ctx->last_name;
+    }
+    for (i = 0; i < ctx->name_count; i++) {
+        if (strcmp(ctx->names[i], name) == 0) {
+            return ctx->last_name = i;
+        }
+    }
+    if (ctx->name_count == ctx->name_capacity) {
+        int capacity = ctx->name_capacity ? ctx->name_capacity * 2 : 8;
+        char **names = (char **) realloc(ctx->names, capacity * sizeof(char *));
+        if (!names) return -1;
+        ctx->names = names;
+        ctx->name_capacity = capacity;
+    }
+    size_t size = strlen(name) + 1;
+    char *copy = (char *) malloc(size);
+    if (!copy) return -1;
+    memcpy(copy, name, size);
+    ctx->names[ctx->name_count] = copy;
+    return ctx->last_name = ctx->name_count++;
+}
+
+static void flush_updates(JNIEnv *env, struct UpdateHandlerContext *ctx) {
+    // a listener threw, no Java code may run until the exception is thrown by the statement
+    if (!ctx || ctx->count == 0 || (*env)->ExceptionCheck(env)) return;
+
+    int i, count = ctx->count;
+    jintArray entries = (*env)->NewIntArray(env, count * 3);
+    jlongArray rows = (*env)->NewLongArray(env, count);
+    jobjectArray names = 0;
+    if (ctx->names_sent < ctx->name_count) {
+        jclass stringclass = (*env)->FindClass(env, "java/lang/String");
+        names = stringclass ? (*env)->NewObjectArray(env, ctx->name_count - ctx->names_sent, stringclass, 0) : 0;
+        for (i = ctx->names_sent; names && i < ctx->name_count; i++) {
+            jstring name = (*env)->NewStringUTF(env, ctx->names[i]);
+            (*env)->SetObjectArrayElement(env, names, i - ctx->names_sent, name);
+            (*env)->DeleteLocalRef(env, name);
+        }
+        if (stringclass) (*env)->DeleteLocalRef(env, stringclass);
+    }
+    ctx->count = 0;
+
+    if (!entries || !rows || (ctx->names_sent < ctx->name_count && !names)) {
+        // out of memory, an OutOfMemoryError is pending
+        return;
+    }
+    ctx->names_sent = ctx->name_count;
+
+    (*env)->SetIntArrayRegion(env, entries, 0, count * 3, ctx->entries);
+    (*env)->SetLongArrayRegion(env, rows, 0, count, ctx->rows);
+    (*env)->CallVoidMethod(env, ctx->handler, db_mth_onUpdates, count, entries, rows, names);
+
+    (*env)->DeleteLocalRef(env, entries);
+    (*env)->DeleteLocalRef(env, rows);
+    if (names) (*env)->DeleteLocalRef(env, names);
+}
+
+/* Hands the buffered changes of the connection, if any, to Java. */
+static void flush_update_listener(JNIEnv *env, jobject nativeDB) {
+    flush_updates(env, (struct UpdateHandlerContext*) toref((*env)->GetLongField(env, nativeDB, db_updateListener)));
+}
 
 void update_hook(void *context, int type, char const *database, char const *table, sqlite3_int64 row) {
     JNIEnv *env = 0;
     struct UpdateHandlerContext* update_handler_context = (struct UpdateHandlerContext*) context;
     (*update_handler_context->vm)->AttachCurrentThread(update_handler_context->vm, (void **)&env, 0);
+    // a listener threw, the following changes of the statement are not delivered
+    if ((*env)->ExceptionCheck(env)) return;
+
+    if (update_handler_context->capacity > 0) {
+        if (update_handler_context->count == update_handler_context->capacity) {
+            flush_updates(env, update_handler_context);
+            if ((*env)->ExceptionCheck(env)) return;
+        }
+        int databaseId = update_name_id(update_handler_context, database);
+        int tableId = update_name_id(update_handler_context, table);
+        if (databaseId >= 0 && tableId >= 0) {
+            jint *entry = update_handler_context->entries + update_handler_context->count * 3;
+            entry[0] = type;
+            entry[1] = databaseId;
+            entry[2] = tableId;
+            update_handler_context->rows[update_handler_context->count++] = row;
+            return;
+        }
+        // no memory left for the name, deliver the change on its own
+        flush_updates(env, update_handler_context);
+        if ((*env)->ExceptionCheck(env)) return;
+    }
 
     jstring databaseString = (*env)->NewStringUTF(env, database);
     jstring tableString    = (*env)->NewStringUTF(env, table);
@@ -1797,20 +4035,44 @@ void update_hook(void *context, int type, char const *database, char const *tabl
 
 static void free_update_handler(JNIEnv *env, void *ctx) {
     struct UpdateHandlerContext* update_handler_context = (struct UpdateHandlerContext*) ctx;
+    int i;
     (*env)->DeleteGlobalRef(env, update_handler_context->handler);
+    for (i = 0; i < update_handler_context->name_count; i++) {
+        free(update_handler_context->names[i]);
+    }
+    free(update_handler_context->names);
+    free(update_handler_context->entries);
+    free(update_handler_context->rows);
     free(ctx);
 }
 
 static void clear_update_listener(JNIEnv *env, jobject nativeDB){
+    flush_update_listener(env, nativeDB);
     sqlite3_update_hook(gethandle(env, nativeDB), NULL, NULL);
     set_new_handler(env, nativeDB, db_updateListener, NULL, &free_update_handler);
 }
 
-JNIEXPORT void JNICALL Java_org_sqlite_core_NativeDB_set_1update_1listener(JNIEnv *env, jobject nativeDB, jboolean enabled) {
+JNIEXPORT void JNICALL Java_org_sqlite_core_NativeDB_set_1update_1listener(JNIEnv *env, jobject nativeDB, jboolean enabled, jint bufferSize) {
     if (enabled) {
-        struct UpdateHandlerContext* update_handler_context = (struct UpdateHandlerContext*) malloc(sizeof(struct UpdateHandlerContext));
+        struct UpdateHandlerContext* update_handler_context = (struct UpdateHandlerContext*) calloc(1, sizeof(struct UpdateHandlerContext));
+        if (!update_handler_context) { throwex_outofmemory(env); return; }
+        update_handler_context->last_name = -1;
+        if (bufferSize > 0) {
+            update_handler_context->entries = (jint *) malloc(bufferSize * 3 * sizeof(jint));
+            update_handler_context->rows = (jlong *) malloc(bufferSize * sizeof(jlong));
+            if (!update_handler_context->entries || !update_handler_context->rows) {
+                free(update_handler_context->entries);
+                free(update_handler_context->rows);
+                free(update_handler_context);
+                throwex_outofmemory(env);
+                return;
+            }
+            update_handler_context->capacity = bufferSize;
+        }
         update_handler_context->handler = (*env)->NewGlobalRef(env, nativeDB);
         (*env)->GetJavaVM(env, &update_handler_context->vm);
+        // changes buffered so far are delivered before switching modes
+        flush_update_listener(env, nativeDB);
         sqlite3_update_hook(gethandle(env, nativeDB), &update_hook, update_handler_context);
         set_new_handler(env, nativeDB, db_updateListener, update_handler_context, &free_update_handler);
     } else {
@@ -1829,6 +4091,8 @@ int commit_hook(void *context) {
     struct CommitHandlerContext *commit_handler_context = (struct CommitHandlerContext*) context;
     JNIEnv *env = 0;
     (*commit_handler_context->vm)->AttachCurrentThread(commit_handler_context->vm, (void **)&env, 0);
+    flush_update_listener(env, commit_handler_context->handler);
+    if ((*env)->ExceptionCheck(env)) return 0;
     (*env)->CallVoidMethod(env, commit_handler_context->handler, db_mth_onCommit, 1);
     return 0;
 }
@@ -1837,6 +4101,8 @@ void rollback_hook(void *context) {
     struct CommitHandlerContext *commit_handler_context = (struct CommitHandlerContext*) context;
     JNIEnv *env = 0;
     (*commit_handler_context->vm)->AttachCurrentThread(commit_handler_context->vm, (void **)&env, 0);
+    flush_update_listener(env, commit_handler_context->handler);
+    if ((*env)->ExceptionCheck(env)) return;
     (*env)->CallVoidMethod(env, commit_handler_context->handler, db_mth_onCommit, 0);
 }
 
@@ -1872,7 +4138,7 @@ JNIEXPORT void JNICALL Java_org_sqlite_core_NativeDB__1close(
     sqlite3 *db = gethandle(env, nativeDB);
     if (db)
     {
-        change_progress_handler(env, nativeDB, NULL, 0);
+        clear_progress_handler(env, nativeDB, db);
         change_busy_handler(env, nativeDB, NULL);
         clear_commit_listener(env, nativeDB, db);
         clear_update_listener(env, nativeDB);
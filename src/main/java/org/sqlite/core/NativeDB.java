@@ -16,10 +16,19 @@
 
 package org.sqlite.core;
 
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 import org.sqlite.BusyHandler;
 import org.sqlite.Collation;
 import org.sqlite.Function;
@@ -93,6 +102,12 @@ public final class NativeDB extends DB {
         return _exec_utf8(stringToUtf8ByteArray(sql));
     }
 
+    /** @see org.sqlite.core.DB#_exec(byte[]) */
+    @Override
+    public synchronized int _exec(byte[] sqlUtf8) throws SQLException {
+        return _exec_utf8(sqlUtf8);
+    }
+
     synchronized native int _exec_utf8(byte[] sqlUtf8) throws SQLException;
 
     /** @see org.sqlite.core.DB#shared_cache(boolean) */
@@ -128,6 +143,17 @@ public final class NativeDB extends DB {
 
     synchronized native long prepare_utf8(byte[] sqlUtf8) throws SQLException;
 
+    /** @see org.sqlite.core.DB#prepareSingle(java.lang.String) */
+    @Override
+    protected synchronized SafeStmtPtr prepareSingle(String sql) throws SQLException {
+        DriverManager.println(
+                "DriverManager [" + Thread.currentThread().getName() + "] [SQLite PREP] " + sql);
+        long stmt = prepare_single_utf8(stringToUtf8ByteArray(sql));
+        return stmt == 0 ? null : new SafeStmtPtr(this, stmt);
+    }
+
+    synchronized native long prepare_single_utf8(byte[] sqlUtf8) throws SQLException;
+
     /** @see org.sqlite.core.DB#errmsg() */
     @Override
     synchronized String errmsg() {
@@ -136,6 +162,14 @@ public final class NativeDB extends DB {
 
     synchronized native ByteBuffer errmsg_utf8();
 
+    /**
+     * Called from native code when a call on a statement fails, with the message of its error read
+     * before the call released the mutex of the connection.
+     */
+    void onStatementError(int errorCode, ByteBuffer messageUtf8) {
+        statementError(errorCode, utf8ByteBufferToString(messageUtf8));
+    }
+
     /** @see org.sqlite.core.DB#libversion() */
     @Override
     public synchronized String libversion() {
@@ -152,173 +186,226 @@ public final class NativeDB extends DB {
     @Override
     public synchronized native long total_changes();
 
+    /** @see org.sqlite.core.DB#get_autocommit() */
+    @Override
+    public synchronized native boolean get_autocommit();
+
     /** @see org.sqlite.core.DB#finalize(long) */
     @Override
     protected synchronized native int finalize(long stmt);
 
+    // Calls that only touch a single statement or function context are not synchronized on the
+    // connection here: callers already hold the lock returned by DB#statementLock, or run inside a
+    // callback of such a call.
+
     /** @see org.sqlite.core.DB#step(long) */
     @Override
-    public synchronized native int step(long stmt);
+    public native int step(long stmt);
 
     /** @see org.sqlite.core.DB#reset(long) */
     @Override
-    public synchronized native int reset(long stmt);
+    public native int reset(long stmt);
 
     /** @see org.sqlite.core.DB#clear_bindings(long) */
     @Override
-    public synchronized native int clear_bindings(long stmt);
+    public native int clear_bindings(long stmt);
 
     /** @see org.sqlite.core.DB#bind_parameter_count(long) */
     @Override
-    synchronized native int bind_parameter_count(long stmt);
+    native int bind_parameter_count(long stmt);
 
     /** @see org.sqlite.core.DB#column_count(long) */
     @Override
-    public synchronized native int column_count(long stmt);
+    public native int column_count(long stmt);
 
     /** @see org.sqlite.core.DB#column_type(long, int) */
     @Override
-    public synchronized native int column_type(long stmt, int col);
+    public native int column_type(long stmt, int col);
 
     /** @see org.sqlite.core.DB#column_decltype(long, int) */
     @Override
-    public synchronized String column_decltype(long stmt, int col) {
+    public String column_decltype(long stmt, int col) {
         return utf8ByteBufferToString(column_decltype_utf8(stmt, col));
     }
 
-    synchronized native ByteBuffer column_decltype_utf8(long stmt, int col);
+    native ByteBuffer column_decltype_utf8(long stmt, int col);
 
     /** @see org.sqlite.core.DB#column_table_name(long, int) */
     @Override
-    public synchronized String column_table_name(long stmt, int col) {
+    public String column_table_name(long stmt, int col) {
         return utf8ByteBufferToString(column_table_name_utf8(stmt, col));
     }
 
-    synchronized native ByteBuffer column_table_name_utf8(long stmt, int col);
+    native ByteBuffer column_table_name_utf8(long stmt, int col);
 
     /** @see org.sqlite.core.DB#column_name(long, int) */
     @Override
-    public synchronized String column_name(long stmt, int col) {
+    public String column_name(long stmt, int col) {
         return utf8ByteBufferToString(column_name_utf8(stmt, col));
     }
 
-    synchronized native ByteBuffer column_name_utf8(long stmt, int col);
+    native ByteBuffer column_name_utf8(long stmt, int col);
 
     /** @see org.sqlite.core.DB#column_text(long, int) */
     @Override
-    public synchronized String column_text(long stmt, int col) {
+    public String column_text(long stmt, int col) {
         return utf8ByteBufferToString(column_text_utf8(stmt, col));
     }
 
-    synchronized native ByteBuffer column_text_utf8(long stmt, int col);
+    /** @see org.sqlite.core.DB#column_text_utf8(long, int) */
+    @Override
+    public native ByteBuffer column_text_utf8(long stmt, int col);
 
     /** @see org.sqlite.core.DB#column_blob(long, int) */
     @Override
-    public synchronized native byte[] column_blob(long stmt, int col);
+    public native byte[] column_blob(long stmt, int col);
+
+    /** @see org.sqlite.core.DB#column_blob_buffer(long, int) */
+    @Override
+    public native ByteBuffer column_blob_buffer(long stmt, int col);
 
     /** @see org.sqlite.core.DB#column_double(long, int) */
     @Override
-    public synchronized native double column_double(long stmt, int col);
+    public native double column_double(long stmt, int col);
 
     /** @see org.sqlite.core.DB#column_long(long, int) */
     @Override
-    public synchronized native long column_long(long stmt, int col);
+    public native long column_long(long stmt, int col);
 
     /** @see org.sqlite.core.DB#column_int(long, int) */
     @Override
-    public synchronized native int column_int(long stmt, int col);
+    public native int column_int(long stmt, int col);
+
+    /** @see org.sqlite.core.DB#fetch_rows(long, ByteBuffer, int, boolean) */
+    @Override
+    native int fetch_rows(long stmt, ByteBuffer buffer, int maxRows, boolean stepFirst);
+
+    /**
+     * @see org.sqlite.core.DB#fetch_columns(long, int[], ByteBuffer[], ByteBuffer[], ByteBuffer[],
+     *     int[], int[], int, int, boolean)
+     */
+    @Override
+    native int fetch_columns(
+            long stmt,
+            int[] types,
+            ByteBuffer[] validity,
+            ByteBuffer[] values,
+            ByteBuffer[] data,
+            int[] nullCounts,
+            int[] result,
+            int start,
+            int maxRows,
+            boolean stepFirst);
+
+    /**
+     * @see org.sqlite.core.DB#import_csv(long, ByteBuffer, int, int, boolean, int, byte, byte,
+     *     boolean, int, int[])
+     */
+    @Override
+    native int import_csv(
+            long stmt,
+            ByteBuffer buffer,
+            int offset,
+            int limit,
+            boolean last,
+            int params,
+            byte delimiter,
+            byte quote,
+            boolean emptyAsNull,
+            int maxRows,
+            int[] result);
 
     /** @see org.sqlite.core.DB#bind_null(long, int) */
     @Override
-    synchronized native int bind_null(long stmt, int pos);
+    native int bind_null(long stmt, int pos);
 
     /** @see org.sqlite.core.DB#bind_int(long, int, int) */
     @Override
-    synchronized native int bind_int(long stmt, int pos, int v);
+    native int bind_int(long stmt, int pos, int v);
 
     /** @see org.sqlite.core.DB#bind_long(long, int, long) */
     @Override
-    synchronized native int bind_long(long stmt, int pos, long v);
+    native int bind_long(long stmt, int pos, long v);
 
     /** @see org.sqlite.core.DB#bind_double(long, int, double) */
     @Override
-    synchronized native int bind_double(long stmt, int pos, double v);
+    native int bind_double(long stmt, int pos, double v);
 
     /** @see org.sqlite.core.DB#bind_text(long, int, java.lang.String) */
     @Override
-    synchronized int bind_text(long stmt, int pos, String v) {
+    int bind_text(long stmt, int pos, String v) {
         return bind_text_utf8(stmt, pos, stringToUtf8ByteArray(v));
     }
 
-    synchronized native int bind_text_utf8(long stmt, int pos, byte[] vUtf8);
+    native int bind_text_utf8(long stmt, int pos, byte[] vUtf8);
 
     /** @see org.sqlite.core.DB#bind_blob(long, int, byte[]) */
     @Override
-    synchronized native int bind_blob(long stmt, int pos, byte[] v);
+    native int bind_blob(long stmt, int pos, byte[] v);
 
     /** @see org.sqlite.core.DB#result_null(long) */
     @Override
-    public synchronized native void result_null(long context);
+    public native void result_null(long context);
 
     /** @see org.sqlite.core.DB#result_text(long, java.lang.String) */
     @Override
-    public synchronized void result_text(long context, String val) {
+    public void result_text(long context, String val) {
         result_text_utf8(context, stringToUtf8ByteArray(val));
     }
 
-    synchronized native void result_text_utf8(long context, byte[] valUtf8);
+    native void result_text_utf8(long context, byte[] valUtf8);
 
     /** @see org.sqlite.core.DB#result_blob(long, byte[]) */
     @Override
-    public synchronized native void result_blob(long context, byte[] val);
+    public native void result_blob(long context, byte[] val);
 
     /** @see org.sqlite.core.DB#result_double(long, double) */
     @Override
-    public synchronized native void result_double(long context, double val);
+    public native void result_double(long context, double val);
 
     /** @see org.sqlite.core.DB#result_long(long, long) */
     @Override
-    public synchronized native void result_long(long context, long val);
+    public native void result_long(long context, long val);
 
     /** @see org.sqlite.core.DB#result_int(long, int) */
     @Override
-    public synchronized native void result_int(long context, int val);
+    public native void result_int(long context, int val);
 
     /** @see org.sqlite.core.DB#result_error(long, java.lang.String) */
     @Override
-    public synchronized void result_error(long context, String err) {
+    public void result_error(long context, String err) {
         result_error_utf8(context, stringToUtf8ByteArray(err));
     }
 
-    synchronized native void result_error_utf8(long context, byte[] errUtf8);
+    native void result_error_utf8(long context, byte[] errUtf8);
 
     /** @see org.sqlite.core.DB#value_text(org.sqlite.Function, int) */
     @Override
-    public synchronized String value_text(Function f, int arg) {
+    public String value_text(Function f, int arg) {
         return utf8ByteBufferToString(value_text_utf8(f, arg));
     }
 
-    synchronized native ByteBuffer value_text_utf8(Function f, int argUtf8);
+    native ByteBuffer value_text_utf8(Function f, int argUtf8);
 
     /** @see org.sqlite.core.DB#value_blob(org.sqlite.Function, int) */
     @Override
-    public synchronized native byte[] value_blob(Function f, int arg);
+    public native byte[] value_blob(Function f, int arg);
 
     /** @see org.sqlite.core.DB#value_double(org.sqlite.Function, int) */
     @Override
-    public synchronized native double value_double(Function f, int arg);
+    public native double value_double(Function f, int arg);
 
     /** @see org.sqlite.core.DB#value_long(org.sqlite.Function, int) */
     @Override
-    public synchronized native long value_long(Function f, int arg);
+    public native long value_long(Function f, int arg);
 
     /** @see org.sqlite.core.DB#value_int(org.sqlite.Function, int) */
     @Override
-    public synchronized native int value_int(Function f, int arg);
+    public native int value_int(Function f, int arg);
 
     /** @see org.sqlite.core.DB#value_type(org.sqlite.Function, int) */
     @Override
-    public synchronized native int value_type(Function f, int arg);
+    public native int value_type(Function f, int arg);
 
     /** @see org.sqlite.core.DB#create_function(java.lang.String, org.sqlite.Function, int, int) */
     @Override
@@ -357,6 +444,19 @@ public final class NativeDB extends DB {
     @Override
     public synchronized native int limit(int id, int value) throws SQLException;
 
+    /** @see org.sqlite.core.DB#db_status(int, boolean) */
+    @Override
+    public synchronized native long[] db_status(int op, boolean reset) throws SQLException;
+
+    // called through SafeStmtPtr, which holds DB#statementLock
+    /** @see org.sqlite.core.DB#stmt_status(long, int, boolean) */
+    @Override
+    public native int stmt_status(long stmt, int op, boolean reset) throws SQLException;
+
+    /** @see org.sqlite.core.DB#status64(int, boolean) */
+    @Override
+    public native long[] status64(int op, boolean reset) throws SQLException;
+
     private byte[] nameToUtf8ByteArray(String nameType, String name) throws SQLException {
         final byte[] nameUtf8 = stringToUtf8ByteArray(name);
         if (name == null || "".equals(name) || nameUtf8.length > 255) {
@@ -365,6 +465,73 @@ public final class NativeDB extends DB {
         return nameUtf8;
     }
 
+    // the blob natives are called by the synchronized DB#openBlob and friends, the image natives
+    // by DB#serialize and DB#deserialize
+
+    /** @see org.sqlite.core.DB#serialize_image(String) */
+    @Override
+    byte[] serialize_image(String schema) throws SQLException {
+        return serialize_utf8(nameToUtf8ByteArray("database", schema));
+    }
+
+    native byte[] serialize_utf8(byte[] schemaUtf8) throws SQLException;
+
+    /** @see org.sqlite.core.DB#deserialize_image(String, byte[]) */
+    @Override
+    int deserialize_image(String schema, byte[] image) throws SQLException {
+        return deserialize_utf8(nameToUtf8ByteArray("database", schema), image);
+    }
+
+    native int deserialize_utf8(byte[] schemaUtf8, byte[] image) throws SQLException;
+
+    /** @see org.sqlite.core.DB#deserialize_image(String, ByteBuffer, int, int) */
+    @Override
+    int deserialize_image(String schema, ByteBuffer image, int offset, int length)
+            throws SQLException {
+        return deserialize_direct_utf8(
+                nameToUtf8ByteArray("database", schema), image, offset, length);
+    }
+
+    native int deserialize_direct_utf8(byte[] schemaUtf8, ByteBuffer image, int offset, int length)
+            throws SQLException;
+
+    /** @see org.sqlite.core.DB#blob_open(String, String, String, long, boolean) */
+    @Override
+    long blob_open(String dbName, String table, String column, long rowid, boolean writable)
+            throws SQLException {
+        return blob_open_utf8(
+                nameToUtf8ByteArray("database", dbName),
+                nameToUtf8ByteArray("table", table),
+                nameToUtf8ByteArray("column", column),
+                rowid,
+                writable);
+    }
+
+    native long blob_open_utf8(
+            byte[] dbNameUtf8, byte[] tableUtf8, byte[] columnUtf8, long rowid, boolean writable)
+            throws SQLException;
+
+    /** @see org.sqlite.core.DB#blob_reopen(long, long) */
+    @Override
+    native int blob_reopen(long blob, long rowid) throws SQLException;
+
+    /** @see org.sqlite.core.DB#blob_bytes(long) */
+    @Override
+    native int blob_bytes(long blob);
+
+    /** @see org.sqlite.core.DB#blob_read(long, int, byte[], int, int) */
+    @Override
+    native int blob_read(long blob, int offset, byte[] bytes, int off, int len) throws SQLException;
+
+    /** @see org.sqlite.core.DB#blob_write(long, int, byte[], int, int) */
+    @Override
+    native int blob_write(long blob, int offset, byte[] bytes, int off, int len)
+            throws SQLException;
+
+    /** @see org.sqlite.core.DB#blob_close(long) */
+    @Override
+    native int blob_close(long blob);
+
     /**
      * @see org.sqlite.core.DB#backup(java.lang.String, java.lang.String,
      *     org.sqlite.core.DB.ProgressObserver)
@@ -412,6 +579,162 @@ public final class NativeDB extends DB {
             int pagesPerStep)
             throws SQLException;
 
+    /**
+     * @see org.sqlite.core.DB#backup(String, WritableByteChannel,
+     *     org.sqlite.core.DB.ProgressObserver, int, long)
+     */
+    @Override
+    public void backup(
+            String dbName,
+            WritableByteChannel out,
+            ProgressObserver observer,
+            int pagesPerStep,
+            long maxBytesPerSecond)
+            throws SQLException, IOException {
+        if (pagesPerStep < 1) throw new IllegalArgumentException("pagesPerStep < 1");
+        if (isEncrypted(dbName)) {
+            throw new SQLException(
+                    "cannot stream a backup of an encrypted database, the copy would not be encrypted");
+        }
+        long start = System.nanoTime();
+        Path copy = Files.createTempFile("sqlite-jdbc-backup-", ".db");
+        try {
+            // copy the pages, leaving the connection to others between steps
+            long backup =
+                    backup_init(
+                            stringToUtf8ByteArray(dbName), stringToUtf8ByteArray(copy.toString()));
+            int pageSize;
+            int copied = 0;
+            long bytes = 0;
+            try {
+                pageSize = backup_pagesize(backup);
+                int busy = 0;
+                int rc;
+                do {
+                    rc = backup_step(backup, pagesPerStep);
+                    if (rc == SQLITE_OK || rc == SQLITE_DONE) {
+                        int pageCount = backup_pagecount(backup);
+                        int remaining = backup_remaining(backup);
+                        // the copy restarts when the database is changed by another connection
+                        bytes += (long) Math.max(0, pageCount - remaining - copied) * pageSize;
+                        copied = pageCount - remaining;
+                        if (observer != null) {
+                            observer.progress(
+                                    remaining, pageCount, bytes, System.nanoTime() - start);
+                        }
+                        throttle(start, bytes, maxBytesPerSecond);
+                    } else if (rc == SQLITE_BUSY || rc == SQLITE_LOCKED) {
+                        if (busy++ >= DEFAULT_BACKUP_NUM_BUSY_BEFORE_FAIL) break;
+                        sleep(TimeUnit.MILLISECONDS.toNanos(DEFAULT_BACKUP_BUSY_SLEEP_TIME_MILLIS));
+                    }
+                } while (rc == SQLITE_OK || rc == SQLITE_BUSY || rc == SQLITE_LOCKED);
+                rc = rc == SQLITE_DONE ? backup_finish(backup) : rc;
+                if (rc != SQLITE_OK) throwex(rc);
+            } finally {
+                backup_close(backup);
+            }
+
+            // write the copy, a chunk of pagesPerStep pages at a time
+            int pageCount = copied;
+            try (FileChannel in = FileChannel.open(copy, StandardOpenOption.READ)) {
+                long chunk = (long) pagesPerStep * Math.max(pageSize, 512);
+                ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(in.size() + 1, chunk));
+                while (in.read(buffer) > 0) {
+                    buffer.flip();
+                    bytes += buffer.remaining();
+                    while (buffer.hasRemaining()) out.write(buffer);
+                    if (observer != null) {
+                        observer.progress(0, pageCount, bytes, System.nanoTime() - start);
+                    }
+                    throttle(start, bytes, maxBytesPerSecond);
+                    buffer.clear();
+                }
+            }
+        } finally {
+            Files.deleteIfExists(copy);
+        }
+    }
+
+    /**
+     * Whether the file of a database is not a plain SQLite database file, as those encrypted with
+     * SQLCipher or SQLite3 Multiple Ciphers are. Their ciphers either replace the header or reserve
+     * bytes at the end of each page. In-memory, temporary and empty databases are not encrypted.
+     *
+     * @throws SQLException if the file cannot be read.
+     */
+    private boolean isEncrypted(String dbName) throws SQLException {
+        SafeStmtPtr list = prepare("pragma database_list");
+        String file;
+        try {
+            file =
+                    list.safeRun(
+                            (db, ptr) -> {
+                                while (db.step(ptr) == SQLITE_ROW) {
+                                    if (dbName.equalsIgnoreCase(db.column_text(ptr, 1))) {
+                                        return db.column_text(ptr, 2);
+                                    }
+                                }
+                                return null;
+                            });
+        } finally {
+            list.close();
+        }
+        if (file == null || file.isEmpty()) return false;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.length() == 0) return false;
+            byte[] header = new byte[21];
+            if (raf.length() < header.length) return true;
+            raf.readFully(header);
+            return !Arrays.equals(Arrays.copyOf(header, 16), PLAIN_HEADER) || header[20] != 0;
+        } catch (IOException e) {
+            // the copy must not be made unless the file is known to be plain
+            throw new SQLException(
+                    "cannot stream a backup of a database whose file cannot be checked for"
+                            + " encryption",
+                    e);
+        }
+    }
+
+    /** The first 16 bytes of a plain SQLite database file. */
+    private static final byte[] PLAIN_HEADER =
+            "SQLite format 3\0".getBytes(StandardCharsets.US_ASCII);
+
+    /** Sleeps until {@code bytes} are due at the given rate, or just yields without a limit. */
+    private static void throttle(long start, long bytes, long maxBytesPerSecond)
+            throws SQLException {
+        if (maxBytesPerSecond <= 0) {
+            Thread.yield();
+            return;
+        }
+        long due = start + (long) (bytes * 1e9 / maxBytesPerSecond);
+        sleep(due - System.nanoTime());
+    }
+
+    private static void sleep(long nanos) throws SQLException {
+        if (nanos <= 0) return;
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("backup was interrupted", e);
+        }
+    }
+
+    synchronized native long backup_init(byte[] dbNameUtf8, byte[] destFileNameUtf8)
+            throws SQLException;
+
+    synchronized native int backup_step(long backup, int pagesPerStep);
+
+    native int backup_remaining(long backup);
+
+    native int backup_pagecount(long backup);
+
+    native int backup_pagesize(long backup);
+
+    synchronized native int backup_finish(long backup);
+
+    synchronized native void backup_close(long backup);
+
     /**
      * @see org.sqlite.core.DB#restore(java.lang.String, java.lang.String,
      *     org.sqlite.core.DB.ProgressObserver)
@@ -460,6 +783,73 @@ public final class NativeDB extends DB {
 
     // COMPOUND FUNCTIONS (for optimisation) /////////////////////////
 
+    /**
+     * Executes the whole batch with a single native call: the type-tagged primitive arrays of the
+     * parameter buffer are passed as they are and the reset/bind/step loop runs in C.
+     *
+     * @see org.sqlite.core.DB#executeBatchRows(long, int, int, int, ParameterBuffer)
+     */
+    @Override
+    synchronized long[] executeBatchRows(
+            long stmt, int offset, int count, int params, ParameterBuffer vals)
+            throws SQLException {
+        final int size = count * params;
+        // text is bound as UTF-8, the other references are byte arrays
+        Object[] refValues = new Object[size];
+        for (int i = 0; i < size; i++) {
+            int type = vals.getType(offset + i);
+            if (type == ParameterBuffer.TEXT) {
+                refValues[i] = stringToUtf8ByteArray((String) vals.refs[offset + i]);
+            } else if (type == ParameterBuffer.BLOB) {
+                refValues[i] = vals.refs[offset + i];
+            }
+        }
+
+        long[] changes = new long[count];
+        int executed =
+                execute_batch(
+                        stmt,
+                        offset,
+                        count,
+                        params,
+                        vals.types,
+                        vals.longs,
+                        vals.doubles,
+                        refValues,
+                        changes);
+        if (executed < count) {
+            // the failed step is reported again by reset; SQLITE_OK means the entry returned a row
+            int rc = reset(stmt);
+            if (rc == SQLITE_OK) {
+                throw newBatchReturnsResultsException(executed, changes);
+            }
+            throwex(rc);
+        }
+
+        reset(stmt);
+        return changes;
+    }
+
+    /**
+     * Binds and steps each batch entry in turn, stopping at the first entry whose step does not
+     * return SQLITE_DONE. That statement is left un-reset so its result code can be retrieved.
+     * Values are read from {@code offset} on, except the references, which only hold those of the
+     * entries executed.
+     *
+     * @return the number of entries that were executed successfully.
+     */
+    synchronized native int execute_batch(
+            long stmt,
+            int offset,
+            int count,
+            int params,
+            int[] types,
+            long[] longValues,
+            double[] doubleValues,
+            Object[] refValues,
+            long[] changes)
+            throws SQLException;
+
     /**
      * Provides metadata for table columns.
      *
@@ -482,7 +872,7 @@ public final class NativeDB extends DB {
     private long updateListener = 0;
 
     @Override
-    synchronized native void set_update_listener(boolean enabled);
+    synchronized native void set_update_listener(boolean enabled, int bufferSize);
 
     /**
      * Throws an SQLException. Called from native code
@@ -518,6 +908,22 @@ public final class NativeDB extends DB {
 
     public synchronized native void clear_progress_handler() throws SQLException;
 
+    /** @see org.sqlite.core.DB#set_deadline(long) */
+    @Override
+    public synchronized native long set_deadline(long timeoutNanos) throws SQLException;
+
+    /** @see org.sqlite.core.DB#restrict_deadline(long, long) */
+    @Override
+    public synchronized native void restrict_deadline(long deadline, long stmt);
+
+    /** @see org.sqlite.core.DB#expire_deadline(long) */
+    @Override
+    public native void expire_deadline(long deadline);
+
+    /** @see org.sqlite.core.DB#clear_deadline(long) */
+    @Override
+    public synchronized native boolean clear_deadline(long deadline);
+
     /**
      * Getter for native pointer to validate memory is properly cleaned up in unit tests
      *
@@ -0,0 +1,239 @@
+package org.sqlite.core;
+
+import java.sql.SQLException;
+
+/**
+ * The parameter values of a prepared statement: those of the row being built and those of the rows
+ * already added to the batch, {@code params} values per row.
+ *
+ * <p>Values are kept in parallel primitive arrays with a type tag for each one, so that setting a
+ * number does not box it and binding does not need to find out its type. The arrays are handed as
+ * they are to the native batch execution.
+ */
+public final class ParameterBuffer {
+    // Type tags, must match the BATCH_TYPE_* constants of NativeDB.c
+    public static final int NULL = 0;
+    public static final int LONG = 1;
+    public static final int DOUBLE = 2;
+    public static final int TEXT = 3;
+    public static final int BLOB = 4;
+    public static final int INT = 5;
+    public static final int FLOAT = 6;
+
+    private final int params;
+    int[] types;
+    long[] longs;
+    double[] doubles;
+    Object[] refs;
+
+    /** @param params the number of parameters of the statement. */
+    public ParameterBuffer(int params) {
+        this.params = params;
+        allocate(Math.max(params, 1));
+    }
+
+    /** @return the number of parameters of each row. */
+    public int getParameterCount() {
+        return params;
+    }
+
+    public void setNull(int index) {
+        ensureCapacity(index + 1);
+        types[index] = NULL;
+        refs[index] = null;
+    }
+
+    public void setInt(int index, int value) {
+        ensureCapacity(index + 1);
+        types[index] = INT;
+        longs[index] = value;
+        refs[index] = null;
+    }
+
+    public void setLong(int index, long value) {
+        ensureCapacity(index + 1);
+        types[index] = LONG;
+        longs[index] = value;
+        refs[index] = null;
+    }
+
+    public void setFloat(int index, float value) {
+        ensureCapacity(index + 1);
+        types[index] = FLOAT;
+        doubles[index] = value;
+        refs[index] = null;
+    }
+
+    public void setDouble(int index, double value) {
+        ensureCapacity(index + 1);
+        types[index] = DOUBLE;
+        doubles[index] = value;
+        refs[index] = null;
+    }
+
+    public void setString(int index, String value) {
+        setRef(index, value == null ? NULL : TEXT, value);
+    }
+
+    public void setBytes(int index, byte[] value) {
+        setRef(index, value == null ? NULL : BLOB, value);
+    }
+
+    /**
+     * Sets a value given as an object.
+     *
+     * @param index the index of the value, counting all rows.
+     * @param value null, an Integer, Short, Long, Float, Double, String or byte array.
+     * @throws SQLException if the value has another type.
+     */
+    public void setObject(int index, Object value) throws SQLException {
+        if (value == null) {
+            setNull(index);
+        } else if (value instanceof Integer) {
+            setInt(index, (Integer) value);
+        } else if (value instanceof Short) {
+            setInt(index, (Short) value);
+        } else if (value instanceof Long) {
+            setLong(index, (Long) value);
+        } else if (value instanceof Float) {
+            setFloat(index, (Float) value);
+        } else if (value instanceof Double) {
+            setDouble(index, (Double) value);
+        } else if (value instanceof String) {
+            setString(index, (String) value);
+        } else if (value instanceof byte[]) {
+            setBytes(index, (byte[]) value);
+        } else {
+            throw new SQLException("unexpected param type: " + value.getClass());
+        }
+    }
+
+    /** @return the type tag of a value, {@link #NULL} if it was never set. */
+    public int getType(int index) {
+        return index < types.length ? types[index] : NULL;
+    }
+
+    /** @return a value as an object, boxing numbers. */
+    public Object getObject(int index) {
+        switch (getType(index)) {
+            case INT:
+                return (int) longs[index];
+            case LONG:
+                return longs[index];
+            case FLOAT:
+                return (float) doubles[index];
+            case DOUBLE:
+                return doubles[index];
+            case TEXT:
+            case BLOB:
+                return refs[index];
+            default:
+                return null;
+        }
+    }
+
+    /** Copies {@code count} values starting at {@code from} to the ones starting at {@code to}. */
+    public void copy(int from, int to, int count) {
+        ensureCapacity(to + count);
+        System.arraycopy(types, from, types, to, count);
+        System.arraycopy(longs, from, longs, to, count);
+        System.arraycopy(doubles, from, doubles, to, count);
+        System.arraycopy(refs, from, refs, to, count);
+    }
+
+    /** Resets {@code count} values starting at {@code from} to NULL. */
+    public void clear(int from, int count) {
+        int to = Math.min(from + count, types.length);
+        for (int i = from; i < to; i++) {
+            types[i] = NULL;
+            refs[i] = null;
+        }
+    }
+
+    /** Resets all values to NULL. */
+    public void clear() {
+        clear(0, types.length);
+    }
+
+    /**
+     * Binds the values of a row to a statement.
+     *
+     * @return the result code of the first failed bind, or SQLITE_OK.
+     */
+    int bind(DB db, long stmt, int row) throws SQLException {
+        return bind(db, stmt, row * params, params);
+    }
+
+    /**
+     * Binds consecutive values, possibly of several rows, to the parameters of a statement.
+     *
+     * @param offset the index of the value bound to the first parameter.
+     * @param count the number of values to bind.
+     * @return the result code of the first failed bind, or SQLITE_OK.
+     */
+    int bind(DB db, long stmt, int offset, int count) throws SQLException {
+        for (int i = 0; i < count; i++) {
+            int index = offset + i;
+            int rc;
+            switch (getType(index)) {
+                case INT:
+                    rc = db.bind_int(stmt, i + 1, (int) longs[index]);
+                    break;
+                case LONG:
+                    rc = db.bind_long(stmt, i + 1, longs[index]);
+                    break;
+                case FLOAT:
+                case DOUBLE:
+                    rc = db.bind_double(stmt, i + 1, doubles[index]);
+                    break;
+                case TEXT:
+                    rc = db.bind_text(stmt, i + 1, (String) refs[index]);
+                    break;
+                case BLOB:
+                    rc = db.bind_blob(stmt, i + 1, (byte[]) refs[index]);
+                    break;
+                default:
+                    rc = db.bind_null(stmt, i + 1);
+            }
+            if (rc != Codes.SQLITE_OK) return rc;
+        }
+        return Codes.SQLITE_OK;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(getObject(i));
+        }
+        return sb.append(']').toString();
+    }
+
+    private void setRef(int index, int type, Object value) {
+        ensureCapacity(index + 1);
+        types[index] = type;
+        refs[index] = value;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size > types.length) {
+            int[] oldTypes = types;
+            long[] oldLongs = longs;
+            double[] oldDoubles = doubles;
+            Object[] oldRefs = refs;
+            allocate(Math.max(size, oldTypes.length * 2));
+            System.arraycopy(oldTypes, 0, types, 0, oldTypes.length);
+            System.arraycopy(oldLongs, 0, longs, 0, oldLongs.length);
+            System.arraycopy(oldDoubles, 0, doubles, 0, oldDoubles.length);
+            System.arraycopy(oldRefs, 0, refs, 0, oldRefs.length);
+        }
+    }
+
+    private void allocate(int size) {
+        types = new int[size];
+        longs = new long[size];
+        doubles = new double[size];
+        refs = new Object[size];
+    }
+}
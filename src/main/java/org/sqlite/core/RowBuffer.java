@@ -0,0 +1,214 @@
+package org.sqlite.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+/**
+ * Rows copied out of a statement by a single {@link DB#fetch_rows(long, ByteBuffer, int, boolean)}
+ * call, decoded without further calls into SQLite.
+ *
+ * <p>The buffer starts with a header of three native-order ints: the number of rows, the number of
+ * columns, and the size of the first pending row if it did not fit into the buffer at all. Each
+ * value follows as a one byte SQLite type code, then an 8 byte long for INTEGER. FLOAT, TEXT and
+ * BLOB values are followed by the 8 byte long and double returned by <tt>sqlite3_column_int64</tt>
+ * and <tt>sqlite3_column_double</tt>, then a 4 byte length and the bytes returned by
+ * <tt>sqlite3_column_text</tt>, or <tt>sqlite3_column_blob</tt> for BLOB. NULL has no payload.
+ *
+ * <p>Values are thereby converted between types by SQLite itself, as when they are read from the
+ * statement; only the conversions of INTEGER values, which are exact, are made here.
+ */
+public final class RowBuffer implements Codes {
+    static final int HEADER_SIZE = 12;
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+    // offsets of the long, double and length following the type of FLOAT, TEXT and BLOB values
+    private static final int LONG = 1;
+    private static final int DOUBLE = 9;
+    private static final int BYTES = 17;
+
+    private ByteBuffer buffer;
+    private int rows;
+    private int nextRow;
+    private int nextPosition;
+    private int[] offsets = new int[0];
+
+    /**
+     * Steps the statement and copies up to maxRows rows into this buffer, growing it when a single
+     * row does not fit.
+     *
+     * @param db the database owning the statement.
+     * @param stmt the statement pointer.
+     * @param maxRows the maximum number of rows to copy.
+     * @param stepFirst whether the current row of the statement was already delivered.
+     * @return the result code of the last step; SQLITE_ROW if the statement is positioned on a row
+     *     that was not copied.
+     * @throws SQLException
+     */
+    int fill(DB db, long stmt, int maxRows, boolean stepFirst) throws SQLException {
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(INITIAL_CAPACITY).order(ByteOrder.nativeOrder());
+        }
+        while (true) {
+            int rc = db.fetch_rows(stmt, buffer, maxRows, stepFirst);
+            rows = buffer.getInt(0);
+            int columns = buffer.getInt(4);
+            int pending = buffer.getInt(8);
+            if (rows == 0 && rc == SQLITE_ROW && pending > 0) {
+                int capacity = Math.max(buffer.capacity() * 2, HEADER_SIZE + pending);
+                buffer = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+                stepFirst = false;
+                continue;
+            }
+            if (offsets.length != columns) {
+                offsets = new int[columns];
+            }
+            nextRow = 0;
+            nextPosition = HEADER_SIZE;
+            return rc;
+        }
+    }
+
+    /**
+     * Moves to the next copied row.
+     *
+     * @return false if all copied rows were read.
+     */
+    boolean next() {
+        if (nextRow >= rows) {
+            return false;
+        }
+        int position = nextPosition;
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = position;
+            switch (buffer.get(position)) {
+                case SQLITE_INTEGER:
+                    position += 9;
+                    break;
+                case SQLITE_FLOAT:
+                case SQLITE_TEXT:
+                case SQLITE_BLOB:
+                    position += BYTES + 4 + buffer.getInt(position + BYTES);
+                    break;
+                default:
+                    position += 1;
+            }
+        }
+        nextPosition = position;
+        nextRow++;
+        return true;
+    }
+
+    /** Forgets all copied rows. */
+    void clear() {
+        rows = 0;
+        nextRow = 0;
+    }
+
+    /**
+     * @param col the column index, starting at 0.
+     * @return the SQLite type code of the value.
+     */
+    public int type(int col) {
+        return buffer.get(offsets[col]);
+    }
+
+    /**
+     * @param col the column index, starting at 0.
+     * @return the value as sqlite3_column_int64 would return it.
+     */
+    public long getLong(int col) {
+        int offset = offsets[col];
+        switch (buffer.get(offset)) {
+            case SQLITE_INTEGER:
+                return buffer.getLong(offset + 1);
+            case SQLITE_FLOAT:
+            case SQLITE_TEXT:
+            case SQLITE_BLOB:
+                return buffer.getLong(offset + LONG);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * @param col the column index, starting at 0.
+     * @return the value as sqlite3_column_double would return it.
+     */
+    public double getDouble(int col) {
+        int offset = offsets[col];
+        switch (buffer.get(offset)) {
+            case SQLITE_INTEGER:
+                return buffer.getLong(offset + 1);
+            case SQLITE_FLOAT:
+            case SQLITE_TEXT:
+            case SQLITE_BLOB:
+                return buffer.getDouble(offset + DOUBLE);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * @param col the column index, starting at 0.
+     * @return the value as sqlite3_column_text would return it, or null for NULL.
+     */
+    public String getText(int col) {
+        int offset = offsets[col];
+        switch (buffer.get(offset)) {
+            case SQLITE_INTEGER:
+                return Long.toString(buffer.getLong(offset + 1));
+            case SQLITE_FLOAT:
+            case SQLITE_TEXT:
+            case SQLITE_BLOB:
+                return new String(copyBytes(offset), StandardCharsets.UTF_8);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @param col the column index, starting at 0.
+     * @return the value as sqlite3_column_blob would return it, or null for NULL.
+     */
+    public byte[] getBytes(int col) {
+        int offset = offsets[col];
+        switch (buffer.get(offset)) {
+            case SQLITE_INTEGER:
+                return getText(col).getBytes(StandardCharsets.UTF_8);
+            case SQLITE_NULL:
+                return null;
+            default:
+                return copyBytes(offset);
+        }
+    }
+
+    /**
+     * @param col the column index, starting at 0.
+     * @return a read-only view of the TEXT or BLOB bytes of the value, or of the UTF-8 text of a
+     *     FLOAT value, valid until the buffer is filled again; the UTF-8 text of INTEGER values; or
+     *     null for NULL.
+     */
+    public ByteBuffer getByteBuffer(int col) {
+        int offset = offsets[col];
+        switch (buffer.get(offset)) {
+            case SQLITE_INTEGER:
+                return ByteBuffer.wrap(getBytes(col)).asReadOnlyBuffer();
+            case SQLITE_NULL:
+                return null;
+            default:
+                ByteBuffer view = buffer.asReadOnlyBuffer();
+                int start = offset + BYTES + 4;
+                view.position(start).limit(start + buffer.getInt(offset + BYTES));
+                return view.slice();
+        }
+    }
+
+    private byte[] copyBytes(int offset) {
+        byte[] bytes = new byte[buffer.getInt(offset + BYTES)];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + BYTES + 4);
+        view.get(bytes);
+        return bytes;
+    }
+}
@@ -12,6 +12,14 @@ public class SafeStmtPtr {
     // anyways, so making a separate lock would be pointless
     private final DB db;
     private final long ptr;
+    // the DB itself, unless the statement locking strategy is configured, in which case each
+    // pointer is its own lock and SQLite serializes the calls on the connection
+    private final Object lock;
+    // the SQL text under which this pointer is parked in the statement cache when closed, or null
+    // if it is finalized on close
+    private String cacheKey;
+    // the metadata parked with this pointer in the statement cache, or null if not read yet
+    private StatementCache.Metadata metadata;
 
     private volatile boolean closed = false;
     // to return on subsequent calls to close() after this ptr has been closed
@@ -23,13 +31,30 @@ public class SafeStmtPtr {
     /**
      * Construct a new Safe Pointer Wrapper to ensure a pointer is properly handled
      *
-     * @param db the database that made this pointer. Always locked before any safe run function is
-     *     executed to avoid deadlocks
+     * @param db the database that made this pointer. Locked before any safe run function is
+     *     executed to avoid deadlocks, unless statement locking is configured
      * @param ptr the raw pointer
      */
     public SafeStmtPtr(DB db, long ptr) {
         this.db = db;
         this.ptr = ptr;
+        this.lock = db.statementLock(this);
+    }
+
+    String getCacheKey() {
+        return cacheKey;
+    }
+
+    void setCacheKey(String cacheKey) {
+        this.cacheKey = cacheKey;
+    }
+
+    StatementCache.Metadata getMetadata() {
+        return metadata;
+    }
+
+    void setMetadata(StatementCache.Metadata metadata) {
+        this.metadata = metadata;
     }
 
     /**
@@ -49,8 +74,10 @@ public class SafeStmtPtr {
      *     elsewhere
      */
     public int close() throws SQLException {
-        synchronized (db) {
-            return internalClose();
+        synchronized (lock) {
+            synchronized (db) {
+                return internalClose();
+            }
         }
     }
 
@@ -79,7 +106,7 @@ public class SafeStmtPtr {
      * @throws SQLException if the pointer is utilized elsewhere
      */
     public <E extends Throwable> int safeRunInt(SafePtrIntFunction<E> run) throws SQLException, E {
-        synchronized (db) {
+        synchronized (lock) {
             this.ensureOpen();
             return run.run(db, ptr);
         }
@@ -94,7 +121,7 @@ public class SafeStmtPtr {
      */
     public <E extends Throwable> long safeRunLong(SafePtrLongFunction<E> run)
             throws SQLException, E {
-        synchronized (db) {
+        synchronized (lock) {
             this.ensureOpen();
             return run.run(db, ptr);
         }
@@ -109,7 +136,7 @@ public class SafeStmtPtr {
      */
     public <E extends Throwable> double safeRunDouble(SafePtrDoubleFunction<E> run)
             throws SQLException, E {
-        synchronized (db) {
+        synchronized (lock) {
             this.ensureOpen();
             return run.run(db, ptr);
         }
@@ -123,7 +150,7 @@ public class SafeStmtPtr {
      * @throws SQLException if the pointer is utilized elsewhere
      */
     public <T, E extends Throwable> T safeRun(SafePtrFunction<T, E> run) throws SQLException, E {
-        synchronized (db) {
+        synchronized (lock) {
             this.ensureOpen();
             return run.run(db, ptr);
         }
@@ -137,7 +164,7 @@ public class SafeStmtPtr {
      */
     public <E extends Throwable> void safeRunConsume(SafePtrConsumer<E> run)
             throws SQLException, E {
-        synchronized (db) {
+        synchronized (lock) {
             this.ensureOpen();
             run.run(db, ptr);
         }
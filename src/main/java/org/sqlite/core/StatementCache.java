@@ -0,0 +1,148 @@
+package org.sqlite.core;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used cache of prepared statement handles keyed by their SQL text.
+ *
+ * <p>When a cached prepared statement is closed its handle is reset, its bindings are cleared and
+ * it is parked here instead of being finalized. The next prepare of the same SQL text on the
+ * connection takes the handle back without calling <a
+ * href="https://www.sqlite.org/c3ref/prepare.html">sqlite3_prepare_v2</a>. The column labels and
+ * the column and parameter counts read when the handle was first prepared are parked with it, so
+ * that they are not read through JNI again. Parking more than {@link #getCapacity()} handles
+ * finalizes the least recently parked one.
+ *
+ * <p>All mutating methods are called while holding the lock of the owning {@link DB}.
+ */
+public class StatementCache {
+    private final int capacity;
+    private final Map<String, Parked> parked = new LinkedHashMap<>();
+
+    private volatile long hits = 0;
+    private volatile long misses = 0;
+    private volatile long evictions = 0;
+
+    StatementCache(int capacity) {
+        this.capacity = Math.max(capacity, 0);
+    }
+
+    /** @return whether closed statements are kept for reuse. */
+    public boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    /** @return the maximum number of statement handles kept for reuse. */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** @return the number of statement handles currently parked. */
+    public int size() {
+        return parked.size();
+    }
+
+    /** @return the number of prepares served from the cache. */
+    public long getHitCount() {
+        return hits;
+    }
+
+    /** @return the number of prepares that had to compile the SQL. */
+    public long getMissCount() {
+        return misses;
+    }
+
+    /** @return the number of parked statement handles finalized to make room for newer ones. */
+    public long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Takes a parked statement handle for the given SQL out of the cache.
+     *
+     * @param sql the SQL text.
+     * @return the parked handle, or null if none is parked.
+     */
+    Parked take(String sql) {
+        Parked entry = parked.remove(sql);
+        if (entry == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return entry;
+    }
+
+    /**
+     * Resets a statement handle and parks it for reuse.
+     *
+     * @param db the database owning the statement.
+     * @param sql the SQL text the statement was prepared from.
+     * @param ptr the raw statement pointer.
+     * @param metadata the metadata read from the statement, or null if none was.
+     * @return whether the handle was parked; if not, the caller still owns it.
+     * @throws SQLException if an evicted statement cannot be finalized.
+     */
+    boolean park(DB db, String sql, long ptr, Metadata metadata) throws SQLException {
+        if (ptr == 0 || parked.containsKey(sql)) {
+            return false;
+        }
+        db.reset(ptr);
+        db.clear_bindings(ptr);
+        parked.put(sql, new Parked(ptr, metadata));
+
+        Iterator<Parked> it = parked.values().iterator();
+        while (parked.size() > capacity) {
+            Parked eldest = it.next();
+            it.remove();
+            evictions++;
+            db.finalize(eldest.ptr);
+        }
+        return true;
+    }
+
+    /**
+     * Finalizes all parked statement handles.
+     *
+     * @param db the database owning the statements.
+     * @throws SQLException if a statement cannot be finalized.
+     */
+    void clear(DB db) throws SQLException {
+        Iterator<Parked> it = parked.values().iterator();
+        while (it.hasNext()) {
+            long ptr = it.next().ptr;
+            it.remove();
+            db.finalize(ptr);
+        }
+    }
+
+    /** A parked statement handle and its metadata. */
+    static final class Parked {
+        final long ptr;
+        final Metadata metadata;
+
+        Parked(long ptr, Metadata metadata) {
+            this.ptr = ptr;
+            this.metadata = metadata;
+        }
+    }
+
+    /**
+     * The column labels and the column and parameter counts of a prepared statement, which do not
+     * change until SQLite prepares it again.
+     */
+    static final class Metadata {
+        final String[] columnNames;
+        final int columnCount;
+        final int paramCount;
+
+        Metadata(String[] columnNames, int columnCount, int paramCount) {
+            this.columnNames = columnNames;
+            this.columnCount = columnCount;
+            this.paramCount = paramCount;
+        }
+    }
+}
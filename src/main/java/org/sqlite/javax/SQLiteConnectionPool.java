@@ -0,0 +1,166 @@
+/*--------------------------------------------------------------------------
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *--------------------------------------------------------------------------*/
+package org.sqlite.javax;
+
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.sqlite.SQLiteConnection;
+
+/**
+ * A bounded pool of physical connections, used by {@link SQLiteConnectionPoolDataSource}. Idle
+ * connections are kept most recently used first, so that the ones that stay unused age out and are
+ * closed once they have been idle longer than the configured idle time. Waiting for a connection is
+ * fair: threads are served in the order they asked.
+ */
+class SQLiteConnectionPool {
+    interface ConnectionFactory {
+        SQLiteConnection open() throws SQLException;
+    }
+
+    private static final class Idle {
+        final SQLiteConnection conn;
+        final long since;
+
+        Idle(SQLiteConnection conn, long since) {
+            this.conn = conn;
+            this.since = since;
+        }
+    }
+
+    private final ConnectionFactory factory;
+    private final Semaphore permits;
+    private final long maxIdleNanos;
+    private final ConcurrentLinkedDeque<Idle> idle = new ConcurrentLinkedDeque<>();
+    private volatile boolean closed;
+
+    /**
+     * @param factory opens new physical connections.
+     * @param maxSize the maximum number of connections checked out at the same time.
+     * @param maxIdleMillis how long an unused connection is kept open, or 0 to keep it forever.
+     */
+    SQLiteConnectionPool(ConnectionFactory factory, int maxSize, long maxIdleMillis) {
+        this.factory = factory;
+        this.permits = new Semaphore(maxSize, true);
+        this.maxIdleNanos = TimeUnit.MILLISECONDS.toNanos(maxIdleMillis);
+    }
+
+    /**
+     * Checks out a connection, reusing an idle one if there is a usable one.
+     *
+     * @param timeoutSeconds how long to wait for a connection when all of them are in use, or 0 or
+     *     less to wait as long as it takes, like {@link javax.sql.DataSource#getLoginTimeout()}.
+     * @return a pooled connection which returns its physical connection to the pool when closed.
+     * @throws SQLException if the pool is closed, no connection became available in time, or a new
+     *     connection cannot be opened.
+     */
+    SQLitePooledConnection checkout(int timeoutSeconds) throws SQLException {
+        if (closed) throw new SQLException("connection pool is closed");
+        try {
+            if (timeoutSeconds <= 0) {
+                permits.acquire();
+            } else if (!permits.tryAcquire(timeoutSeconds, TimeUnit.SECONDS)) {
+                throw new SQLException(
+                        "timed out after " + timeoutSeconds + "s waiting for a pooled connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("interrupted while waiting for a pooled connection", e);
+        }
+
+        boolean success = false;
+        try {
+            SQLiteConnection conn = null;
+            long now = System.nanoTime();
+            for (Idle entry; conn == null && (entry = idle.pollFirst()) != null; ) {
+                if (!expired(entry, now) && isUsable(entry.conn)) {
+                    conn = entry.conn;
+                } else {
+                    discard(entry.conn);
+                }
+            }
+            if (conn == null) conn = factory.open();
+            success = true;
+            return new SQLitePooledConnection(conn, this);
+        } finally {
+            if (!success) permits.release();
+        }
+    }
+
+    /**
+     * Takes back a connection checked out of this pool. The connection is closed instead if the
+     * pool is closed or the connection is no longer usable.
+     */
+    void checkin(SQLiteConnection conn) {
+        try {
+            long now = System.nanoTime();
+            if (closed || !isUsable(conn)) {
+                discard(conn);
+            } else {
+                idle.offerFirst(new Idle(conn, now));
+                if (closed) closeIdle();
+            }
+            evict(now);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes all idle connections. Connections that are checked out are closed when they are
+     * returned.
+     */
+    void close() {
+        closed = true;
+        closeIdle();
+    }
+
+    private void closeIdle() {
+        for (Idle entry; (entry = idle.pollFirst()) != null; ) {
+            discard(entry.conn);
+        }
+    }
+
+    /** Closes the connections that have been idle for too long, starting with the oldest. */
+    private void evict(long now) {
+        for (Idle entry; (entry = idle.peekLast()) != null && expired(entry, now); ) {
+            if (idle.removeLastOccurrence(entry)) discard(entry.conn);
+        }
+    }
+
+    private boolean expired(Idle entry, long now) {
+        return maxIdleNanos > 0 && now - entry.since > maxIdleNanos;
+    }
+
+    /**
+     * A connection is usable if it is open and not left in the middle of a transaction. This only
+     * asks SQLite for its autocommit state, without running a statement.
+     */
+    private static boolean isUsable(SQLiteConnection conn) {
+        try {
+            return !conn.isClosed() && conn.getDatabase().get_autocommit();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void discard(SQLiteConnection conn) {
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            // the connection is dropped from the pool either way
+        }
+    }
+}
@@ -14,13 +14,38 @@
 package org.sqlite.javax;
 
 import java.sql.SQLException;
+import java.util.Properties;
 import javax.sql.PooledConnection;
+import org.sqlite.JDBC;
 import org.sqlite.SQLiteConfig;
 import org.sqlite.SQLiteDataSource;
 
+/**
+ * A {@link javax.sql.ConnectionPoolDataSource} which can keep its physical connections open between
+ * uses.
+ *
+ * <p>By default every call to {@link #getPooledConnection()} opens a new physical connection.
+ * Setting a pool size with {@link #setMaxPoolSize(int)} makes the data source keep the connections
+ * open instead: closing a {@link PooledConnection} returns its physical connection to the pool, so
+ * that the next checkout does not pay for opening the database and applying the configuration
+ * again, e.g. the key derivation of an encrypted database. Callers wait up to the login timeout
+ * when all connections are checked out.
+ *
+ * <p>With a database in WAL mode, readers do not block the writer. {@link #setMaxReadPoolSize(int)}
+ * then sets up a separate pool of read-only connections, used by {@link
+ * #getReadOnlyPooledConnection()}, so that a small writer pool does not limit the number of
+ * concurrent readers.
+ */
 public class SQLiteConnectionPoolDataSource extends SQLiteDataSource
         implements javax.sql.ConnectionPoolDataSource {
 
+    private int maxPoolSize = 0;
+    private int maxReadPoolSize = 0;
+    private long maxIdleTime = 60_000;
+
+    private SQLiteConnectionPool pool;
+    private SQLiteConnectionPool readPool;
+
     /** Default constructor. */
     public SQLiteConnectionPoolDataSource() {
         super();
@@ -35,16 +60,118 @@ public class SQLiteConnectionPoolDataSource extends SQLiteDataSource
         super(config);
     }
 
+    /**
+     * Sets the maximum number of pooled connections checked out at the same time. Changes take
+     * effect when the pool is created, on the first checkout.
+     *
+     * @param maxPoolSize The maximum number of connections, or 0 to disable pooling.
+     */
+    public void setMaxPoolSize(int maxPoolSize) {
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    /** @return The maximum number of pooled connections, or 0 if pooling is disabled. */
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    /**
+     * Sets the maximum number of read-only pooled connections checked out at the same time. Changes
+     * take effect when the pool is created, on the first checkout.
+     *
+     * @param maxReadPoolSize The maximum number of read-only connections, or 0 to serve read-only
+     *     checkouts from the main pool.
+     */
+    public void setMaxReadPoolSize(int maxReadPoolSize) {
+        this.maxReadPoolSize = maxReadPoolSize;
+    }
+
+    /** @return The maximum number of read-only pooled connections. */
+    public int getMaxReadPoolSize() {
+        return maxReadPoolSize;
+    }
+
+    /**
+     * Sets how long an unused pooled connection is kept open. Changes take effect when the pool is
+     * created, on the first checkout.
+     *
+     * @param millis The idle time in milliseconds, or 0 to keep idle connections open.
+     */
+    public void setMaxIdleTime(long millis) {
+        this.maxIdleTime = millis;
+    }
+
+    /** @return How long an unused pooled connection is kept open, in milliseconds. */
+    public long getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
     /** @see javax.sql.ConnectionPoolDataSource#getPooledConnection() */
     public PooledConnection getPooledConnection() throws SQLException {
         return getPooledConnection(null, null);
     }
 
     /**
+     * Checks out a connection from the pool if pooling is enabled. Connections with credentials are
+     * never pooled.
+     *
      * @see javax.sql.ConnectionPoolDataSource#getPooledConnection(java.lang.String,
      *     java.lang.String)
      */
     public PooledConnection getPooledConnection(String user, String password) throws SQLException {
+        if (maxPoolSize > 0 && user == null && password == null) {
+            return getPool().checkout(getLoginTimeout());
+        }
         return new SQLitePooledConnection(getConnection(user, password));
     }
+
+    /**
+     * Checks out a read-only connection. It comes from the read-only pool if one is configured, or
+     * from the main pool otherwise.
+     *
+     * @return A pooled connection.
+     * @throws SQLException if no connection could be checked out.
+     * @see #setMaxReadPoolSize(int)
+     */
+    public PooledConnection getReadOnlyPooledConnection() throws SQLException {
+        if (maxReadPoolSize > 0) {
+            return getReadPool().checkout(getLoginTimeout());
+        }
+        return getPooledConnection();
+    }
+
+    /**
+     * Closes the idle pooled connections. Connections that are checked out are closed when they are
+     * returned. Later checkouts start new pools.
+     */
+    public synchronized void close() {
+        if (pool != null) pool.close();
+        if (readPool != null) readPool.close();
+        pool = null;
+        readPool = null;
+    }
+
+    synchronized SQLiteConnectionPool getPool() {
+        if (pool == null) {
+            pool =
+                    new SQLiteConnectionPool(
+                            () -> getConnection(null, null), maxPoolSize, maxIdleTime);
+        }
+        return pool;
+    }
+
+    synchronized SQLiteConnectionPool getReadPool() {
+        if (readPool == null) {
+            Properties prop = new Properties();
+            prop.putAll(getConfig().toProperties());
+            SQLiteConfig readConfig = new SQLiteConfig(prop);
+            readConfig.setReadOnly(true);
+            readPool =
+                    new SQLiteConnectionPool(
+                            () -> JDBC.createConnection(getUrl(), readConfig.toProperties()),
+                            maxReadPoolSize,
+                            maxIdleTime);
+        }
+        return readPool;
+    }
 }
@@ -50,6 +50,10 @@ public class SQLitePooledConnection extends JDBC4PooledConnection {
 
     protected SQLiteConnection physicalConn;
     protected volatile Connection handleConn;
+    private final SQLiteConnectionPool pool;
+    // the state the physical connection is returned to the pool in
+    private final boolean readOnly;
+    private final int transactionIsolation;
 
     protected List<ConnectionEventListener> listeners = new ArrayList<ConnectionEventListener>();
 
@@ -60,19 +64,55 @@ public class SQLitePooledConnection extends JDBC4PooledConnection {
      */
     protected SQLitePooledConnection(SQLiteConnection physicalConn) {
         this.physicalConn = physicalConn;
+        this.pool = null;
+        this.readOnly = false;
+        this.transactionIsolation = Connection.TRANSACTION_SERIALIZABLE;
+    }
+
+    /**
+     * Constructor for a connection checked out of a pool.
+     *
+     * @param physicalConn The physical Connection.
+     * @param pool The pool the physical connection is returned to on close.
+     * @throws SQLException
+     */
+    SQLitePooledConnection(SQLiteConnection physicalConn, SQLiteConnectionPool pool)
+            throws SQLException {
+        this.physicalConn = physicalConn;
+        this.pool = pool;
+        this.readOnly = physicalConn.isReadOnly();
+        this.transactionIsolation = physicalConn.getTransactionIsolation();
     }
 
     public SQLiteConnection getPhysicalConn() {
         return physicalConn;
     }
-    /** @see javax.sql.PooledConnection#close() */
+    /**
+     * Closes the physical connection or, if this connection was checked out of a pool, rolls back
+     * any open transaction, restores the auto-commit mode, read-only flag and transaction isolation
+     * the physical connection was checked out with and returns it to the pool. A connection that
+     * cannot be restored is closed instead.
+     *
+     * @see javax.sql.PooledConnection#close()
+     */
     public void close() throws SQLException {
         if (handleConn != null) {
             listeners.clear();
             handleConn.close();
         }
 
-        if (physicalConn != null) {
+        if (pool != null && physicalConn != null) {
+            SQLiteConnection conn = physicalConn;
+            physicalConn = null;
+            try {
+                if (!conn.isClosed()) reset(conn);
+            } catch (SQLException e) {
+                // dropped from the pool rather than handed out in another state
+                conn.close();
+            } finally {
+                pool.checkin(conn);
+            }
+        } else if (physicalConn != null) {
             try {
                 physicalConn.close();
             } finally {
@@ -81,8 +121,22 @@ public class SQLitePooledConnection extends JDBC4PooledConnection {
         }
     }
 
+    private void reset(SQLiteConnection conn) throws SQLException {
+        if (!conn.getAutoCommit()) {
+            conn.rollback();
+            conn.setAutoCommit(true);
+        }
+        if (conn.isReadOnly() != readOnly) {
+            conn.setReadOnly(readOnly);
+        }
+        if (conn.getTransactionIsolation() != transactionIsolation) {
+            conn.setTransactionIsolation(transactionIsolation);
+        }
+    }
+
     /** @see javax.sql.PooledConnection#getConnection() */
     public Connection getConnection() throws SQLException {
+        if (physicalConn == null) throw new SQLException("PooledConnection is closed");
         if (handleConn != null) handleConn.close();
 
         handleConn =
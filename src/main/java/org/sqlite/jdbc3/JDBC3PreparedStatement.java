@@ -25,6 +25,7 @@ import java.util.Calendar;
 import org.sqlite.SQLiteConnection;
 import org.sqlite.core.CorePreparedStatement;
 import org.sqlite.core.DB;
+import org.sqlite.core.ParameterBuffer;
 
 public abstract class JDBC3PreparedStatement extends CorePreparedStatement {
 
@@ -36,7 +37,7 @@ public abstract class JDBC3PreparedStatement extends CorePreparedStatement {
     public void clearParameters() throws SQLException {
         checkOpen();
         pointer.safeRunConsume(DB::clear_bindings);
-        if (batch != null) for (int i = batchPos; i < batchPos + paramCount; i++) batch[i] = null;
+        if (parameters != null) parameters.clear(batchPos, paramCount);
     }
 
     /** @see java.sql.PreparedStatement#execute() */
@@ -54,7 +55,7 @@ public abstract class JDBC3PreparedStatement extends CorePreparedStatement {
                     boolean success = false;
                     try {
                         resultsWaiting =
-                                conn.getDatabase().execute(JDBC3PreparedStatement.this, batch);
+                                conn.getDatabase().execute(JDBC3PreparedStatement.this, parameters);
                         success = true;
                         updateCount = getDatabase().changes();
                         return 0 != columnCount;
@@ -84,7 +85,7 @@ public abstract class JDBC3PreparedStatement extends CorePreparedStatement {
                     boolean success = false;
                     try {
                         resultsWaiting =
-                                conn.getDatabase().execute(JDBC3PreparedStatement.this, batch);
+                                conn.getDatabase().execute(JDBC3PreparedStatement.this, parameters);
                         success = true;
                     } finally {
                         if (!success && !pointer.isClosed()) {
@@ -116,7 +117,7 @@ public abstract class JDBC3PreparedStatement extends CorePreparedStatement {
         }
 
         return this.withConnectionTimeout(
-                () -> conn.getDatabase().executeUpdate(JDBC3PreparedStatement.this, batch));
+                () -> conn.getDatabase().executeUpdate(JDBC3PreparedStatement.this, parameters));
     }
 
     /** @see java.sql.PreparedStatement#addBatch() */
@@ -124,15 +125,10 @@ public abstract class JDBC3PreparedStatement extends CorePreparedStatement {
         checkOpen();
         batchPos += paramCount;
         batchQueryCount++;
-        if (batch == null) {
-            batch = new Object[paramCount];
+        if (parameters == null) {
+            parameters = new ParameterBuffer(paramCount);
         }
-        if (batchPos + paramCount > batch.length) {
-            Object[] nb = new Object[batch.length * 2];
-            System.arraycopy(batch, 0, nb, 0, batch.length);
-            batch = nb;
-        }
-        System.arraycopy(batch, batchPos - paramCount, batch, batchPos, paramCount);
+        parameters.copy(batchPos - paramCount, batchPos, paramCount);
     }
 
     // ParameterMetaData FUNCTIONS //////////////////////////////////
@@ -163,20 +159,18 @@ public abstract class JDBC3PreparedStatement extends CorePreparedStatement {
     /** @see java.sql.ParameterMetaData#getParameterType(int) */
     public int getParameterType(int pos) throws SQLException {
         checkIndex(pos);
-        Object paramValue = batch[pos - 1];
-
-        if (paramValue == null) {
-            return Types.NULL;
-        } else if (paramValue instanceof Integer
-                || paramValue instanceof Short
-                || paramValue instanceof Boolean) {
-            return Types.INTEGER;
-        } else if (paramValue instanceof Long) {
-            return Types.BIGINT;
-        } else if (paramValue instanceof Double || paramValue instanceof Float) {
-            return Types.REAL;
-        } else {
-            return Types.VARCHAR;
+        switch (parameters.getType(pos - 1)) {
+            case ParameterBuffer.NULL:
+                return Types.NULL;
+            case ParameterBuffer.INT:
+                return Types.INTEGER;
+            case ParameterBuffer.LONG:
+                return Types.BIGINT;
+            case ParameterBuffer.FLOAT:
+            case ParameterBuffer.DOUBLE:
+                return Types.REAL;
+            default:
+                return Types.VARCHAR;
         }
     }
 
@@ -298,22 +292,22 @@ public abstract class JDBC3PreparedStatement extends CorePreparedStatement {
 
     /** @see java.sql.PreparedStatement#setDouble(int, double) */
     public void setDouble(int pos, double value) throws SQLException {
-        batch(pos, new Double(value));
+        batchDouble(pos, value);
     }
 
     /** @see java.sql.PreparedStatement#setFloat(int, float) */
     public void setFloat(int pos, float value) throws SQLException {
-        batch(pos, new Float(value));
+        batchFloat(pos, value);
     }
 
     /** @see java.sql.PreparedStatement#setInt(int, int) */
     public void setInt(int pos, int value) throws SQLException {
-        batch(pos, new Integer(value));
+        batchInt(pos, value);
     }
 
     /** @see java.sql.PreparedStatement#setLong(int, long) */
     public void setLong(int pos, long value) throws SQLException {
-        batch(pos, new Long(value));
+        batchLong(pos, value);
     }
 
     /** @see java.sql.PreparedStatement#setNull(int, int) */
@@ -333,15 +327,15 @@ public abstract class JDBC3PreparedStatement extends CorePreparedStatement {
         } else if (value instanceof java.util.Date) {
             setDateByMilliseconds(pos, ((java.util.Date) value).getTime(), Calendar.getInstance());
         } else if (value instanceof Long) {
-            batch(pos, value);
+            batchLong(pos, (Long) value);
         } else if (value instanceof Integer) {
-            batch(pos, value);
+            batchInt(pos, (Integer) value);
         } else if (value instanceof Short) {
-            batch(pos, new Integer(((Short) value).intValue()));
+            batchInt(pos, (Short) value);
         } else if (value instanceof Float) {
-            batch(pos, value);
+            batchFloat(pos, (Float) value);
         } else if (value instanceof Double) {
-            batch(pos, value);
+            batchDouble(pos, (Double) value);
         } else if (value instanceof Boolean) {
             setBoolean(pos, ((Boolean) value).booleanValue());
         } else if (value instanceof byte[]) {
@@ -5,6 +5,7 @@ import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringReader;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.sql.Date;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
@@ -39,16 +40,11 @@ public abstract class JDBC3ResultSet extends CoreResultSet {
      */
     public int findColumn(String col) throws SQLException {
         checkOpen();
-        Integer index = findColumnIndexInCache(col);
-        if (index != null) {
-            return index;
+        int index = findColumnIndex(col);
+        if (index < 0) {
+            throw new SQLException("no such column: '" + col + "'");
         }
-        for (int i = 0; i < cols.length; i++) {
-            if (col.equalsIgnoreCase(cols[i])) {
-                return addColumnIndexInCache(col, i + 1);
-            }
-        }
-        throw new SQLException("no such column: '" + col + "'");
+        return index + 1;
     }
 
     /** @see java.sql.ResultSet#next() */
@@ -58,18 +54,41 @@ public abstract class JDBC3ResultSet extends CoreResultSet {
         }
         lastCol = -1;
 
-        // first row is loaded by execute(), so do not step() again
-        if (row == 0) {
+        // rows copied by a previous fetch are read without calling into SQLite
+        if (nextBufferedRow()) {
             row++;
             return true;
         }
+        if (pastLastRow) {
+            return false;
+        }
 
         // check if we are row limited by the statement or the ResultSet
-        if (maxRows != 0 && row == maxRows) {
+        if (row != 0 && maxRows != 0 && row == maxRows) {
+            return false;
+        }
+
+        // with a fetch size, copy that many rows out of the statement at once
+        if (limitRows > 1) {
+            if (fetchRowsWithinTimeout()) {
+                row++;
+                return true;
+            }
             return false;
         }
 
+        // first row is loaded by execute(), so do not step() again
+        if (isRowPending()) {
+            clearRowPending();
+            row++;
+            return true;
+        }
+
         // do the real work
+        return withQueryTimeout(this::step);
+    }
+
+    private boolean step() throws SQLException {
         int statusCode = stmt.pointer.safeRunInt(DB::step);
         switch (statusCode) {
             case SQLITE_DONE:
@@ -85,6 +104,48 @@ public abstract class JDBC3ResultSet extends CoreResultSet {
         }
     }
 
+    /**
+     * Fetches rows within the query timeout of the statement. An error after the copied rows is
+     * thrown within the timeout, so that it is reported as a timeout if it expired, and is then
+     * deferred again until the copied rows have been read.
+     */
+    private boolean fetchRowsWithinTimeout() throws SQLException {
+        try {
+            return withQueryTimeout(
+                    () -> {
+                        boolean fetched = fetchRows();
+                        if (fetchError != null) {
+                            SQLException e = fetchError;
+                            fetchError = null;
+                            throw e;
+                        }
+                        return fetched;
+                    });
+        } catch (SQLException e) {
+            if (!buffered) throw e;
+            fetchError = e;
+            return true;
+        }
+    }
+
+    /** Reads rows within the query timeout the statement was executed with, if any. */
+    private <T> T withQueryTimeout(JDBC3Statement.SQLCallable<T> callable) throws SQLException {
+        if (!(stmt instanceof JDBC3Statement)) {
+            return callable.call();
+        }
+        JDBC3Statement statement = (JDBC3Statement) stmt;
+        T result = statement.withResultsTimeout(callable);
+        if (pastLastRow) statement.clearResultsDeadline();
+        return result;
+    }
+
+    /** @see java.sql.ResultSet#close() */
+    @Override
+    public void close() throws SQLException {
+        if (stmt instanceof JDBC3Statement) ((JDBC3Statement) stmt).clearResultsDeadline();
+        super.close();
+    }
+
     /** @see java.sql.ResultSet#getType() */
     public int getType() {
         return ResultSet.TYPE_FORWARD_ONLY;
@@ -213,6 +274,9 @@ public abstract class JDBC3ResultSet extends CoreResultSet {
 
     /** @see java.sql.ResultSet#getBytes(int) */
     public byte[] getBytes(int col) throws SQLException {
+        if (buffered) {
+            return rowBuffer.getBytes(markCol(col));
+        }
         return stmt.pointer.safeRun((db, ptr) -> db.column_blob(ptr, markCol(col)));
     }
 
@@ -221,6 +285,57 @@ public abstract class JDBC3ResultSet extends CoreResultSet {
         return getBytes(findColumn(col));
     }
 
+    /**
+     * Returns the value of a column as a read-only view of its bytes, without copying them to the
+     * Java heap. For a BLOB the view covers the raw bytes, for TEXT its UTF-8 encoding.
+     *
+     * <p>The view points into memory owned by SQLite or by this result set and is only valid until
+     * the next call to {@link #next()}, {@link #close()} or another getter for the same column.
+     * Reading it after that returns undefined data and may crash the JVM.
+     *
+     * @param col the first column is 1, the second is 2, ...
+     * @return a read-only direct buffer, or null if the value is SQL NULL.
+     * @throws SQLException
+     */
+    public ByteBuffer getByteBuffer(int col) throws SQLException {
+        if (buffered) {
+            return rowBuffer.getByteBuffer(markCol(col));
+        }
+        return readOnly(
+                stmt.pointer.safeRun((db, ptr) -> db.column_blob_buffer(ptr, markCol(col))));
+    }
+
+    /** @see #getByteBuffer(int) */
+    public ByteBuffer getByteBuffer(String col) throws SQLException {
+        return getByteBuffer(findColumn(col));
+    }
+
+    /**
+     * Returns the value of a column as a read-only view of its UTF-8 text, without decoding it to a
+     * String. Numbers are converted to text the same way {@link #getString(int)} does.
+     *
+     * <p>The view has the same lifetime as one returned by {@link #getByteBuffer(int)}.
+     *
+     * @param col the first column is 1, the second is 2, ...
+     * @return a read-only direct buffer, or null if the value is SQL NULL.
+     * @throws SQLException
+     */
+    public ByteBuffer getUtf8(int col) throws SQLException {
+        if (buffered) {
+            return rowBuffer.getByteBuffer(markCol(col));
+        }
+        return readOnly(stmt.pointer.safeRun((db, ptr) -> db.column_text_utf8(ptr, markCol(col))));
+    }
+
+    /** @see #getUtf8(int) */
+    public ByteBuffer getUtf8(String col) throws SQLException {
+        return getUtf8(findColumn(col));
+    }
+
+    private static ByteBuffer readOnly(ByteBuffer buffer) {
+        return buffer == null ? null : buffer.asReadOnlyBuffer();
+    }
+
     /** @see java.sql.ResultSet#getCharacterStream(int) */
     public Reader getCharacterStream(int col) throws SQLException {
         String string = getString(col);
@@ -328,6 +443,9 @@ public abstract class JDBC3ResultSet extends CoreResultSet {
 
     /** @see java.sql.ResultSet#getInt(int) */
     public int getInt(int col) throws SQLException {
+        if (buffered) {
+            return (int) rowBuffer.getLong(markCol(col));
+        }
         return stmt.pointer.safeRunInt((db, ptr) -> db.column_int(ptr, markCol(col)));
     }
 
@@ -963,18 +1081,30 @@ public abstract class JDBC3ResultSet extends CoreResultSet {
     }
 
     protected int safeGetColumnType(int col) throws SQLException {
+        if (buffered) {
+            return rowBuffer.type(col);
+        }
         return stmt.pointer.safeRunInt((db, ptr) -> db.column_type(ptr, col));
     }
 
     private long safeGetLongCol(int col) throws SQLException {
+        if (buffered) {
+            return rowBuffer.getLong(markCol(col));
+        }
         return stmt.pointer.safeRunLong((db, ptr) -> db.column_long(ptr, markCol(col)));
     }
 
     private double safeGetDoubleCol(int col) throws SQLException {
+        if (buffered) {
+            return rowBuffer.getDouble(markCol(col));
+        }
         return stmt.pointer.safeRunDouble((db, ptr) -> db.column_double(ptr, markCol(col)));
     }
 
     private String safeGetColumnText(int col) throws SQLException {
+        if (buffered) {
+            return rowBuffer.getText(markCol(col));
+        }
         return stmt.pointer.safeRun((db, ptr) -> db.column_text(ptr, markCol(col)));
     }
 
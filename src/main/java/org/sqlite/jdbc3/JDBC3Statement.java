@@ -1,13 +1,14 @@
 package org.sqlite.jdbc3;
 
-import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 import org.sqlite.ExtendedCommand;
 import org.sqlite.ExtendedCommand.SQLExtension;
 import org.sqlite.SQLiteConnection;
@@ -20,6 +21,8 @@ public abstract class JDBC3Statement extends CoreStatement {
     private int queryTimeout; // in seconds, as per the JDBC spec
     protected long updateCount;
     private boolean exhaustedResults = false;
+    /** Deadline of the query timeout, kept while the result set has rows left, 0 if none. */
+    private long resultsDeadline;
 
     // PUBLIC INTERFACE /////////////////////////////////////////////
 
@@ -217,32 +220,15 @@ public abstract class JDBC3Statement extends CoreStatement {
 
     /** @see java.sql.Statement#executeLargeBatch() */
     public long[] executeLargeBatch() throws SQLException {
-        // TODO: optimize
         internalClose();
         if (batch == null || batchPos == 0) return new long[] {};
 
-        long[] changes = new long[batchPos];
-        DB db = conn.getDatabase();
-        synchronized (db) {
-            try {
-                for (int i = 0; i < changes.length; i++) {
-                    try {
-                        this.sql = (String) batch[i];
-                        db.prepare(this);
-                        changes[i] = db.executeUpdate(this, null);
-                    } catch (SQLException e) {
-                        throw new BatchUpdateException(
-                                "batch entry " + i + ": " + e.getMessage(), null, 0, changes, e);
-                    } finally {
-                        if (pointer != null) pointer.close();
-                    }
-                }
-            } finally {
-                clearBatch();
-            }
+        String[] sqls = Arrays.copyOf(batch, batchPos, String[].class);
+        try {
+            return withConnectionTimeout(() -> conn.getDatabase().executeBatch(sqls));
+        } finally {
+            clearBatch();
         }
-
-        return changes;
     }
 
     /** @see java.sql.Statement#setCursorName(java.lang.String) */
@@ -322,6 +308,7 @@ public abstract class JDBC3Statement extends CoreStatement {
     /** @see java.sql.Statement#setFetchSize(int) */
     public void setFetchSize(int r) throws SQLException {
         ((ResultSet) rs).setFetchSize(r);
+        fetchSize = r;
     }
 
     /** @see java.sql.Statement#getFetchDirection() */
@@ -444,22 +431,99 @@ public abstract class JDBC3Statement extends CoreStatement {
         throw unsupported();
     }
 
+    /**
+     * Runs the execution of a statement within the query timeout, if one is set: waits for locks
+     * are bounded by the busy timeout, and the statement itself is interrupted once the timeout has
+     * elapsed, in which case a {@link SQLTimeoutException} is thrown. The deadline only applies to
+     * the statements run by the callable, not to those that other threads run on the connection
+     * meanwhile. If the execution leaves rows to read, the deadline is kept for them, so that the
+     * timeout bounds the whole statement rather than each row.
+     */
     protected <T> T withConnectionTimeout(SQLCallable<T> callable) throws SQLException {
+        clearResultsDeadline();
+        if (queryTimeout <= 0) {
+            return callable.call();
+        }
+
+        DB db = conn.getDatabase();
         int origBusyTimeout = conn.getBusyTimeout();
-        if (queryTimeout > 0) {
-            // SQLite handles busy timeout in milliseconds, JDBC in seconds
-            conn.setBusyTimeout(1000 * queryTimeout);
+        long deadline = 0;
+        // SQLite handles busy timeout in milliseconds, JDBC in seconds
+        conn.setBusyTimeout(1000 * queryTimeout);
+        try {
+            deadline = db.set_deadline(TimeUnit.SECONDS.toNanos(queryTimeout));
+            T result = callable.call();
+            if (hasRowsLeft()) {
+                long kept = deadline;
+                pointer.safeRunConsume((database, ptr) -> database.restrict_deadline(kept, ptr));
+                resultsDeadline = kept;
+                deadline = 0;
+            }
+            return result;
+        } catch (SQLException e) {
+            long expiring = deadline;
+            deadline = 0;
+            if (expiring != 0 && db.clear_deadline(expiring)) {
+                throw timeoutExpired(e);
+            }
+            throw e;
+        } finally {
+            if (deadline != 0) db.clear_deadline(deadline);
+            // reset connection timeout to the original value
+            conn.setBusyTimeout(origBusyTimeout);
+        }
+    }
+
+    /** Whether the last execution left rows to read, through its result set or a later one. */
+    private boolean hasRowsLeft() {
+        return pointer != null
+                && !pointer.isClosed()
+                && (resultsWaiting || (rs.isOpen() && !rs.emptyResultSet));
+    }
+
+    /**
+     * Reads rows of the result set within the deadline kept from the execution of the statement, if
+     * any. Rows are read on their own, as the busy timeout the statement was executed with is only
+     * set during its execution.
+     */
+    <T> T withResultsTimeout(SQLCallable<T> callable) throws SQLException {
+        if (resultsDeadline == 0) {
+            return callable.call();
         }
         try {
             return callable.call();
-        } finally {
-            if (queryTimeout > 0) {
-                // reset connection timeout to the original value
-                conn.setBusyTimeout(origBusyTimeout);
-            }
+        } catch (SQLException e) {
+            if (clearResultsDeadline()) throw timeoutExpired(e);
+            throw e;
         }
     }
 
+    /**
+     * Clears the deadline kept for the result set, once its rows are read or it is closed.
+     *
+     * @return whether the deadline interrupted the statement.
+     */
+    boolean clearResultsDeadline() {
+        long deadline = resultsDeadline;
+        if (deadline == 0) return false;
+        resultsDeadline = 0;
+        return conn.getDatabase().clear_deadline(deadline);
+    }
+
+    private SQLTimeoutException timeoutExpired(SQLException e) {
+        return new SQLTimeoutException(
+                "query timeout of " + queryTimeout + "s expired",
+                e.getSQLState(),
+                e.getErrorCode(),
+                e);
+    }
+
+    @Override
+    protected void internalClose() throws SQLException {
+        clearResultsDeadline();
+        super.internalClose();
+    }
+
     @FunctionalInterface
     protected interface SQLCallable<T> {
 
@@ -9,7 +9,6 @@ import java.sql.RowId;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.sql.SQLXML;
-import java.util.Arrays;
 import org.sqlite.SQLiteConnection;
 import org.sqlite.jdbc3.JDBC3PreparedStatement;
 
@@ -18,7 +17,7 @@ public class JDBC4PreparedStatement extends JDBC3PreparedStatement
 
     @Override
     public String toString() {
-        return sql + " \n parameters=" + Arrays.toString(batch);
+        return sql + " \n parameters=" + parameters;
     }
 
     public JDBC4PreparedStatement(SQLiteConnection conn, String sql) throws SQLException {
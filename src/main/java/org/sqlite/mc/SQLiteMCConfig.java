@@ -1,13 +1,19 @@
 package org.sqlite.mc;
 
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Properties;
 import org.sqlite.SQLiteConfig;
 import org.sqlite.SQLiteConfigFactory;
+import org.sqlite.SQLiteConnection;
 
 public class SQLiteMCConfig extends SQLiteConfig {
 
@@ -64,6 +70,7 @@ public class SQLiteMCConfig extends SQLiteConfig {
         pragmaParams.remove(Pragma.HMAC_ALGORITHM.pragmaName);
         pragmaParams.remove(Pragma.PLAINTEXT_HEADER_SIZE.pragmaName);
         pragmaParams.remove(Pragma.MC_USE_SQL_INTERFACE.pragmaName);
+        pragmaParams.remove(Pragma.MC_KEY_CACHE.pragmaName);
 
         // Configure before applying the key
         // Call the Cipher parameter function
@@ -106,12 +113,125 @@ public class SQLiteMCConfig extends SQLiteConfig {
 
         if (pragmaTable.containsKey(Pragma.PASSWORD.pragmaName)
                 || pragmaTable.containsKey(Pragma.KEY.pragmaName)) {
-            applyPassword(conn, pragmaTable.getProperty(Pragma.KEY.pragmaName));
+            String key = pragmaTable.getProperty(Pragma.KEY.pragmaName);
+            if (!applyCachedKey(conn, key, pragmaTable)) {
+                applyPassword(conn, key);
+            }
         }
 
         applyRemainingPragmas(conn, pragmaParams);
     }
 
+    /**
+     * Opens the database with a raw key taken from the {@link SQLiteMCKeyCache}, instead of letting
+     * SQLite derive it from the passphrase. This is only possible for SQLCipher, the only cipher
+     * scheme accepting raw keys, with a passphrase and an existing database whose salt can be read
+     * from the file.
+     *
+     * <p>The key pragma is built in a byte array that is wiped once it has run, so that the raw key
+     * is not left behind in a String. A connection is keyed only once: if the raw key does not open
+     * the database, the cache entry is dropped and the error is thrown, rather than keying the
+     * connection again with the passphrase.
+     *
+     * @return true if the database was opened; false if the passphrase must be applied instead.
+     */
+    private boolean applyCachedKey(Connection conn, String key, Properties pragmaTable)
+            throws SQLException {
+        if (!Boolean.parseBoolean(pragmaTable.getProperty(Pragma.MC_KEY_CACHE.pragmaName))
+                || !CipherAlgorithm.SQL_CIPHER
+                        .getValue()
+                        .equals(pragmaTable.getProperty(Pragma.CIPHER.pragmaName))
+                || key == null
+                || key.isEmpty()
+                || key.startsWith("x'")
+                || !HexKeyMode.NONE
+                        .name()
+                        .equals(
+                                pragmaTable.getProperty(
+                                        Pragma.HEXKEY_MODE.pragmaName, HexKeyMode.NONE.name()))
+                || !"0"
+                        .equals(
+                                pragmaTable.getProperty(
+                                        Pragma.PLAINTEXT_HEADER_SIZE.pragmaName, "0"))) {
+            return false;
+        }
+
+        String file = mainDatabaseFile(conn);
+        byte[] salt = file == null ? null : readSalt(file);
+        if (salt == null) return false;
+
+        // the KDF parameters of the legacy version, unless they are set explicitly
+        int legacy = Integer.parseInt(pragmaTable.getProperty(Pragma.LEGACY.pragmaName, "0"));
+        KdfAlgorithm algorithm =
+                legacy >= 1 && legacy <= 3 ? KdfAlgorithm.SHA1 : KdfAlgorithm.SHA512;
+        int iterations = legacy == 1 || legacy == 2 ? 4000 : legacy == 3 ? 64000 : 256000;
+        String kdfAlgorithm = pragmaTable.getProperty(Pragma.KDF_ALGORITHM.pragmaName);
+        if (kdfAlgorithm != null) algorithm = KdfAlgorithm.values()[Integer.parseInt(kdfAlgorithm)];
+        String kdfIter = pragmaTable.getProperty(Pragma.KDF_ITER.pragmaName);
+        if (kdfIter != null) iterations = Integer.parseInt(kdfIter);
+
+        SQLiteMCKeyCache cache = SQLiteMCKeyCache.getInstance();
+        byte[] derived = cache.deriveKey(file, salt, algorithm, iterations, 32, key);
+        byte[] pragma = rawKeyPragma(derived, salt);
+        Arrays.fill(derived, (byte) 0);
+        try {
+            conn.unwrap(SQLiteConnection.class).getDatabase()._exec(pragma);
+        } finally {
+            Arrays.fill(pragma, (byte) 0);
+        }
+        try (Statement stat = conn.createStatement()) {
+            stat.execute("select 1 from sqlite_schema");
+        } catch (SQLException e) {
+            // a wrong passphrase, or KDF parameters that do not match the database
+            cache.invalidate(file, salt, algorithm, iterations, 32, key);
+            throw e;
+        }
+        return true;
+    }
+
+    /** @return {@code pragma key = "x'<key><salt>'"}, in ASCII. */
+    private static byte[] rawKeyPragma(byte[] key, byte[] salt) {
+        byte[] prefix = "pragma key = \"x'".getBytes(StandardCharsets.US_ASCII);
+        byte[] pragma = new byte[prefix.length + (key.length + salt.length) * 2 + 2];
+        System.arraycopy(prefix, 0, pragma, 0, prefix.length);
+        int i = prefix.length;
+        for (byte[] bytes : new byte[][] {key, salt}) {
+            for (byte b : bytes) {
+                pragma[i++] = (byte) Character.forDigit((b >> 4) & 0xf, 16);
+                pragma[i++] = (byte) Character.forDigit(b & 0xf, 16);
+            }
+        }
+        pragma[i++] = '\'';
+        pragma[i] = '"';
+        return pragma;
+    }
+
+    /** @return the path of the main database file, or null for a temporary database. */
+    private static String mainDatabaseFile(Connection conn) throws SQLException {
+        try (Statement stat = conn.createStatement();
+                ResultSet rs = stat.executeQuery("pragma database_list")) {
+            while (rs.next()) {
+                if ("main".equals(rs.getString("name"))) {
+                    String file = rs.getString("file");
+                    return file == null || file.isEmpty() ? null : file;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** @return the salt SQLCipher stores in the first 16 bytes of a database, or null. */
+    private static byte[] readSalt(String file) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            byte[] salt = new byte[16];
+            if (raf.length() < salt.length) return null;
+            raf.readFully(salt);
+            return salt;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
     public static class Builder {
 
         public Builder() {}
@@ -208,6 +328,21 @@ public class SQLiteMCConfig extends SQLiteConfig {
             return this;
         }
 
+        /**
+         * Caches the key derived from the passphrase, so that later connections to the same
+         * database skip the key derivation. Only applies to SQLCipher databases.
+         *
+         * @see SQLiteMCKeyCache
+         */
+        public Builder useKeyCache() {
+            return useKeyCache(true);
+        }
+
+        public Builder useKeyCache(boolean keyCache) {
+            setPragma(Pragma.MC_KEY_CACHE, keyCache ? "true" : "false");
+            return this;
+        }
+
         public Builder withKey(String key) {
 
             // Hex Key is a string like any key. It will be processed by SQLite. ex: String a =
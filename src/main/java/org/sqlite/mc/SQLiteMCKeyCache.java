@@ -0,0 +1,227 @@
+package org.sqlite.mc;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.crypto.Mac;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Process-wide cache of the keys derived from passphrases, so that opening an encrypted database
+ * again does not repeat the key derivation. It is used by connections configured with {@link
+ * SQLiteMCConfig.Builder#useKeyCache()}.
+ *
+ * <p>Entries are identified by the database file, its salt, the KDF parameters and a keyed digest
+ * of the passphrase; the passphrase itself is not kept. The least recently used entry is dropped
+ * when the cache is full, and dropped keys are overwritten with zeros.
+ */
+public final class SQLiteMCKeyCache {
+    /** The number of keys kept by default. */
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private static final SQLiteMCKeyCache INSTANCE = new SQLiteMCKeyCache(DEFAULT_CAPACITY);
+
+    private static final class Entry {
+        final byte[] key;
+        final long deriveNanos;
+
+        Entry(byte[] key, long deriveNanos) {
+            this.key = key;
+            this.deriveNanos = deriveNanos;
+        }
+    }
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final byte[] digestKey = new byte[32];
+    private int capacity;
+    private long hits;
+    private long misses;
+    private long savedNanos;
+
+    SQLiteMCKeyCache(int capacity) {
+        this.capacity = capacity;
+        new SecureRandom().nextBytes(digestKey);
+    }
+
+    /** @return the cache shared by all connections. */
+    public static SQLiteMCKeyCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Sets the maximum number of keys kept, dropping the least recently used ones if needed.
+     *
+     * @param capacity the number of keys, or 0 to disable caching.
+     */
+    public synchronized void setCapacity(int capacity) {
+        if (capacity < 0) throw new IllegalArgumentException("capacity must not be negative");
+        this.capacity = capacity;
+        trim();
+    }
+
+    /** @return the maximum number of keys kept. */
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    /** @return the number of keys currently kept. */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** @return the number of connections which reused a cached key. */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /** @return the number of keys derived because they were not cached. */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return the time the cache hits would have spent deriving their keys, in milliseconds. This
+     *     is estimated from the time the cached keys originally took to derive.
+     */
+    public synchronized long getTimeSavedMillis() {
+        return savedNanos / 1_000_000;
+    }
+
+    /** Drops all keys, overwriting them with zeros, and resets the statistics. */
+    public synchronized void clear() {
+        for (Entry entry : entries.values()) {
+            Arrays.fill(entry.key, (byte) 0);
+        }
+        entries.clear();
+        hits = 0;
+        misses = 0;
+        savedNanos = 0;
+    }
+
+    /**
+     * Returns the key derived with PBKDF2 from a passphrase, deriving it if it is not cached.
+     *
+     * @param file the path of the database file.
+     * @param salt the salt of the database.
+     * @param algorithm the hash algorithm of the KDF.
+     * @param iterations the number of KDF iterations.
+     * @param keyLength the length of the derived key, in bytes.
+     * @param passphrase the passphrase.
+     * @return a copy of the derived key, to be cleared by the caller.
+     */
+    byte[] deriveKey(
+            String file,
+            byte[] salt,
+            KdfAlgorithm algorithm,
+            int iterations,
+            int keyLength,
+            String passphrase)
+            throws SQLException {
+        String id = id(file, salt, algorithm, iterations, keyLength, passphrase);
+        synchronized (this) {
+            Entry entry = entries.get(id);
+            if (entry != null) {
+                hits++;
+                savedNanos += entry.deriveNanos;
+                return entry.key.clone();
+            }
+            misses++;
+        }
+
+        // derive outside of the lock, so that other databases are not held up
+        long start = System.nanoTime();
+        byte[] key = pbkdf2(algorithm, passphrase, salt, iterations, keyLength);
+        long deriveNanos = System.nanoTime() - start;
+        synchronized (this) {
+            if (capacity > 0) {
+                Entry previous = entries.put(id, new Entry(key.clone(), deriveNanos));
+                if (previous != null) Arrays.fill(previous.key, (byte) 0);
+                trim();
+            }
+        }
+        return key;
+    }
+
+    /** Drops a key which turned out not to open the database. */
+    void invalidate(
+            String file,
+            byte[] salt,
+            KdfAlgorithm algorithm,
+            int iterations,
+            int keyLength,
+            String passphrase)
+            throws SQLException {
+        String id = id(file, salt, algorithm, iterations, keyLength, passphrase);
+        synchronized (this) {
+            Entry entry = entries.remove(id);
+            if (entry != null) Arrays.fill(entry.key, (byte) 0);
+        }
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > capacity && it.hasNext()) {
+            Arrays.fill(it.next().getValue().key, (byte) 0);
+            it.remove();
+        }
+    }
+
+    private String id(
+            String file,
+            byte[] salt,
+            KdfAlgorithm algorithm,
+            int iterations,
+            int keyLength,
+            String passphrase)
+            throws SQLException {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(digestKey, "HmacSHA256"));
+            byte[] digest = mac.doFinal(passphrase.getBytes(StandardCharsets.UTF_8));
+            return file
+                    + '|'
+                    + toHex(salt)
+                    + '|'
+                    + algorithm
+                    + '|'
+                    + iterations
+                    + '|'
+                    + keyLength
+                    + '|'
+                    + toHex(digest);
+        } catch (GeneralSecurityException e) {
+            throw new SQLException("Cannot compute the key cache entry", e);
+        }
+    }
+
+    static byte[] pbkdf2(
+            KdfAlgorithm algorithm, String passphrase, byte[] salt, int iterations, int keyLength)
+            throws SQLException {
+        PBEKeySpec spec = new PBEKeySpec(passphrase.toCharArray(), salt, iterations, keyLength * 8);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmac" + algorithm)
+                    .generateSecret(spec)
+                    .getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new SQLException("Cannot derive the key with " + algorithm, e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16))
+                    .append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+}
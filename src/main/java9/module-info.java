@@ -3,6 +3,7 @@ module io.github.willena.sqlitejdbc {
     requires transitive java.sql;
     requires transitive java.sql.rowset;
     requires static org.graalvm.sdk;
+    requires static java.management;
 
     exports org.sqlite;
     exports org.sqlite.core;
@@ -15,6 +15,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -78,20 +79,45 @@ public class SqliteJdbcFeature implements Feature {
                         "progressHandler"));
         RuntimeJNIAccess.register(
                 method(DB.class, "onUpdate", int.class, String.class, String.class, long.class));
+        RuntimeJNIAccess.register(
+                method(
+                        DB.class,
+                        "onUpdates",
+                        int.class,
+                        int[].class,
+                        long[].class,
+                        String[].class));
         RuntimeJNIAccess.register(method(DB.class, "onCommit", boolean.class));
+        RuntimeJNIAccess.register(
+                method(NativeDB.class, "onStatementError", int.class, ByteBuffer.class));
         RuntimeJNIAccess.register(method(NativeDB.class, "stringToUtf8ByteArray", String.class));
         RuntimeJNIAccess.register(method(DB.class, "throwex"));
         RuntimeJNIAccess.register(method(DB.class, "throwex", int.class));
         RuntimeJNIAccess.register(method(NativeDB.class, "throwex", String.class));
+        RuntimeJNIAccess.register(Thread.class);
+        RuntimeJNIAccess.register(method(Thread.class, "currentThread"));
 
         // Function JNI calls
         RuntimeJNIAccess.register(Function.class);
         RuntimeJNIAccess.register(fields(Function.class, "context", "value", "args"));
         RuntimeJNIAccess.register(method(Function.class, "xFunc"));
 
+        // Typed Function JNI calls
+        RuntimeJNIAccess.register(Function.LongFunction.class);
+        RuntimeJNIAccess.register(method(Function.LongFunction.class, "apply", long.class));
+        RuntimeJNIAccess.register(Function.DoubleFunction.class);
+        RuntimeJNIAccess.register(method(Function.DoubleFunction.class, "apply", double.class));
+        RuntimeJNIAccess.register(Function.TextFunction.class);
+        RuntimeJNIAccess.register(method(Function.TextFunction.class, "apply", String.class));
+        RuntimeJNIAccess.register(Function.BlobFunction.class);
+        RuntimeJNIAccess.register(method(Function.BlobFunction.class, "apply", byte[].class));
+
         // Collation JNI calls
         RuntimeJNIAccess.register(Collation.class);
         RuntimeJNIAccess.register(method(Collation.class, "xCompare", String.class, String.class));
+        RuntimeJNIAccess.register(Collation.Keyed.class);
+        RuntimeJNIAccess.register(fields(Collation.Keyed.class, "cacheSize"));
+        RuntimeJNIAccess.register(method(Collation.Keyed.class, "key", String.class));
 
         // Function$Aggregate JNI calls
         RuntimeJNIAccess.register(Function.Aggregate.class);
@@ -104,6 +130,21 @@ public class SqliteJdbcFeature implements Feature {
         RuntimeJNIAccess.register(method(Function.Window.class, "xInverse"));
         RuntimeJNIAccess.register(method(Function.Window.class, "xValue"));
 
+        // Function$BatchAggregate JNI calls
+        RuntimeJNIAccess.register(Function.BatchAggregate.class);
+        RuntimeJNIAccess.register(fields(Function.BatchAggregate.class, "batchSize"));
+        RuntimeJNIAccess.register(
+                method(
+                        Function.BatchAggregate.class,
+                        "xStepRows",
+                        int.class,
+                        int.class,
+                        int[].class,
+                        long[].class,
+                        double[].class,
+                        long[].class,
+                        byte[].class));
+
         // DB&ProgressObserver JNI calls
         RuntimeJNIAccess.register(DB.ProgressObserver.class);
         RuntimeJNIAccess.register(
@@ -11,15 +11,21 @@ package org.sqlite;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.sqlite.core.DB;
+import org.sqlite.mc.SQLiteMCSqlCipherConfig;
 
 public class BackupTest {
     @TempDir File tempDir;
@@ -135,4 +141,74 @@ public class BackupTest {
             assertThat(pageCountStore.get()).isGreaterThan(0);
         }
     }
+
+    @Test
+    void backupToStream() throws Exception {
+        File tmpFile = File.createTempFile("backup-test", ".sqlite", tempDir);
+
+        try (SQLiteConnection conn = JDBC.createConnection("jdbc:sqlite:", new Properties())) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("create table sample(id integer primary key, name)");
+                stmt.executeUpdate(
+                        "with recursive c(x) as (select 1 union all select x + 1 from c where x <"
+                                + " 5000) insert into sample select x, hex(randomblob(32)) from c");
+            }
+
+            List<Long> progress = new ArrayList<>();
+            DB.ProgressObserver observer =
+                    new DB.ProgressObserver() {
+                        @Override
+                        public void progress(int remaining, int pageCount) {}
+
+                        @Override
+                        public void progress(
+                                int remaining, int pageCount, long bytes, long elapsedNanos) {
+                            progress.add(bytes);
+                        }
+                    };
+            long maxBytesPerSecond = 2 << 20;
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            long start = System.nanoTime();
+            conn.getDatabase().backup("main", out, observer, 16, maxBytesPerSecond);
+            long elapsed = System.nanoTime() - start;
+
+            byte[] image = out.toByteArray();
+            assertThat(image.length).isGreaterThan(100_000);
+            assertThat(progress).isSorted().last().isEqualTo(2L * image.length);
+            assertThat(elapsed)
+                    .isGreaterThan((long) (2e9 * image.length / maxBytesPerSecond * 0.9));
+
+            Files.write(tmpFile.toPath(), image);
+        }
+
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + tmpFile);
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("select count(*) from sample")) {
+            assertThat(rs.getInt(1)).isEqualTo(5000);
+        }
+    }
+
+    @Test
+    void backupOfEncryptedDatabaseToStreamIsRefused() throws Exception {
+        File dbFile = File.createTempFile("backup-test-encrypted", ".sqlite", tempDir);
+        String url = "jdbc:sqlite:" + dbFile;
+
+        try (SQLiteConnection conn =
+                (SQLiteConnection)
+                        SQLiteMCSqlCipherConfig.getDefault()
+                                .withKey("secret")
+                                .build()
+                                .createConnection(url)) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("create table sample(id integer primary key, name)");
+                stmt.executeUpdate("insert into sample values (1, 'confidential')");
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertThatThrownBy(() -> conn.getDatabase().backup("main", out, null, 16, 0))
+                    .isInstanceOf(SQLException.class)
+                    .hasMessageContaining("encrypted");
+            assertThat(out.size()).isZero();
+        }
+    }
 }
@@ -2,6 +2,7 @@ package org.sqlite;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
@@ -10,6 +11,7 @@ import java.sql.Statement;
 import java.text.Collator;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Locale;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -184,6 +186,75 @@ public class CollationTest {
                 .isEqualTo(Arrays.stream(expected).distinct().sorted().toArray());
     }
 
+    @Test
+    public void keyedCollation() throws SQLException {
+        ArrayList<String> received = new ArrayList<>();
+        Collation.create(
+                conn,
+                "REVERSE",
+                new Collation.Keyed(4) {
+                    @Override
+                    protected byte[] key(String str) {
+                        received.add(str);
+                        byte[] key = new byte[str.length() * 2];
+                        for (int i = 0; i < str.length(); i++) {
+                            char c = (char) ~str.charAt(i);
+                            key[2 * i] = (byte) (c >> 8);
+                            key[2 * i + 1] = (byte) c;
+                        }
+                        return key;
+                    }
+                });
+        stat.executeUpdate("create table t (c1);");
+        for (int i = 0; i < 100; i++) {
+            stat.executeUpdate("insert into t values ('v" + (i % 10) + "');");
+        }
+        ResultSet rs = stat.executeQuery("select c1 from t order by c1 collate REVERSE;");
+        ArrayList<String> sorted = new ArrayList<>();
+        while (rs.next()) sorted.add(rs.getString(1));
+        assertThat(sorted).hasSize(100).isSortedAccordingTo((a, b) -> b.compareTo(a));
+        assertThat(received)
+                .containsOnly("v0", "v1", "v2", "v3", "v4", "v5", "v6", "v7", "v8", "v9");
+    }
+
+    @Test
+    public void keyedCollationKeepsRecentlyUsedKeys() throws SQLException {
+        ArrayList<String> received = new ArrayList<>();
+        Collation.create(
+                conn,
+                "CACHED",
+                new Collation.Keyed(2) {
+                    @Override
+                    protected byte[] key(String str) {
+                        received.add(str);
+                        return str.getBytes(StandardCharsets.UTF_8);
+                    }
+                });
+        stat.executeUpdate("create table t (c1);");
+        for (int i = 0; i < 100; i++) {
+            stat.executeUpdate("insert into t values ('v" + i + "');");
+        }
+        ResultSet rs = stat.executeQuery("select count(*) from t where c1 < 'v5' collate CACHED;");
+        assertThat(rs.getInt(1)).isEqualTo(45);
+        // every row is compared with 'v5', whose key stays cached while other keys are evicted
+        assertThat(received).hasSize(100).containsOnlyOnce("v5");
+    }
+
+    @Test
+    public void collatorCollation() throws SQLException {
+        Collator collator = Collator.getInstance(Locale.FRENCH);
+        collator.setStrength(Collator.PRIMARY);
+        Collation.create(conn, "FR", Collation.Keyed.of(collator));
+        stat.executeUpdate("create table t (c1 text collate FR primary key);");
+        stat.executeUpdate("insert into t values ('aec'), ('aea'), ('aéb'), ('😀'), ('');");
+        ResultSet rs = stat.executeQuery("select c1 from t order by c1;");
+        ArrayList<String> sorted = new ArrayList<>();
+        while (rs.next()) sorted.add(rs.getString(1));
+        assertThat(sorted).isSortedAccordingTo(collator).contains("aéb", "😀");
+        assertThat(stat.executeQuery("select count(*) from t where c1 = 'AEB';").getInt(1))
+                .isEqualTo(1);
+    }
+
     @Test
     public void destroy() throws SQLException {
         Collation.create(
@@ -0,0 +1,198 @@
+package org.sqlite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sqlite.core.DB;
+import org.sqlite.core.NativeDBHelper;
+
+public class CsvImportTest {
+    @TempDir Path dir;
+    private SQLiteConnection conn;
+    private Statement stat;
+
+    @BeforeEach
+    public void connect() throws SQLException {
+        conn = (SQLiteConnection) DriverManager.getConnection("jdbc:sqlite:");
+        stat = conn.createStatement();
+        stat.executeUpdate("create table t (id integer primary key, name text, score real)");
+    }
+
+    @AfterEach
+    public void close() throws SQLException {
+        stat.close();
+        conn.close();
+    }
+
+    @Test
+    public void quotedFieldsAndHeader() throws Exception {
+        Path file =
+                write(
+                        "\uFEFFscore,\"id\",name\r\n"
+                                + "1.5,1,plain\r\n"
+                                + "\r\n"
+                                + "2,2,\"with, comma\"\n"
+                                + "3,3,\"with \"\"quotes\"\"\nand a line\"\n"
+                                + ",4,\n"
+                                + "5,5,\"\"");
+        SQLiteCsvFormat format = SQLiteCsvFormat.csv();
+        format.setHeader(true);
+        format.setEmptyAsNull(true);
+
+        assertThat(conn.importCsv(file, "t", format)).isEqualTo(5);
+        assertThat(conn.getAutoCommit()).isTrue();
+        try (ResultSet rs = stat.executeQuery("select id, name, score from t order by id")) {
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getObject(1)).isEqualTo(1);
+            assertThat(rs.getString(2)).isEqualTo("plain");
+            assertThat(rs.getObject(3)).isEqualTo(1.5);
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getString(2)).isEqualTo("with, comma");
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getString(2)).isEqualTo("with \"quotes\"\nand a line");
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getObject(2)).isNull();
+            assertThat(rs.getObject(3)).isNull();
+            assertThat(rs.next()).isTrue();
+            // a quoted empty field is an empty string
+            assertThat(rs.getString(2)).isEmpty();
+            assertThat(rs.next()).isFalse();
+        }
+    }
+
+    @Test
+    public void windowsAndCommits() throws Exception {
+        StringBuilder tsv = new StringBuilder();
+        for (int i = 1; i <= 10000; i++) {
+            tsv.append(i).append("\tname").append(i).append('\t').append(i * 0.5).append('\n');
+        }
+        Path file = write(tsv.toString());
+        long size = Files.size(file);
+
+        List<long[]> calls = new ArrayList<>();
+        DB.ProgressObserver observer =
+                new DB.ProgressObserver() {
+                    @Override
+                    public void progress(int remaining, int pageCount) {}
+
+                    @Override
+                    public void imported(
+                            long rows, long bytes, long totalBytes, long elapsedNanos) {
+                        calls.add(new long[] {rows, bytes, totalBytes});
+                    }
+                };
+        long rows =
+                NativeDBHelper.importCsv(
+                        conn.getDatabase(), file, "t", SQLiteCsvFormat.tsv(), 1000, observer, 256);
+        assertThat(rows).isEqualTo(10000);
+        try (ResultSet rs = stat.executeQuery("select count(*), sum(id), sum(score) from t")) {
+            assertThat(rs.getLong(1)).isEqualTo(10000);
+            assertThat(rs.getLong(2)).isEqualTo(10000L * 10001 / 2);
+            assertThat(rs.getDouble(3)).isEqualTo(10000L * 10001 / 4.0);
+        }
+        try (ResultSet rs = stat.executeQuery("select name from t where id = 1234")) {
+            assertThat(rs.getString(1)).isEqualTo("name1234");
+        }
+
+        long[] lastCall = calls.get(calls.size() - 1);
+        assertThat(lastCall).containsExactly(10000, size, size);
+        // a call per commit and per window at least
+        assertThat(calls.size()).isGreaterThanOrEqualTo((int) (size / 256));
+        for (int i = 1; i < calls.size(); i++) {
+            assertThat(calls.get(i)[0]).isGreaterThanOrEqualTo(calls.get(i - 1)[0]);
+        }
+    }
+
+    @Test
+    public void rowLongerThanWindow() throws Exception {
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 1000; i++) name.append((char) ('a' + i % 26));
+        Path file = write("1,\"" + name + "\",1\n2,\"" + name + "\"\"\",2\n");
+
+        long rows =
+                NativeDBHelper.importCsv(
+                        conn.getDatabase(), file, "t", SQLiteCsvFormat.csv(), 10, null, 64);
+        assertThat(rows).isEqualTo(2);
+        try (ResultSet rs = stat.executeQuery("select name from t order by id")) {
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getString(1)).isEqualTo(name.toString());
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getString(1)).isEqualTo(name + "\"");
+        }
+    }
+
+    @Test
+    public void failedRowRollsBackItsTransaction() throws Exception {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 1; i <= 250; i++) csv.append(i).append(",x,0\n");
+        csv.append("100,duplicate,0\n");
+        Path file = write(csv.toString());
+
+        assertThatThrownBy(() -> conn.importCsv(file, "t", SQLiteCsvFormat.csv(), 100, null))
+                .isInstanceOf(SQLException.class)
+                .hasMessageContaining("row 251");
+        assertThat(conn.getAutoCommit()).isTrue();
+        assertThat(count()).isEqualTo(200);
+    }
+
+    @Test
+    public void malformedRows() throws Exception {
+        assertThatThrownBy(() -> conn.importCsv(write("1,a,1\n2,b,2,extra\n"), "t", csv()))
+                .isInstanceOf(SQLException.class)
+                .hasMessageContaining("row 2");
+        assertThatThrownBy(() -> conn.importCsv(write("3,\"a\"b,1\n"), "t", csv()))
+                .isInstanceOf(SQLException.class)
+                .hasMessageContaining("row 1");
+        assertThatThrownBy(() -> conn.importCsv(write("4,\"unterminated,1\n"), "t", csv()))
+                .isInstanceOf(SQLException.class);
+        assertThat(count()).isZero();
+
+        // missing fields are NULL
+        assertThat(conn.importCsv(write("5\n6,b"), "t", csv())).isEqualTo(2);
+        try (ResultSet rs = stat.executeQuery("select count(*) from t where score is null")) {
+            assertThat(rs.getInt(1)).isEqualTo(2);
+        }
+        assertThatThrownBy(() -> conn.importCsv(write("1\n"), "missing", csv()))
+                .isInstanceOf(SQLException.class);
+    }
+
+    @Test
+    public void withinTransaction() throws Exception {
+        Path file = write("1,a,1\n2,b,2\n3,c,3\n");
+        conn.setAutoCommit(false);
+        assertThat(conn.importCsv(file, "t", SQLiteCsvFormat.csv(), 1, null)).isEqualTo(3);
+        conn.rollback();
+        assertThat(count()).isZero();
+        conn.setAutoCommit(true);
+    }
+
+    private static SQLiteCsvFormat csv() {
+        return SQLiteCsvFormat.csv();
+    }
+
+    private Path write(String text) throws IOException {
+        Path file = Files.createTempFile(dir, "import", ".csv");
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private int count() throws SQLException {
+        try (ResultSet rs = stat.executeQuery("select count(*) from t")) {
+            return rs.getInt(1);
+        }
+    }
+}
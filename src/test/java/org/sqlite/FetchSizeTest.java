@@ -1,12 +1,17 @@
 package org.sqlite;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -55,4 +60,197 @@ public class FetchSizeTest {
         assertThat(rs.next()).isTrue();
         assertThat(rs.next()).isFalse();
     }
+
+    private static final String MIXED_SQL =
+            "select 42, -7, 9223372036854775807, 1.5, 0.1, 1e100, -2.5e-7, 123456789012345678.0,"
+                    + " 0.0, 'text', '12abc', ' -3.5e2x', '99999999999999999999', '', x'00ff41',"
+                    + " x'', null, 9e999, -9e999, '0x1F', ' 12 ', '1e400', -0.0, '-0.0',"
+                    + " '9223372036854775808', '+5', '.5e', 1e15, 1e-5, 0.30000000000000004";
+
+    private List<String> readAll(ResultSet rs) throws SQLException {
+        List<String> values = new ArrayList<>();
+        int columns = rs.getMetaData().getColumnCount();
+        while (rs.next()) {
+            for (int i = 1; i <= columns; i++) {
+                // read the object first, sqlite converts blobs read as text in place
+                Object value = rs.getObject(i);
+                values.add(
+                        (value instanceof byte[] ? Arrays.toString((byte[]) value) : value)
+                                + "|"
+                                + rs.getString(i)
+                                + "|"
+                                + rs.wasNull()
+                                + "|"
+                                + rs.getLong(i)
+                                + "|"
+                                + rs.getInt(i)
+                                + "|"
+                                + rs.getDouble(i)
+                                + "|"
+                                + Arrays.toString(rs.getBytes(i)));
+            }
+        }
+        return values;
+    }
+
+    private List<String> readMixed(int fetchSize) throws SQLException {
+        try (PreparedStatement prep = conn.prepareStatement(MIXED_SQL);
+                ResultSet rs = prep.executeQuery()) {
+            rs.setFetchSize(fetchSize);
+            return readAll(rs);
+        }
+    }
+
+    @Test
+    public void bufferedRowsConvertLikeSqlite() throws SQLException {
+        List<String> live = readMixed(0);
+        assertThat(live).hasSize(30);
+        assertThat(readMixed(100)).isEqualTo(live);
+    }
+
+    @Test
+    public void bufferedRowsMatchLiveRows() throws SQLException {
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("create table t (id integer, name text, score real, data blob)");
+            stat.executeUpdate(
+                    "insert into t with recursive c(x) as (select 1 union all select x + 1 from c"
+                            + " where x < 1000) select x, case when x % 7 = 0 then null else"
+                            + " 'name' || x end, x / 3.0, randomblob(x % 50) from c");
+        }
+        List<String> live;
+        try (PreparedStatement prep = conn.prepareStatement("select * from t order by id");
+                ResultSet rs = prep.executeQuery()) {
+            live = readAll(rs);
+        }
+        for (int fetchSize : new int[] {2, 3, 64, 1000, 5000}) {
+            try (PreparedStatement prep = conn.prepareStatement("select * from t order by id");
+                    ResultSet rs = prep.executeQuery()) {
+                rs.setFetchSize(fetchSize);
+                assertThat(readAll(rs)).as("fetch size %d", fetchSize).isEqualTo(live);
+                assertThat(rs.next()).isFalse();
+            }
+        }
+    }
+
+    @Test
+    public void defaultFetchSize() throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setDefaultFetchSize(50);
+        try (Connection buffered = config.createConnection("jdbc:sqlite:");
+                Statement stat = buffered.createStatement()) {
+            assertThat(stat.getFetchSize()).isEqualTo(50);
+            try (ResultSet rs = stat.executeQuery(MIXED_SQL)) {
+                assertThat(rs.getFetchSize()).isEqualTo(50);
+                assertThat(readAll(rs)).isEqualTo(readMixed(0));
+            }
+            stat.setFetchSize(0);
+            try (ResultSet rs = stat.executeQuery("select 1")) {
+                assertThat(rs.getFetchSize()).isZero();
+            }
+        }
+    }
+
+    @Test
+    public void changingFetchSizeWhileReading() throws SQLException {
+        try (Statement stat = conn.createStatement();
+                ResultSet rs =
+                        stat.executeQuery(
+                                "with recursive c(x) as (select 1 union all select x + 1 from c"
+                                        + " where x < 20) select x from c")) {
+            List<Integer> ids = new ArrayList<>();
+            int[] fetchSizes = {0, 5, 1, 3, 0, 10};
+            int i = 0;
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+                assertThat(rs.getRow()).isEqualTo(ids.size());
+                rs.setFetchSize(fetchSizes[i++ % fetchSizes.length]);
+            }
+            assertThat(ids).hasSize(20);
+            for (int id = 1; id <= 20; id++) {
+                assertThat(ids.get(id - 1)).isEqualTo(id);
+            }
+        }
+    }
+
+    @Test
+    public void fetchHonorsMaxRows() throws SQLException {
+        try (Statement stat = conn.createStatement()) {
+            stat.setMaxRows(7);
+            stat.setFetchSize(5);
+            try (ResultSet rs =
+                    stat.executeQuery(
+                            "with recursive c(x) as (select 1 union all select x + 1 from c"
+                                    + " where x < 20) select x from c")) {
+                int count = 0;
+                while (rs.next()) {
+                    assertThat(rs.getInt(1)).isEqualTo(++count);
+                }
+                assertThat(count).isEqualTo(7);
+            }
+        }
+    }
+
+    @Test
+    public void growsBufferForLargeRows() throws SQLException {
+        try (PreparedStatement prep =
+                        conn.prepareStatement(
+                                "with recursive c(x) as (select 1 union all select x + 1 from c"
+                                        + " where x < 4) select x, zeroblob(x * 100000) from c");
+                ResultSet rs = prep.executeQuery()) {
+            rs.setFetchSize(10);
+            for (int i = 1; i <= 4; i++) {
+                assertThat(rs.next()).isTrue();
+                assertThat(rs.getInt(1)).isEqualTo(i);
+                assertThat(rs.getBytes(2)).hasSize(i * 100000);
+            }
+            assertThat(rs.next()).isFalse();
+        }
+    }
+
+    @Test
+    public void statementFetchSizeAppliesToEachResultSet() throws SQLException {
+        try (PreparedStatement prep = conn.prepareStatement("select ?")) {
+            prep.setFetchSize(50);
+            for (int i = 0; i < 3; i++) {
+                prep.setInt(1, i);
+                try (ResultSet rs = prep.executeQuery()) {
+                    assertThat(rs.getFetchSize()).isEqualTo(50);
+                    assertThat(rs.next()).isTrue();
+                    assertThat(rs.getInt(1)).isEqualTo(i);
+                    assertThat(rs.next()).isFalse();
+                }
+            }
+            assertThat(prep.getFetchSize()).isEqualTo(50);
+        }
+    }
+
+    @Test
+    public void errorAfterBufferedRows() throws SQLException {
+        Function.create(
+                conn,
+                "fail_at",
+                new Function() {
+                    @Override
+                    protected void xFunc() throws SQLException {
+                        if (value_int(0) == value_int(1)) {
+                            throw new SQLException("failed at " + value_int(0));
+                        }
+                        result(value_int(0));
+                    }
+                });
+        try (Statement stat = conn.createStatement()) {
+            stat.setFetchSize(10);
+            try (ResultSet rs =
+                    stat.executeQuery(
+                            "with recursive c(x) as (select 1 union all select x + 1 from c"
+                                    + " where x < 20) select fail_at(x, 4) from c")) {
+                assertThat(rs.next()).isTrue();
+                assertThat(rs.getInt(1)).isEqualTo(1);
+                assertThat(rs.next()).isTrue();
+                assertThat(rs.next()).isTrue();
+                assertThat(rs.getInt(1)).isEqualTo(3);
+                assertThatThrownBy(rs::next).hasMessageContaining("failed at 4");
+            }
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package org.sqlite;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.io.File;
 import java.sql.DriverManager;
@@ -253,6 +254,114 @@ public class ListenerTest {
         connectionOne.close();
     }
 
+    @Test
+    public void testBulkUpdateListener() throws Exception {
+        final List<UpdateEvent> bulkUpdates = new ArrayList<>();
+        final List<UpdateEvent> updates = new ArrayList<>();
+        final AtomicInteger deliveries = new AtomicInteger();
+        SQLiteBulkUpdateListener bulkListener =
+                (types, databases, tables, rowIds) -> {
+                    deliveries.incrementAndGet();
+                    for (int i = 0; i < types.length; i++) {
+                        bulkUpdates.add(
+                                new UpdateEvent(types[i], databases[i], tables[i], rowIds[i]));
+                    }
+                };
+        connectionOne.addBulkUpdateListener(bulkListener);
+        connectionOne.addUpdateListener(
+                (type, database, table, rowId) ->
+                        updates.add(new UpdateEvent(type, database, table, rowId)));
+
+        try (Statement stat = connectionOne.createStatement()) {
+            connectionOne.setAutoCommit(false);
+            stat.executeUpdate("insert into sample (description) values ('a'), ('b')");
+            stat.executeUpdate("update sample set description = 'c' where id = 2");
+            // nothing is delivered before the end of the transaction
+            assertThat(bulkUpdates).isEmpty();
+            assertThat(updates).isEmpty();
+            connectionOne.commit();
+
+            assertThat(deliveries).hasValue(1);
+            assertThat(bulkUpdates).hasSize(3);
+            assertThat(bulkUpdates.get(0).type).isEqualTo(SQLiteUpdateListener.Type.INSERT);
+            assertThat(bulkUpdates.get(1).rowId).isEqualTo(2);
+            assertThat(bulkUpdates.get(2).type).isEqualTo(SQLiteUpdateListener.Type.UPDATE);
+            assertThat(bulkUpdates.get(2).database).isEqualTo("main");
+            assertThat(bulkUpdates.get(2).table).isEqualTo("sample");
+            assertThat(updates).hasSize(3);
+
+            // changes are delivered in chunks when the buffer is full, and on rollback
+            stat.executeUpdate(
+                    "insert into sample (description) with recursive c(x) as (select 1 union all"
+                            + " select x + 1 from c where x < 10000) select x from c");
+            assertThat(bulkUpdates).hasSize(3 + 2 * 4096);
+            connectionOne.rollback();
+            assertThat(bulkUpdates).hasSize(10003);
+            assertThat(bulkUpdates.get(10002).table).isEqualTo("sample");
+            assertThat(updates).hasSize(10003);
+
+            // changes still buffered are delivered on removal
+            stat.executeUpdate("delete from sample where id > 0");
+            connectionOne.removeBulkUpdateListener(bulkListener);
+            assertThat(bulkUpdates).hasSize(10005);
+            assertThat(bulkUpdates.get(10004).type).isEqualTo(SQLiteUpdateListener.Type.DELETE);
+
+            // the update listener is notified directly again
+            stat.executeUpdate("insert into sample (description) values ('d')");
+            assertThat(updates).hasSize(10006);
+            connectionOne.commit();
+        }
+    }
+
+    @Test
+    public void testThrowingBulkUpdateListener() throws Exception {
+        final AtomicInteger deliveries = new AtomicInteger();
+        connectionOne.addBulkUpdateListener(
+                (types, databases, tables, rowIds) -> {
+                    if (deliveries.incrementAndGet() == 1) {
+                        throw new IllegalStateException("listener failed");
+                    }
+                });
+        CountingSQLiteCommitListener commitListener = new CountingSQLiteCommitListener();
+        connectionOne.addCommitListener(commitListener);
+
+        try (Statement stat = connectionOne.createStatement()) {
+            // the first full buffer fails, no other listener call is made for the statement
+            assertThatThrownBy(
+                            () ->
+                                    stat.executeUpdate(
+                                            "insert into sample (description) with recursive c(x)"
+                                                    + " as (select 1 union all select x + 1 from c"
+                                                    + " where x < 10000) select x from c"))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("listener failed");
+            assertThat(deliveries).hasValue(1);
+            assertThat(commitListener.committed).hasValue(0);
+
+            stat.executeUpdate("insert into sample (description) values ('a')");
+            assertThat(deliveries).hasValue(2);
+            assertThat(commitListener.committed).hasValue(1);
+        }
+    }
+
+    @Test
+    public void testBulkUpdateHandlerCleanup() throws Exception {
+        final DB database = connectionOne.getDatabase();
+        SQLiteBulkUpdateListener listener = (types, databases, tables, rowIds) -> {};
+
+        connectionOne.addBulkUpdateListener(listener);
+        assertThat(NativeDBHelper.getUpdateListener(database)).isNotEqualTo(0);
+        assertThat(NativeDBHelper.getCommitListener(database)).isNotEqualTo(0);
+        connectionOne.removeBulkUpdateListener(listener);
+        assertThat(NativeDBHelper.getUpdateListener(database)).isEqualTo(0);
+        assertThat(NativeDBHelper.getCommitListener(database)).isEqualTo(0);
+
+        connectionOne.addBulkUpdateListener(listener);
+        connectionOne.close();
+        assertThat(NativeDBHelper.getUpdateListener(database)).isEqualTo(0);
+        assertThat(NativeDBHelper.getCommitListener(database)).isEqualTo(0);
+    }
+
     /** A helper class that simply counts the number of commits operations that were done. */
     static class CountingSQLiteCommitListener implements SQLiteCommitListener {
         final AtomicInteger committed = new AtomicInteger(0);
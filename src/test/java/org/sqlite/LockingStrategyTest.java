@@ -0,0 +1,225 @@
+package org.sqlite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.sqlite.SQLiteConfig.LockingStrategy;
+
+public class LockingStrategyTest {
+    private static final String COUNT_SQL =
+            "with recursive c(x) as (select 1 union all select x + 1 from c where x < ?)"
+                    + " select count(*) from c";
+
+    private SQLiteConnection conn;
+    private ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    private void connect(LockingStrategy strategy) throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setLockingStrategy(strategy);
+        conn = (SQLiteConnection) config.createConnection("jdbc:sqlite:");
+    }
+
+    @AfterEach
+    public void close() throws Exception {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        if (conn != null) {
+            ProgressHandler.clearHandler(conn);
+            conn.close();
+        }
+    }
+
+    /** Starts a query that stays inside sqlite3_step until {@code release} is counted down. */
+    private Future<Integer> startBlockedQuery(CountDownLatch stepping, CountDownLatch release)
+            throws SQLException {
+        ProgressHandler.setHandler(
+                conn,
+                1,
+                new ProgressHandler() {
+                    @Override
+                    protected int progress() throws SQLException {
+                        stepping.countDown();
+                        try {
+                            release.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return 0;
+                    }
+                });
+        return executor.submit(
+                () -> {
+                    try (PreparedStatement prep = conn.prepareStatement(COUNT_SQL)) {
+                        prep.setInt(1, 10);
+                        try (ResultSet rs = prep.executeQuery()) {
+                            return rs.getInt(1);
+                        }
+                    }
+                });
+    }
+
+    @Test
+    public void defaultsToConnection() {
+        assertThat(new SQLiteConfig().getLockingStrategy()).isEqualTo(LockingStrategy.CONNECTION);
+    }
+
+    @Test
+    public void connectionLockHeldWhileStepping() throws Exception {
+        connect(LockingStrategy.CONNECTION);
+        CountDownLatch stepping = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Integer> query = startBlockedQuery(stepping, release);
+        assertThat(stepping.await(10, TimeUnit.SECONDS)).isTrue();
+
+        Future<String> version = executor.submit(() -> conn.libversion());
+        Thread.sleep(200);
+        assertThat(version.isDone()).isFalse();
+
+        release.countDown();
+        assertThat(query.get(10, TimeUnit.SECONDS)).isEqualTo(10);
+        assertThat(version.get(10, TimeUnit.SECONDS)).isNotEmpty();
+    }
+
+    @Test
+    public void connectionLockReleasedWhileStepping() throws Exception {
+        connect(LockingStrategy.STATEMENT);
+        CountDownLatch stepping = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Integer> query = startBlockedQuery(stepping, release);
+        assertThat(stepping.await(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(executor.submit(() -> conn.libversion()).get(5, TimeUnit.SECONDS)).isNotEmpty();
+        assertThat(query.isDone()).isFalse();
+
+        release.countDown();
+        assertThat(query.get(10, TimeUnit.SECONDS)).isEqualTo(10);
+    }
+
+    @Test
+    public void concurrentStatements() throws Exception {
+        connect(LockingStrategy.STATEMENT);
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("create table t (id integer, name text)");
+            for (int i = 0; i < 100; i++) {
+                stat.executeUpdate("insert into t values (" + i + ", 'name" + i + "')");
+            }
+        }
+
+        List<Future<Long>> sums = new ArrayList<>();
+        for (int t = 0; t < 2; t++) {
+            sums.add(
+                    executor.submit(
+                            () -> {
+                                long sum = 0;
+                                for (int run = 0; run < 50; run++) {
+                                    try (PreparedStatement prep =
+                                                    conn.prepareStatement(
+                                                            "select id, name from t order by id");
+                                            ResultSet rs = prep.executeQuery()) {
+                                        while (rs.next()) {
+                                            assertThat(rs.getString(2))
+                                                    .isEqualTo("name" + rs.getInt(1));
+                                            sum += rs.getInt(1);
+                                        }
+                                    }
+                                }
+                                return sum;
+                            }));
+        }
+        for (Future<Long> sum : sums) {
+            assertThat(sum.get(30, TimeUnit.SECONDS)).isEqualTo(50L * 4950);
+        }
+    }
+
+    @Test
+    public void concurrentErrorsKeepTheirMessages() throws Exception {
+        connect(LockingStrategy.STATEMENT);
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("create table a (x integer constraint a_positive check (x > 0))");
+            stat.executeUpdate("create table b (y integer constraint b_positive check (y > 0))");
+        }
+
+        List<Future<?>> inserts = new ArrayList<>();
+        for (String table : new String[] {"a", "b"}) {
+            inserts.add(
+                    executor.submit(
+                            () -> {
+                                try (PreparedStatement prep =
+                                        conn.prepareStatement(
+                                                "insert into " + table + " values (?)")) {
+                                    for (int run = 0; run < 500; run++) {
+                                        prep.setInt(1, -run);
+                                        assertThatThrownBy(prep::executeUpdate)
+                                                .hasMessageContaining(table + "_positive");
+                                    }
+                                }
+                                return null;
+                            }));
+        }
+        // a successful step clears the message of the connection
+        Future<?> selects =
+                executor.submit(
+                        () -> {
+                            try (PreparedStatement prep = conn.prepareStatement("select ?")) {
+                                while (!inserts.stream().allMatch(Future::isDone)) {
+                                    prep.setInt(1, 1);
+                                    prep.executeQuery().close();
+                                }
+                            }
+                            return null;
+                        });
+        for (Future<?> insert : inserts) {
+            insert.get(30, TimeUnit.SECONDS);
+        }
+        selects.get(30, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void statementsClosedWhileClosingConnection() throws Exception {
+        for (int run = 0; run < 20; run++) {
+            connect(LockingStrategy.STATEMENT);
+            // closed by the test, a deadlock failing it rather than hanging the clean up
+            SQLiteConnection closing = conn;
+            conn = null;
+            List<Statement> statements = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                PreparedStatement prep = closing.prepareStatement("select ?");
+                prep.setInt(1, i);
+                prep.executeQuery();
+                statements.add(prep);
+            }
+            CountDownLatch start = new CountDownLatch(1);
+            Future<?> closeStatements =
+                    executor.submit(
+                            () -> {
+                                start.await();
+                                for (Statement statement : statements) statement.close();
+                                return null;
+                            });
+            Future<?> closeConnection =
+                    executor.submit(
+                            () -> {
+                                start.await();
+                                closing.close();
+                                return null;
+                            });
+            start.countDown();
+            closeStatements.get(10, TimeUnit.SECONDS);
+            closeConnection.get(10, TimeUnit.SECONDS);
+            assertThat(closing.isClosed()).isTrue();
+        }
+    }
+}
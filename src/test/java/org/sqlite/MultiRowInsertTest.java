@@ -0,0 +1,154 @@
+package org.sqlite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sqlite.core.MultiRowInsert;
+
+public class MultiRowInsertTest {
+    private SQLiteConnection conn;
+    private Statement stat;
+
+    @BeforeEach
+    public void connect() throws SQLException {
+        conn = open(true);
+        stat = conn.createStatement();
+        stat.executeUpdate(
+                "create table t (id integer primary key, name text, score real, data blob)");
+    }
+
+    @AfterEach
+    public void close() throws SQLException {
+        stat.close();
+        conn.close();
+    }
+
+    @Test
+    public void rewritableStatements() {
+        assertThat(MultiRowInsert.of("insert into t values (?, ?)", 2)).isNotNull();
+        assertThat(MultiRowInsert.of("INSERT OR IGNORE INTO t(a,b)VALUES(?,?);", 2)).isNotNull();
+        assertThat(MultiRowInsert.of("replace into \"values\" (\"values\") values (?)", 1))
+                .isNotNull();
+
+        assertThat(MultiRowInsert.of("insert into t values (?, ?)", 3)).isNull();
+        assertThat(MultiRowInsert.of("insert into t values (?, 1)", 1)).isNull();
+        assertThat(MultiRowInsert.of("insert into t values (:a)", 1)).isNull();
+        assertThat(MultiRowInsert.of("insert into t values (?), (?)", 2)).isNull();
+        assertThat(MultiRowInsert.of("insert into t values (?) on conflict do nothing", 1))
+                .isNull();
+        assertThat(MultiRowInsert.of("insert into t values (?) returning id", 1)).isNull();
+        assertThat(MultiRowInsert.of("insert or fail into t values (?)", 1)).isNull();
+        assertThat(MultiRowInsert.of("insert into t select ?", 1)).isNull();
+        assertThat(MultiRowInsert.of("update t set a = ?", 1)).isNull();
+    }
+
+    @Test
+    public void rewrittenBatch() throws SQLException {
+        // 40 variables hold groups of 8 rows of 4 parameters
+        conn.setLimit(SQLiteLimits.SQLITE_LIMIT_VARIABLE_NUMBER, 40);
+        try (PreparedStatement prep = conn.prepareStatement("insert into t values (?, ?, ?, ?)")) {
+            for (int round = 0; round < 2; round++) {
+                for (int i = 1; i <= 103; i++) {
+                    int id = round * 1000 + i;
+                    prep.setInt(1, id);
+                    prep.setString(2, i % 10 == 0 ? null : "name" + id);
+                    prep.setDouble(3, id * 0.5);
+                    prep.setBytes(4, new byte[] {(byte) id});
+                    prep.addBatch();
+                }
+                int[] counts = prep.executeBatch();
+                assertThat(counts).hasSize(103);
+                assertThat(Arrays.stream(counts).allMatch(c -> c == 1)).isTrue();
+            }
+        }
+
+        try (ResultSet rs =
+                stat.executeQuery(
+                        "select count(*), count(name), sum(score) from t where id < 1000")) {
+            assertThat(rs.getInt(1)).isEqualTo(103);
+            assertThat(rs.getInt(2)).isEqualTo(103 - 10);
+            assertThat(rs.getDouble(3)).isEqualTo(103 * 104 / 4.0);
+        }
+        try (ResultSet rs = stat.executeQuery("select name, data from t where id = 1077")) {
+            assertThat(rs.getString(1)).isEqualTo("name1077");
+            assertThat(rs.getBytes(2)).containsExactly((byte) 1077);
+        }
+        assertThat(count()).isEqualTo(206);
+    }
+
+    @Test
+    public void failedRowInGroup() throws SQLException {
+        for (boolean rewrite : new boolean[] {false, true}) {
+            try (SQLiteConnection other = open(rewrite);
+                    Statement otherStat = other.createStatement()) {
+                otherStat.executeUpdate("create table t (id integer primary key, name text)");
+                otherStat.executeUpdate("insert into t (id) values (13)");
+                PreparedStatement prep =
+                        other.prepareStatement("insert into t (id, name) values (?, ?)");
+                for (int i = 1; i <= 20; i++) {
+                    prep.setInt(1, i);
+                    prep.setString(2, "x");
+                    prep.addBatch();
+                }
+                assertThatThrownBy(prep::executeBatch)
+                        .isInstanceOf(SQLException.class)
+                        .hasMessageContaining("UNIQUE");
+                // the rows before the failing one are inserted either way
+                try (ResultSet rs = otherStat.executeQuery("select count(*), max(id) from t")) {
+                    assertThat(rs.getInt(1)).isEqualTo(13);
+                    assertThat(rs.getInt(2)).isEqualTo(13);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void ignoredRows() throws SQLException {
+        stat.executeUpdate("insert into t (id) values (3)");
+        try (PreparedStatement prep =
+                conn.prepareStatement("insert or ignore into t (id, name) values (?, ?)")) {
+            for (int i = 1; i <= 10; i++) {
+                prep.setInt(1, i);
+                prep.setString(2, "x");
+                prep.addBatch();
+            }
+            // rows 1-8 are one group, reporting SUCCESS_NO_INFO, and 9 and 10 are inserted one
+            // by one
+            assertThat(prep.executeBatch()).containsExactly(-2, -2, -2, -2, -2, -2, -2, -2, 1, 1);
+        }
+        assertThat(count()).isEqualTo(10);
+    }
+
+    @Test
+    public void statementsNotRewritten() throws SQLException {
+        try (PreparedStatement prep =
+                conn.prepareStatement("insert into t (id) values (?) on conflict do nothing")) {
+            for (int i = 1; i <= 10; i++) {
+                prep.setInt(1, i % 5);
+                prep.addBatch();
+            }
+            assertThat(prep.executeBatch()).containsExactly(1, 1, 1, 1, 1, 0, 0, 0, 0, 0);
+        }
+        assertThat(count()).isEqualTo(5);
+    }
+
+    private static SQLiteConnection open(boolean rewrite) throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setRewriteBatchedInserts(rewrite);
+        return (SQLiteConnection) config.createConnection("jdbc:sqlite:");
+    }
+
+    private int count() throws SQLException {
+        try (ResultSet rs = stat.executeQuery("select count(*) from t")) {
+            return rs.getInt(1);
+        }
+    }
+}
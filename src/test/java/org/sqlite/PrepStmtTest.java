@@ -8,9 +8,11 @@ import static org.assertj.core.data.Offset.offset;
 
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.DriverManager;
+import java.sql.ParameterMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
@@ -489,6 +491,70 @@ public class PrepStmtTest {
         rs.close();
     }
 
+    @Test
+    public void batchMixedTypes() throws SQLException {
+        stat.executeUpdate("create table test (c1, c2, c3, c4, c5);");
+        PreparedStatement prep = conn.prepareStatement("insert into test values (?,?,?,?,?);");
+        for (int i = 0; i < 3; i++) {
+            prep.setLong(1, Long.MAX_VALUE - i);
+            prep.setDouble(2, 0.5 + i);
+            prep.setString(3, utf06 + i);
+            prep.setBytes(4, b1);
+            prep.setNull(5, Types.NULL);
+            prep.addBatch();
+        }
+        assertThat(prep.executeBatch()).containsExactly(1, 1, 1);
+        prep.close();
+
+        ResultSet rs = stat.executeQuery("select * from test;");
+        for (int i = 0; i < 3; i++) {
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getLong(1)).isEqualTo(Long.MAX_VALUE - i);
+            assertThat(rs.getDouble(2)).isEqualTo(0.5 + i);
+            assertThat(rs.getString(3)).isEqualTo(utf06 + i);
+            assertThat(rs.getBytes(4)).isEqualTo(b1);
+            assertThat(rs.getObject(5)).isNull();
+        }
+        assertThat(rs.next()).isFalse();
+        rs.close();
+    }
+
+    @Test
+    public void batchStopsAtFailingEntry() throws SQLException {
+        stat.executeUpdate("create table test (c1 primary key);");
+        PreparedStatement prep = conn.prepareStatement("insert into test values (?);");
+        for (int i : new int[] {1, 2, 2, 3}) {
+            prep.setInt(1, i);
+            prep.addBatch();
+        }
+        assertThatThrownBy(prep::executeBatch)
+                .isInstanceOfSatisfying(
+                        SQLiteException.class,
+                        (e) ->
+                                assertThat(e.getResultCode())
+                                        .isEqualTo(SQLiteErrorCode.SQLITE_CONSTRAINT_PRIMARYKEY));
+
+        ResultSet rs = stat.executeQuery("select count(*) from test;");
+        assertThat(rs.next()).isTrue();
+        assertThat(rs.getInt(1)).isEqualTo(2);
+        rs.close();
+
+        // the statement is still usable after the failure
+        prep.setInt(1, 4);
+        prep.addBatch();
+        assertThat(prep.executeBatch()).containsExactly(1);
+    }
+
+    @Test
+    public void batchReturningResults() throws SQLException {
+        PreparedStatement prep = conn.prepareStatement("select ?;");
+        prep.setInt(1, 1);
+        prep.addBatch();
+        assertThatThrownBy(prep::executeBatch)
+                .isInstanceOf(BatchUpdateException.class)
+                .hasMessageContaining("batch entry 0: query returns results");
+    }
+
     @Test
     public void paramMetaData() throws SQLException {
         PreparedStatement prep = conn.prepareStatement("select ?,?,?,?;");
@@ -816,4 +882,78 @@ public class PrepStmtTest {
                     .hasMessage("No parameter has been set yet");
         }
     }
+
+    @Test
+    public void typedParametersInBatch() throws SQLException {
+        stat.executeUpdate("create table t (i, l, f, d, s, b);");
+        try (PreparedStatement prep = conn.prepareStatement("insert into t values (?,?,?,?,?,?)")) {
+            for (int i = 0; i < 100; i++) {
+                prep.setInt(1, i);
+                prep.setLong(2, Long.MAX_VALUE - i);
+                prep.setFloat(3, i + 0.5f);
+                prep.setDouble(4, i / 4.0);
+                if (i % 2 == 0) {
+                    prep.setString(5, "row" + i);
+                    prep.setBytes(6, new byte[] {(byte) i});
+                } else {
+                    prep.clearParameters();
+                    prep.setObject(1, (short) i);
+                    prep.setObject(2, Long.MAX_VALUE - i);
+                    prep.setObject(3, i + 0.5f);
+                    prep.setObject(4, i / 4.0);
+                }
+                prep.addBatch();
+            }
+            assertThat(prep.executeBatch()).hasSize(100).containsOnly(1);
+        }
+
+        try (ResultSet rs =
+                stat.executeQuery(
+                        "select i, l, f, d, s, b, typeof(s), typeof(b) from t order by i")) {
+            for (int i = 0; i < 100; i++) {
+                assertThat(rs.next()).isTrue();
+                assertThat(rs.getInt(1)).isEqualTo(i);
+                assertThat(rs.getLong(2)).isEqualTo(Long.MAX_VALUE - i);
+                assertThat(rs.getFloat(3)).isEqualTo(i + 0.5f);
+                assertThat(rs.getDouble(4)).isEqualTo(i / 4.0);
+                if (i % 2 == 0) {
+                    assertThat(rs.getString(5)).isEqualTo("row" + i);
+                    assertThat(rs.getBytes(6)).containsExactly((byte) i);
+                } else {
+                    assertThat(rs.getString(7)).isEqualTo("null");
+                    assertThat(rs.getString(8)).isEqualTo("null");
+                }
+            }
+            assertThat(rs.next()).isFalse();
+        }
+    }
+
+    @Test
+    public void typedParameterTypes() throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("select ?, ?, ?, ?, ?")) {
+            ps.setInt(1, 1);
+            ps.setLong(2, 1L);
+            ps.setFloat(3, 1f);
+            ps.setNull(4, Types.INTEGER);
+            ps.setString(5, "1");
+            ParameterMetaData meta = ps.getParameterMetaData();
+            assertThat(meta.getParameterType(1)).isEqualTo(Types.INTEGER);
+            assertThat(meta.getParameterType(2)).isEqualTo(Types.BIGINT);
+            assertThat(meta.getParameterType(3)).isEqualTo(Types.REAL);
+            assertThat(meta.getParameterType(4)).isEqualTo(Types.NULL);
+            assertThat(meta.getParameterType(5)).isEqualTo(Types.VARCHAR);
+            assertThatThrownBy(() -> meta.getParameterType(6))
+                    .isInstanceOf(SQLException.class)
+                    .hasMessage("Parameter index is invalid");
+            assertThat(ps.toString()).contains("parameters=[1, 1, 1.0, null, 1]");
+
+            try (ResultSet rs = ps.executeQuery()) {
+                assertThat(rs.getObject(1)).isEqualTo(1);
+                assertThat(rs.getLong(2)).isEqualTo(1L);
+                assertThat(rs.getDouble(3)).isEqualTo(1.0);
+                assertThat(rs.getObject(4)).isNull();
+                assertThat(rs.getString(5)).isEqualTo("1");
+            }
+        }
+    }
 }
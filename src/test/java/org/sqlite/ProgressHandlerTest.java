@@ -1,12 +1,18 @@
 package org.sqlite;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.Assertions.fail;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 import java.sql.Statement;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -127,6 +133,74 @@ public class ProgressHandlerTest {
         assertThat(NativeDBHelper.getProgressHandler(database)).isEqualTo(0);
     }
 
+    @Test
+    public void queryTimeoutWithProgressHandler() throws Exception {
+        final int[] calls = {0};
+        ProgressHandler.setHandler(
+                conn,
+                1,
+                new ProgressHandler() {
+                    @Override
+                    protected int progress() {
+                        calls[0]++;
+                        return 0;
+                    }
+                });
+        stat.setQueryTimeout(1);
+        assertThatThrownBy(
+                        () ->
+                                stat.executeQuery(
+                                        "with recursive c(x) as (select 1 union all select x + 1"
+                                                + " from c) select count(*) from c"))
+                .isInstanceOf(SQLTimeoutException.class);
+        assertThat(calls[0]).isGreaterThan(0);
+
+        // the handler outlives the deadline, and is freed with it
+        int totalCalls = calls[0];
+        workWork();
+        assertThat(calls[0]).isGreaterThan(totalCalls);
+        ProgressHandler.clearHandler(conn);
+        // the deadline of the last query is kept until its result set is closed
+        stat.close();
+        assertThat(NativeDBHelper.getProgressHandler(((SQLiteConnection) conn).getDatabase()))
+                .isEqualTo(0);
+    }
+
+    @Test
+    public void deadlineClearedByAnotherThread() throws Exception {
+        String count =
+                "with recursive c(x) as (select 1 union all select x + 1 from c where x < 100000)"
+                        + " select count(*) from c";
+        DB db = ((SQLiteConnection) conn).getDatabase();
+        long deadline = db.set_deadline(0);
+        db.expire_deadline(deadline);
+        // a virtual thread may clear its deadline from another carrier thread than the one that
+        // set it, the deadline still belongs to the Java thread
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            Callable<Integer> countOnOtherThread =
+                    () -> {
+                        try (Statement otherStat = conn.createStatement();
+                                ResultSet rs = otherStat.executeQuery(count)) {
+                            return rs.getInt(1);
+                        }
+                    };
+            assertThat(other.submit(countOnOtherThread).get()).isEqualTo(100000);
+            assertThatThrownBy(() -> stat.executeQuery(count)).isInstanceOf(SQLException.class);
+            assertThat(other.submit(() -> db.clear_deadline(deadline)).get()).isTrue();
+            assertThat(other.submit(countOnOtherThread).get()).isEqualTo(100000);
+        } finally {
+            other.shutdown();
+        }
+        // nothing is left of the cleared deadline on this thread
+        long next = db.set_deadline(0);
+        try (ResultSet rs = stat.executeQuery(count)) {
+            assertThat(rs.getInt(1)).isEqualTo(100000);
+        }
+        assertThat(db.clear_deadline(next)).isFalse();
+        assertThat(NativeDBHelper.getProgressHandler(db)).isEqualTo(0);
+    }
+
     private void setDummyHandler() throws SQLException {
         ProgressHandler.setHandler(
                 conn,
@@ -4,6 +4,8 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.DriverManager;
@@ -20,6 +22,7 @@ import java.time.LocalTime;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.sqlite.jdbc3.JDBC3ResultSet;
 
 class ResultSetTest {
 
@@ -369,4 +372,80 @@ class ResultSetTest {
             assertThat(meta.getColumnCount()).isEqualTo(1);
         }
     }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Test
+    void testByteBufferViews() throws SQLException {
+        for (int fetchSize : new int[] {0, 10}) {
+            try (ResultSet resultSet =
+                    stat.executeQuery(
+                            "select x'00ff41', 'h\u00e9llo' as t, 12, 1.5, null, x'', '' union all"
+                                    + " select x'01', 'two', -3, 0.25, null, x'', ''")) {
+                resultSet.setFetchSize(fetchSize);
+                JDBC3ResultSet rs = resultSet.unwrap(JDBC3ResultSet.class);
+
+                assertThat(rs.next()).isTrue();
+                ByteBuffer blob = rs.getByteBuffer(1);
+                assertThat(blob.isReadOnly()).isTrue();
+                assertThat(toArray(blob)).containsExactly(0, 0xff, 0x41);
+                ByteBuffer text = rs.getUtf8(2);
+                assertThat(text.isReadOnly()).isTrue();
+                assertThat(StandardCharsets.UTF_8.decode(text).toString()).isEqualTo("h\u00e9llo");
+                assertThat(toArray(rs.getUtf8(3))).isEqualTo("12".getBytes(StandardCharsets.UTF_8));
+                assertThat(toArray(rs.getUtf8(4)))
+                        .isEqualTo("1.5".getBytes(StandardCharsets.UTF_8));
+                assertThat(rs.getByteBuffer(5)).isNull();
+                assertThat(rs.wasNull()).isTrue();
+                assertThat(rs.getUtf8(5)).isNull();
+                assertThat(rs.getByteBuffer(6).remaining()).isZero();
+                assertThat(rs.getUtf8(7).remaining()).isZero();
+
+                assertThat(rs.next()).isTrue();
+                assertThat(toArray(rs.getByteBuffer(1))).containsExactly(1);
+                assertThat(toArray(rs.getUtf8("t")))
+                        .isEqualTo("two".getBytes(StandardCharsets.UTF_8));
+                assertThat(rs.next()).isFalse();
+            }
+        }
+    }
+
+    @Test
+    void findColumnManyColumns() throws SQLException {
+        StringBuilder sql = new StringBuilder("select 0 as c0");
+        for (int i = 1; i < 100; i++) sql.append(", ").append(i).append(" as c").append(i);
+        sql.append(", 100 as C5, 101 as Été");
+
+        try (PreparedStatement prep = conn.prepareStatement(sql.toString())) {
+            for (int run = 0; run < 2; run++) {
+                try (ResultSet rs = prep.executeQuery()) {
+                    for (int i = 0; i < 100; i++) {
+                        assertThat(rs.findColumn("C" + i)).isEqualTo(i + 1);
+                        assertThat(rs.getInt("c" + i)).isEqualTo(i);
+                    }
+                    // the first of the columns with the same label is found
+                    assertThat(rs.getInt("c5")).isEqualTo(5);
+                    assertThat(rs.getObject("éTÉ", Integer.class)).isEqualTo(101);
+                    assertThatExceptionOfType(SQLException.class)
+                            .isThrownBy(() -> rs.findColumn("c100"))
+                            .withMessage("no such column: 'c100'");
+                }
+            }
+        }
+    }
+
+    @Test
+    void findColumnAfterColumnsChange() throws SQLException {
+        try (ResultSet rs = stat.executeQuery("select id, description from test")) {
+            assertThat(rs.findColumn("description")).isEqualTo(2);
+        }
+        try (ResultSet rs = stat.executeQuery("select description, id from test")) {
+            assertThat(rs.findColumn("description")).isEqualTo(1);
+            assertThat(rs.findColumn("ID")).isEqualTo(2);
+        }
+    }
 }
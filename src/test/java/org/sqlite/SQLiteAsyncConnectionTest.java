@@ -0,0 +1,179 @@
+package org.sqlite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SQLiteAsyncConnectionTest {
+    private SQLiteAsyncConnection async;
+
+    @BeforeEach
+    public void connect() throws SQLException {
+        async =
+                new SQLiteAsyncConnection(
+                        (SQLiteConnection) DriverManager.getConnection("jdbc:sqlite:"));
+    }
+
+    @AfterEach
+    public void close() throws SQLException {
+        async.close();
+    }
+
+    @Test
+    public void runsInOrder() throws Exception {
+        async.executeUpdate("create table t (i integer)");
+        List<CompletableFuture<Long>> inserts = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            inserts.add(async.executeUpdate("insert into t values (?)", i));
+        }
+        CompletableFuture<List<Integer>> values =
+                async.executeQuery(
+                        "select i from t order by rowid",
+                        rs -> {
+                            List<Integer> list = new ArrayList<>();
+                            while (rs.next()) list.add(rs.getInt(1));
+                            return list;
+                        });
+
+        assertThat(values.get(10, TimeUnit.SECONDS)).hasSize(100).isSorted();
+        assertThat(inserts).allSatisfy(f -> assertThat(f).isCompletedWithValue(1L));
+        assertThat(async.submit(c -> Thread.currentThread().getName()).get(10, TimeUnit.SECONDS))
+                .startsWith("sqlite-async-");
+    }
+
+    @Test
+    public void reportsErrors() {
+        CompletableFuture<Long> failed = async.executeUpdate("insert into missing values (1)");
+        assertThatThrownBy(failed::join)
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(SQLException.class);
+        // later tasks still run
+        assertThat(async.executeUpdate("create table t (i)").join()).isZero();
+    }
+
+    @Test
+    public void cancelRunningStatement() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        Function.create(
+                async.getConnection(),
+                "started",
+                new Function() {
+                    @Override
+                    protected void xFunc() throws SQLException {
+                        started.countDown();
+                        result(0);
+                    }
+                });
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        CompletableFuture<Integer> endless =
+                async.submit(
+                        c -> {
+                            try (Statement stat = c.createStatement()) {
+                                stat.executeQuery(
+                                        "with recursive c(x) as (select 1 union all select x + 1"
+                                                + " from c) select count(started()) from c");
+                            } catch (SQLException e) {
+                                failure.complete(e);
+                            }
+                            return 0;
+                        });
+        CompletableFuture<Integer> queued = async.submit(c -> 1);
+        CompletableFuture<Integer> next = async.submit(c -> 2);
+
+        // the statement is stepping
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(queued.cancel(true)).isTrue();
+        assertThat(endless.cancel(true)).isTrue();
+        assertThat(failure.get(10, TimeUnit.SECONDS)).isInstanceOf(SQLiteException.class);
+        assertThat(next.get(10, TimeUnit.SECONDS)).isEqualTo(2);
+        assertThat(endless).isCancelled();
+    }
+
+    @Test
+    public void cancelBeforeFirstStatement() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        CompletableFuture<Integer> endless =
+                async.submit(
+                        c -> {
+                            started.countDown();
+                            try {
+                                cancelled.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                            // no statement was running when the task was cancelled
+                            try (Statement stat = c.createStatement()) {
+                                stat.executeQuery(
+                                        "with recursive c(x) as (select 1 union all select x + 1"
+                                                + " from c) select count(*) from c");
+                            } catch (SQLException e) {
+                                failure.complete(e);
+                            }
+                            return 0;
+                        });
+
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(endless.cancel(true)).isTrue();
+        cancelled.countDown();
+        assertThat(failure.get(10, TimeUnit.SECONDS)).isInstanceOf(SQLiteException.class);
+
+        // the next task is not cancelled
+        assertThat(async.executeUpdate("create table t (i)").get(10, TimeUnit.SECONDS)).isZero();
+    }
+
+    @Test
+    public void customExecutor() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try (SQLiteAsyncConnection other =
+                new SQLiteAsyncConnection(
+                        (SQLiteConnection) DriverManager.getConnection("jdbc:sqlite:"), pool)) {
+            other.executeUpdate("create table t (i integer)");
+            List<CompletableFuture<Long>> inserts = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                inserts.add(other.executeUpdate("insert into t values (?)", i));
+            }
+            assertThat(
+                            other.executeQuery(
+                                            "select group_concat(i) = ? from t",
+                                            rs -> rs.getBoolean(1),
+                                            expectedConcat())
+                                    .get(10, TimeUnit.SECONDS))
+                    .isTrue();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void closed() throws Exception {
+        async.closeAsync().get(10, TimeUnit.SECONDS);
+        assertThat(async.getConnection().isClosed()).isTrue();
+        assertThatThrownBy(() -> async.submit(c -> 1).join())
+                .hasCauseInstanceOf(SQLException.class);
+    }
+
+    private static String expectedConcat() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(i);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,153 @@
+package org.sqlite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SQLiteBlobTest {
+    private static final int SIZE = 3 * SQLiteBlob.CHUNK_SIZE + 123;
+
+    private SQLiteConnection conn;
+    private byte[] data;
+
+    @BeforeEach
+    public void connect() throws Exception {
+        conn = (SQLiteConnection) DriverManager.getConnection("jdbc:sqlite:");
+        data = new byte[SIZE];
+        new Random(42).nextBytes(data);
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("create table t (id integer primary key, data blob)");
+        }
+        try (PreparedStatement prep = conn.prepareStatement("insert into t values (?, ?)")) {
+            prep.setInt(1, 1);
+            prep.setBytes(2, data);
+            prep.executeUpdate();
+            prep.setInt(1, 2);
+            prep.setBytes(2, new byte[] {1, 2, 3});
+            prep.executeUpdate();
+        }
+    }
+
+    @AfterEach
+    public void close() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    public void streamsWholeBlob() throws Exception {
+        try (SQLiteBlob blob = conn.openBlob("t", "data", 1, false)) {
+            assertThat(blob.length()).isEqualTo(SIZE);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[10 * SQLiteBlob.CHUNK_SIZE];
+            try (InputStream in = blob.getBinaryStream()) {
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    assertThat(n).isLessThanOrEqualTo(SQLiteBlob.CHUNK_SIZE);
+                    out.write(buffer, 0, n);
+                }
+            }
+            assertThat(out.toByteArray()).isEqualTo(data);
+        }
+    }
+
+    @Test
+    public void readsRanges() throws Exception {
+        try (SQLiteBlob blob = conn.openBlob("main", "t", "data", 1, false)) {
+            assertThat(blob.getBytes(11, 5)).isEqualTo(Arrays.copyOfRange(data, 10, 15));
+            assertThat(blob.getBytes(SIZE - 1, 10)).hasSize(2);
+            try (InputStream in = blob.getBinaryStream(101, 3)) {
+                assertThat(in.read()).isEqualTo(data[100] & 0xff);
+                assertThat(in.skip(1)).isEqualTo(1);
+                assertThat(in.read()).isEqualTo(data[102] & 0xff);
+                assertThat(in.read()).isEqualTo(-1);
+            }
+            assertThatThrownBy(() -> blob.getBinaryStream(SIZE, 2))
+                    .isInstanceOf(SQLException.class);
+        }
+    }
+
+    @Test
+    public void streamsIntoZeroBlob() throws Exception {
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("insert into t values (3, zeroblob(" + SIZE + "))");
+        }
+        try (SQLiteBlob blob = conn.openBlob("t", "data", 3, true);
+                OutputStream out = blob.setBinaryStream(1)) {
+            out.write(data, 0, 7);
+            out.write(data[7]);
+            out.write(data, 8, SIZE - 8);
+            assertThatThrownBy(() -> out.write(0)).isInstanceOf(IOException.class);
+        }
+        try (Statement stat = conn.createStatement();
+                ResultSet rs = stat.executeQuery("select data from t where id = 3")) {
+            assertThat(rs.getBytes(1)).isEqualTo(data);
+        }
+    }
+
+    @Test
+    public void setBytesInPlace() throws Exception {
+        try (SQLiteBlob blob = conn.openBlob("t", "data", 2, true)) {
+            assertThat(blob.setBytes(2, new byte[] {9, 8})).isEqualTo(2);
+            assertThat(blob.getBytes(1, 3)).containsExactly(1, 9, 8);
+            assertThatThrownBy(() -> blob.setBytes(3, new byte[] {7, 7}))
+                    .isInstanceOf(SQLException.class);
+        }
+    }
+
+    @Test
+    public void readOnlyBlobRejectsWrites() throws Exception {
+        try (SQLiteBlob blob = conn.openBlob("t", "data", 2, false)) {
+            assertThatThrownBy(() -> blob.setBytes(1, new byte[] {0}))
+                    .isInstanceOf(SQLException.class);
+            assertThatThrownBy(() -> blob.setBinaryStream(1)).isInstanceOf(SQLException.class);
+        }
+    }
+
+    @Test
+    public void reopenMovesToAnotherRow() throws Exception {
+        try (SQLiteBlob blob = conn.openBlob("t", "data", 1, false)) {
+            blob.reopen(2);
+            assertThat(blob.length()).isEqualTo(3);
+            assertThat(blob.getBytes(1, 3)).containsExactly(1, 2, 3);
+            assertThatThrownBy(() -> blob.reopen(99)).isInstanceOf(SQLException.class);
+        }
+    }
+
+    @Test
+    public void missingRow() {
+        assertThatThrownBy(() -> conn.openBlob("t", "data", 99, false))
+                .isInstanceOf(SQLException.class);
+    }
+
+    @Test
+    public void closedBlob() throws Exception {
+        SQLiteBlob blob = conn.openBlob("t", "data", 2, false);
+        InputStream in = blob.getBinaryStream();
+        blob.free();
+        blob.free();
+        assertThatThrownBy(blob::length).isInstanceOf(SQLException.class);
+        assertThatThrownBy(in::read).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void closingConnectionClosesBlobs() throws Exception {
+        SQLiteBlob blob = conn.openBlob("t", "data", 2, false);
+        conn.close();
+        assertThat(conn.isClosed()).isTrue();
+        blob.free();
+    }
+}
@@ -0,0 +1,165 @@
+package org.sqlite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sqlite.SQLiteColumnBatch.Type;
+
+public class SQLiteColumnBatchTest {
+    private Connection conn;
+    private Statement stat;
+
+    @BeforeEach
+    public void connect() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite:");
+        stat = conn.createStatement();
+        stat.executeUpdate("create table t (id integer, score real, name text, data blob)");
+        stat.executeUpdate(
+                "with recursive c(x) as (select 1 union all select x + 1 from c where x < 1000)"
+                        + " insert into t select x, x * 0.5, case when x % 10 = 0 then null"
+                        + " else 'name' || x end, zeroblob(x % 7) from c");
+    }
+
+    @AfterEach
+    public void close() throws SQLException {
+        stat.close();
+        conn.close();
+    }
+
+    @Test
+    public void declaredTypes() throws SQLException {
+        try (ResultSet rs = stat.executeQuery("select id, score, name, data from t")) {
+            SQLiteColumnBatch batch = new SQLiteColumnBatch(rs, 300);
+            assertThat(batch.getColumnCount()).isEqualTo(4);
+            assertThat(batch.getColumnName(2)).isEqualTo("name");
+            assertThat(Arrays.asList(batch.getType(0), batch.getType(1), batch.getType(2)))
+                    .containsExactly(Type.INT64, Type.FLOAT64, Type.UTF8);
+            assertThat(batch.getType(3)).isEqualTo(Type.BINARY);
+
+            int total = 0;
+            int batches = 0;
+            while (batch.next()) {
+                batches++;
+                for (int row = 0; row < batch.getRowCount(); row++) {
+                    long id = ++total;
+                    assertThat(batch.getLong(0, row)).isEqualTo(id);
+                    assertThat(batch.getDouble(1, row)).isEqualTo(id * 0.5);
+                    assertThat(batch.isNull(2, row)).isEqualTo(id % 10 == 0);
+                    assertThat(batch.getString(2, row))
+                            .isEqualTo(id % 10 == 0 ? null : "name" + id);
+                    assertThat(batch.getBytes(3, row)).hasSize((int) (id % 7));
+                }
+            }
+            assertThat(total).isEqualTo(1000);
+            assertThat(batches).isEqualTo(4);
+            assertThat(batch.getRowCount()).isZero();
+            assertThat(rs.next()).isFalse();
+        }
+    }
+
+    @Test
+    public void arrowLayout() throws SQLException {
+        try (ResultSet rs = stat.executeQuery("select id, name from t where id <= 12")) {
+            SQLiteColumnBatch batch = new SQLiteColumnBatch(rs, 100);
+            assertThat(batch.next()).isTrue();
+            assertThat(batch.getRowCount()).isEqualTo(12);
+
+            ByteBuffer validity = batch.getValidity(1);
+            assertThat(validity.remaining()).isEqualTo(2);
+            // only row 9, holding id 10, is NULL
+            assertThat(validity.get(0) & 0xff).isEqualTo(0xff);
+            assertThat(validity.get(1) & 0x0f).isEqualTo(0x0d);
+            assertThat(batch.getNullCount(1)).isEqualTo(1);
+            assertThat(batch.getNullCount(0)).isZero();
+
+            ByteBuffer ids = batch.getValues(0).order(ByteOrder.nativeOrder());
+            assertThat(ids.remaining()).isEqualTo(12 * 8);
+            assertThat(ids.getLong(11 * 8)).isEqualTo(12);
+
+            ByteBuffer offsets = batch.getValues(1).order(ByteOrder.nativeOrder());
+            assertThat(offsets.remaining()).isEqualTo(13 * 4);
+            assertThat(offsets.getInt(0)).isZero();
+            assertThat(offsets.getInt(4)).isEqualTo("name1".length());
+            // a NULL value takes no bytes
+            assertThat(offsets.getInt(10 * 4)).isEqualTo(offsets.getInt(9 * 4));
+            assertThat(batch.getData(1).remaining()).isEqualTo(offsets.getInt(12 * 4));
+            assertThat(batch.getData(0)).isNull();
+
+            assertThat(batch.next()).isFalse();
+        }
+    }
+
+    @Test
+    public void explicitTypesAndInference() throws SQLException {
+        try (ResultSet rs =
+                stat.executeQuery("select id, id * 2, name, null from t order by id limit 3")) {
+            SQLiteColumnBatch batch =
+                    new SQLiteColumnBatch(rs, 10, Type.UTF8, null, Type.BINARY, Type.INT64);
+            assertThat(batch.getType(1)).isNull();
+            assertThat(batch.next()).isTrue();
+            // the type of the expression is taken from its first value
+            assertThat(batch.getType(1)).isEqualTo(Type.INT64);
+            assertThat(batch.getString(0, 2)).isEqualTo("3");
+            assertThat(batch.getLong(1, 2)).isEqualTo(6);
+            assertThat(new String(batch.getBytes(2, 0))).isEqualTo("name1");
+            assertThat(batch.isNull(3, 0)).isTrue();
+            assertThat(batch.getNullCount(3)).isEqualTo(3);
+        }
+        assertThatThrownBy(
+                        () ->
+                                new SQLiteColumnBatch(
+                                        stat.executeQuery("select 1"), 10, Type.UTF8, Type.UTF8))
+                .isInstanceOf(SQLException.class);
+    }
+
+    @Test
+    public void largeValues() throws SQLException {
+        stat.executeUpdate("create table big (data blob)");
+        stat.executeUpdate("insert into big values (zeroblob(100000)), (randomblob(200000))");
+        try (ResultSet rs = stat.executeQuery("select data from big")) {
+            SQLiteColumnBatch batch = new SQLiteColumnBatch(rs, 4);
+            assertThat(batch.next()).isTrue();
+            assertThat(batch.getRowCount()).isEqualTo(2);
+            assertThat(batch.getBytes(0, 0)).hasSize(100000);
+            assertThat(batch.getBytes(0, 1)).hasSize(200000);
+            assertThat(batch.getData(0).remaining()).isEqualTo(300000);
+        }
+    }
+
+    @Test
+    public void mixedWithNext() throws SQLException {
+        try (ResultSet rs = stat.executeQuery("select id from t order by id")) {
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getInt(1)).isEqualTo(1);
+
+            SQLiteColumnBatch batch = new SQLiteColumnBatch(rs, 10);
+            assertThat(batch.next()).isTrue();
+            assertThat(batch.getLong(0, 0)).isEqualTo(2);
+            assertThat(batch.getLong(0, 9)).isEqualTo(11);
+
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getInt(1)).isEqualTo(12);
+            assertThat(batch.next()).isTrue();
+            assertThat(batch.getLong(0, 0)).isEqualTo(13);
+        }
+
+        stat.setMaxRows(25);
+        try (ResultSet rs = stat.executeQuery("select id from t")) {
+            SQLiteColumnBatch batch = new SQLiteColumnBatch(rs, 10);
+            int total = 0;
+            while (batch.next()) total += batch.getRowCount();
+            assertThat(total).isEqualTo(25);
+        }
+    }
+}
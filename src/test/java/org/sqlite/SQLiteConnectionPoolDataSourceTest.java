@@ -16,16 +16,23 @@ package org.sqlite;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.io.File;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import javax.sql.ConnectionPoolDataSource;
 import javax.sql.PooledConnection;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.sqlite.javax.SQLiteConnectionPoolDataSource;
+import org.sqlite.javax.SQLitePooledConnection;
 
 public class SQLiteConnectionPoolDataSourceTest {
+    @TempDir File tempDir;
 
     @Test
     public void connectionTest() throws SQLException {
@@ -72,4 +79,199 @@ public class SQLiteConnectionPoolDataSourceTest {
 
         Connection handle2 = pooledConn.getConnection();
     }
+
+    private SQLiteConnectionPoolDataSource pooledDataSource(int maxPoolSize) {
+        SQLiteConnectionPoolDataSource ds = new SQLiteConnectionPoolDataSource();
+        ds.setUrl("jdbc:sqlite:" + new File(tempDir, "pool.db"));
+        ds.setMaxPoolSize(maxPoolSize);
+        return ds;
+    }
+
+    private static SQLiteConnection physical(PooledConnection pooledConn) {
+        return ((SQLitePooledConnection) pooledConn).getPhysicalConn();
+    }
+
+    private static int count(Connection conn) throws SQLException {
+        try (Statement stat = conn.createStatement();
+                ResultSet rs = stat.executeQuery("select count(*) from t")) {
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    public void poolReusesConnections() throws SQLException {
+        SQLiteConnectionPoolDataSource ds = pooledDataSource(2);
+
+        PooledConnection first = ds.getPooledConnection();
+        SQLiteConnection conn = physical(first);
+        Connection handle = first.getConnection();
+        handle.createStatement().executeUpdate("create table t (id integer)");
+        first.close();
+        assertThat(handle.isClosed()).isTrue();
+        assertThat(conn.isClosed()).isFalse();
+        assertThatThrownBy(first::getConnection).isInstanceOf(SQLException.class);
+
+        PooledConnection second = ds.getPooledConnection();
+        assertThat(physical(second)).isSameAs(conn);
+        PooledConnection third = ds.getPooledConnection();
+        assertThat(physical(third)).isNotSameAs(conn);
+        second.close();
+        third.close();
+
+        ds.close();
+        assertThat(conn.isClosed()).isTrue();
+    }
+
+    @Test
+    public void poolIsBounded() throws Exception {
+        SQLiteConnectionPoolDataSource ds = pooledDataSource(1);
+        ds.setLoginTimeout(1);
+
+        PooledConnection first = ds.getPooledConnection();
+        assertThatThrownBy(ds::getPooledConnection)
+                .isInstanceOf(SQLException.class)
+                .hasMessageContaining("timed out");
+
+        PooledConnection[] second = new PooledConnection[1];
+        Thread waiter =
+                new Thread(
+                        () -> {
+                            try {
+                                second[0] = ds.getPooledConnection();
+                            } catch (SQLException e) {
+                                throw new RuntimeException(e);
+                            }
+                        });
+        waiter.start();
+        Thread.sleep(100);
+        first.close();
+        waiter.join();
+        assertThat(second[0]).isNotNull();
+        second[0].close();
+        ds.close();
+    }
+
+    @Test
+    public void poolRollsBackOnRelease() throws SQLException {
+        SQLiteConnectionPoolDataSource ds = pooledDataSource(1);
+
+        PooledConnection pooledConn = ds.getPooledConnection();
+        SQLiteConnection conn = physical(pooledConn);
+        Connection handle = pooledConn.getConnection();
+        handle.createStatement().executeUpdate("create table t (id integer)");
+        handle.setAutoCommit(false);
+        handle.createStatement().executeUpdate("insert into t values (1)");
+        pooledConn.close();
+
+        pooledConn = ds.getPooledConnection();
+        assertThat(physical(pooledConn)).isSameAs(conn);
+        assertThat(physical(pooledConn).getAutoCommit()).isTrue();
+        assertThat(count(pooledConn.getConnection())).isZero();
+
+        // a transaction the driver does not know about makes the connection unusable
+        pooledConn.getConnection().createStatement().execute("begin");
+        pooledConn.close();
+        assertThat(conn.isClosed()).isTrue();
+
+        pooledConn = ds.getPooledConnection();
+        assertThat(physical(pooledConn)).isNotSameAs(conn);
+        pooledConn.close();
+        ds.close();
+    }
+
+    @Test
+    public void poolWaitsWithoutLoginTimeout() throws Exception {
+        SQLiteConnectionPoolDataSource ds = pooledDataSource(1);
+        ds.setLoginTimeout(0);
+
+        PooledConnection first = ds.getPooledConnection();
+        CompletableFuture<PooledConnection> second =
+                CompletableFuture.supplyAsync(
+                        () -> {
+                            try {
+                                return ds.getPooledConnection();
+                            } catch (SQLException e) {
+                                throw new RuntimeException(e);
+                            }
+                        });
+        Thread.sleep(200);
+        assertThat(second.isDone()).isFalse();
+        first.close();
+        second.get(10, TimeUnit.SECONDS).close();
+        ds.close();
+    }
+
+    @Test
+    public void poolRestoresConnectionState() throws SQLException {
+        SQLiteConnectionPoolDataSource ds = pooledDataSource(1);
+        ds.getConfig().setExplicitReadOnly(true);
+
+        PooledConnection pooledConn = ds.getPooledConnection();
+        SQLiteConnection conn = physical(pooledConn);
+        Connection handle = pooledConn.getConnection();
+        handle.createStatement().executeUpdate("create table t (id integer)");
+        handle.setReadOnly(true);
+        handle.setTransactionIsolation(Connection.TRANSACTION_READ_UNCOMMITTED);
+        handle.setAutoCommit(false);
+        pooledConn.close();
+
+        pooledConn = ds.getPooledConnection();
+        assertThat(physical(pooledConn)).isSameAs(conn);
+        assertThat(conn.getAutoCommit()).isTrue();
+        assertThat(conn.isReadOnly()).isFalse();
+        assertThat(conn.getTransactionIsolation()).isEqualTo(Connection.TRANSACTION_SERIALIZABLE);
+        pooledConn.getConnection().createStatement().executeUpdate("insert into t values (1)");
+        pooledConn.close();
+        ds.close();
+    }
+
+    @Test
+    public void poolEvictsIdleConnections() throws Exception {
+        SQLiteConnectionPoolDataSource ds = pooledDataSource(1);
+        ds.setMaxIdleTime(1);
+
+        PooledConnection pooledConn = ds.getPooledConnection();
+        SQLiteConnection conn = physical(pooledConn);
+        pooledConn.close();
+        Thread.sleep(20);
+
+        pooledConn = ds.getPooledConnection();
+        assertThat(physical(pooledConn)).isNotSameAs(conn);
+        assertThat(conn.isClosed()).isTrue();
+        pooledConn.close();
+        ds.close();
+    }
+
+    @Test
+    public void readPool() throws SQLException {
+        SQLiteConnectionPoolDataSource ds = pooledDataSource(1);
+        ds.setJournalMode("WAL");
+        ds.setMaxReadPoolSize(2);
+
+        PooledConnection writer = ds.getPooledConnection();
+        Connection writeHandle = writer.getConnection();
+        writeHandle.createStatement().executeUpdate("create table t (id integer)");
+        writeHandle.setAutoCommit(false);
+        writeHandle.createStatement().executeUpdate("insert into t values (1)");
+
+        PooledConnection reader1 = ds.getReadOnlyPooledConnection();
+        PooledConnection reader2 = ds.getReadOnlyPooledConnection();
+        assertThat(count(reader1.getConnection())).isZero();
+        assertThat(count(reader2.getConnection())).isZero();
+        assertThatThrownBy(
+                        () ->
+                                reader1.getConnection()
+                                        .createStatement()
+                                        .executeUpdate("insert into t values (2)"))
+                .isInstanceOf(SQLException.class);
+
+        writeHandle.commit();
+        assertThat(count(reader2.getConnection())).isOne();
+
+        writer.close();
+        reader1.close();
+        reader2.close();
+        ds.close();
+        assertThatThrownBy(() -> reader1.getConnection()).isInstanceOf(SQLException.class);
+    }
 }
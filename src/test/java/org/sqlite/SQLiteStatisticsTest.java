@@ -0,0 +1,120 @@
+package org.sqlite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sqlite.core.CoreStatement;
+
+public class SQLiteStatisticsTest {
+    @TempDir File tempDir;
+
+    private SQLiteConnection conn;
+
+    @BeforeEach
+    public void connect() throws SQLException {
+        File file = new File(tempDir, "statistics.db");
+        conn = (SQLiteConnection) DriverManager.getConnection("jdbc:sqlite:" + file);
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("create table t (id integer primary key, name text)");
+            stat.executeUpdate(
+                    "insert into t with recursive c(x) as (select 1 union all select x + 1 from c"
+                            + " where x < 1000) select x, 'name' || x from c");
+        }
+    }
+
+    @AfterEach
+    public void close() throws SQLException {
+        conn.close();
+    }
+
+    private void scan() throws SQLException {
+        try (Statement stat = conn.createStatement();
+                ResultSet rs = stat.executeQuery("select count(*) from t")) {
+            assertThat(rs.getInt(1)).isEqualTo(1000);
+        }
+    }
+
+    @Test
+    public void cacheCounters() throws SQLException {
+        scan();
+        SQLiteStatistics stats = conn.getStatistics();
+        assertThat(stats.getCurrent(SQLiteDbStatus.SQLITE_DBSTATUS_CACHE_HIT)).isPositive();
+        assertThat(stats.getCurrent(SQLiteDbStatus.SQLITE_DBSTATUS_CACHE_USED)).isPositive();
+        assertThat(stats.getCurrent(SQLiteDbStatus.SQLITE_DBSTATUS_SCHEMA_USED)).isPositive();
+        assertThat(stats.getCacheHitRatio()).isBetween(0.0, 1.0);
+        assertThat(stats.getCurrent(SQLiteStatus.SQLITE_STATUS_MEMORY_USED)).isPositive();
+        assertThat(stats.getHighwater(SQLiteStatus.SQLITE_STATUS_MEMORY_USED))
+                .isGreaterThanOrEqualTo(stats.getCurrent(SQLiteStatus.SQLITE_STATUS_MEMORY_USED));
+        assertThat(stats.toString()).contains("CACHE_HIT=").contains("MEMORY_USED=");
+    }
+
+    @Test
+    public void resetCounters() throws SQLException {
+        scan();
+        assertThat(conn.getStatistics(true).getCurrent(SQLiteDbStatus.SQLITE_DBSTATUS_CACHE_HIT))
+                .isPositive();
+        assertThat(conn.getStatistics().getCurrent(SQLiteDbStatus.SQLITE_DBSTATUS_CACHE_HIT))
+                .isZero();
+        scan();
+        assertThat(conn.getStatistics().getCurrent(SQLiteDbStatus.SQLITE_DBSTATUS_CACHE_HIT))
+                .isPositive();
+    }
+
+    @Test
+    public void closedConnection() throws SQLException {
+        conn.close();
+        assertThatThrownBy(conn::getStatistics).isInstanceOf(SQLException.class);
+    }
+
+    @Test
+    public void statementCounters() throws SQLException {
+        try (PreparedStatement prep =
+                conn.prepareStatement("select name from t where name like ? order by name")) {
+            CoreStatement stmt = prep.unwrap(CoreStatement.class);
+            assertThat(stmt.getStatus(SQLiteStmtStatus.SQLITE_STMTSTATUS_FULLSCAN_STEP, false))
+                    .isZero();
+            prep.setString(1, "name1%");
+            try (ResultSet rs = prep.executeQuery()) {
+                while (rs.next()) {}
+            }
+            assertThat(stmt.getStatus(SQLiteStmtStatus.SQLITE_STMTSTATUS_FULLSCAN_STEP, true))
+                    .isEqualTo(999);
+            assertThat(stmt.getStatus(SQLiteStmtStatus.SQLITE_STMTSTATUS_SORT, false)).isOne();
+            assertThat(stmt.getStatus(SQLiteStmtStatus.SQLITE_STMTSTATUS_VM_STEP, false))
+                    .isPositive();
+            assertThat(stmt.getStatus(SQLiteStmtStatus.SQLITE_STMTSTATUS_FULLSCAN_STEP, false))
+                    .isZero();
+        }
+    }
+
+    @Test
+    public void mbean() throws Exception {
+        String name = "org.sqlite:type=Statistics,name=SQLiteStatisticsTest";
+        ObjectName objectName = new ObjectName(name);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        conn.registerStatisticsMBean(name);
+        assertThatThrownBy(() -> conn.registerStatisticsMBean(name))
+                .isInstanceOf(SQLException.class);
+        scan();
+        assertThat((Long) server.getAttribute(objectName, "CacheHits")).isPositive();
+        assertThat((Long) server.getAttribute(objectName, "MemoryUsed")).isPositive();
+        assertThat((Double) server.getAttribute(objectName, "CacheHitRatio")).isBetween(0.0, 1.0);
+
+        conn.close();
+        assertThat(server.isRegistered(objectName)).isFalse();
+    }
+}
@@ -0,0 +1,166 @@
+package org.sqlite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SQLiteWriteBehindQueueTest {
+    @TempDir File tempDir;
+
+    private SQLiteConnection conn;
+
+    @BeforeEach
+    public void connect() throws SQLException {
+        conn =
+                (SQLiteConnection)
+                        DriverManager.getConnection(
+                                "jdbc:sqlite:" + new File(tempDir, "queue.db").getAbsolutePath());
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("create table t (id integer primary key, v text not null)");
+        }
+    }
+
+    @AfterEach
+    public void close() throws SQLException {
+        conn.close();
+    }
+
+    private int count() throws SQLException {
+        try (Statement stat = conn.createStatement();
+                ResultSet rs = stat.executeQuery("select count(*) from t")) {
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    public void groupsWrites() throws Exception {
+        AtomicInteger commits = new AtomicInteger();
+        conn.addCommitListener(
+                new SQLiteCommitListener() {
+                    @Override
+                    public void onCommit() {
+                        commits.incrementAndGet();
+                    }
+
+                    @Override
+                    public void onRollback() {}
+                });
+
+        List<CompletableFuture<Long>> writes = new ArrayList<>();
+        try (SQLiteWriteBehindQueue queue = conn.createWriteBehindQueue(60_000, 100)) {
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int base = t * 50;
+                Thread thread =
+                        new Thread(
+                                () -> {
+                                    for (int i = 0; i < 50; i++) {
+                                        CompletableFuture<Long> write =
+                                                queue.submit(
+                                                        "insert into t values (?, ?)",
+                                                        base + i,
+                                                        "v" + i);
+                                        synchronized (writes) {
+                                            writes.add(write);
+                                        }
+                                    }
+                                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) thread.join();
+
+            // two full groups of 100 statements
+            CompletableFuture.allOf(writes.toArray(new CompletableFuture[0]))
+                    .get(10, TimeUnit.SECONDS);
+            assertThat(writes).allSatisfy(w -> assertThat(w).isCompletedWithValue(1L));
+            assertThat(commits).hasValue(2);
+
+            // a partial group is committed on flush
+            CompletableFuture<Long> update = queue.submit("update t set v = 'x' where id < 10");
+            queue.flush().get(10, TimeUnit.SECONDS);
+            assertThat(update).isCompletedWithValue(10L);
+            assertThat(commits).hasValue(3);
+        }
+        assertThat(count()).isEqualTo(200);
+    }
+
+    @Test
+    public void isolatesErrors() throws Exception {
+        try (SQLiteWriteBehindQueue queue = conn.createWriteBehindQueue(60_000, 10)) {
+            CompletableFuture<Long> first = queue.submit("insert into t values (1, 'a')");
+            CompletableFuture<Long> duplicate = queue.submit("insert into t values (1, 'b')");
+            CompletableFuture<Long> missing = queue.submit("insert into t values (2, null)");
+            CompletableFuture<Long> last = queue.submit("insert into t values (3, 'c')");
+            queue.flush().get(10, TimeUnit.SECONDS);
+
+            assertThat(first).isCompletedWithValue(1L);
+            assertThat(last).isCompletedWithValue(1L);
+            assertThatThrownBy(duplicate::join)
+                    .isInstanceOf(CompletionException.class)
+                    .hasCauseInstanceOf(SQLException.class);
+            assertThatThrownBy(missing::join).hasCauseInstanceOf(SQLException.class);
+        }
+        assertThat(count()).isEqualTo(2);
+        assertThat(conn.getAutoCommit()).isTrue();
+    }
+
+    @Test
+    public void boundsPreparedStatements() throws Exception {
+        try (SQLiteWriteBehindQueue queue = conn.createWriteBehindQueue(1000, 100)) {
+            int id = 0;
+            for (; id < SQLiteWriteBehindQueue.MAX_STATEMENTS; id++) {
+                queue.submit("insert into t values (" + id + ", 'inline')");
+            }
+            queue.flush().get(10, TimeUnit.SECONDS);
+            long used = conn.getStatistics().getCurrent(SQLiteDbStatus.SQLITE_DBSTATUS_STMT_USED);
+
+            for (; id < 10 * SQLiteWriteBehindQueue.MAX_STATEMENTS; id++) {
+                queue.submit("insert into t values (" + id + ", 'inline')");
+            }
+            queue.flush().get(10, TimeUnit.SECONDS);
+            assertThat(conn.getStatistics().getCurrent(SQLiteDbStatus.SQLITE_DBSTATUS_STMT_USED))
+                    .isLessThan(2 * used);
+        }
+        assertThat(count()).isEqualTo(10 * SQLiteWriteBehindQueue.MAX_STATEMENTS);
+    }
+
+    @Test
+    public void commitsAfterDelay() throws Exception {
+        try (SQLiteWriteBehindQueue queue = conn.createWriteBehindQueue(10, 1000)) {
+            assertThat(queue.submit("insert into t values (1, 'a')").get(10, TimeUnit.SECONDS))
+                    .isOne();
+        }
+        assertThat(count()).isOne();
+    }
+
+    @Test
+    public void closed() throws Exception {
+        SQLiteWriteBehindQueue queue = conn.createWriteBehindQueue(60_000, 1000);
+        CompletableFuture<Long> pending = queue.submit("insert into t values (1, 'a')");
+        queue.close();
+        assertThat(pending).isCompletedWithValue(1L);
+        assertThatThrownBy(() -> queue.submit("insert into t values (2, 'b')").join())
+                .hasCauseInstanceOf(SQLException.class);
+
+        conn.setAutoCommit(false);
+        assertThatThrownBy(() -> conn.createWriteBehindQueue(10, 10))
+                .isInstanceOf(SQLException.class);
+        conn.setAutoCommit(true);
+    }
+}
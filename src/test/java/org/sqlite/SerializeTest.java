@@ -0,0 +1,89 @@
+package org.sqlite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.ByteBuffer;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class SerializeTest {
+    private byte[] image;
+
+    @BeforeEach
+    public void createFixture() throws SQLException {
+        try (SQLiteConnection conn = open();
+                Statement stat = conn.createStatement()) {
+            stat.executeUpdate("create table t (id integer primary key, name)");
+            stat.executeUpdate(
+                    "with recursive c(x) as (select 1 union all select x + 1 from c where x < 1000)"
+                            + " insert into t select x, 'name' || x from c");
+            image = conn.serialize("main");
+        }
+    }
+
+    @Test
+    public void roundTrip() throws SQLException {
+        assertThat(image.length).isGreaterThan(0);
+        try (SQLiteConnection conn = open();
+                Statement stat = conn.createStatement()) {
+            conn.deserialize("main", image);
+            assertThat(count(stat)).isEqualTo(1000);
+
+            // the copy can be modified and grow, without changing the image
+            stat.executeUpdate("insert into t select null, name from t");
+            assertThat(count(stat)).isEqualTo(2000);
+            assertThat(conn.serialize("main").length).isGreaterThan(image.length);
+        }
+    }
+
+    @Test
+    public void sharedDirectImage() throws SQLException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(image.length);
+        buffer.put(image).flip();
+        try (SQLiteConnection conn1 = open();
+                SQLiteConnection conn2 = open();
+                Statement stat1 = conn1.createStatement();
+                Statement stat2 = conn2.createStatement()) {
+            conn1.deserialize("main", buffer);
+            conn2.deserialize("main", buffer);
+            assertThat(count(stat1)).isEqualTo(1000);
+            assertThat(count(stat2)).isEqualTo(1000);
+
+            assertThatThrownBy(() -> stat1.executeUpdate("delete from t where id > 0"))
+                    .isInstanceOf(SQLException.class);
+            assertThat(count(stat2)).isEqualTo(1000);
+        }
+    }
+
+    @Test
+    public void attachedSchema() throws SQLException {
+        try (SQLiteConnection conn = open();
+                Statement stat = conn.createStatement()) {
+            stat.executeUpdate("attach ':memory:' as fixture");
+            conn.deserialize("fixture", ByteBuffer.wrap(image));
+            try (ResultSet rs = stat.executeQuery("select count(*) from fixture.t")) {
+                assertThat(rs.getInt(1)).isEqualTo(1000);
+            }
+            assertThat(conn.serialize("fixture")).isEqualTo(image);
+
+            assertThatThrownBy(() -> conn.serialize("missing")).isInstanceOf(SQLException.class);
+            assertThatThrownBy(() -> conn.deserialize("missing", image))
+                    .isInstanceOf(SQLException.class);
+        }
+    }
+
+    private static SQLiteConnection open() throws SQLException {
+        return (SQLiteConnection) DriverManager.getConnection("jdbc:sqlite:");
+    }
+
+    private static int count(Statement stat) throws SQLException {
+        try (ResultSet rs = stat.executeQuery("select count(*) from t")) {
+            return rs.getInt(1);
+        }
+    }
+}
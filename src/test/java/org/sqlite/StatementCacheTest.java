@@ -0,0 +1,165 @@
+package org.sqlite;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class StatementCacheTest {
+    private SQLiteConnection conn;
+
+    @BeforeEach
+    public void connect() throws Exception {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setStatementCacheSize(2);
+        conn = (SQLiteConnection) config.createConnection("jdbc:sqlite:");
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("create table t (id integer primary key, name text)");
+            stat.executeUpdate("insert into t values (1, 'one'), (2, 'two'), (3, 'three')");
+        }
+    }
+
+    @AfterEach
+    public void close() throws SQLException {
+        conn.close();
+    }
+
+    private String name(String sql, int id) throws SQLException {
+        try (PreparedStatement prep = conn.prepareStatement(sql)) {
+            prep.setInt(1, id);
+            try (ResultSet rs = prep.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    @Test
+    public void disabledByDefault() throws SQLException {
+        try (Connection plain = DriverManager.getConnection("jdbc:sqlite:")) {
+            SQLiteConnection sqlite = plain.unwrap(SQLiteConnection.class);
+            plain.prepareStatement("select 1").close();
+            plain.prepareStatement("select 1").close();
+            assertThat(sqlite.getStatementCacheHits()).isZero();
+            assertThat(sqlite.getStatementCacheMisses()).isZero();
+            assertThat(sqlite.getCachedStatementCount()).isZero();
+        }
+    }
+
+    @Test
+    public void reusesClosedStatement() throws SQLException {
+        String sql = "select name from t where id = ?";
+
+        assertThat(name(sql, 1)).isEqualTo("one");
+        assertThat(conn.getStatementCacheMisses()).isEqualTo(1);
+        assertThat(conn.getCachedStatementCount()).isEqualTo(1);
+
+        assertThat(name(sql, 2)).isEqualTo("two");
+        assertThat(name(sql, 3)).isEqualTo("three");
+        assertThat(conn.getStatementCacheHits()).isEqualTo(2);
+        assertThat(conn.getStatementCacheMisses()).isEqualTo(1);
+        assertThat(conn.getCachedStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void restoresMetadataOfParkedStatement() throws SQLException {
+        String sql = "select id, name as label from t where id = ? and name <> ?";
+        for (int i = 0; i < 2; i++) {
+            try (PreparedStatement prep = conn.prepareStatement(sql)) {
+                assertThat(prep.getParameterMetaData().getParameterCount()).isEqualTo(2);
+                assertThat(prep.getMetaData().getColumnCount()).isEqualTo(2);
+                assertThat(prep.getMetaData().getColumnLabel(2)).isEqualTo("label");
+                prep.setInt(1, 2);
+                prep.setString(2, "");
+                try (ResultSet rs = prep.executeQuery()) {
+                    assertThat(rs.getString("label")).isEqualTo("two");
+                }
+            }
+        }
+        assertThat(conn.getStatementCacheHits()).isEqualTo(1);
+    }
+
+    @Test
+    public void parkedStatementHasClearedBindings() throws SQLException {
+        String sql = "select ?";
+        try (PreparedStatement prep = conn.prepareStatement(sql)) {
+            prep.setString(1, "bound");
+            prep.executeQuery().close();
+        }
+        try (PreparedStatement prep = conn.prepareStatement(sql);
+                ResultSet rs = prep.executeQuery()) {
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getString(1)).isNull();
+        }
+        assertThat(conn.getStatementCacheHits()).isEqualTo(1);
+    }
+
+    @Test
+    public void concurrentlyOpenStatementsWithSameSql() throws SQLException {
+        String sql = "select name from t where id = ?";
+        try (PreparedStatement first = conn.prepareStatement(sql);
+                PreparedStatement second = conn.prepareStatement(sql)) {
+            first.setInt(1, 1);
+            second.setInt(1, 2);
+            try (ResultSet rs1 = first.executeQuery();
+                    ResultSet rs2 = second.executeQuery()) {
+                assertThat(rs1.getString(1)).isEqualTo("one");
+                assertThat(rs2.getString(1)).isEqualTo("two");
+            }
+        }
+        // only one handle per SQL text is parked, the other one is finalized
+        assertThat(conn.getCachedStatementCount()).isEqualTo(1);
+        assertThat(name(sql, 3)).isEqualTo("three");
+        assertThat(conn.getStatementCacheHits()).isEqualTo(1);
+    }
+
+    @Test
+    public void evictsLeastRecentlyParked() throws SQLException {
+        name("select name from t where id = ?", 1);
+        name("select id from t where id = ?", 1);
+        name("select name || '!' from t where id = ?", 1);
+        assertThat(conn.getCachedStatementCount()).isEqualTo(2);
+        assertThat(conn.getStatementCacheEvictions()).isEqualTo(1);
+
+        assertThat(name("select name from t where id = ?", 2)).isEqualTo("two");
+        assertThat(conn.getStatementCacheHits()).isZero();
+        assertThat(name("select name || '!' from t where id = ?", 2)).isEqualTo("two!");
+        assertThat(conn.getStatementCacheHits()).isEqualTo(1);
+    }
+
+    @Test
+    public void survivesSchemaChange() throws SQLException {
+        String sql = "select * from t where id = ?";
+        try (PreparedStatement prep = conn.prepareStatement(sql)) {
+            assertThat(prep.getMetaData().getColumnCount()).isEqualTo(2);
+        }
+        try (Statement stat = conn.createStatement()) {
+            stat.executeUpdate("alter table t add column extra text");
+        }
+        try (PreparedStatement prep = conn.prepareStatement(sql)) {
+            prep.setInt(1, 1);
+            try (ResultSet rs = prep.executeQuery()) {
+                assertThat(rs.getMetaData().getColumnCount()).isEqualTo(3);
+                assertThat(rs.getMetaData().getColumnName(3)).isEqualTo("extra");
+            }
+        }
+        assertThat(conn.getStatementCacheHits()).isEqualTo(1);
+    }
+
+    @Test
+    public void clear() throws SQLException {
+        name("select name from t where id = ?", 1);
+        assertThat(conn.getCachedStatementCount()).isEqualTo(1);
+        conn.clearStatementCache();
+        assertThat(conn.getCachedStatementCount()).isZero();
+        assertThat(name("select name from t where id = ?", 2)).isEqualTo("two");
+        assertThat(conn.getStatementCacheHits()).isZero();
+        assertThat(conn.getCachedStatementCount()).isEqualTo(1);
+    }
+}
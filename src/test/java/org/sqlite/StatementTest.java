@@ -15,13 +15,16 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
 import java.sql.Statement;
 import java.time.Instant;
 import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.sqlite.core.NativeDBHelper;
 import org.sqlite.jdbc3.JDBC3Statement;
 import org.sqlite.jdbc4.JDBC4Statement;
 
@@ -444,6 +447,103 @@ public class StatementTest {
         assertThatExceptionOfType(BatchUpdateException.class).isThrownBy(() -> stat.executeBatch());
     }
 
+    @Test
+    public void batchInOneTransaction() throws SQLException {
+        final int[] commits = {0};
+        ((SQLiteConnection) conn)
+                .addCommitListener(
+                        new SQLiteCommitListener() {
+                            @Override
+                            public void onCommit() {
+                                commits[0]++;
+                            }
+
+                            @Override
+                            public void onRollback() {}
+                        });
+        stat.executeUpdate("create table batch (c1 unique);");
+        commits[0] = 0;
+        for (int i = 0; i < 100; i++) {
+            stat.addBatch("insert into batch values (" + i + ");");
+            stat.addBatch("update batch set c1 = c1 where c1 >= 0;");
+        }
+        stat.addBatch("insert into batch values (100); insert into batch values (101);");
+        long[] changes = stat.executeLargeBatch();
+        assertThat(changes).hasSize(201);
+        assertThat(changes[0]).isEqualTo(1);
+        assertThat(changes[199]).isEqualTo(100);
+        assertThat(changes[200]).isEqualTo(2);
+        assertThat(commits[0]).isEqualTo(1);
+        assertThat(conn.getAutoCommit()).isTrue();
+    }
+
+    @Test
+    public void batchPartialFailure() throws SQLException {
+        stat.executeUpdate("create table batch (c1 unique);");
+        stat.addBatch("insert into batch values (1);");
+        stat.addBatch("insert into batch values (2);");
+        stat.addBatch("insert into batch values (1);");
+        stat.addBatch("insert into batch values (3);");
+        assertThatExceptionOfType(BatchUpdateException.class)
+                .isThrownBy(() -> stat.executeBatch())
+                .satisfies(e -> assertThat(e.getUpdateCounts()).containsExactly(1, 1));
+
+        // the entries before the failure are committed
+        try (ResultSet rs = stat.executeQuery("select group_concat(c1) from batch;")) {
+            assertThat(rs.getString(1)).isEqualTo("1,2");
+        }
+        assertThat(stat.executeBatch()).isEmpty();
+    }
+
+    @Test
+    public void batchControllingTransactions() throws SQLException {
+        stat.addBatch("create table batch (c1);");
+        stat.addBatch("begin;");
+        stat.addBatch("insert into batch values (1);");
+        stat.addBatch("rollback;");
+        stat.addBatch("insert into batch values (2);");
+        assertThat(stat.executeBatch()).hasSize(5).endsWith(1);
+        try (ResultSet rs = stat.executeQuery("select group_concat(c1) from batch;")) {
+            assertThat(rs.getString(1)).isEqualTo("2");
+        }
+    }
+
+    @Test
+    public void batchControllingTransactionsAfterComment() throws SQLException {
+        stat.addBatch("create table batch (c1);");
+        stat.addBatch("-- start over\n/* twice */ begin;");
+        stat.addBatch("insert into batch values (1);");
+        stat.addBatch("/* undo */ rollback;");
+        stat.addBatch("insert into batch values (2);");
+        assertThat(stat.executeBatch()).hasSize(5).endsWith(1);
+        try (ResultSet rs = stat.executeQuery("select group_concat(c1) from batch;")) {
+            assertThat(rs.getString(1)).isEqualTo("2");
+        }
+    }
+
+    @Test
+    public void batchWithPragma() throws SQLException {
+        stat.executeUpdate("pragma foreign_keys = on;");
+        stat.addBatch("create table batch (c1);");
+        stat.addBatch("pragma foreign_keys = off;");
+        stat.addBatch("insert into batch values (1);");
+        stat.executeBatch();
+        try (ResultSet rs = stat.executeQuery("pragma foreign_keys;")) {
+            assertThat(rs.getInt(1)).isZero();
+        }
+    }
+
+    @Test
+    public void batchWithVacuum() throws SQLException {
+        stat.addBatch("create table batch (c1);");
+        stat.addBatch("insert into batch values (1);");
+        stat.addBatch("vacuum;");
+        assertThat(stat.executeBatch()).hasSize(3);
+        try (ResultSet rs = stat.executeQuery("select count(*) from batch;")) {
+            assertThat(rs.getInt(1)).isEqualTo(1);
+        }
+    }
+
     @Test
     public void noSuchTable() {
         assertThatExceptionOfType(SQLException.class)
@@ -626,4 +726,63 @@ public class StatementTest {
 
         assertThat(rs.getLong(1)).isCloseTo(javaEpoch, offset(1L));
     }
+
+    @Test
+    public void queryTimeout() throws SQLException {
+        String endless =
+                "with recursive c(x) as (select 1 union all select x + 1 from c)"
+                        + " select count(*) from c";
+        stat.setQueryTimeout(1);
+        long start = System.nanoTime();
+        assertThatExceptionOfType(SQLTimeoutException.class)
+                .isThrownBy(() -> stat.executeQuery(endless))
+                .withCauseInstanceOf(SQLiteException.class);
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(10));
+
+        try (PreparedStatement prep = conn.prepareStatement(endless)) {
+            prep.setQueryTimeout(1);
+            assertThatExceptionOfType(SQLTimeoutException.class).isThrownBy(prep::executeQuery);
+        }
+
+        // the deadline only applies to the statement that set it
+        stat.setQueryTimeout(0);
+        try (ResultSet rs = stat.executeQuery("select 1")) {
+            assertThat(rs.getInt(1)).isEqualTo(1);
+        }
+        assertThat(NativeDBHelper.getProgressHandler(((SQLiteConnection) conn).getDatabase()))
+                .isEqualTo(0);
+    }
+
+    @Test
+    public void queryTimeoutWhileIterating() throws SQLException {
+        // the first row is found at once, the second one never
+        String endless =
+                "with recursive c(x) as (select 1 union all select x + 1 from c)"
+                        + " select x from c where x = 1 or x < 0";
+        try (Statement other = conn.createStatement()) {
+            stat.setQueryTimeout(1);
+            for (int fetchSize : new int[] {0, 10}) {
+                stat.setFetchSize(fetchSize);
+                try (ResultSet rs = stat.executeQuery(endless)) {
+                    if (fetchSize == 0) assertThat(rs.next()).isTrue();
+                    // another statement of the connection is not bound by the deadline
+                    try (ResultSet count =
+                            other.executeQuery(
+                                    "with recursive c(x) as (select 1 union all select x + 1"
+                                            + " from c where x < 100000) select count(*) from c")) {
+                        assertThat(count.getInt(1)).isEqualTo(100000);
+                    }
+                    long start = System.nanoTime();
+                    assertThatExceptionOfType(SQLTimeoutException.class)
+                            .isThrownBy(
+                                    () -> {
+                                        while (rs.next()) {}
+                                    });
+                    assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(10));
+                }
+            }
+        }
+        assertThat(NativeDBHelper.getProgressHandler(((SQLiteConnection) conn).getDatabase()))
+                .isEqualTo(0);
+    }
 }
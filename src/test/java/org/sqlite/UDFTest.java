@@ -1,6 +1,7 @@
 package org.sqlite;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.data.Offset.offset;
 
 import java.sql.Connection;
@@ -9,11 +10,13 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.sqlite.core.Codes;
 
 /** Tests User Defined Functions. */
 public class UDFTest {
@@ -294,6 +297,99 @@ public class UDFTest {
         assertThat(gotTrigger).isEqualTo(5);
     }
 
+    @Test
+    public void typedFunctions() throws SQLException {
+        Function.create(
+                conn,
+                "tlong",
+                new Function.LongFunction() {
+                    @Override
+                    protected long apply(long value) {
+                        return value * 2;
+                    }
+                });
+        Function.create(
+                conn,
+                "tdouble",
+                new Function.DoubleFunction() {
+                    @Override
+                    protected double apply(double value) {
+                        return Math.sqrt(value);
+                    }
+                });
+        Function.create(
+                conn,
+                "ttext",
+                new Function.TextFunction() {
+                    @Override
+                    protected String apply(String value) {
+                        return value.isEmpty()
+                                ? null
+                                : new StringBuilder(value).reverse().toString();
+                    }
+                });
+        Function.create(
+                conn,
+                "tblob",
+                new Function.BlobFunction() {
+                    @Override
+                    protected byte[] apply(byte[] value) {
+                        byte[] result = new byte[value.length + 1];
+                        System.arraycopy(value, 0, result, 1, value.length);
+                        return result;
+                    }
+                });
+
+        ResultSet rs =
+                stat.executeQuery(
+                        "select tlong(21), tlong('5'), tdouble(2.25), ttext('h\u00e9\ud83d\ude00'),"
+                                + " ttext(''), tblob(x'0102'), tlong(null), ttext(null);");
+        assertThat(rs.next()).isTrue();
+        assertThat(rs.getLong(1)).isEqualTo(42);
+        assertThat(rs.getLong(2)).isEqualTo(10);
+        assertThat(rs.getDouble(3)).isEqualTo(1.5);
+        assertThat(rs.getString(4))
+                .isEqualTo(new StringBuilder("h\u00e9\ud83d\ude00").reverse().toString());
+        assertThat(rs.getString(5)).isNull();
+        assertThat(rs.getBytes(6)).containsExactly(0, 1, 2);
+        assertThat(rs.getObject(7)).isNull();
+        assertThat(rs.getObject(8)).isNull();
+        rs.close();
+
+        assertThatThrownBy(() -> stat.executeQuery("select tlong(1, 2);"))
+                .isInstanceOf(SQLException.class);
+        assertThatThrownBy(
+                        () ->
+                                Function.create(
+                                        conn,
+                                        "tbad",
+                                        new Function.LongFunction() {
+                                            @Override
+                                            protected long apply(long value) {
+                                                return value;
+                                            }
+                                        },
+                                        2,
+                                        0))
+                .isInstanceOf(SQLException.class);
+    }
+
+    @Test
+    public void typedFunctionError() throws SQLException {
+        Function.create(
+                conn,
+                "tfail",
+                new Function.LongFunction() {
+                    @Override
+                    protected long apply(long value) throws SQLException {
+                        throw new SQLException("apply failed");
+                    }
+                });
+        assertThatThrownBy(() -> stat.executeQuery("select tfail(1);"))
+                .isInstanceOf(SQLException.class)
+                .hasMessageContaining("apply failed");
+    }
+
     @Test
     public void aggregate() throws SQLException {
         Function.create(
@@ -325,6 +421,162 @@ public class UDFTest {
         assertThat(rs.getInt(1)).isEqualTo(rs.getInt(2));
     }
 
+    @Test
+    public void batchAggregate() throws SQLException {
+        List<Integer> batches = new LinkedList<>();
+        Function.create(
+                conn,
+                "batchSum",
+                new Function.BatchAggregate(100) {
+                    private long sum = 0;
+
+                    @Override
+                    protected void xStep(Rows rows) {
+                        batches.add(rows.size());
+                        for (int i = 0; i < rows.size(); i++) {
+                            sum += rows.getLong(i, 0);
+                        }
+                    }
+
+                    @Override
+                    protected void xFinal() throws SQLException {
+                        result(sum);
+                    }
+                });
+        stat.executeUpdate("create table t (g, x);");
+        stat.executeUpdate(
+                "with recursive c(x) as (select 1 union all select x + 1 from c where x < 1000)"
+                        + " insert into t select x % 2, x from c;");
+
+        ResultSet rs = stat.executeQuery("select batchSum(x), sum(x) from t;");
+        assertThat(rs.next()).isTrue();
+        assertThat(rs.getLong(1)).isEqualTo(rs.getLong(2)).isEqualTo(500500);
+        assertThat(batches).hasSize(10).containsOnly(100);
+        rs.close();
+
+        rs = stat.executeQuery("select g, batchSum(x), sum(x) from t group by g order by g;");
+        for (int g = 0; g < 2; g++) {
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getLong(2)).isEqualTo(rs.getLong(3));
+        }
+        rs.close();
+
+        rs = stat.executeQuery("select batchSum(x) from t where x < 0;");
+        assertThat(rs.next()).isTrue();
+        assertThat(rs.getLong(1)).isZero();
+    }
+
+    @Test
+    public void batchAggregateValues() throws SQLException {
+        List<String> values = new LinkedList<>();
+        Function.create(
+                conn,
+                "describe",
+                new Function.BatchAggregate() {
+                    @Override
+                    protected void xStep(Rows rows) {
+                        assertThat(rows.args()).isEqualTo(2);
+                        for (int i = 0; i < rows.size(); i++) {
+                            if (rows.isNull(i, 0)) {
+                                values.add("null");
+                            } else if (rows.getType(i, 0) == Codes.SQLITE_BLOB) {
+                                values.add("blob " + rows.getBlob(i, 0).length);
+                            } else {
+                                values.add(rows.getText(i, 0) + " " + rows.getDouble(i, 1));
+                            }
+                        }
+                    }
+
+                    @Override
+                    protected void xFinal() throws SQLException {
+                        result(values.size());
+                    }
+                });
+        stat.executeUpdate("create table t (x, y);");
+        stat.executeUpdate("insert into t values (1, 0.5);");
+        stat.executeUpdate("insert into t values ('h\u00e9llo', '2');");
+        stat.executeUpdate("insert into t values (null, null);");
+        stat.executeUpdate("insert into t values (x'0102', 3);");
+        stat.executeUpdate("insert into t values (2.5, 4);");
+
+        ResultSet rs = stat.executeQuery("select describe(x, y) from t order by rowid;");
+        assertThat(rs.next()).isTrue();
+        assertThat(rs.getInt(1)).isEqualTo(5);
+        assertThat(values).containsExactly("1 0.5", "h\u00e9llo 2.0", "null", "blob 2", "2.5 4.0");
+    }
+
+    @Test
+    public void batchAggregateError() throws SQLException {
+        Function.create(
+                conn,
+                "failing",
+                new Function.BatchAggregate(10) {
+                    @Override
+                    protected void xStep(Rows rows) throws SQLException {
+                        throw new SQLException("batch failed");
+                    }
+
+                    @Override
+                    protected void xFinal() throws SQLException {
+                        result(0);
+                    }
+                });
+        stat.executeUpdate("create table t (x);");
+        stat.executeUpdate("insert into t values (1);");
+        assertThatThrownBy(() -> stat.executeQuery("select failing(x) from t;"))
+                .isInstanceOf(SQLException.class)
+                .hasMessageContaining("batch failed");
+    }
+
+    @Test
+    public void batchAggregateConvertsAsSQLite() throws SQLException {
+        final List<Object> scalar = new ArrayList<>();
+        final List<Object> batched = new ArrayList<>();
+        Function.create(
+                conn,
+                "convert",
+                new Function() {
+                    @Override
+                    protected void xFunc() throws SQLException {
+                        scalar.add(value_long(0));
+                        scalar.add(value_double(0));
+                        scalar.add(value_text(0));
+                        result(0);
+                    }
+                });
+        Function.create(
+                conn,
+                "batchConvert",
+                new Function.BatchAggregate(4) {
+                    @Override
+                    protected void xStep(Rows rows) {
+                        for (int i = 0; i < rows.size(); i++) {
+                            batched.add(rows.getLong(i, 0));
+                            batched.add(rows.getDouble(i, 0));
+                            batched.add(rows.getText(i, 0));
+                        }
+                    }
+
+                    @Override
+                    protected void xFinal() throws SQLException {
+                        result(0);
+                    }
+                });
+        stat.executeUpdate("create table t (x);");
+        stat.executeUpdate(
+                "insert into t values (12), ('12abc'), ('9223372036854775807'),"
+                        + " ('9223372036854775808'), (' 12 '), ('0x1F'), ('1e400'), ('-0.0'),"
+                        + " (-0.0), (0.1), (1e15), (1e20), (123456789.123456789),"
+                        + " (0.30000000000000004), (9223372036854775807), (x'3132'), (null)");
+
+        try (ResultSet rs = stat.executeQuery("select convert(x) from t order by rowid;")) {
+            while (rs.next()) {}
+        }
+        stat.executeQuery("select batchConvert(x) from (select x from t order by rowid);").close();
+        assertThat(scalar).hasSize(17 * 3);
+        assertThat(batched).isEqualTo(scalar);
+    }
+
     @Test
     public void window() throws SQLException {
         Function.create(
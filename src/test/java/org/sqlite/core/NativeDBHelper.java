@@ -1,5 +1,10 @@
 package org.sqlite.core;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import org.sqlite.SQLiteCsvFormat;
+
 /** This is a helper class for exposing package local functions of NativeDB to unit tests */
 public class NativeDBHelper {
     /**
@@ -41,4 +46,23 @@ public class NativeDBHelper {
     public static long getUpdateListener(DB nativeDB) {
         return ((NativeDB) nativeDB).getUpdateListener();
     }
+
+    /**
+     * Import a delimited text file, mapping smaller windows of it than imports do by default
+     *
+     * @param nativeDB the native db object
+     * @param windowSize the size of the windows of the file mapped at once
+     * @return the number of rows inserted
+     */
+    public static long importCsv(
+            DB nativeDB,
+            Path file,
+            String table,
+            SQLiteCsvFormat format,
+            int commitRows,
+            DB.ProgressObserver observer,
+            int windowSize)
+            throws SQLException, IOException {
+        return nativeDB.importCsv(file, table, format, commitRows, observer, windowSize);
+    }
 }
@@ -0,0 +1,120 @@
+package org.sqlite.mc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sqlite.SQLiteConfig;
+
+class SQLiteMCKeyCacheTest {
+    private static final byte[] SALT = "salt".getBytes(StandardCharsets.US_ASCII);
+
+    @Test
+    void derivesPbkdf2() throws SQLException {
+        // RFC 6070, the first 20 bytes are the single SHA1 block of the test vector
+        byte[] key = SQLiteMCKeyCache.pbkdf2(KdfAlgorithm.SHA1, "password", SALT, 2, 32);
+        assertThat(key).hasSize(32);
+        assertThat(SQLiteMCKeyCache.toHex(key))
+                .startsWith("ea6c014dc72d6f8ccd1ed92ace1d41f0d8de8957");
+    }
+
+    @Test
+    void cachesKeys() throws SQLException {
+        SQLiteMCKeyCache cache = new SQLiteMCKeyCache(2);
+        byte[] first = cache.deriveKey("a.db", SALT, KdfAlgorithm.SHA512, 1000, 32, "secret");
+        byte[] second = cache.deriveKey("a.db", SALT, KdfAlgorithm.SHA512, 1000, 32, "secret");
+        assertThat(second).isEqualTo(first).isNotSameAs(first);
+        assertThat(cache.getMissCount()).isOne();
+        assertThat(cache.getHitCount()).isOne();
+        assertThat(cache.size()).isOne();
+
+        // every part of the identity is taken into account
+        assertThat(cache.deriveKey("a.db", SALT, KdfAlgorithm.SHA512, 1000, 32, "other"))
+                .isNotEqualTo(first);
+        assertThat(cache.deriveKey("a.db", SALT, KdfAlgorithm.SHA256, 1000, 32, "secret"))
+                .isNotEqualTo(first);
+        assertThat(cache.deriveKey("b.db", SALT, KdfAlgorithm.SHA512, 1000, 32, "secret"))
+                .isEqualTo(first);
+        assertThat(cache.getMissCount()).isEqualTo(4);
+        assertThat(cache.size()).isEqualTo(2);
+
+        cache.invalidate("b.db", SALT, KdfAlgorithm.SHA512, 1000, 32, "secret");
+        assertThat(cache.size()).isOne();
+        cache.clear();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.getHitCount()).isZero();
+    }
+
+    @Test
+    void capacity() throws SQLException {
+        SQLiteMCKeyCache cache = new SQLiteMCKeyCache(0);
+        cache.deriveKey("a.db", SALT, KdfAlgorithm.SHA1, 10, 32, "secret");
+        cache.deriveKey("a.db", SALT, KdfAlgorithm.SHA1, 10, 32, "secret");
+        assertThat(cache.getMissCount()).isEqualTo(2);
+        assertThat(cache.size()).isZero();
+
+        cache.setCapacity(2);
+        cache.deriveKey("a.db", SALT, KdfAlgorithm.SHA1, 10, 32, "secret");
+        cache.deriveKey("b.db", SALT, KdfAlgorithm.SHA1, 10, 32, "secret");
+        cache.deriveKey("a.db", SALT, KdfAlgorithm.SHA1, 10, 32, "secret");
+        cache.setCapacity(1);
+        // the least recently used key is dropped
+        cache.deriveKey("a.db", SALT, KdfAlgorithm.SHA1, 10, 32, "secret");
+        assertThat(cache.getHitCount()).isEqualTo(2);
+        cache.deriveKey("b.db", SALT, KdfAlgorithm.SHA1, 10, 32, "secret");
+        assertThat(cache.getMissCount()).isEqualTo(5);
+    }
+
+    @Test
+    void builderOption() {
+        SQLiteMCConfig config = SQLiteMCSqlCipherConfig.getDefault().useKeyCache().build();
+        assertThat(config.toProperties().getProperty(SQLiteConfig.Pragma.MC_KEY_CACHE.pragmaName))
+                .isEqualTo("true");
+    }
+
+    private static Connection open(String url, String key) throws SQLException {
+        return SQLiteMCSqlCipherConfig.getDefault()
+                .withKey(key)
+                .useKeyCache()
+                .build()
+                .createConnection(url);
+    }
+
+    @Test
+    void opensEncryptedDatabase(@TempDir File dir) throws SQLException {
+        String url = "jdbc:sqlite:file:" + new File(dir, "cached.db").getAbsolutePath();
+        SQLiteMCKeyCache cache = SQLiteMCKeyCache.getInstance();
+        cache.clear();
+
+        try (Connection conn = open(url, "secret");
+                Statement stat = conn.createStatement()) {
+            stat.executeUpdate("create table t (v text)");
+            stat.executeUpdate("insert into t values ('encrypted')");
+        }
+        // there is no salt to derive a key with before the database is created
+        assertThat(cache.getMissCount()).isZero();
+
+        for (int i = 0; i < 2; i++) {
+            try (Connection conn = open(url, "secret");
+                    Statement stat = conn.createStatement();
+                    ResultSet rs = stat.executeQuery("select v from t")) {
+                assertThat(rs.next()).isTrue();
+                assertThat(rs.getString(1)).isEqualTo("encrypted");
+            }
+        }
+        assertThat(cache.getMissCount()).isOne();
+        assertThat(cache.getHitCount()).isOne();
+
+        assertThatExceptionOfType(SQLException.class).isThrownBy(() -> open(url, "wrong"));
+        // the key of the wrong passphrase is not kept
+        assertThat(cache.size()).isOne();
+        cache.clear();
+    }
+}